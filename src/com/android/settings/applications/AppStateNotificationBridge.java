@@ -38,6 +38,7 @@ import com.android.settingslib.applications.ApplicationsState.AppEntry;
 import com.android.settingslib.applications.ApplicationsState.AppFilter;
 import com.android.settingslib.utils.StringUtil;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
@@ -55,6 +56,7 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
     private IUsageStatsManager mUsageStatsManager;
     protected List<Integer> mUserIds;
     private NotificationBackend mBackend;
+    private NotificationUsageStore mUsageStore;
     private static final int DAYS_TO_CHECK = 7;
 
     public AppStateNotificationBridge(Context context, ApplicationsState appState,
@@ -147,32 +149,10 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
         long now = System.currentTimeMillis();
         long startTime = now - (DateUtils.DAY_IN_MILLIS * DAYS_TO_CHECK);
         for (int userId : mUserIds) {
-            UsageEvents events = null;
-            try {
-                events = mUsageStatsManager.queryEventsForUser(
-                        startTime, now, userId, mContext.getPackageName());
-            } catch (RemoteException e) {
-                e.printStackTrace();
-            }
-            if (events != null) {
-                UsageEvents.Event event = new UsageEvents.Event();
-                while (events.hasNextEvent()) {
-                    events.getNextEvent(event);
-                    NotificationsSentState stats =
-                            aggregatedStats.get(getKey(userId, event.getPackageName()));
-                    if (stats == null) {
-                        stats = new NotificationsSentState();
-                        aggregatedStats.put(getKey(userId, event.getPackageName()), stats);
-                    }
-
-                    if (event.getEventType() == UsageEvents.Event.NOTIFICATION_INTERRUPTION) {
-                        if (event.getTimeStamp() > stats.lastSent) {
-                            stats.lastSent = event.getTimeStamp();
-                        }
-                        stats.sentCount++;
-                    }
-
-                }
+            updateUsageStore(userId, startTime, now);
+            for (Map.Entry<String, NotificationsSentState> entry
+                    : getUsageStore().getPackageStats(userId).entrySet()) {
+                aggregatedStats.put(getKey(userId, entry.getKey()), entry.getValue());
             }
         }
         return aggregatedStats;
@@ -183,6 +163,11 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
 
         long now = System.currentTimeMillis();
         long startTime = now - (DateUtils.DAY_IN_MILLIS * DAYS_TO_CHECK);
+        if (getUsageStore().hasRollup(userId)) {
+            // Catching up with the events of all packages is cheaper than replaying the window.
+            updateUsageStore(userId, startTime, now);
+            return getUsageStore().getPackageStats(userId).get(pkg);
+        }
         UsageEvents events = null;
         try {
             events = mUsageStatsManager.queryEventsForPackageForUser(
@@ -210,6 +195,30 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
         return stats;
     }
 
+    /**
+     * Rolls up the usage events of {@code userId} since the last update.
+     */
+    private void updateUsageStore(int userId, long startTime, long now) {
+        final NotificationUsageStore store = getUsageStore();
+        final long queryStart = store.getQueryStartTime(userId, startTime, now);
+        try {
+            final UsageEvents events = mUsageStatsManager.queryEventsForUser(
+                    queryStart, now, userId, mContext.getPackageName());
+            store.merge(userId, events, queryStart, now, startTime);
+        } catch (RemoteException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private synchronized NotificationUsageStore getUsageStore() {
+        if (mUsageStore == null) {
+            // Created lazily since getting the files directory hits the disk.
+            mUsageStore = new NotificationUsageStore(
+                    new File(mContext.getFilesDir(), "notification_usage"));
+        }
+        return mUsageStore;
+    }
+
     private static NotificationsSentState getNotificationsSentState(AppEntry entry) {
         if (entry == null || entry.extraInfo == null) {
             return null;
@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import android.app.usage.UsageEvents;
+import android.text.format.DateUtils;
+import android.util.ArrayMap;
+import android.util.AtomicFile;
+import android.util.Log;
+import android.util.LongSparseArray;
+import android.util.SparseArray;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settings.applications.AppStateNotificationBridge.NotificationsSentState;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Persistent per hour rollups of the notifications sent by each package, so that only the usage
+ * events since the last checkpoint need to be queried.
+ *
+ * <p>Rollups are evicted a whole hour at a time, once the window checked slides past their hour,
+ * so the stats cover at most an hour more than the window. Events are trusted to be in the range
+ * they were queried for.
+ */
+class NotificationUsageStore {
+
+    private static final String TAG = "NotificationUsageStore";
+    private static final int VERSION = 2;
+
+    private final File mDir;
+    private final SparseArray<UserRollup> mUserRollups = new SparseArray<>();
+
+    NotificationUsageStore(File dir) {
+        mDir = dir;
+    }
+
+    /**
+     * @return the time to query the usage events of {@code userId} from, to bring the rollups up
+     * to date for a window starting at {@code windowStart}.
+     */
+    synchronized long getQueryStartTime(int userId, long windowStart, long now) {
+        final UserRollup rollup = getUserRollup(userId);
+        if (rollup.mCheckpoint < windowStart || rollup.mCheckpoint > now) {
+            // Too old to be completed, or the clock went backwards.
+            return windowStart;
+        }
+        return rollup.mCheckpoint;
+    }
+
+    /**
+     * @return {@code true} if there are rollups for {@code userId}, in memory or on disk.
+     */
+    synchronized boolean hasRollup(int userId) {
+        return mUserRollups.get(userId) != null || getFile(userId).exists();
+    }
+
+    /**
+     * Merges the usage events of {@code userId} queried from {@code queryStart} to
+     * {@code queryEnd} and persists the rollups.
+     */
+    synchronized void merge(int userId, UsageEvents events, long queryStart, long queryEnd,
+            long windowStart) {
+        UserRollup rollup = getUserRollup(userId);
+        if (queryStart != rollup.mCheckpoint) {
+            // Queried the whole window again.
+            rollup = new UserRollup();
+            mUserRollups.put(userId, rollup);
+        }
+        rollup.evictBefore(getBucket(windowStart));
+        if (events != null) {
+            final UsageEvents.Event event = new UsageEvents.Event();
+            while (events.hasNextEvent()) {
+                events.getNextEvent(event);
+                if (event.getEventType() == UsageEvents.Event.NOTIFICATION_INTERRUPTION) {
+                    rollup.add(event.getPackageName(), event.getTimeStamp());
+                }
+            }
+        }
+        rollup.mCheckpoint = queryEnd;
+        write(userId, rollup);
+    }
+
+    /**
+     * @return the notifications sent by each package of {@code userId}, keyed by package name.
+     */
+    synchronized Map<String, NotificationsSentState> getPackageStats(int userId) {
+        final ArrayMap<String, NotificationsSentState> stats = new ArrayMap<>();
+        final UserRollup rollup = getUserRollup(userId);
+        for (int i = 0; i < rollup.mBuckets.size(); i++) {
+            final ArrayMap<String, PackageRollup> packages = rollup.mBuckets.valueAt(i);
+            for (int j = 0; j < packages.size(); j++) {
+                final PackageRollup packageRollup = packages.valueAt(j);
+                NotificationsSentState state = stats.get(packages.keyAt(j));
+                if (state == null) {
+                    state = new NotificationsSentState();
+                    stats.put(packages.keyAt(j), state);
+                }
+                state.sentCount += packageRollup.mSentCount;
+                state.lastSent = Math.max(state.lastSent, packageRollup.mLastSent);
+            }
+        }
+        return stats;
+    }
+
+    private UserRollup getUserRollup(int userId) {
+        UserRollup rollup = mUserRollups.get(userId);
+        if (rollup == null) {
+            rollup = read(userId);
+            mUserRollups.put(userId, rollup);
+        }
+        return rollup;
+    }
+
+    private File getFile(int userId) {
+        return new File(mDir, "notification_usage_" + userId);
+    }
+
+    private UserRollup read(int userId) {
+        final UserRollup rollup = new UserRollup();
+        final AtomicFile file = new AtomicFile(getFile(userId));
+        try (DataInputStream in = new DataInputStream(file.openRead())) {
+            if (in.readInt() != VERSION) {
+                return rollup;
+            }
+            final long checkpoint = in.readLong();
+            final int bucketCount = in.readInt();
+            for (int i = 0; i < bucketCount; i++) {
+                final long bucket = in.readLong();
+                final int packageCount = in.readInt();
+                final ArrayMap<String, PackageRollup> packages = new ArrayMap<>(packageCount);
+                for (int j = 0; j < packageCount; j++) {
+                    final String packageName = in.readUTF();
+                    final PackageRollup packageRollup = new PackageRollup();
+                    packageRollup.mSentCount = in.readInt();
+                    packageRollup.mLastSent = in.readLong();
+                    packages.put(packageName, packageRollup);
+                }
+                rollup.mBuckets.put(bucket, packages);
+            }
+            rollup.mCheckpoint = checkpoint;
+            return rollup;
+        } catch (FileNotFoundException e) {
+            return rollup;
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to read rollups of user " + userId, e);
+            return new UserRollup();
+        }
+    }
+
+    private void write(int userId, UserRollup rollup) {
+        if (!mDir.exists() && !mDir.mkdirs()) {
+            Log.w(TAG, "Failed to create " + mDir);
+            return;
+        }
+        final AtomicFile file = new AtomicFile(getFile(userId));
+        FileOutputStream out = null;
+        try {
+            out = file.startWrite();
+            final DataOutputStream data = new DataOutputStream(out);
+            data.writeInt(VERSION);
+            data.writeLong(rollup.mCheckpoint);
+            data.writeInt(rollup.mBuckets.size());
+            for (int i = 0; i < rollup.mBuckets.size(); i++) {
+                data.writeLong(rollup.mBuckets.keyAt(i));
+                final ArrayMap<String, PackageRollup> packages = rollup.mBuckets.valueAt(i);
+                data.writeInt(packages.size());
+                for (int j = 0; j < packages.size(); j++) {
+                    data.writeUTF(packages.keyAt(j));
+                    data.writeInt(packages.valueAt(j).mSentCount);
+                    data.writeLong(packages.valueAt(j).mLastSent);
+                }
+            }
+            data.flush();
+            file.finishWrite(out);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write rollups of user " + userId, e);
+            file.failWrite(out);
+        }
+    }
+
+    @VisibleForTesting
+    static long getBucket(long time) {
+        return time / DateUtils.HOUR_IN_MILLIS;
+    }
+
+    private static class UserRollup {
+        // Events are rolled up up to this time.
+        long mCheckpoint = -1;
+        final LongSparseArray<ArrayMap<String, PackageRollup>> mBuckets =
+                new LongSparseArray<>();
+
+        void add(String packageName, long time) {
+            final long bucket = getBucket(time);
+            ArrayMap<String, PackageRollup> packages = mBuckets.get(bucket);
+            if (packages == null) {
+                packages = new ArrayMap<>();
+                mBuckets.put(bucket, packages);
+            }
+            PackageRollup packageRollup = packages.get(packageName);
+            if (packageRollup == null) {
+                packageRollup = new PackageRollup();
+                packages.put(packageName, packageRollup);
+            }
+            packageRollup.mSentCount++;
+            packageRollup.mLastSent = Math.max(packageRollup.mLastSent, time);
+        }
+
+        void evictBefore(long bucket) {
+            // Buckets are sorted, stop at the first one to keep.
+            while (mBuckets.size() > 0 && mBuckets.keyAt(0) < bucket) {
+                mBuckets.removeAt(0);
+            }
+        }
+    }
+
+    private static class PackageRollup {
+        int mSentCount;
+        long mLastSent;
+    }
+}
@@ -19,6 +19,8 @@ package com.android.settings.applications;
 import android.app.ActivityManager;
 import android.content.Context;
 import android.content.pm.PackageManager;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.ParcelFileDescriptor;
 import android.os.RemoteException;
 import android.os.ServiceManager;
@@ -29,6 +31,8 @@ import android.util.Log;
 import android.util.LongSparseArray;
 import android.util.SparseArray;
 
+import androidx.annotation.VisibleForTesting;
+
 import com.android.internal.app.ProcessMap;
 import com.android.internal.app.procstats.DumpUtils;
 import com.android.internal.app.procstats.IProcessStats;
@@ -53,8 +57,17 @@ public class ProcStatsData {
 
     private static final boolean DEBUG = ProcessStatsUi.DEBUG;
 
+    // How long loaded stats are reused, e.g. when switching between durations.
+    @VisibleForTesting
+    static final long STATS_CACHE_TTL_MS = 60 * 1000;
+
     private static ProcessStats sStatsXfer;
 
+    // Stats recently loaded from the service, by duration.
+    private static final LongSparseArray<CachedStats> sStatsCache = new LongSparseArray<>();
+    private static Handler sCacheHandler;
+    private static boolean sTrimScheduled;
+
     private PackageManager mPm;
     private Context mContext;
     private long memTotalTime;
@@ -119,7 +132,7 @@ public class ProcStatsData {
     }
 
     public long getElapsedTime() {
-        return mStats.mTimePeriodEndRealtime - mStats.mTimePeriodStartRealtime;
+        return getElapsedTime(mStats);
     }
 
     public void setDuration(long duration) {
@@ -341,21 +354,127 @@ public class ProcStatsData {
         return procEntries;
     }
 
+    /**
+     * Loads the stats of each duration in {@code durations} into the cache, so that switching to
+     * them doesn't wait for the service. Must not be called on the main thread.
+     */
+    public void prefetch(long[] durations) {
+        for (long duration : durations) {
+            if (getCachedStats(duration, SystemClock.elapsedRealtime()) == null) {
+                loadFromService(duration);
+            }
+        }
+    }
+
     private void load() {
+        final ProcessStats cachedStats = getCachedStats(mDuration, SystemClock.elapsedRealtime());
+        if (cachedStats != null) {
+            mStats = cachedStats;
+            return;
+        }
+        final ProcessStats stats = loadFromService(mDuration);
+        if (stats != null) {
+            mStats = stats;
+        }
+    }
+
+    private ProcessStats loadFromService(long duration) {
+        final ProcessStats stats = new ProcessStats(false);
         try {
-            ParcelFileDescriptor pfd = mProcessStats.getStatsOverTime(mDuration);
-            mStats = new ProcessStats(false);
+            ParcelFileDescriptor pfd = mProcessStats.getStatsOverTime(duration);
             InputStream is = new ParcelFileDescriptor.AutoCloseInputStream(pfd);
-            mStats.read(is);
+            stats.read(is);
             try {
                 is.close();
             } catch (IOException e) {
             }
-            if (mStats.mReadError != null) {
-                Log.w(TAG, "Failure reading process stats: " + mStats.mReadError);
-            }
         } catch (RemoteException e) {
             Log.e(TAG, "RemoteException:", e);
+            return null;
+        }
+        if (stats.mReadError != null) {
+            Log.w(TAG, "Failure reading process stats: " + stats.mReadError);
+        } else {
+            putCachedStats(duration, stats, SystemClock.elapsedRealtime());
+        }
+        return stats;
+    }
+
+    /**
+     * Returns fresh stats covering {@code duration}, if any. The stats loaded for a shorter
+     * duration are used if they cover less than it: the service merges older stats until the
+     * duration is covered, so that means there are no older stats.
+     */
+    @VisibleForTesting
+    static ProcessStats getCachedStats(long duration, long now) {
+        synchronized (sStatsCache) {
+            ProcessStats bestStats = null;
+            for (int i = sStatsCache.size() - 1; i >= 0; i--) {
+                final long cachedDuration = sStatsCache.keyAt(i);
+                final CachedStats cached = sStatsCache.valueAt(i);
+                if (now - cached.mLoadTime >= STATS_CACHE_TTL_MS) {
+                    sStatsCache.removeAt(i);
+                } else if (cachedDuration == duration) {
+                    bestStats = cached.mStats;
+                } else if (bestStats == null && cachedDuration < duration
+                        && getElapsedTime(cached.mStats) < cachedDuration) {
+                    bestStats = cached.mStats;
+                }
+            }
+            return bestStats;
+        }
+    }
+
+    @VisibleForTesting
+    static void putCachedStats(long duration, ProcessStats stats, long now) {
+        synchronized (sStatsCache) {
+            if (!sTrimScheduled) {
+                scheduleTrimCache();
+            }
+            sStatsCache.put(duration, new CachedStats(stats, now));
+        }
+    }
+
+    @VisibleForTesting
+    static void clearCache() {
+        synchronized (sStatsCache) {
+            sStatsCache.clear();
+        }
+    }
+
+    private static void scheduleTrimCache() {
+        if (sCacheHandler == null) {
+            sCacheHandler = new Handler(Looper.getMainLooper());
+        }
+        sTrimScheduled = true;
+        // Don't hold the stats, which can be large, once nobody looks at them.
+        sCacheHandler.postDelayed(() -> {
+            synchronized (sStatsCache) {
+                sTrimScheduled = false;
+                final long now = SystemClock.elapsedRealtime();
+                for (int i = sStatsCache.size() - 1; i >= 0; i--) {
+                    if (now - sStatsCache.valueAt(i).mLoadTime >= STATS_CACHE_TTL_MS) {
+                        sStatsCache.removeAt(i);
+                    }
+                }
+                if (sStatsCache.size() > 0) {
+                    scheduleTrimCache();
+                }
+            }
+        }, STATS_CACHE_TTL_MS);
+    }
+
+    private static long getElapsedTime(ProcessStats stats) {
+        return stats.mTimePeriodEndRealtime - stats.mTimePeriodStartRealtime;
+    }
+
+    private static class CachedStats {
+        final ProcessStats mStats;
+        final long mLoadTime;
+
+        CachedStats(ProcessStats stats, long loadTime) {
+            mStats = stats;
+            mLoadTime = loadTime;
         }
     }
 
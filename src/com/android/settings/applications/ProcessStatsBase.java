@@ -28,10 +28,15 @@ import com.android.settings.R;
 import com.android.settings.SettingsActivity;
 import com.android.settings.SettingsPreferenceFragment;
 import com.android.settings.applications.ProcStatsData.MemInfo;
+import com.android.settings.core.LifecycleExecutor;
+import com.android.settings.core.SettingsExecutors;
 import com.android.settings.core.SubSettingLauncher;
 import com.android.settingslib.core.instrumentation.Instrumentable;
+import com.android.settingslib.utils.ThreadUtils;
 import com.android.settingslib.widget.settingsspinner.SettingsSpinnerAdapter;
 
+import java.util.concurrent.Future;
+
 public abstract class ProcessStatsBase extends SettingsPreferenceFragment
         implements OnItemSelectedListener {
     private static final String DURATION = "duration";
@@ -63,6 +68,15 @@ public abstract class ProcessStatsBase extends SettingsPreferenceFragment
     protected ProcStatsData mStatsManager;
     protected int mDurationIndex;
 
+    private long mDuration;
+    private LifecycleExecutor mExecutor;
+    private LifecycleExecutor mIdleExecutor;
+    // Bumped on each load, so only the latest one updates the stats and is shown.
+    private volatile int mLoadGeneration;
+    private Future<?> mLoadFuture;
+    private boolean mStatsLoaded;
+    private boolean mPrefetched;
+
     @Override
     public void onCreate(Bundle icicle) {
         super.onCreate(icicle);
@@ -70,26 +84,82 @@ public abstract class ProcessStatsBase extends SettingsPreferenceFragment
         Bundle args = getArguments();
         mStatsManager = new ProcStatsData(getActivity(), icicle != null
                 || (args != null && args.getBoolean(ARG_TRANSFER_STATS, false)));
+        mExecutor = new LifecycleExecutor(getSettingsLifecycle(),
+                SettingsExecutors.LANE_PREFETCH);
+        mIdleExecutor = new LifecycleExecutor(getSettingsLifecycle(),
+                SettingsExecutors.LANE_IDLE);
 
         mDurationIndex = icicle != null
                 ? icicle.getInt(ARG_DURATION_INDEX)
                 : args != null ? args.getInt(ARG_DURATION_INDEX) : 0;
-        mStatsManager.setDuration(icicle != null
-                ? icicle.getLong(DURATION, sDurations[0]) : sDurations[0]);
+        mDuration = icicle != null ? icicle.getLong(DURATION, sDurations[0]) : sDurations[0];
     }
 
     @Override
     public void onSaveInstanceState(Bundle outState) {
         super.onSaveInstanceState(outState);
-        outState.putLong(DURATION, mStatsManager.getDuration());
+        outState.putLong(DURATION, mDuration);
         outState.putInt(ARG_DURATION_INDEX, mDurationIndex);
     }
 
     @Override
     public void onResume() {
         super.onResume();
-        mStatsManager.refreshStats(false);
-        refreshUi();
+        loadStats();
+    }
+
+    /**
+     * Calls {@link #refreshUi()} if the stats of the selected duration are loaded. It will be
+     * called anyway once they are.
+     */
+    protected void refreshUiIfLoaded() {
+        if (!mStatsLoaded) {
+            return;
+        }
+        // Stale loads may still be running, they return early once they hold the lock.
+        synchronized (mStatsManager) {
+            refreshUi();
+        }
+    }
+
+    private void loadStats() {
+        final int generation = ++mLoadGeneration;
+        final long duration = mDuration;
+        final ProcStatsData statsManager = mStatsManager;
+        mStatsLoaded = false;
+        if (mLoadFuture != null) {
+            mLoadFuture.cancel(false /* mayInterruptIfRunning */);
+        }
+        // Loading from the service takes long, and no UI may be shown without the stats.
+        mLoadFuture = mExecutor.submit(() -> {
+            synchronized (statsManager) {
+                // Don't let an older load finishing last override the latest duration.
+                if (generation != mLoadGeneration) {
+                    return;
+                }
+                if (statsManager.getDuration() != duration) {
+                    statsManager.setDuration(duration);
+                } else {
+                    statsManager.refreshStats(false);
+                }
+            }
+            ThreadUtils.postOnMainThread(() -> onStatsLoaded(generation));
+        });
+    }
+
+    private void onStatsLoaded(int generation) {
+        if (generation != mLoadGeneration || mExecutor.isDestroyed() || getActivity() == null) {
+            return;
+        }
+        mLoadFuture = null;
+        mStatsLoaded = true;
+        refreshUiIfLoaded();
+        if (!mPrefetched) {
+            // Have the other durations ready when the user switches to them.
+            mPrefetched = true;
+            final ProcStatsData statsManager = mStatsManager;
+            mIdleExecutor.execute(() -> statsManager.prefetch(sDurations));
+        }
     }
 
     @Override
@@ -118,8 +188,12 @@ public abstract class ProcessStatsBase extends SettingsPreferenceFragment
     @Override
     public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
         mDurationIndex = position;
-        mStatsManager.setDuration(sDurations[position]);
-        refreshUi();
+        if (mDuration != sDurations[position]) {
+            mDuration = sDurations[position];
+            loadStats();
+        } else {
+            refreshUiIfLoaded();
+        }
     }
 
     @Override
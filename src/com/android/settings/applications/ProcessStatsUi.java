@@ -79,7 +79,7 @@ public class ProcessStatsUi extends ProcessStatsBase {
             case MENU_SHOW_AVG:
             case MENU_SHOW_MAX:
                 mShowMax = !mShowMax;
-                refreshUi();
+                refreshUiIfLoaded();
                 updateMenu();
                 return true;
         }
@@ -161,6 +161,8 @@ public class RunningProcessesView extends FrameLayout
         public TextView description;
         public TextView size;
         public TextView uptime;
+        // The item bound to the views, whose icon may be loading.
+        RunningState.BaseItem mBoundItem;
 
         public ViewHolder(View v) {
             rootView = v;
@@ -198,7 +200,14 @@ public class RunningProcessesView extends FrameLayout
                     description.setText(item.mDescription);
                 }
                 item.mCurSizeStr = null;
-                icon.setImageDrawable(item.loadIcon(rootView.getContext(), state));
+                mBoundItem = item;
+                icon.setImageDrawable(item.loadIcon(rootView.getContext(), state,
+                        (key, result) -> {
+                            // Skips the icon if the views are bound to another item already.
+                            if (mBoundItem == item) {
+                                icon.setImageDrawable(RunningState.BaseItem.newIcon(result));
+                            }
+                        }));
                 icon.setVisibility(View.VISIBLE);
                 ai.updateTime(rootView.getContext(), builder);
                 return ai;
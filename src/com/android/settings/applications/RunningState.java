@@ -37,17 +37,22 @@ import android.os.HandlerThread;
 import android.os.Looper;
 import android.os.Message;
 import android.os.RemoteException;
+import android.os.SystemClock;
 import android.os.UserHandle;
 import android.os.UserManager;
 import android.text.format.Formatter;
 import android.util.Log;
 import android.util.SparseArray;
 
+import androidx.annotation.VisibleForTesting;
+
 import com.android.settings.R;
+import com.android.settings.utils.AppLabelIconLoader;
 import com.android.settingslib.Utils;
 import com.android.settingslib.applications.InterestingConfigChanges;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -62,6 +67,9 @@ public class RunningState {
     static final String TAG = "RunningState";
     static final boolean DEBUG_COMPARE = false;
 
+    // Prefix of the keys of the item icons in AppLabelIconLoader.
+    static final String ICON_CACHE_KEY_PREFIX = "running_state:";
+
     static Object sGlobalLock = new Object();
     static RunningState sInstance;
 
@@ -72,6 +80,9 @@ public class RunningState {
 
     static final long TIME_UPDATE_DELAY = 1000;
     static final long CONTENTS_UPDATE_DELAY = 2000;
+    // Sizes of known processes are refreshed less often than the contents, since retrieving
+    // them is expensive for the system. New processes get their size right away.
+    static final long PSS_UPDATE_DELAY = 3 * CONTENTS_UPDATE_DELAY;
 
     static final int MAX_SERVICES = 100;
 
@@ -138,6 +149,7 @@ public class RunningState {
     final SparseArray<AppProcessInfo> mTmpAppProcesses = new SparseArray<AppProcessInfo>();
 
     int mSequence = 0;
+    long mLastPssUpdateTime;
 
     final Comparator<RunningState.MergedItem> mBackgroundComparator =
             new Comparator<RunningState.MergedItem>() {
@@ -354,6 +366,8 @@ public class RunningState {
 
         long mActiveSince;
         long mSize;
+        // The size mSizeStr was formatted from.
+        long mFormattedSize = -1;
         String mSizeStr;
         String mCurSizeStr;
         boolean mNeedDivider;
@@ -364,20 +378,52 @@ public class RunningState {
             mUserId = userId;
         }
 
-        public Drawable loadIcon(Context context, RunningState state) {
+        /**
+         * Returns the icon if it is cached, otherwise loads it in the background and notifies
+         * {@code callback} once loaded, see {@link #newIcon(AppLabelIconLoader.LabelAndIcon)}.
+         */
+        public Drawable loadIcon(Context context, RunningState state,
+                AppLabelIconLoader.Callback callback) {
             if (mPackageInfo != null) {
-                Drawable unbadgedIcon = mPackageInfo.loadUnbadgedIcon(state.mPm);
-                Drawable icon = state.mPm.getUserBadgedIcon(unbadgedIcon, new UserHandle(mUserId));
-                return icon;
+                final AppLabelIconLoader loader = AppLabelIconLoader.getInstance();
+                final String key = ICON_CACHE_KEY_PREFIX + mUserId + ":"
+                        + mPackageInfo.packageName + "/" + mPackageInfo.name;
+                final AppLabelIconLoader.LabelAndIcon cached = loader.getCached(key);
+                if (cached != null) {
+                    return newIcon(cached);
+                }
+                final PackageItemInfo packageInfo = mPackageInfo;
+                final PackageManager pm = state.mPm;
+                final UserHandle user = new UserHandle(mUserId);
+                loader.load(key, AppLabelIconLoader.PRIORITY_VISIBLE, () -> {
+                    Drawable unbadgedIcon = packageInfo.loadUnbadgedIcon(pm);
+                    Drawable icon = pm.getUserBadgedIcon(unbadgedIcon, user);
+                    return new AppLabelIconLoader.LabelAndIcon(
+                            null /* label */, packageInfo.packageName, icon);
+                }, callback);
             }
             return null;
         }
+
+        /**
+         * @return a copy of the loaded icon, which may be shared with other views.
+         */
+        public static Drawable newIcon(AppLabelIconLoader.LabelAndIcon result) {
+            if (result == null || result.icon == null) {
+                return null;
+            }
+            final ConstantState constState = result.icon.getConstantState();
+            return constState != null ? constState.newDrawable() : result.icon;
+        }
     }
 
     static class ServiceItem extends BaseItem {
         ActivityManager.RunningServiceInfo mRunningService;
         ServiceInfo mServiceInfo;
         boolean mShownAsStarted;
+        // The client mDescription was loaded for.
+        String mClientPackage;
+        int mClientLabel;
 
         MergedItem mMergedItem;
 
@@ -401,6 +447,8 @@ public class RunningState {
 
         int mRunningSeq;
         ActivityManager.RunningAppProcessInfo mRunningProcessInfo;
+        // Whether mSize has been retrieved for this process.
+        boolean mHasSize;
 
         MergedItem mMergedItem;
 
@@ -534,21 +582,31 @@ public class RunningState {
                     si.mShownAsStarted = false;
                     changed = true;
                 }
-                try {
-                    Resources clientr = pm.getResourcesForApplication(service.clientPackage);
-                    String label = clientr.getString(service.clientLabel);
-                    si.mDescription = context.getResources().getString(
-                            R.string.service_client_name, label);
-                } catch (PackageManager.NameNotFoundException e) {
-                    si.mDescription = null;
+                // Loading the resources of the client is expensive, only do it when it changes.
+                if (si.mDescription == null || si.mClientLabel != service.clientLabel
+                        || !service.clientPackage.equals(si.mClientPackage)) {
+                    si.mClientPackage = service.clientPackage;
+                    si.mClientLabel = service.clientLabel;
+                    try {
+                        Resources clientr = pm.getResourcesForApplication(service.clientPackage);
+                        String label = clientr.getString(service.clientLabel);
+                        si.mDescription = context.getResources().getString(
+                                R.string.service_client_name, label);
+                    } catch (PackageManager.NameNotFoundException e) {
+                        si.mDescription = null;
+                    }
                 }
             } else {
                 if (!si.mShownAsStarted) {
                     si.mShownAsStarted = true;
                     changed = true;
                 }
-                si.mDescription = context.getResources().getString(
-                        R.string.service_started_by_app);
+                if (si.mDescription == null || si.mClientPackage != null) {
+                    si.mClientPackage = null;
+                    si.mClientLabel = 0;
+                    si.mDescription = context.getResources().getString(
+                            R.string.service_started_by_app);
+                }
             }
 
             return changed;
@@ -556,7 +614,8 @@ public class RunningState {
 
         boolean updateSize(Context context, long pss, int curSeq) {
             mSize = pss * 1024;
-            if (mCurSeq == curSeq) {
+            if (mCurSeq == curSeq && mFormattedSize != mSize) {
+                mFormattedSize = mSize;
                 String sizeStr = Formatter.formatShortFileSize(
                         context, mSize);
                 if (!sizeStr.equals(mSizeStr)) {
@@ -700,6 +759,10 @@ public class RunningState {
                 }
             }
 
+            if (mFormattedSize == mSize) {
+                return false;
+            }
+            mFormattedSize = mSize;
             String sizeStr = Formatter.formatShortFileSize(
                     context, mSize);
             if (!sizeStr.equals(mSizeStr)) {
@@ -712,9 +775,11 @@ public class RunningState {
             return false;
         }
 
-        public Drawable loadIcon(Context context, RunningState state) {
+        @Override
+        public Drawable loadIcon(Context context, RunningState state,
+                AppLabelIconLoader.Callback callback) {
             if (mUser == null) {
-                return super.loadIcon(context, state);
+                return super.loadIcon(context, state, callback);
             }
             if (mUser.mIcon != null) {
                 ConstantState constState = mUser.mIcon.getConstantState();
@@ -868,6 +933,7 @@ public class RunningState {
         mRunningProcesses.clear();
         mProcessItems.clear();
         mAllProcessItems.clear();
+        mLastPssUpdateTime = 0;
     }
 
     private void addOtherUserItem(Context context, ArrayList<MergedItem> newMergedItems,
@@ -1116,8 +1182,7 @@ public class RunningState {
         }
 
         // Look for services and their primary processes that no longer exist...
-        ArrayList<Integer> uidToDelete = null;
-        for (int i = 0; i < mServiceProcessesByName.size(); i++) {
+        for (int i = mServiceProcessesByName.size() - 1; i >= 0; i--) {
             HashMap<String, ProcessItem> procs = mServiceProcessesByName.valueAt(i);
             Iterator<ProcessItem> pit = procs.values().iterator();
             while (pit.hasNext()) {
@@ -1131,12 +1196,6 @@ public class RunningState {
                 } else {
                     changed = true;
                     pit.remove();
-                    if (procs.size() == 0) {
-                        if (uidToDelete == null) {
-                            uidToDelete = new ArrayList<Integer>();
-                        }
-                        uidToDelete.add(mServiceProcessesByName.keyAt(i));
-                    }
                     if (pi.mPid != 0) {
                         mServiceProcessesByPid.remove(pi.mPid);
                     }
@@ -1151,12 +1210,8 @@ public class RunningState {
                     }
                 }
             }
-        }
-
-        if (uidToDelete != null) {
-            for (int i = 0; i < uidToDelete.size(); i++) {
-                int uid = uidToDelete.get(i);
-                mServiceProcessesByName.remove(uid);
+            if (procs.size() == 0) {
+                mServiceProcessesByName.removeAt(i);
             }
         }
 
@@ -1278,7 +1333,7 @@ public class RunningState {
 
             synchronized (mLock) {
                 mItems = newItems;
-                mMergedItems = newMergedItems;
+                setMergedItemsLocked(newMergedItems);
             }
         }
 
@@ -1319,15 +1374,9 @@ public class RunningState {
         ArrayList<MergedItem> newUserBackgroundItems = null;
         boolean diffUsers = false;
         try {
-            final int numProc = mAllProcessItems.size();
-            int[] pids = new int[numProc];
-            for (int i = 0; i < numProc; i++) {
-                pids[i] = mAllProcessItems.get(i).mPid;
-            }
-            long[] pss = ActivityManager.getService()
-                    .getProcessPss(pids);
+            long[] pss = getProcessPss(changed, SystemClock.uptimeMillis());
             int bgIndex = 0;
-            for (int i = 0; i < pids.length; i++) {
+            for (int i = 0; i < pss.length; i++) {
                 ProcessItem proc = mAllProcessItems.get(i);
                 changed |= proc.updateSize(context, pss[i], mSequence);
                 if (proc.mCurSeq == mSequence) {
@@ -1441,6 +1490,63 @@ public class RunningState {
         return changed;
     }
 
+    /**
+     * Returns the PSS of each process in mAllProcessItems, in KB. Only the processes which never
+     * had their size retrieved are asked for it, unless the structure has changed or it has
+     * been retrieved for all of them long enough ago.
+     */
+    @VisibleForTesting
+    long[] getProcessPss(boolean changed, long now) throws RemoteException {
+        final int numProc = mAllProcessItems.size();
+        final boolean updateAll = changed || now - mLastPssUpdateTime >= PSS_UPDATE_DELAY;
+        final long[] pss = new long[numProc];
+        final boolean[] retrieved = new boolean[numProc];
+        int[] pids = new int[numProc];
+        int numPids = 0;
+        for (int i = 0; i < numProc; i++) {
+            final ProcessItem proc = mAllProcessItems.get(i);
+            if (updateAll || !proc.mHasSize) {
+                retrieved[i] = true;
+                pids[numPids++] = proc.mPid;
+            } else {
+                pss[i] = proc.mSize / 1024;
+            }
+        }
+        if (numPids == 0) {
+            return pss;
+        }
+        if (numPids < numProc) {
+            pids = Arrays.copyOf(pids, numPids);
+        }
+        final long[] newPss = retrieveProcessPss(pids);
+        for (int i = 0, j = 0; i < numProc; i++) {
+            if (retrieved[i]) {
+                pss[i] = newPss[j++];
+                mAllProcessItems.get(i).mHasSize = true;
+            }
+        }
+        if (updateAll) {
+            mLastPssUpdateTime = now;
+        }
+        return pss;
+    }
+
+    @VisibleForTesting
+    long[] retrieveProcessPss(int[] pids) throws RemoteException {
+        return ActivityManager.getService().getProcessPss(pids);
+    }
+
+    /**
+     * Replaces the merged items, unless the current list holds the same items, so the UI
+     * doesn't have to rebuild its own list.
+     */
+    @VisibleForTesting
+    void setMergedItemsLocked(ArrayList<MergedItem> newMergedItems) {
+        if (!newMergedItems.equals(mMergedItems)) {
+            mMergedItems = newMergedItems;
+        }
+    }
+
     void setWatchingBackgroundItems(boolean watching) {
         synchronized (mLock) {
             mWatchingBackgroundItems = watching;
@@ -0,0 +1,291 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications.manageapplications;
+
+import android.content.pm.ApplicationInfo;
+import android.text.TextUtils;
+
+import androidx.annotation.VisibleForTesting;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.android.settings.applications.AppStateNotificationBridge.NotificationsSentState;
+import com.android.settingslib.applications.ApplicationsState.AppEntry;
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Applies new lists of {@link AppEntry} to a {@link RecyclerView.Adapter} with fine grained
+ * notifications instead of {@code notifyDataSetChanged()}.
+ *
+ * <p>Entries are matched by package name and uid. Since {@link AppEntry} is updated in place,
+ * the bound state of each entry is snapshotted, and the differences are computed against the
+ * snapshot of the list applied last. Items whose only changes are the size, summary or switch
+ * state are notified with a payload, see {@link #getChanges(List)}.
+ *
+ * <p>Must be called from the main thread.
+ */
+class AppEntryListDiffer {
+
+    /** The size of the entry changed. */
+    static final int CHANGE_SIZE = 1;
+    /** The extra info shown in the summary of the entry changed. */
+    static final int CHANGE_SUMMARY = 1 << 1;
+    /** The state of the switch of the entry changed. */
+    static final int CHANGE_SWITCH = 1 << 2;
+
+    /** Called in the main thread when a submitted list is applied. */
+    interface Callback {
+        /**
+         * Called right before the changes of {@code entries} are dispatched to the adapter, which
+         * must return {@code entries} from then on.
+         */
+        void onListChanged(ArrayList<AppEntry> entries);
+    }
+
+    private final ListUpdateCallback mUpdateCallback;
+    private final Executor mBackgroundExecutor;
+    private final Executor mMainExecutor;
+    // Callbacks of the submitted lists not applied yet, run once a newer list is applied.
+    private final List<Runnable> mPendingCommitCallbacks = new ArrayList<>();
+
+    private List<ItemSnapshot> mSnapshots;
+    private int mGeneration;
+
+    AppEntryListDiffer(RecyclerView.Adapter<?> adapter) {
+        this(new AdapterListUpdateCallback(adapter), ThreadUtils::postOnBackgroundThread,
+                ThreadUtils::postOnMainThread);
+    }
+
+    @VisibleForTesting
+    AppEntryListDiffer(ListUpdateCallback updateCallback, Executor backgroundExecutor,
+            Executor mainExecutor) {
+        mUpdateCallback = updateCallback;
+        mBackgroundExecutor = backgroundExecutor;
+        mMainExecutor = mainExecutor;
+    }
+
+    /**
+     * Applies {@code entries} once its differences with the current list are computed.
+     *
+     * @param summaryMode    the mode the summaries are displayed in, e.g. the sort order; all
+     *                       summaries are rebound when it changes
+     * @param callback       notified if {@code entries} is applied
+     * @param commitCallback optional, run once {@code entries} or a newer list is applied
+     */
+    void submitList(ArrayList<AppEntry> entries, int summaryMode, Callback callback,
+            Runnable commitCallback) {
+        final int generation = ++mGeneration;
+        if (commitCallback != null) {
+            mPendingCommitCallbacks.add(commitCallback);
+        }
+        final List<ItemSnapshot> oldSnapshots = mSnapshots;
+        if (oldSnapshots == null || oldSnapshots.isEmpty()
+                || entries == null || entries.isEmpty()) {
+            // Nothing to diff, apply the whole list right away.
+            final List<ItemSnapshot> newSnapshots = createSnapshots(entries, summaryMode);
+            applyList(entries, newSnapshots, callback, () -> {
+                final int oldCount = oldSnapshots != null ? oldSnapshots.size() : 0;
+                if (oldCount > 0) {
+                    mUpdateCallback.onRemoved(0, oldCount);
+                }
+                if (!newSnapshots.isEmpty()) {
+                    mUpdateCallback.onInserted(0, newSnapshots.size());
+                }
+            });
+            return;
+        }
+
+        mBackgroundExecutor.execute(() -> {
+            final List<ItemSnapshot> newSnapshots = createSnapshots(entries, summaryMode);
+            final DiffUtil.DiffResult result = DiffUtil.calculateDiff(
+                    new SnapshotDiffCallback(oldSnapshots, newSnapshots));
+            mMainExecutor.execute(() -> {
+                if (generation != mGeneration) {
+                    // A newer list was submitted in the meantime.
+                    return;
+                }
+                applyList(entries, newSnapshots, callback,
+                        () -> result.dispatchUpdatesTo(mUpdateCallback));
+            });
+        });
+    }
+
+    /**
+     * @return the {@code CHANGE_*} flags of the payloads of a partial bind.
+     */
+    static int getChanges(List<Object> payloads) {
+        int changes = 0;
+        for (Object payload : payloads) {
+            if (payload instanceof Integer) {
+                changes |= (Integer) payload;
+            }
+        }
+        return changes;
+    }
+
+    private void applyList(ArrayList<AppEntry> entries, List<ItemSnapshot> snapshots,
+            Callback callback, Runnable dispatchUpdates) {
+        mSnapshots = snapshots;
+        callback.onListChanged(entries);
+        dispatchUpdates.run();
+        final List<Runnable> commitCallbacks = new ArrayList<>(mPendingCommitCallbacks);
+        mPendingCommitCallbacks.clear();
+        for (Runnable commitCallback : commitCallbacks) {
+            commitCallback.run();
+        }
+    }
+
+    private static List<ItemSnapshot> createSnapshots(List<AppEntry> entries, int summaryMode) {
+        final int size = entries != null ? entries.size() : 0;
+        final List<ItemSnapshot> snapshots = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            snapshots.add(new ItemSnapshot(entries.get(i), summaryMode));
+        }
+        return snapshots;
+    }
+
+    /** The state of an {@link AppEntry} when it was submitted. */
+    private static class ItemSnapshot {
+        final String mPackageName;
+        final int mUid;
+        final String mLabel;
+        final CharSequence mLabelDescription;
+        final boolean mEnabled;
+        final String mSizeStr;
+        final String mInternalSizeStr;
+        final String mExternalSizeStr;
+        final Object mExtraInfo;
+        final int mSummaryMode;
+        // Notification state, kept by value since it is updated in place.
+        final boolean mNotificationBlocked;
+        final boolean mNotificationBlockable;
+        final boolean mNotificationSystemApp;
+        final long mNotificationLastSent;
+        final int mNotificationAvgSent;
+
+        ItemSnapshot(AppEntry entry, int summaryMode) {
+            synchronized (entry) {
+                final ApplicationInfo info = entry.info;
+                mPackageName = info != null ? info.packageName : null;
+                mUid = info != null ? info.uid : 0;
+                mEnabled = info != null && info.enabled;
+                mLabel = entry.label;
+                mLabelDescription = entry.labelDescription;
+                mSizeStr = entry.sizeStr;
+                mInternalSizeStr = entry.internalSizeStr;
+                mExternalSizeStr = entry.externalSizeStr;
+                mExtraInfo = entry.extraInfo;
+                mSummaryMode = summaryMode;
+                if (entry.extraInfo instanceof NotificationsSentState) {
+                    final NotificationsSentState state = (NotificationsSentState) entry.extraInfo;
+                    mNotificationBlocked = state.blocked;
+                    mNotificationBlockable = state.blockable;
+                    mNotificationSystemApp = state.systemApp;
+                    mNotificationLastSent = state.lastSent;
+                    mNotificationAvgSent = state.avgSentDaily + state.avgSentWeekly;
+                } else {
+                    mNotificationBlocked = false;
+                    mNotificationBlockable = false;
+                    mNotificationSystemApp = false;
+                    mNotificationLastSent = 0;
+                    mNotificationAvgSent = 0;
+                }
+            }
+        }
+
+        boolean isSameItem(ItemSnapshot other) {
+            return mUid == other.mUid && TextUtils.equals(mPackageName, other.mPackageName);
+        }
+
+        /**
+         * @return the {@code CHANGE_*} flags between this and {@code other}, or {@code -1} if the
+         * whole item needs to be rebound.
+         */
+        int getChanges(ItemSnapshot other) {
+            if (mEnabled != other.mEnabled
+                    || !TextUtils.equals(mLabel, other.mLabel)
+                    || !TextUtils.equals(mLabelDescription, other.mLabelDescription)) {
+                return -1;
+            }
+            int changes = 0;
+            if (!TextUtils.equals(mSizeStr, other.mSizeStr)
+                    || !TextUtils.equals(mInternalSizeStr, other.mInternalSizeStr)
+                    || !TextUtils.equals(mExternalSizeStr, other.mExternalSizeStr)) {
+                changes |= CHANGE_SIZE;
+            }
+            if (mExtraInfo != other.mExtraInfo
+                    || mNotificationLastSent != other.mNotificationLastSent
+                    || mNotificationAvgSent != other.mNotificationAvgSent
+                    || mSummaryMode != other.mSummaryMode) {
+                changes |= CHANGE_SUMMARY;
+            }
+            if (mNotificationBlocked != other.mNotificationBlocked
+                    || mNotificationBlockable != other.mNotificationBlockable
+                    || mNotificationSystemApp != other.mNotificationSystemApp
+                    || (mExtraInfo == null) != (other.mExtraInfo == null)) {
+                changes |= CHANGE_SWITCH;
+            }
+            return changes;
+        }
+    }
+
+    private static class SnapshotDiffCallback extends DiffUtil.Callback {
+        private final List<ItemSnapshot> mOldSnapshots;
+        private final List<ItemSnapshot> mNewSnapshots;
+
+        SnapshotDiffCallback(List<ItemSnapshot> oldSnapshots, List<ItemSnapshot> newSnapshots) {
+            mOldSnapshots = oldSnapshots;
+            mNewSnapshots = newSnapshots;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOldSnapshots.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNewSnapshots.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOldSnapshots.get(oldItemPosition).isSameItem(
+                    mNewSnapshots.get(newItemPosition));
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOldSnapshots.get(oldItemPosition).getChanges(
+                    mNewSnapshots.get(newItemPosition)) == 0;
+        }
+
+        @Override
+        public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+            final int changes = mOldSnapshots.get(oldItemPosition).getChanges(
+                    mNewSnapshots.get(newItemPosition));
+            // A null payload rebinds the whole item.
+            return changes > 0 ? changes : null;
+        }
+    }
+}
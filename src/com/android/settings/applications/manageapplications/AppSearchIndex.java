@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications.manageapplications;
+
+import android.icu.lang.UCharacter;
+import android.text.TextUtils;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.applications.ApplicationsState.AppEntry;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Search index of a list of {@link AppEntry}, built once per list.
+ *
+ * <p>Labels and package names are case folded and stripped of Latin, Greek and Cyrillic accents
+ * once, when the index is built. An entry matches a query if each whitespace separated token of
+ * the query is contained in its label or package name. A query extending the previous one only
+ * searches the entries matched previously.
+ *
+ * <p>Not thread safe.
+ */
+class AppSearchIndex {
+
+    // Accents of the scripts where they are optional when typing. In other scripts, such as
+    // Devanagari or Thai, combining marks are vowels or tones and must be kept.
+    private static final Pattern ACCENTS = Pattern.compile(
+            "(?<=[\\p{IsLatin}\\p{IsGreek}\\p{IsCyrillic}])\\p{Mn}+");
+    private static final Pattern WHITESPACES = Pattern.compile("\\s+");
+
+    private final ArrayList<AppEntry> mEntries;
+    private final String[] mLabels;
+    private final String[] mPackageNames;
+
+    // Result of the previous search, to narrow down the next one.
+    private String mLastQuery;
+    private int[] mLastMatches;
+    private int mLastMatchCount;
+
+    AppSearchIndex(ArrayList<AppEntry> entries) {
+        mEntries = entries;
+        final int size = entries.size();
+        mLabels = new String[size];
+        mPackageNames = new String[size];
+        for (int i = 0; i < size; i++) {
+            final AppEntry entry = entries.get(i);
+            mLabels[i] = normalize(entry.label);
+            mPackageNames[i] = entry.info != null ? normalize(entry.info.packageName) : "";
+        }
+    }
+
+    /**
+     * @return {@code true} if this is the index of {@code entries}.
+     */
+    boolean isIndexOf(List<AppEntry> entries) {
+        return mEntries == entries;
+    }
+
+    /**
+     * @return the entries matching {@code query}, in the order of the indexed list.
+     */
+    ArrayList<AppEntry> search(CharSequence query) {
+        final String normalizedQuery = normalize(query).trim();
+        if (normalizedQuery.isEmpty()) {
+            mLastQuery = null;
+            mLastMatches = null;
+            return mEntries;
+        }
+        final String[] tokens = WHITESPACES.split(normalizedQuery);
+
+        final int[] matches = new int[mEntries.size()];
+        int matchCount = 0;
+        if (mLastQuery != null && normalizedQuery.startsWith(mLastQuery)) {
+            // Entries not matching the previous query can't match this one either.
+            for (int i = 0; i < mLastMatchCount; i++) {
+                if (matches(mLastMatches[i], tokens)) {
+                    matches[matchCount++] = mLastMatches[i];
+                }
+            }
+        } else {
+            for (int i = 0; i < mLabels.length; i++) {
+                if (matches(i, tokens)) {
+                    matches[matchCount++] = i;
+                }
+            }
+        }
+        mLastQuery = normalizedQuery;
+        mLastMatches = matches;
+        mLastMatchCount = matchCount;
+
+        final ArrayList<AppEntry> result = new ArrayList<>(matchCount);
+        for (int i = 0; i < matchCount; i++) {
+            result.add(mEntries.get(matches[i]));
+        }
+        return result;
+    }
+
+    private boolean matches(int index, String[] tokens) {
+        for (String token : tokens) {
+            if (!mLabels[index].contains(token) && !mPackageNames[index].contains(token)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return {@code text} case folded and without Latin, Greek and Cyrillic accents.
+     */
+    @VisibleForTesting
+    static String normalize(CharSequence text) {
+        if (TextUtils.isEmpty(text)) {
+            return "";
+        }
+        final String folded = UCharacter.foldCase(text.toString(), true /* defaultmapping */);
+        final String stripped = ACCENTS.matcher(Normalizer.normalize(folded, Normalizer.Form.NFD))
+                .replaceAll("");
+        return Normalizer.normalize(stripped, Normalizer.Form.NFC);
+    }
+}
@@ -129,7 +129,6 @@ import com.android.settingslib.applications.ApplicationsState.AppFilter;
 import com.android.settingslib.applications.ApplicationsState.CompoundFilter;
 import com.android.settingslib.applications.ApplicationsState.VolumeFilter;
 import com.android.settingslib.fuelgauge.PowerAllowlistBackend;
-import com.android.settingslib.utils.ThreadUtils;
 import com.android.settingslib.widget.settingsspinner.SettingsSpinnerAdapter;
 
 import com.google.android.material.appbar.AppBarLayout;
@@ -138,6 +137,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -1029,6 +1029,8 @@ public class ManageApplications extends InstrumentedFragment
         private final AppStateBaseBridge mExtraInfoBridge;
         private final LoadingViewController mLoadingViewController;
         private final IconDrawableFactory mIconDrawableFactory;
+        private final AppEntryListDiffer mDiffer;
+        private final RebuildScheduler mRebuildScheduler;
 
         private AppFilterItem mAppFilter;
         private ArrayList<ApplicationsState.AppEntry> mEntries;
@@ -1065,6 +1067,8 @@ public class ManageApplications extends InstrumentedFragment
             );
             mContext = manageApplications.getActivity();
             mIconDrawableFactory = IconDrawableFactory.newInstance(mContext);
+            mDiffer = new AppEntryListDiffer(this);
+            mRebuildScheduler = new RebuildScheduler(this::prepareRebuild);
             mAppFilter = appFilter;
             mBackend = PowerAllowlistBackend.getInstance(mContext);
             if (mManageApplications.mListType == LIST_TYPE_NOTIFICATION) {
@@ -1172,6 +1176,7 @@ public class ManageApplications extends InstrumentedFragment
         }
 
         public void release() {
+            mRebuildScheduler.cancel();
             mSession.onDestroy();
             if (mExtraInfoBridge != null) {
                 mExtraInfoBridge.release();
@@ -1204,6 +1209,10 @@ public class ManageApplications extends InstrumentedFragment
         }
 
         public void rebuild() {
+            mRebuildScheduler.requestRebuild();
+        }
+
+        private Runnable prepareRebuild() {
             if (!mHasReceivedLoadEntries
                     || (mExtraInfoBridge != null && !mHasReceivedBridgeCallback)) {
                 // Don't rebuild the list until all the app entries are loaded.
@@ -1213,7 +1222,7 @@ public class ManageApplications extends InstrumentedFragment
                             + " !mExtraInfoBridgeNull=" + (mExtraInfoBridge != null)
                             + " !mHasReceivedBridgeCallback=" + !mHasReceivedBridgeCallback);
                 }
-                return;
+                return null;
             }
             ApplicationsState.AppFilter filterObj;
             Comparator<AppEntry> comparatorObj;
@@ -1258,9 +1267,7 @@ public class ManageApplications extends InstrumentedFragment
 
             final AppFilter finalFilterObj = new CompoundFilter(filterObj,
                     ApplicationsState.FILTER_NOT_HIDE);
-            ThreadUtils.postOnBackgroundThread(() -> {
-                mSession.rebuild(finalFilterObj, comparatorObj, false);
-            });
+            return () -> mSession.rebuild(finalFilterObj, comparatorObj, false);
         }
 
         @VisibleForTesting
@@ -1309,16 +1316,29 @@ public class ManageApplications extends InstrumentedFragment
         @Override
         public void onRebuildComplete(ArrayList<AppEntry> entries) {
             if (DEBUG) {
-                Log.d(TAG, "onRebuildComplete size=" + entries.size());
+                Log.d(TAG, "onRebuildComplete size=" + (entries != null ? entries.size() : 0)
+                        + " requested=" + mRebuildScheduler.getRequestedCount()
+                        + " executed=" + mRebuildScheduler.getExecutedCount()
+                        + " dropped=" + mRebuildScheduler.getDroppedResultCount());
+            }
+            if (!mRebuildScheduler.shouldDeliverResult()) {
+                // A newer rebuild is on its way.
+                return;
             }
             final int filterType = mAppFilter.getFilterType();
             if (filterType == FILTER_APPS_POWER_ALLOWLIST
                     || filterType == FILTER_APPS_POWER_ALLOWLIST_ALL) {
                 entries = removeDuplicateIgnoringUser(entries);
             }
-            mEntries = entries;
             mOriginalEntries = entries;
-            notifyDataSetChanged();
+            mDiffer.submitList(entries, mLastSortMode, this::setEntries, this::onRebuildApplied);
+        }
+
+        private void setEntries(ArrayList<AppEntry> entries) {
+            mEntries = entries;
+        }
+
+        private void onRebuildApplied() {
             if (getItemCount() == 0) {
                 mLoadingViewController.showEmpty(false /* animate */);
             } else {
@@ -1396,7 +1416,7 @@ public class ManageApplications extends InstrumentedFragment
             for (int i = 0; i < size; i++) {
                 final AppEntry entry = mEntries.get(i);
                 final ApplicationInfo info = entry.info;
-                if (info == null && !TextUtils.equals(packageName, info.packageName)) {
+                if (info == null || !TextUtils.equals(packageName, info.packageName)) {
                     continue;
                 }
                 if (TextUtils.equals(mManageApplications.mCurrentPkgName, info.packageName)) {
@@ -1406,8 +1426,8 @@ public class ManageApplications extends InstrumentedFragment
                     // the list with the new size to reflect it to the user.
                     rebuild();
                     return;
-                } else {
-                    mOnScrollListener.postNotifyItemChange(i);
+                } else if (mOnScrollListener != null) {
+                    mOnScrollListener.postNotifyItemChange(i, AppEntryListDiffer.CHANGE_SIZE);
                 }
             }
         }
@@ -1479,6 +1499,27 @@ public class ManageApplications extends InstrumentedFragment
             holder.itemView.setOnClickListener(mManageApplications);
         }
 
+        @Override
+        public void onBindViewHolder(ApplicationViewHolder holder, int position,
+                List<Object> payloads) {
+            final int changes = AppEntryListDiffer.getChanges(payloads);
+            if (changes == 0) {
+                onBindViewHolder(holder, position);
+                return;
+            }
+            // Only rebind the parts that changed, see AppEntryListDiffer.
+            final ApplicationsState.AppEntry entry = mEntries.get(position);
+            synchronized (entry) {
+                if ((changes & (AppEntryListDiffer.CHANGE_SIZE
+                        | AppEntryListDiffer.CHANGE_SUMMARY)) != 0) {
+                    updateSummary(holder, entry);
+                }
+                if ((changes & AppEntryListDiffer.CHANGE_SWITCH) != 0) {
+                    updateSwitch(holder, entry);
+                }
+            }
+        }
+
         private void updateSummary(ApplicationViewHolder holder, AppEntry entry) {
             switch (mManageApplications.mListType) {
                 case LIST_TYPE_NOTIFICATION:
@@ -1567,8 +1608,19 @@ public class ManageApplications extends InstrumentedFragment
             }
 
             public void postNotifyItemChange(int index) {
+                postNotifyItemChange(index, null /* payload */);
+            }
+
+            /**
+             * Notifies a change of the item at {@code index}, with a payload for a partial rebind.
+             */
+            public void postNotifyItemChange(int index, Object payload) {
                 if (mScrollState == SCROLL_STATE_IDLE) {
-                    mAdapter.notifyItemChanged(index);
+                    if (payload == null) {
+                        mAdapter.notifyItemChanged(index);
+                    } else {
+                        mAdapter.notifyItemChanged(index, payload);
+                    }
                 } else {
                     mDelayNotifyDataChange = true;
                 }
@@ -1580,30 +1632,33 @@ public class ManageApplications extends InstrumentedFragment
          * Item that does not contains the specified substring will be removed from the list.</p>
          */
         private class SearchFilter extends Filter {
+            // Index of mOriginalEntries, only accessed from the filtering thread.
+            private AppSearchIndex mSearchIndex;
+
             @WorkerThread
             @Override
             protected FilterResults performFiltering(CharSequence query) {
+                final ArrayList<ApplicationsState.AppEntry> originalEntries = mOriginalEntries;
                 final ArrayList<ApplicationsState.AppEntry> matchedEntries;
-                if (TextUtils.isEmpty(query)) {
-                    matchedEntries = mOriginalEntries;
+                if (TextUtils.isEmpty(query) || originalEntries == null) {
+                    matchedEntries = originalEntries;
                 } else {
-                    matchedEntries = new ArrayList<>();
-                    for (ApplicationsState.AppEntry entry : mOriginalEntries) {
-                        if (entry.label.toLowerCase().contains(query.toString().toLowerCase())) {
-                            matchedEntries.add(entry);
-                        }
+                    if (mSearchIndex == null || !mSearchIndex.isIndexOf(originalEntries)) {
+                        mSearchIndex = new AppSearchIndex(originalEntries);
                     }
+                    matchedEntries = mSearchIndex.search(query);
                 }
                 final FilterResults results = new FilterResults();
                 results.values = matchedEntries;
-                results.count = matchedEntries.size();
+                results.count = matchedEntries != null ? matchedEntries.size() : 0;
                 return results;
             }
 
             @Override
             protected void publishResults(CharSequence constraint, FilterResults results) {
-                mEntries = (ArrayList<ApplicationsState.AppEntry>) results.values;
-                notifyDataSetChanged();
+                mDiffer.submitList((ArrayList<ApplicationsState.AppEntry>) results.values,
+                        mLastSortMode, ApplicationsAdapter.this::setEntries,
+                        null /* commitCallback */);
             }
         }
     }
@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications.manageapplications;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Schedules the rebuilds of an app list.
+ *
+ * <p>The first request of a burst runs right away, then requests made within
+ * {@link #COALESCE_WINDOW_MS} of the last rebuild are merged into a single one. Each request
+ * bumps a generation: rebuilds which didn't start before a newer request are dropped, and so are
+ * the results received while a newer rebuild is pending, see {@link #shouldDeliverResult()}.
+ * Since requests may keep coming, at most {@link #MAX_CONSECUTIVE_DROPS} rebuilds or results
+ * are dropped in a row, the next ones are used even if stale.
+ *
+ * <p>Must be called from the main thread.
+ */
+class RebuildScheduler {
+
+    @VisibleForTesting
+    static final long COALESCE_WINDOW_MS = 100L;
+    @VisibleForTesting
+    static final int MAX_CONSECUTIVE_DROPS = 3;
+
+    /** Prepares a rebuild with the newest state. */
+    interface Rebuilder {
+        /**
+         * Called in the main thread when a rebuild is due.
+         *
+         * @return the work to run in the background, or {@code null} if there is nothing to
+         * rebuild yet
+         */
+        Runnable prepareRebuild();
+    }
+
+    private final Rebuilder mRebuilder;
+    private final Handler mHandler;
+    private final Executor mBackgroundExecutor;
+    private final Runnable mExecuteRunnable = this::execute;
+    private final AtomicInteger mExecutedCount = new AtomicInteger();
+
+    // Generation of the newest request.
+    private volatile int mGeneration;
+    // Generation of the newest rebuild started in the background.
+    private volatile int mStartedGeneration;
+    // Rebuilds and results of this generation or older were cancelled.
+    private volatile int mCancelledGeneration = -1;
+    // Rebuilds skipped in the background since the last one which ran.
+    private final AtomicInteger mConsecutiveSkippedCount = new AtomicInteger();
+    // Results dropped since the last one delivered.
+    private int mConsecutiveDroppedCount;
+    private boolean mScheduled;
+    private long mLastExecuteTime = -COALESCE_WINDOW_MS;
+    private int mRequestedCount;
+    private int mDroppedResultCount;
+
+    RebuildScheduler(Rebuilder rebuilder) {
+        this(rebuilder, new Handler(Looper.getMainLooper()), ThreadUtils::postOnBackgroundThread);
+    }
+
+    @VisibleForTesting
+    RebuildScheduler(Rebuilder rebuilder, Handler handler, Executor backgroundExecutor) {
+        mRebuilder = rebuilder;
+        mHandler = handler;
+        mBackgroundExecutor = backgroundExecutor;
+    }
+
+    /**
+     * Requests a rebuild, which supersedes all the previous ones.
+     */
+    void requestRebuild() {
+        mRequestedCount++;
+        mGeneration++;
+        if (mScheduled) {
+            return;
+        }
+        mScheduled = true;
+        final long delay =
+                Math.max(0, mLastExecuteTime + COALESCE_WINDOW_MS - SystemClock.uptimeMillis());
+        mHandler.postDelayed(mExecuteRunnable, delay);
+    }
+
+    /**
+     * Drops the pending rebuilds and the results not delivered yet.
+     */
+    void cancel() {
+        mHandler.removeCallbacks(mExecuteRunnable);
+        mScheduled = false;
+        mGeneration++;
+        mCancelledGeneration = mGeneration;
+    }
+
+    /**
+     * Called when a rebuild result is received.
+     *
+     * @return {@code false} if the rebuild was cancelled, or if a newer rebuild is pending and
+     * fewer than {@link #MAX_CONSECUTIVE_DROPS} results were dropped in a row, so the result
+     * should be dropped.
+     */
+    boolean shouldDeliverResult() {
+        final int startedGeneration = mStartedGeneration;
+        if (startedGeneration <= mCancelledGeneration) {
+            return false;
+        }
+        if (startedGeneration != mGeneration
+                && mConsecutiveDroppedCount < MAX_CONSECUTIVE_DROPS) {
+            mConsecutiveDroppedCount++;
+            mDroppedResultCount++;
+            return false;
+        }
+        mConsecutiveDroppedCount = 0;
+        return true;
+    }
+
+    /** @return the number of rebuilds requested. */
+    int getRequestedCount() {
+        return mRequestedCount;
+    }
+
+    /** @return the number of rebuilds which actually ran. */
+    int getExecutedCount() {
+        return mExecutedCount.get();
+    }
+
+    /** @return the number of rebuild results dropped because they were stale. */
+    int getDroppedResultCount() {
+        return mDroppedResultCount;
+    }
+
+    private void execute() {
+        mScheduled = false;
+        mLastExecuteTime = SystemClock.uptimeMillis();
+        final int generation = mGeneration;
+        final Runnable rebuild = mRebuilder.prepareRebuild();
+        if (rebuild == null) {
+            // Nothing is coming, so don't hold back results of earlier rebuilds.
+            mStartedGeneration = generation;
+            return;
+        }
+        mBackgroundExecutor.execute(() -> {
+            if (generation <= mCancelledGeneration) {
+                return;
+            }
+            if (generation != mGeneration
+                    && mConsecutiveSkippedCount.incrementAndGet() <= MAX_CONSECUTIVE_DROPS) {
+                // A newer rebuild is scheduled already.
+                return;
+            }
+            mConsecutiveSkippedCount.set(0);
+            mStartedGeneration = generation;
+            mExecutedCount.incrementAndGet();
+            rebuild.run();
+        });
+    }
+}
@@ -27,9 +27,14 @@ import android.bluetooth.le.ScanCallback;
 import android.bluetooth.le.ScanFilter;
 import android.bluetooth.le.ScanRecord;
 import android.bluetooth.le.ScanResult;
-import android.bluetooth.le.ScanSettings;
+import android.content.BroadcastReceiver;
+import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
+import android.os.PowerManager;
 import android.os.SystemClock;
 import android.os.UserHandle;
 import android.util.Log;
@@ -43,25 +48,20 @@ public class AirPodsBatteryService extends Service {
 
     private static final int DATA_LENGTH_BATTERY = 25;
 
-    private static final long REPORT_DELAY_MS = 500;
-
-    private static final int FLAG_REVERSED = 1 << 7;
-
-    private static final int MASK_CHARGING_LEFT = 1 << 5;
-    private static final int MASK_CHARGING_RIGHT = 1 << 4;
-    private static final int MASK_CHARGING_CASE = 1 << 6;
-
-    private static final int MASK_USING_LEFT = 1 << 3;
-    private static final int MASK_USING_RIGHT = 1 << 1;
-
     private BluetoothAdapter mAdapter;
     private BluetoothLeScanner mScanner;
+    // Mode of the running scan, see AirPodsScanPolicy.
+    private int mScanMode;
+    // Whether the running scan batches its results.
+    private boolean mScanBatching;
+    // Set once a batching scan failed to start, so the next ones report results right away.
+    private boolean mBatchingFailed;
 
     private BluetoothDevice mCurrentDevice;
 
-    private String mBestLeAddress = null;
-    private int mBestLeRssi = -128;
-    private long mBestLeLastReported = 0;
+    private final AirPodsScanPolicy mPolicy = new AirPodsScanPolicy();
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mUpdateScanRunnable = this::updateScan;
 
     private final ScanCallback mScanCallback = new ScanCallback() {
         @Override
@@ -69,11 +69,34 @@ public class AirPodsBatteryService extends Service {
             for (ScanResult result : scanResults) {
                 handleScanResult(result);
             }
+            onScanResultsHandled();
         }
 
         @Override
         public void onScanResult(int callbackType, ScanResult result) {
             handleScanResult(result);
+            onScanResultsHandled();
+        }
+
+        @Override
+        public void onScanFailed(int errorCode) {
+            Log.w(TAG, "onScanFailed, errorCode=" + errorCode + ", batching=" + mScanBatching);
+            // The scan isn't running, forget it without stopping it.
+            mScanner = null;
+            if (mScanBatching) {
+                // Some controllers fail to batch results, retry without a report delay.
+                mBatchingFailed = true;
+                updateScan();
+            }
+        }
+    };
+
+    private final BroadcastReceiver mScreenReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            mPolicy.setScreenOn(Intent.ACTION_SCREEN_ON.equals(intent.getAction()),
+                    SystemClock.elapsedRealtime());
+            updateScan();
         }
     };
 
@@ -86,12 +109,20 @@ public class AirPodsBatteryService extends Service {
     public void onCreate() {
         super.onCreate();
         Log.v(TAG, "onCreate");
+        mPolicy.setScreenOn(getSystemService(PowerManager.class).isInteractive(),
+                SystemClock.elapsedRealtime());
+        final IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_SCREEN_ON);
+        filter.addAction(Intent.ACTION_SCREEN_OFF);
+        registerReceiver(mScreenReceiver, filter);
     }
 
     @Override
     public void onDestroy() {
         super.onDestroy();
         Log.v(TAG, "onDestroy");
+        unregisterReceiver(mScreenReceiver);
+        mHandler.removeCallbacks(mUpdateScanRunnable);
         stopScan();
     }
 
@@ -102,21 +133,48 @@ public class AirPodsBatteryService extends Service {
             final BluetoothDevice device = intent.getParcelableExtra(BluetoothDevice.EXTRA_DEVICE);
             if (device != null) {
                 mCurrentDevice = device;
-                startScan();
+                // Report the level of the newly connected device even if it didn't change.
+                mPolicy.reset(SystemClock.elapsedRealtime());
+                updateScan();
             }
         }
         return START_STICKY;
     }
 
-    private void startScan() {
+    /** Starts, stops or adjusts the scan as decided by {@link AirPodsScanPolicy}. */
+    private void updateScan() {
+        mHandler.removeCallbacks(mUpdateScanRunnable);
+        if (mCurrentDevice == null) {
+            return;
+        }
+        final long now = SystemClock.elapsedRealtime();
+        if (mPolicy.shouldScan(now)) {
+            startScan(mPolicy.getMode(now));
+        } else {
+            stopScan();
+        }
+        final long delay = mPolicy.getNextUpdateDelayMillis(now);
+        if (delay >= 0) {
+            mHandler.postDelayed(mUpdateScanRunnable, delay);
+        }
+    }
+
+    private void startScan(int mode) {
+        if (mScanner != null) {
+            if (mScanMode == mode) {
+                return;
+            }
+            stopScan();
+        }
+
         mAdapter = BluetoothAdapter.getDefaultAdapter();
         if (mAdapter == null) {
             Log.w(TAG, "BluetoothAdapter is null, ignored");
             return;
         }
 
-        mScanner = mAdapter.getBluetoothLeScanner();
-        if (mScanner == null) {
+        final BluetoothLeScanner scanner = mAdapter.getBluetoothLeScanner();
+        if (scanner == null) {
             Log.w(TAG, "BluetoothLeScanner is null, ignored");
             return;
         }
@@ -135,13 +193,14 @@ public class AirPodsBatteryService extends Service {
                 .setManufacturerData(AirPodsConstants.MANUFACTURER_ID, data, mask)
                 .build());
 
-        final ScanSettings settings = new ScanSettings.Builder()
-                .setScanMode(ScanSettings.SCAN_MODE_LOW_LATENCY)
-                .setReportDelay(REPORT_DELAY_MS)
-                .build();
-
-        mScanner.startScan(filters, settings, mScanCallback);
-        Log.v(TAG, "startScan");
+        final boolean batching = !mBatchingFailed && mAdapter.isOffloadedScanBatchingSupported();
+        // Set before starting, since the scan may fail right away.
+        mScanner = scanner;
+        mScanMode = mode;
+        mScanBatching = batching;
+        scanner.startScan(filters, AirPodsScanPolicy.buildScanSettings(mode, batching),
+                mScanCallback);
+        Log.v(TAG, "startScan, mode=" + mode + ", batching=" + batching);
     }
 
     private void stopScan() {
@@ -150,8 +209,6 @@ public class AirPodsBatteryService extends Service {
         }
         mScanner.stopScan(mScanCallback);
         mScanner = null;
-        mBestLeAddress = null;
-        mBestLeRssi = -128;
         Log.v(TAG, "stopScan");
     }
 
@@ -161,75 +218,23 @@ public class AirPodsBatteryService extends Service {
             return;
         }
 
-        final byte[] data = record.getManufacturerSpecificData(AirPodsConstants.MANUFACTURER_ID);
-
-        final String address = result.getDevice().getAddress();
-        final int rssi = result.getRssi();
-
-        final long now = SystemClock.elapsedRealtime();
-        if (mBestLeAddress == null) {
-            mBestLeAddress = address;
-            mBestLeRssi = rssi;
-            mBestLeLastReported = now;
-            Log.d(TAG, "First result from " + address + ", rssi=" + rssi);
-        } else if (mBestLeAddress.equals(address)) {
-            mBestLeLastReported = now;
-        } else {
-            if (rssi >= mBestLeRssi) {
-                mBestLeAddress = address;
-                mBestLeRssi = rssi;
-                mBestLeLastReported = now;
-                Log.d(TAG, "Better result from " + address + ", rssi=" + rssi);
-            } else if (now - mBestLeLastReported > 5000) {
-                mBestLeAddress = address;
-                mBestLeRssi = rssi;
-                mBestLeLastReported = now;
-                Log.d(TAG, "Best result gone, alternate result from " + address + ", rssi=" + rssi);
-            } else {
-                return;
-            }
-        }
+        mPolicy.onScanResult(result.getDevice().getAddress(), result.getRssi(),
+                record.getManufacturerSpecificData(AirPodsConstants.MANUFACTURER_ID),
+                SystemClock.elapsedRealtime());
+    }
 
-        final int flags = data[5];
-        final int battery = data[6];
-        final int charging = data[7];
-
-        final boolean rightLeft = ((flags & FLAG_REVERSED) != 0);
-        final int batteryLeft, batteryRight;
-        final boolean chargingLeft, chargingRight;
-        if (!rightLeft) {
-            batteryLeft = (battery >> 4) & 0xf;
-            batteryRight = battery & 0xf;
-            chargingLeft = (charging & MASK_CHARGING_LEFT) != 0;
-            chargingRight = (charging & MASK_CHARGING_RIGHT) != 0;
-        } else {
-            batteryLeft = battery & 0xf;
-            batteryRight = (battery >> 4) & 0xf;
-            chargingLeft = (charging & MASK_CHARGING_RIGHT) != 0;
-            chargingRight = (charging & MASK_CHARGING_LEFT) != 0;
+    private void onScanResultsHandled() {
+        final int displayLevel = mPolicy.takeLevelToReport();
+        if (displayLevel != AirPodsScanPolicy.NO_LEVEL) {
+            broadcastBatteryLevel(displayLevel);
         }
-
-        final int batteryCase = charging & 0xf;
-        final boolean chargingCase = (charging & MASK_CHARGING_CASE) != 0;
-
-        final boolean usingLeft = (flags & MASK_USING_LEFT) != 0;
-        final boolean usingRight = (flags & MASK_USING_RIGHT) != 0;
-
-        // Log.d(TAG, String.format("%s\t%s\tL: %s (%s)\tR: %s (%s)\tCASE: %s (%s)",
-        //         address, rightLeft,
-        //         batteryLeft == 0xf ? "-" : batteryLeft, usingLeft ? "USE" : chargingLeft ? "CHG" : "---",
-        //         batteryRight == 0xf ? "-" : batteryRight, usingRight ? "USE" : chargingRight ? "CHG" : "---",
-        //         batteryCase == 0xf ? "-" : batteryCase, chargingCase ? "CHG" : "---"));
-
-        int displayLevel = Math.min(batteryLeft, batteryRight);
-        if (displayLevel == 15) {
-            displayLevel = BluetoothDevice.BATTERY_LEVEL_UNKNOWN;
-        } else {
-            if (displayLevel > 0) {
-                displayLevel = displayLevel - 1; // [0, 9]
-            }
+        // The battery values may have started or stopped changing.
+        if (mScanner != null && mScanMode != mPolicy.getMode(SystemClock.elapsedRealtime())) {
+            updateScan();
         }
+    }
 
+    private void broadcastBatteryLevel(int displayLevel) {
         final Object[] arguments = new Object[] {
             1, // NumberOfIndicators
             BluetoothHeadset.VENDOR_SPECIFIC_HEADSET_EVENT_IPHONEACCEV_BATTERY_LEVEL, // IndicatorType
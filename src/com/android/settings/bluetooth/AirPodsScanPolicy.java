@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2021 The MoKee Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.bluetooth;
+
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.le.ScanSettings;
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+
+/**
+ * Decides how {@link AirPodsBatteryService} scans for the battery advertisements of the
+ * connected AirPods, and which battery levels are worth broadcasting.
+ *
+ * <p>The scan is fast while the screen is on and the battery values are unknown or changing,
+ * slow once they are stable, and only runs in short windows while the screen is off. A battery
+ * level is only reported when it differs from the last reported one.
+ */
+class AirPodsScanPolicy {
+
+    private static final String TAG = "AirPodsScanPolicy";
+
+    /** Returned by {@link #takeLevelToReport()} when there is nothing new to report. */
+    static final int NO_LEVEL = Integer.MIN_VALUE;
+
+    /** The screen is on and the battery values are unknown or changed recently. */
+    static final int MODE_ACTIVE = 0;
+    /** The screen is on and the battery values didn't change for a while. */
+    static final int MODE_STABLE = 1;
+    /** The screen is off, the scan only runs in short windows. */
+    static final int MODE_SCREEN_OFF = 2;
+
+    @VisibleForTesting
+    static final long STABLE_TIMEOUT_MS = 60 * 1000;
+    @VisibleForTesting
+    static final long SCREEN_OFF_SCAN_WINDOW_MS = 15 * 1000;
+    @VisibleForTesting
+    static final long SCREEN_OFF_SCAN_INTERVAL_MS = 5 * 60 * 1000;
+
+    private static final long ACTIVE_REPORT_DELAY_MS = 500;
+    private static final long STABLE_REPORT_DELAY_MS = 5 * 1000;
+
+    // A closer device is preferred, unless the best one wasn't seen for this long.
+    private static final long BEST_RESULT_TIMEOUT_MS = 5 * 1000;
+
+    private static final int DATA_MIN_LENGTH = 8;
+    private static final int FLAG_REVERSED = 1 << 7;
+
+    private boolean mScreenOn = true;
+    private long mScreenOffTime;
+    private long mLastChangeTime;
+
+    private String mBestLeAddress;
+    private int mBestLeRssi = -128;
+    private long mBestLeLastReported;
+
+    // Raw battery and charging values of the last advertisement, to detect changes.
+    private int mLastValues = -1;
+    private int mLevel = NO_LEVEL;
+    private int mReportedLevel = NO_LEVEL;
+
+    /** Forgets the device and levels, e.g. when a device is connected. */
+    void reset(long now) {
+        mBestLeAddress = null;
+        mBestLeRssi = -128;
+        mBestLeLastReported = 0;
+        mLastValues = -1;
+        mLevel = NO_LEVEL;
+        mReportedLevel = NO_LEVEL;
+        mLastChangeTime = now;
+    }
+
+    void setScreenOn(boolean screenOn, long now) {
+        if (mScreenOn == screenOn) {
+            return;
+        }
+        mScreenOn = screenOn;
+        if (screenOn) {
+            // Refresh the levels quickly while the user may look at them.
+            mLastChangeTime = now;
+        } else {
+            mScreenOffTime = now;
+        }
+    }
+
+    int getMode(long now) {
+        if (!mScreenOn) {
+            return MODE_SCREEN_OFF;
+        }
+        return now - mLastChangeTime < STABLE_TIMEOUT_MS ? MODE_ACTIVE : MODE_STABLE;
+    }
+
+    /** Returns whether the scan should run, which is only in windows while the screen is off. */
+    boolean shouldScan(long now) {
+        if (mScreenOn) {
+            return true;
+        }
+        return (now - mScreenOffTime) % SCREEN_OFF_SCAN_INTERVAL_MS < SCREEN_OFF_SCAN_WINDOW_MS;
+    }
+
+    /**
+     * Returns the delay after which {@link #getMode(long)} or {@link #shouldScan(long)} may
+     * change without any new event, or -1 if they won't.
+     */
+    long getNextUpdateDelayMillis(long now) {
+        switch (getMode(now)) {
+            case MODE_ACTIVE:
+                return mLastChangeTime + STABLE_TIMEOUT_MS - now;
+            case MODE_SCREEN_OFF:
+                final long elapsed = (now - mScreenOffTime) % SCREEN_OFF_SCAN_INTERVAL_MS;
+                return elapsed < SCREEN_OFF_SCAN_WINDOW_MS
+                        ? SCREEN_OFF_SCAN_WINDOW_MS - elapsed
+                        : SCREEN_OFF_SCAN_INTERVAL_MS - elapsed;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Returns the settings of the scan in {@code mode}. Results are batched by the controller
+     * if {@code batching} is supported, otherwise each of them is reported right away, and
+     * {@link #takeLevelToReport()} still only reports the changed levels.
+     */
+    static ScanSettings buildScanSettings(int mode, boolean batching) {
+        final ScanSettings.Builder builder = new ScanSettings.Builder();
+        if (mode == MODE_ACTIVE) {
+            builder.setScanMode(ScanSettings.SCAN_MODE_LOW_LATENCY);
+            if (batching) {
+                builder.setReportDelay(ACTIVE_REPORT_DELAY_MS);
+            }
+        } else {
+            builder.setScanMode(ScanSettings.SCAN_MODE_LOW_POWER);
+            if (batching) {
+                builder.setReportDelay(STABLE_REPORT_DELAY_MS);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Handles the manufacturer data {@code data} advertised by {@code address}. Only the
+     * closest device is followed.
+     */
+    void onScanResult(String address, int rssi, byte[] data, long now) {
+        if (data == null || data.length < DATA_MIN_LENGTH) {
+            return;
+        }
+
+        if (mBestLeAddress == null) {
+            Log.d(TAG, "First result from " + address + ", rssi=" + rssi);
+        } else if (mBestLeAddress.equals(address)) {
+            rssi = mBestLeRssi;
+        } else if (rssi >= mBestLeRssi) {
+            Log.d(TAG, "Better result from " + address + ", rssi=" + rssi);
+        } else if (now - mBestLeLastReported > BEST_RESULT_TIMEOUT_MS) {
+            Log.d(TAG, "Best result gone, alternate result from " + address + ", rssi=" + rssi);
+        } else {
+            return;
+        }
+        mBestLeAddress = address;
+        mBestLeRssi = rssi;
+        mBestLeLastReported = now;
+
+        final int values = ((data[6] & 0xff) << 8) | (data[7] & 0xff);
+        if (values != mLastValues) {
+            mLastValues = values;
+            mLastChangeTime = now;
+        }
+        mLevel = parseDisplayLevel(data);
+    }
+
+    /**
+     * Returns the battery level to report if it changed since the last call, or
+     * {@link #NO_LEVEL}.
+     */
+    int takeLevelToReport() {
+        if (mLevel == mReportedLevel) {
+            return NO_LEVEL;
+        }
+        mReportedLevel = mLevel;
+        return mLevel;
+    }
+
+    /**
+     * Returns the battery level of the least charged pod from the manufacturer data, in
+     * [0, 9] as reported by the headset vendor events, or
+     * {@link BluetoothDevice#BATTERY_LEVEL_UNKNOWN}.
+     */
+    @VisibleForTesting
+    static int parseDisplayLevel(byte[] data) {
+        final int flags = data[5];
+        final int battery = data[6];
+
+        final boolean rightLeft = ((flags & FLAG_REVERSED) != 0);
+        final int batteryLeft = rightLeft ? battery & 0xf : (battery >> 4) & 0xf;
+        final int batteryRight = rightLeft ? (battery >> 4) & 0xf : battery & 0xf;
+
+        final int displayLevel = Math.min(batteryLeft, batteryRight);
+        if (displayLevel == 15) {
+            return BluetoothDevice.BATTERY_LEVEL_UNKNOWN;
+        }
+        return displayLevel > 0 ? displayLevel - 1 : displayLevel; // [0, 9]
+    }
+}
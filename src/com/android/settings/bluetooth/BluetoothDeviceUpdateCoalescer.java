@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.bluetooth;
+
+import android.util.ArraySet;
+import android.view.Choreographer;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.bluetooth.CachedBluetoothDevice;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Coalesces the connection changes received by the {@link BluetoothDeviceUpdater}s of a page.
+ *
+ * <p>Reconnecting a device reports a burst of profile and ACL connection changes, and every
+ * updater receives each of them. The first change of a device is applied by an updater right
+ * away, and the changes received until the next frame are applied once per device, by all the
+ * updaters in a single pass. A device changing continuously is thus updated at most once per
+ * frame.
+ *
+ * <p>Must only be used on the main thread, where the Bluetooth events are delivered.
+ */
+class BluetoothDeviceUpdateCoalescer {
+
+    private static BluetoothDeviceUpdateCoalescer sInstance;
+
+    // Devices already updated by each updater since the last frame.
+    private final Map<BluetoothDeviceUpdater, Set<CachedBluetoothDevice>> mUpdatedDevices =
+            new LinkedHashMap<>();
+    // Devices changed again since their update, to update on the next frame.
+    private final Map<BluetoothDeviceUpdater, Set<CachedBluetoothDevice>> mPendingDevices =
+            new LinkedHashMap<>();
+    private final Choreographer.FrameCallback mFrameCallback = frameTimeNanos -> onFrame();
+    private boolean mFrameScheduled;
+
+    static BluetoothDeviceUpdateCoalescer getInstance() {
+        if (sInstance == null) {
+            sInstance = new BluetoothDeviceUpdateCoalescer();
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    BluetoothDeviceUpdateCoalescer() {
+    }
+
+    /** Updates {@code device} in {@code updater}, unless it was already updated this frame. */
+    void onDeviceChanged(BluetoothDeviceUpdater updater, CachedBluetoothDevice device) {
+        final Set<CachedBluetoothDevice> updatedDevices =
+                mUpdatedDevices.computeIfAbsent(updater, key -> new ArraySet<>());
+        if (updatedDevices.contains(device)) {
+            mPendingDevices.computeIfAbsent(updater, key -> new ArraySet<>()).add(device);
+            return;
+        }
+        updatedDevices.add(device);
+        scheduleFrame();
+        updater.update(device);
+    }
+
+    /**
+     * Drops the changes pending for {@code updater}, e.g. once it stopped listening or updated
+     * all the devices.
+     */
+    void cancel(BluetoothDeviceUpdater updater) {
+        mPendingDevices.remove(updater);
+        mUpdatedDevices.remove(updater);
+    }
+
+    @VisibleForTesting
+    boolean hasPendingChanges() {
+        return !mPendingDevices.isEmpty();
+    }
+
+    private void scheduleFrame() {
+        if (!mFrameScheduled) {
+            mFrameScheduled = true;
+            Choreographer.getInstance().postFrameCallback(mFrameCallback);
+        }
+    }
+
+    @VisibleForTesting
+    void onFrame() {
+        mFrameScheduled = false;
+        mUpdatedDevices.clear();
+        if (mPendingDevices.isEmpty()) {
+            return;
+        }
+        // Copy the pending changes first, since an update may report new changes.
+        final Map<BluetoothDeviceUpdater, Set<CachedBluetoothDevice>> pending =
+                new LinkedHashMap<>(mPendingDevices);
+        mPendingDevices.clear();
+        // Changes received after this pass are coalesced until the next frame as well.
+        scheduleFrame();
+        for (Map.Entry<BluetoothDeviceUpdater, Set<CachedBluetoothDevice>> entry
+                : pending.entrySet()) {
+            final BluetoothDeviceUpdater updater = entry.getKey();
+            for (CachedBluetoothDevice device : entry.getValue()) {
+                mUpdatedDevices.computeIfAbsent(updater, key -> new ArraySet<>()).add(device);
+                updater.update(device);
+            }
+        }
+    }
+}
@@ -61,6 +61,8 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
     protected DashboardFragment mFragment;
     @VisibleForTesting
     protected LocalBluetoothManager mLocalManager;
+    @VisibleForTesting
+    BluetoothDeviceUpdateCoalescer mUpdateCoalescer;
 
     @VisibleForTesting
     final GearPreference.OnGearClickListener mDeviceProfilesListener = pref -> {
@@ -79,6 +81,7 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
         mDevicePreferenceCallback = devicePreferenceCallback;
         mPreferenceMap = new HashMap<>();
         mLocalManager = localManager;
+        mUpdateCoalescer = BluetoothDeviceUpdateCoalescer.getInstance();
         mMetricsFeatureProvider = FeatureFactory.getFactory(context).getMetricsFeatureProvider();
     }
 
@@ -107,6 +110,7 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
         mLocalManager.setForegroundActivity(null);
         mLocalManager.getEventManager().unregisterCallback(this);
         mLocalManager.getProfileManager().removeServiceListener(this);
+        mUpdateCoalescer.cancel(this);
     }
 
     /**
@@ -117,6 +121,8 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
             Log.e(TAG, "forceUpdate() Bluetooth is not supported on this device");
             return;
         }
+        // All the devices are updated below.
+        mUpdateCoalescer.cancel(this);
         if (BluetoothAdapter.getDefaultAdapter().isEnabled()) {
             final Collection<CachedBluetoothDevice> cachedDevices =
                     mLocalManager.getCachedDeviceManager().getCachedDevicesCopy();
@@ -174,7 +180,7 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
             Log.d(TAG, "onProfileConnectionStateChanged() device: " + cachedDevice.getName()
                     + ", state: " + state + ", bluetoothProfile: " + bluetoothProfile);
         }
-        update(cachedDevice);
+        mUpdateCoalescer.onDeviceChanged(this, cachedDevice);
     }
 
     @Override
@@ -183,7 +189,7 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
             Log.d(TAG, "onAclConnectionStateChanged() device: " + cachedDevice.getName()
                     + ", state: " + state);
         }
-        update(cachedDevice);
+        mUpdateCoalescer.onDeviceChanged(this, cachedDevice);
     }
 
     @Override
@@ -90,6 +90,8 @@ public class SavedBluetoothDeviceUpdater extends BluetoothDeviceUpdater
 
     @Override
     public void forceUpdate() {
+        // All the devices are updated below.
+        mUpdateCoalescer.cancel(this);
         if (mBluetoothAdapter.isEnabled()) {
             final CachedBluetoothDeviceManager cachedManager =
                     mLocalManager.getCachedDeviceManager();
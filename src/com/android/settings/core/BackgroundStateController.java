@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import androidx.preference.Preference;
+
+/**
+ * Opt-in contract for a {@link BasePreferenceController} whose state is expensive to compute
+ * (e.g. needs binder calls).
+ *
+ * <p>When the controller is hosted in a {@link com.android.settings.dashboard.DashboardFragment},
+ * {@link #loadStateInBackground()} is called for every such controller concurrently, and the
+ * snapshots are then applied together in one main thread message through
+ * {@link #applyState(Preference, Object)}, instead of calling
+ * {@link BasePreferenceController#updateState(Preference)} on resume.
+ *
+ * <p>Implementations should keep {@code updateState} working for other callers, typically by
+ * calling both methods in sequence.
+ *
+ * @param <T> type of the immutable state snapshot
+ */
+public interface BackgroundStateController<T> {
+
+    /**
+     * Loads the state to display. Called in a background thread, must not touch any view.
+     *
+     * @return an immutable snapshot of the state
+     */
+    T loadStateInBackground();
+
+    /**
+     * Applies a snapshot returned by {@link #loadStateInBackground()}. Called in the main thread.
+     */
+    void applyState(Preference preference, T snapshot);
+}
@@ -25,6 +25,7 @@ import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.net.Uri;
 import android.os.AsyncTask;
 import android.text.TextUtils;
 import android.util.ArraySet;
@@ -57,6 +58,8 @@ public class CategoryMixin implements LifecycleObserver {
     private final Context mContext;
     private final PackageReceiver mPackageReceiver = new PackageReceiver();
     private final List<CategoryListener> mCategoryListeners = new ArrayList<>();
+    // Packages changed since the last update, as reported by the broadcasts.
+    private final Set<String> mChangedPackages = new ArraySet<>();
     private int mCategoriesUpdateTaskCount;
 
     public CategoryMixin(Context context) {
@@ -161,8 +164,13 @@ public class CategoryMixin implements LifecycleObserver {
 
         @Override
         protected Set<String> doInBackground(Boolean... params) {
+            final Set<String> changedPackages;
+            synchronized (mChangedPackages) {
+                changedPackages = new ArraySet<>(mChangedPackages);
+                mChangedPackages.clear();
+            }
             mPreviousTileMap = mCategoryManager.getTileByComponentMap();
-            mCategoryManager.reloadAllCategories(mContext);
+            mCategoryManager.reloadChangedCategories(mContext, changedPackages);
             mCategoryManager.updateCategoryFromDenylist(sTileDenylist);
             return getChangedCategories(params[0]);
         }
@@ -219,6 +227,12 @@ public class CategoryMixin implements LifecycleObserver {
     private class PackageReceiver extends BroadcastReceiver {
         @Override
         public void onReceive(Context context, Intent intent) {
+            final Uri data = intent.getData();
+            if (data != null) {
+                synchronized (mChangedPackages) {
+                    mChangedPackages.add(data.getSchemeSpecificPart());
+                }
+            }
             updateCategories(true /* fromBroadcast */);
         }
     }
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.core.lifecycle.Lifecycle;
+import com.android.settingslib.core.lifecycle.LifecycleObserver;
+import com.android.settingslib.core.lifecycle.events.OnDestroy;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+/**
+ * An {@link Executor} running tasks in a lane of {@link SettingsExecutors}, which cancels the
+ * tasks not run yet when its {@link Lifecycle} is destroyed.
+ *
+ * <p>Tasks already running are left to finish, they should check {@link #isDestroyed()} before
+ * touching the screen.
+ */
+public class LifecycleExecutor implements Executor, LifecycleObserver, OnDestroy {
+
+    private final SettingsExecutors mExecutors;
+    private final int mLane;
+    private final List<Future<?>> mFutures = new ArrayList<>();
+    private volatile boolean mDestroyed;
+
+    public LifecycleExecutor(Lifecycle lifecycle, @SettingsExecutors.Lane int lane) {
+        this(lifecycle, SettingsExecutors.getInstance(), lane);
+    }
+
+    @VisibleForTesting
+    LifecycleExecutor(Lifecycle lifecycle, SettingsExecutors executors,
+            @SettingsExecutors.Lane int lane) {
+        mExecutors = executors;
+        mLane = lane;
+        if (lifecycle != null) {
+            lifecycle.addObserver(this);
+        }
+    }
+
+    @Override
+    public void execute(Runnable runnable) {
+        execute(SettingsExecutors.PRIORITY_DEFAULT, runnable);
+    }
+
+    /**
+     * Runs {@code runnable}, before the queued tasks with a higher {@code priority} value.
+     * Ignored once destroyed.
+     */
+    public void execute(int priority, Runnable runnable) {
+        submit(priority, runnable);
+    }
+
+    /**
+     * Runs {@code runnable} like {@link #execute(Runnable)}.
+     *
+     * @return the {@link Future} to cancel the task with, or {@code null} once destroyed.
+     */
+    public Future<?> submit(Runnable runnable) {
+        return submit(SettingsExecutors.PRIORITY_DEFAULT, runnable);
+    }
+
+    private Future<?> submit(int priority, Runnable runnable) {
+        synchronized (mFutures) {
+            if (mDestroyed) {
+                return null;
+            }
+            // Forget the tasks done, so the list only holds what is pending.
+            final Iterator<Future<?>> iterator = mFutures.iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().isDone()) {
+                    iterator.remove();
+                }
+            }
+            final Future<?> future = mExecutors.submit(mLane, priority, runnable);
+            mFutures.add(future);
+            return future;
+        }
+    }
+
+    /**
+     * @return {@code true} once the lifecycle is destroyed.
+     */
+    public boolean isDestroyed() {
+        return mDestroyed;
+    }
+
+    @Override
+    public void onDestroy() {
+        synchronized (mFutures) {
+            mDestroyed = true;
+            for (Future<?> future : mFutures) {
+                future.cancel(false /* mayInterruptIfRunning */);
+            }
+            mFutures.clear();
+        }
+    }
+}
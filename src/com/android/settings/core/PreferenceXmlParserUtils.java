@@ -20,10 +20,14 @@ import android.annotation.NonNull;
 import android.annotation.Nullable;
 import android.annotation.XmlRes;
 import android.content.Context;
+import android.content.res.AssetManager;
+import android.content.res.Configuration;
+import android.content.res.Resources;
 import android.content.res.TypedArray;
 import android.content.res.XmlResourceParser;
 import android.os.Bundle;
 import android.text.TextUtils;
+import android.util.ArrayMap;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.util.TypedValue;
@@ -43,6 +47,8 @@ import java.lang.annotation.RetentionPolicy;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * Utility class to parse elements of XML preferences
@@ -108,6 +114,12 @@ public class PreferenceXmlParserUtils {
 
     private static final String ENTRIES_SEPARATOR = "|";
 
+    /**
+     * Parsed metadata, per {@link AssetManager} so it's dropped along with the resources it was
+     * read from.
+     */
+    private static final Map<AssetManager, MetadataCache> sMetadataCache = new WeakHashMap<>();
+
     /**
      * Call {@link #extractMetadata(Context, int, int)} with {@link #METADATA_KEY} instead.
      */
@@ -179,11 +191,50 @@ public class PreferenceXmlParserUtils {
     @NonNull
     public static List<Bundle> extractMetadata(Context context, @XmlRes int xmlResId, int flags)
             throws IOException, XmlPullParserException {
-        final List<Bundle> metadata = new ArrayList<>();
         if (xmlResId <= 0) {
             Log.d(TAG, xmlResId + " is invalid.");
-            return metadata;
+            return new ArrayList<>();
+        }
+        final Resources res = context.getResources();
+        final AssetManager assets = res.getAssets();
+        if (assets == null) {
+            return parseMetadata(context, xmlResId, flags);
         }
+        final Configuration configuration = res.getConfiguration();
+        final long cacheKey = ((long) xmlResId << 32) | (flags & 0xffffffffL);
+        List<Bundle> cached;
+        synchronized (sMetadataCache) {
+            final MetadataCache cache = sMetadataCache.get(assets);
+            cached = cache != null ? cache.get(configuration, cacheKey) : null;
+        }
+        if (cached == null) {
+            // Parse outside of the lock, a concurrent miss only costs a duplicate parse.
+            cached = parseMetadata(context, xmlResId, flags);
+            synchronized (sMetadataCache) {
+                MetadataCache cache = sMetadataCache.get(assets);
+                if (cache == null) {
+                    cache = new MetadataCache();
+                    sMetadataCache.put(assets, cache);
+                }
+                cache.put(configuration, cacheKey, cached);
+            }
+        }
+        return copyOf(cached);
+    }
+
+    /**
+     * Drops all metadata cached by {@link #extractMetadata(Context, int, int)}.
+     */
+    @VisibleForTesting
+    public static void clearMetadataCache() {
+        synchronized (sMetadataCache) {
+            sMetadataCache.clear();
+        }
+    }
+
+    private static List<Bundle> parseMetadata(Context context, @XmlRes int xmlResId, int flags)
+            throws IOException, XmlPullParserException {
+        final List<Bundle> metadata = new ArrayList<>();
         final XmlResourceParser parser = context.getResources().getXml(xmlResId);
 
         int type;
@@ -266,6 +317,17 @@ public class PreferenceXmlParserUtils {
         return metadata;
     }
 
+    /**
+     * Returns a deep copy of {@code metadata}, so callers can't alter the cached bundles.
+     */
+    private static List<Bundle> copyOf(List<Bundle> metadata) {
+        final List<Bundle> copy = new ArrayList<>(metadata.size());
+        for (Bundle bundle : metadata) {
+            copy.add(new Bundle(bundle));
+        }
+        return copy;
+    }
+
     /**
      * Call {@link #extractMetadata(Context, int, int)} with a {@link MetadataFlag} instead.
      */
@@ -351,4 +413,28 @@ public class PreferenceXmlParserUtils {
         return styledAttributes.getBoolean(
                 R.styleable.Preference_forWork, false);
     }
-}
\ No newline at end of file
+
+    /**
+     * Metadata parsed with one {@link Configuration}. Titles and summaries are localized, so the
+     * whole cache is dropped as soon as the configuration changes.
+     */
+    private static class MetadataCache {
+        private final Map<Long, List<Bundle>> mMetadata = new ArrayMap<>();
+        private Configuration mConfiguration;
+
+        List<Bundle> get(Configuration configuration, long key) {
+            if (!configuration.equals(mConfiguration)) {
+                return null;
+            }
+            return mMetadata.get(key);
+        }
+
+        void put(Configuration configuration, long key, List<Bundle> metadata) {
+            if (!configuration.equals(mConfiguration)) {
+                mMetadata.clear();
+                mConfiguration = new Configuration(configuration);
+            }
+            mMetadata.put(key, copyOf(metadata));
+        }
+    }
+}
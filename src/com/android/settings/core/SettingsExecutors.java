@@ -0,0 +1,301 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.IntDef;
+import androidx.annotation.VisibleForTesting;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Worker threads shared by the whole Settings process.
+ *
+ * <p>Work runs in one of three lanes, each with its own threads and thread priority:
+ * {@link #LANE_PREFETCH} for what the user is waiting to see, {@link #LANE_NORMAL} for the
+ * usual background work and {@link #LANE_IDLE} for work nobody is waiting for. Within a lane,
+ * tasks with a lower priority value run first. Idle threads are released, so an idle process
+ * holds no worker threads.
+ *
+ * <p>Code needing a {@link Looper} should use {@link #getBackgroundLooper()} rather than starting
+ * its own {@link HandlerThread}. Use {@link LifecycleExecutor} to cancel the work of a screen when
+ * it is destroyed.
+ */
+public class SettingsExecutors {
+
+    private static final String TAG = "SettingsExecutors";
+    private static final long KEEP_ALIVE_SECONDS = 10L;
+
+    /** Work the user is waiting for, e.g. the content of the screen being opened. */
+    public static final int LANE_PREFETCH = 0;
+    /** Background work. */
+    public static final int LANE_NORMAL = 1;
+    /** Work which can wait, e.g. logging or warming up caches. */
+    public static final int LANE_IDLE = 2;
+
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({LANE_PREFETCH, LANE_NORMAL, LANE_IDLE})
+    public @interface Lane {
+    }
+
+    /** The priority of tasks submitted without one. */
+    public static final int PRIORITY_DEFAULT = 0;
+
+    private static SettingsExecutors sInstance;
+
+    private final LaneExecutor[] mLanes;
+    private HandlerThread mBackgroundThread;
+
+    /** Returns the executors of the process. */
+    public static synchronized SettingsExecutors getInstance() {
+        if (sInstance == null) {
+            final int threads =
+                    Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+            sInstance = new SettingsExecutors(threads, threads);
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    SettingsExecutors(int prefetchThreads, int normalThreads) {
+        mLanes = new LaneExecutor[] {
+                new LaneExecutor("prefetch", prefetchThreads, Process.THREAD_PRIORITY_FOREGROUND),
+                new LaneExecutor("normal", normalThreads, Process.THREAD_PRIORITY_BACKGROUND),
+                new LaneExecutor("idle", 1, Process.THREAD_PRIORITY_LOWEST),
+        };
+    }
+
+    /**
+     * Returns an {@link Executor} running tasks in {@code lane} with the default priority.
+     */
+    public Executor getExecutor(@Lane int lane) {
+        return runnable -> execute(lane, PRIORITY_DEFAULT, runnable);
+    }
+
+    /**
+     * Runs {@code runnable} in {@code lane}, before the queued tasks with a higher
+     * {@code priority} value.
+     */
+    public void execute(@Lane int lane, int priority, Runnable runnable) {
+        submit(lane, priority, runnable);
+    }
+
+    /**
+     * Same as {@link #execute(int, int, Runnable)}, returning a {@link Future} to cancel the task.
+     */
+    public Future<?> submit(@Lane int lane, int priority, Runnable runnable) {
+        final LaneExecutor executor = mLanes[lane];
+        final LaneTask task = new LaneTask(executor, priority, runnable);
+        executor.mSubmittedCount.incrementAndGet();
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Returns the {@link Looper} of a background thread shared by the process, for code that
+     * needs a {@link android.os.Handler}. Messages mustn't block, since they delay everyone else.
+     */
+    public synchronized Looper getBackgroundLooper() {
+        if (mBackgroundThread == null) {
+            mBackgroundThread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+            mBackgroundThread.start();
+        }
+        return mBackgroundThread.getLooper();
+    }
+
+    /**
+     * Returns the metrics of {@code lane}.
+     */
+    public LaneStats getStats(@Lane int lane) {
+        return mLanes[lane].getStats();
+    }
+
+    /**
+     * Returns the metrics of all lanes, for dumpsys.
+     */
+    public JSONObject dump() throws JSONException {
+        final JSONObject obj = new JSONObject();
+        for (LaneExecutor lane : mLanes) {
+            final LaneStats stats = lane.getStats();
+            final JSONObject laneObj = new JSONObject();
+            laneObj.put("queued", stats.queued);
+            laneObj.put("active", stats.active);
+            laneObj.put("threads", stats.threads);
+            laneObj.put("submitted", stats.submitted);
+            laneObj.put("completed", stats.completed);
+            laneObj.put("avgWaitMs", stats.getAverageWaitMs());
+            laneObj.put("maxWaitMs", stats.maxWaitMs);
+            laneObj.put("avgRunMs", stats.getAverageRunMs());
+            obj.put(lane.mName, laneObj);
+        }
+        return obj;
+    }
+
+    /** Snapshot of the metrics of a lane. */
+    public static class LaneStats {
+        /** Tasks waiting for a thread. */
+        public int queued;
+        /** Tasks running. */
+        public int active;
+        /** Threads alive. */
+        public int threads;
+        public long submitted;
+        public long completed;
+        /** Time spent in the queue by the completed tasks. */
+        public long totalWaitMs;
+        public long maxWaitMs;
+        /** Time spent running by the completed tasks. */
+        public long totalRunMs;
+
+        public long getAverageWaitMs() {
+            return completed == 0 ? 0 : totalWaitMs / completed;
+        }
+
+        public long getAverageRunMs() {
+            return completed == 0 ? 0 : totalRunMs / completed;
+        }
+    }
+
+    private static class LaneExecutor extends ThreadPoolExecutor {
+        final String mName;
+        final AtomicLong mSequence = new AtomicLong();
+        final AtomicLong mSubmittedCount = new AtomicLong();
+        final AtomicLong mCompletedCount = new AtomicLong();
+        final AtomicLong mTotalWaitMs = new AtomicLong();
+        final AtomicLong mMaxWaitMs = new AtomicLong();
+        final AtomicLong mTotalRunMs = new AtomicLong();
+
+        LaneExecutor(String name, int threads, int threadPriority) {
+            // The queue is unbounded, so the pool never grows past its core threads.
+            super(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new PriorityBlockingQueue<>(), new LaneThreadFactory(name, threadPriority));
+            mName = name;
+            allowCoreThreadTimeOut(true);
+        }
+
+        void onTaskCompleted(long waitMs, long runMs) {
+            mCompletedCount.incrementAndGet();
+            mTotalWaitMs.addAndGet(waitMs);
+            mTotalRunMs.addAndGet(runMs);
+            mMaxWaitMs.accumulateAndGet(waitMs, Math::max);
+        }
+
+        LaneStats getStats() {
+            final LaneStats stats = new LaneStats();
+            stats.queued = getQueue().size();
+            stats.active = getActiveCount();
+            stats.threads = getPoolSize();
+            stats.submitted = mSubmittedCount.get();
+            stats.completed = mCompletedCount.get();
+            stats.totalWaitMs = mTotalWaitMs.get();
+            stats.maxWaitMs = mMaxWaitMs.get();
+            stats.totalRunMs = mTotalRunMs.get();
+            return stats;
+        }
+    }
+
+    private static class LaneThreadFactory implements ThreadFactory {
+        private final String mName;
+        private final int mThreadPriority;
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        LaneThreadFactory(String name, int threadPriority) {
+            mName = name;
+            mThreadPriority = threadPriority;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            final Thread thread = new Thread(() -> {
+                Process.setThreadPriority(mThreadPriority);
+                runnable.run();
+            }, TAG + "-" + mName + "-" + mCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    private static class LaneTask extends FutureTask<Void> implements Comparable<LaneTask> {
+        private final LaneExecutor mExecutor;
+        private final int mPriority;
+        private final long mSequence;
+        private final long mEnqueueTime;
+
+        LaneTask(LaneExecutor executor, int priority, Runnable runnable) {
+            super(runnable, null);
+            mExecutor = executor;
+            mPriority = priority;
+            mSequence = executor.mSequence.getAndIncrement();
+            mEnqueueTime = SystemClock.uptimeMillis();
+        }
+
+        @Override
+        public void run() {
+            if (isDone()) {
+                return;
+            }
+            final long startTime = SystemClock.uptimeMillis();
+            super.run();
+            mExecutor.onTaskCompleted(startTime - mEnqueueTime,
+                    SystemClock.uptimeMillis() - startTime);
+        }
+
+        @Override
+        protected void setException(Throwable t) {
+            super.setException(t);
+            // Nobody may ever look at the future of a task submitted with execute().
+            Log.e(TAG, "Task failed in lane " + mExecutor.mName, t);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            final boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                // Don't let it hold its place in the queue.
+                mExecutor.remove(this);
+            }
+            return cancelled;
+        }
+
+        @Override
+        public int compareTo(LaneTask other) {
+            if (mPriority != other.mPriority) {
+                return Integer.compare(mPriority, other.mPriority);
+            }
+            // First in, first out within a priority.
+            return Long.compare(mSequence, other.mSequence);
+        }
+    }
+}
@@ -20,9 +20,7 @@ import android.app.settings.SettingsEnums;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Handler;
-import android.os.HandlerThread;
 import android.os.Looper;
-import android.os.Process;
 import android.os.UserHandle;
 import android.text.TextUtils;
 import android.text.format.DateUtils;
@@ -32,6 +30,7 @@ import android.util.Pair;
 import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.R;
+import com.android.settings.core.SettingsExecutors;
 import com.android.settings.intelligence.LogProto.SettingsLog;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settingslib.core.instrumentation.LogWriter;
@@ -54,10 +53,7 @@ public class SettingsIntelligenceLogWriter implements LogWriter {
 
     public SettingsIntelligenceLogWriter() {
         mSettingsLogList = new LinkedList<>();
-        final HandlerThread workerThread = new HandlerThread("SettingsIntelligenceLogWriter",
-                Process.THREAD_PRIORITY_BACKGROUND);
-        workerThread.start();
-        mLogHandler = new SendLogHandler(workerThread.getLooper());
+        mLogHandler = new SendLogHandler(SettingsExecutors.getInstance().getBackgroundLooper());
     }
 
     @Override
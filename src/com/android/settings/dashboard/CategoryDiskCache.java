@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Build;
+import android.os.Parcel;
+import android.os.UserHandle;
+import android.provider.Settings;
+import android.text.TextUtils;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settings.core.SettingsExecutors;
+import com.android.settingslib.drawer.DashboardCategory;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Saves the categories loaded by {@link CategoryManager}, so that the next process can skip
+ * querying the injected tiles if no package changed in the meantime.
+ *
+ * <p>The categories are only valid for the build, boot, configuration and
+ * {@link CategoryManager#getLoadState(Context) load state} they were saved in, since the package
+ * change sequence numbers restart at each boot.
+ */
+class CategoryDiskCache {
+
+    private static final String TAG = "CategoryDiskCache";
+    @VisibleForTesting
+    static final String FILE_NAME = "dashboard_categories";
+    private static final int VERSION = 2;
+
+    /** The categories of {@link CategoryManager}, with the package state they were loaded in. */
+    static class Snapshot {
+        /** See {@link PackageChangeTracker#getSequenceNumber()}. */
+        final int sequenceNumber;
+        final List<UserHandle> profiles;
+        /** The categories returned by {@link CategoryManager#getCategories(Context)}. */
+        final List<DashboardCategory> categories;
+        /** The other categories, only returned by key. */
+        final List<DashboardCategory> otherCategories;
+
+        Snapshot(int sequenceNumber, List<UserHandle> profiles,
+                List<DashboardCategory> categories, List<DashboardCategory> otherCategories) {
+            this.sequenceNumber = sequenceNumber;
+            this.profiles = profiles;
+            this.categories = categories;
+            this.otherCategories = otherCategories;
+        }
+    }
+
+    private final AtomicFile mFile;
+
+    CategoryDiskCache(Context context) {
+        mFile = new AtomicFile(new File(context.getCacheDir(), FILE_NAME));
+    }
+
+    /** Returns the saved categories, or null if there are none valid for {@code context}. */
+    Snapshot read(Context context) {
+        final byte[] bytes;
+        try {
+            bytes = mFile.readFully();
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            Log.w(TAG, "Can't read categories", e);
+            return null;
+        }
+
+        final Parcel parcel = Parcel.obtain();
+        try {
+            parcel.unmarshall(bytes, 0, bytes.length);
+            parcel.setDataPosition(0);
+            if (parcel.readInt() != VERSION
+                    || !TextUtils.equals(parcel.readString(), getFingerprint(context))) {
+                return null;
+            }
+            final int sequenceNumber = parcel.readInt();
+            final int profileCount = parcel.readInt();
+            final List<UserHandle> profiles = new ArrayList<>(profileCount);
+            for (int i = 0; i < profileCount; i++) {
+                profiles.add(UserHandle.of(parcel.readInt()));
+            }
+            final List<DashboardCategory> categories =
+                    parcel.createTypedArrayList(DashboardCategory.CREATOR);
+            final List<DashboardCategory> otherCategories =
+                    parcel.createTypedArrayList(DashboardCategory.CREATOR);
+            return new Snapshot(sequenceNumber, profiles, categories, otherCategories);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Invalid categories", e);
+            mFile.delete();
+            return null;
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    /**
+     * Saves {@code snapshot} in the background. The categories are copied right away, so they
+     * can be modified after.
+     */
+    void write(Context context, Snapshot snapshot) {
+        final Parcel parcel = Parcel.obtain();
+        final byte[] bytes;
+        try {
+            parcel.writeInt(VERSION);
+            parcel.writeString(getFingerprint(context));
+            parcel.writeInt(snapshot.sequenceNumber);
+            parcel.writeInt(snapshot.profiles.size());
+            for (UserHandle profile : snapshot.profiles) {
+                parcel.writeInt(profile.getIdentifier());
+            }
+            parcel.writeTypedList(snapshot.categories);
+            parcel.writeTypedList(snapshot.otherCategories);
+            bytes = parcel.marshall();
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Can't save categories", e);
+            return;
+        } finally {
+            parcel.recycle();
+        }
+
+        SettingsExecutors.getInstance().execute(SettingsExecutors.LANE_IDLE,
+                SettingsExecutors.PRIORITY_DEFAULT, () -> {
+                    FileOutputStream out = null;
+                    try {
+                        out = mFile.startWrite();
+                        out.write(bytes);
+                        mFile.finishWrite(out);
+                    } catch (IOException e) {
+                        Log.w(TAG, "Can't save categories", e);
+                        mFile.failWrite(out);
+                    }
+                });
+    }
+
+    private static String getFingerprint(Context context) {
+        final Configuration config = context.getResources().getConfiguration();
+        return Build.FINGERPRINT
+                + "/" + Settings.Global.getInt(context.getContentResolver(),
+                        Settings.Global.BOOT_COUNT, 0 /* def */)
+                + "/" + config.getLocales().toLanguageTags()
+                + "/" + config.densityDpi
+                + "/" + config.uiMode
+                + "/" + CategoryManager.getLoadState(context);
+    }
+}
@@ -17,6 +17,7 @@ package com.android.settings.dashboard;
 
 import android.content.ComponentName;
 import android.content.Context;
+import android.provider.Settings;
 import android.text.TextUtils;
 import android.util.ArrayMap;
 import android.util.ArraySet;
@@ -55,6 +56,11 @@ public class CategoryManager {
     private final Map<String, DashboardCategory> mCategoryByKeyMap;
 
     private List<DashboardCategory> mCategories;
+    // See getLoadState(), when mCategories were loaded.
+    private String mLoadState;
+
+    private final PackageChangeTracker mPackageChangeTracker;
+    private final CategoryDiskCache mDiskCache;
 
     public static CategoryManager get(Context context) {
         if (sInstance == null) {
@@ -64,10 +70,17 @@ public class CategoryManager {
     }
 
     CategoryManager(Context context) {
+        this(context, new CategoryDiskCache(context));
+    }
+
+    @VisibleForTesting
+    CategoryManager(Context context, CategoryDiskCache diskCache) {
         mTileByComponentCache = new ArrayMap<>();
         mCategoryByKeyMap = new ArrayMap<>();
         mInterestingConfigChanges = new InterestingConfigChanges();
         mInterestingConfigChanges.applyNewConfig(context.getResources());
+        mPackageChangeTracker = new PackageChangeTracker();
+        mDiskCache = diskCache;
     }
 
     public synchronized DashboardCategory getTilesByCategory(Context context, String categoryKey) {
@@ -88,6 +101,33 @@ public class CategoryManager {
         tryInitCategories(context, forceClearCache);
     }
 
+    /**
+     * Same as {@link #reloadAllCategories(Context)}, but only if a package or the
+     * {@link #getLoadState(Context) load state} changed since the categories were loaded, or if
+     * they have provider tiles, whose metadata can change at any time. The cached tiles of the
+     * packages which didn't change are reused.
+     *
+     * @param changedPackages packages known to have changed, e.g. from a broadcast
+     */
+    public synchronized void reloadChangedCategories(Context context,
+            Set<String> changedPackages) {
+        final boolean forceClearCache = mInterestingConfigChanges.applyNewConfig(
+                context.getResources());
+        final Set<String> packages = new ArraySet<>(changedPackages);
+        final boolean changesKnown =
+                mPackageChangeTracker.collectChangedPackages(context, packages);
+        if (mCategories != null && !forceClearCache && changesKnown && packages.isEmpty()
+                && TextUtils.equals(mLoadState, getLoadState(context)) && !hasProviderTiles()) {
+            return;
+        }
+        if (changesKnown) {
+            // Drop the tiles of the changed packages, since their metadata may have changed.
+            mTileByComponentCache.keySet().removeIf(key -> packages.contains(key.first));
+        }
+        mCategories = null;
+        tryInitCategories(context, forceClearCache);
+    }
+
     /**
      * Update category from deny list
      * @param tileDenylist
@@ -146,13 +186,19 @@ public class CategoryManager {
                 mTileByComponentCache.clear();
             }
             mCategoryByKeyMap.clear();
-            mCategories = TileUtils.getCategories(context, mTileByComponentCache);
-            for (DashboardCategory category : mCategories) {
-                mCategoryByKeyMap.put(category.key, category);
+            mLoadState = getLoadState(context);
+            if (!firstLoading || forceClearCache || !loadFromDiskCache(context)) {
+                // Sync the tracker first, so that packages changing during the load are seen.
+                mPackageChangeTracker.collectChangedPackages(context, new ArraySet<>());
+                mCategories = TileUtils.getCategories(context, mTileByComponentCache);
+                for (DashboardCategory category : mCategories) {
+                    mCategoryByKeyMap.put(category.key, category);
+                }
+                backwardCompatCleanupForCategory(mTileByComponentCache, mCategoryByKeyMap);
+                sortCategories(context, mCategoryByKeyMap);
+                filterDuplicateTiles(mCategoryByKeyMap);
+                saveToDiskCache(context);
             }
-            backwardCompatCleanupForCategory(mTileByComponentCache, mCategoryByKeyMap);
-            sortCategories(context, mCategoryByKeyMap);
-            filterDuplicateTiles(mCategoryByKeyMap);
             if (firstLoading) {
                 logTiles(context);
 
@@ -173,6 +219,69 @@ public class CategoryManager {
         }
     }
 
+    /**
+     * Returns the state, other than the installed packages, which the injected tiles depend on:
+     * the user, and whether the device is provisioned, since some tiles are only loaded after
+     * the setup.
+     */
+    static String getLoadState(Context context) {
+        return context.getUser().getIdentifier()
+                + "/" + Settings.Global.getInt(context.getContentResolver(),
+                        Settings.Global.DEVICE_PROVISIONED, 0 /* def */);
+    }
+
+    private boolean hasProviderTiles() {
+        for (DashboardCategory category : mCategoryByKeyMap.values()) {
+            for (int i = 0; i < category.getTilesCount(); i++) {
+                if (category.getTile(i) instanceof ProviderTile) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Loads the categories saved by a previous process, if no package changed since.
+     *
+     * @return whether the categories were loaded
+     */
+    private boolean loadFromDiskCache(Context context) {
+        final CategoryDiskCache.Snapshot snapshot = mDiskCache.read(context);
+        if (snapshot == null) {
+            return false;
+        }
+        mPackageChangeTracker.restore(snapshot.sequenceNumber, snapshot.profiles);
+        final Set<String> changedPackages = new ArraySet<>();
+        if (!mPackageChangeTracker.collectChangedPackages(context, changedPackages)
+                || !changedPackages.isEmpty()) {
+            return false;
+        }
+        mCategories = snapshot.categories;
+        for (DashboardCategory category : snapshot.otherCategories) {
+            mCategoryByKeyMap.put(category.key, category);
+        }
+        for (DashboardCategory category : mCategories) {
+            mCategoryByKeyMap.put(category.key, category);
+        }
+        if (DEBUG) {
+            Log.d(TAG, "Categories loaded from disk");
+        }
+        return true;
+    }
+
+    private void saveToDiskCache(Context context) {
+        final List<DashboardCategory> otherCategories = new ArrayList<>();
+        for (DashboardCategory category : mCategoryByKeyMap.values()) {
+            if (!mCategories.contains(category)) {
+                otherCategories.add(category);
+            }
+        }
+        mDiskCache.write(context, new CategoryDiskCache.Snapshot(
+                mPackageChangeTracker.getSequenceNumber(), mPackageChangeTracker.getProfiles(),
+                mCategories, otherCategories));
+    }
+
     @VisibleForTesting
     synchronized void backwardCompatCleanupForCategory(
             Map<Pair<String, String>, Tile> tileByComponentCache,
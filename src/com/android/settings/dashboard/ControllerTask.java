@@ -24,6 +24,7 @@ import android.util.Log;
 import androidx.preference.Preference;
 import androidx.preference.PreferenceScreen;
 
+import com.android.settings.core.BackgroundStateController;
 import com.android.settingslib.core.AbstractPreferenceController;
 import com.android.settingslib.core.instrumentation.MetricsFeatureProvider;
 import com.android.settingslib.utils.ThreadUtils;
@@ -40,6 +41,7 @@ public class ControllerTask implements Runnable {
     private final PreferenceScreen mScreen;
     private final int mMetricsCategory;
     private final MetricsFeatureProvider mMetricsFeature;
+    private volatile Object mSnapshot;
 
     public ControllerTask(AbstractPreferenceController controller, PreferenceScreen screen,
             MetricsFeatureProvider metricsFeature, int metricsCategory) {
@@ -51,37 +53,71 @@ public class ControllerTask implements Runnable {
 
     @Override
     public void run() {
-        if (!mController.isAvailable()) {
+        final Preference preference = prepareUpdate();
+        if (preference == null) {
             return;
         }
+        ThreadUtils.postOnMainThread(() -> updateState(preference));
+    }
+
+    /**
+     * Resolves the {@link Preference} this controller should update and, for a
+     * {@link BackgroundStateController}, loads its state. Safe to call in the background.
+     *
+     * @return the target preference, or {@code null} if the controller is not available or its
+     * preference is not on the screen.
+     */
+    Preference prepareUpdate() {
+        final Preference preference = findTargetPreference();
+        if (preference != null && mController instanceof BackgroundStateController) {
+            mSnapshot = ((BackgroundStateController<?>) mController).loadStateInBackground();
+        }
+        return preference;
+    }
+
+    private Preference findTargetPreference() {
+        if (!mController.isAvailable()) {
+            return null;
+        }
 
         final String key = mController.getPreferenceKey();
         if (TextUtils.isEmpty(key)) {
             Log.d(TAG, String.format("Preference key is %s in Controller %s",
                     key, mController.getClass().getSimpleName()));
-            return;
+            return null;
         }
 
         final Preference preference = mScreen.findPreference(key);
         if (preference == null) {
             Log.d(TAG, String.format("Cannot find preference with key %s in Controller %s",
                     key, mController.getClass().getSimpleName()));
-            return;
         }
-        ThreadUtils.postOnMainThread(() -> {
-            final long t = SystemClock.elapsedRealtime();
+        return preference;
+    }
+
+    /**
+     * Calls {@link AbstractPreferenceController#updateState(Preference)}, or applies the state
+     * loaded by {@link #prepareUpdate()}, and logs slow updates. Must be called in the main
+     * thread.
+     */
+    @SuppressWarnings("unchecked")
+    void updateState(Preference preference) {
+        final long t = SystemClock.elapsedRealtime();
+        if (mController instanceof BackgroundStateController) {
+            ((BackgroundStateController<Object>) mController).applyState(preference, mSnapshot);
+        } else {
             mController.updateState(preference);
-            final int elapsedTime = (int) (SystemClock.elapsedRealtime() - t);
-            if (elapsedTime > CONTROLLER_UPDATESTATE_TIME_THRESHOLD) {
-                Log.w(TAG, "The updateState took " + elapsedTime + " ms in Controller "
-                        + mController.getClass().getSimpleName());
-                if (mMetricsFeature != null) {
-                    mMetricsFeature.action(SettingsEnums.PAGE_UNKNOWN,
-                            SettingsEnums.ACTION_CONTROLLER_UPDATE_STATE, mMetricsCategory,
-                            mController.getClass().getSimpleName(), elapsedTime);
-                }
+        }
+        final int elapsedTime = (int) (SystemClock.elapsedRealtime() - t);
+        if (elapsedTime > CONTROLLER_UPDATESTATE_TIME_THRESHOLD) {
+            Log.w(TAG, "The updateState took " + elapsedTime + " ms in Controller "
+                    + mController.getClass().getSimpleName());
+            if (mMetricsFeature != null) {
+                mMetricsFeature.action(SettingsEnums.PAGE_UNKNOWN,
+                        SettingsEnums.ACTION_CONTROLLER_UPDATE_STATE, mMetricsCategory,
+                        mController.getClass().getSimpleName(), elapsedTime);
             }
-        });
+        }
     }
 
     AbstractPreferenceController getController() {
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import android.util.ArrayMap;
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+import androidx.preference.Preference;
+import androidx.preference.PreferenceGroup;
+import androidx.preference.PreferenceScreen;
+
+import com.android.settings.core.SettingsExecutors;
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Schedules {@link ControllerTask}s of a dashboard in two phases.
+ *
+ * <p>The compute phase ({@link ControllerTask#prepareUpdate()}) runs in the prefetch lane of
+ * {@link SettingsExecutors}, with the controllers of the preferences shown first on the screen
+ * dequeued first. Once every task has been computed, the apply phase calls
+ * {@link ControllerTask#updateState(Preference)} for all of them in a single main thread message,
+ * so the whole screen changes in one frame.
+ */
+public class ControllerUpdateScheduler {
+    private static final String TAG = "ControllerUpdateSched";
+    private static final int PRIORITY_NOT_ON_SCREEN = Integer.MAX_VALUE;
+
+    private final Executor mExecutor;
+    private final AtomicInteger mGeneration = new AtomicInteger();
+
+    /**
+     * Callback for when all scheduled controllers have been updated in the main thread.
+     */
+    public interface OnUpdateCompleteListener {
+        /**
+         * Called in the main thread after the apply phase.
+         */
+        void onUpdateComplete();
+    }
+
+    public ControllerUpdateScheduler() {
+        this(getDefaultExecutor());
+    }
+
+    @VisibleForTesting
+    ControllerUpdateScheduler(Executor executor) {
+        mExecutor = executor;
+    }
+
+    /**
+     * Updates the given tasks, dropping the result of any update that is still in flight.
+     *
+     * @param screen   the screen the tasks belong to, used to prioritize visible preferences
+     * @param tasks    the tasks to run
+     * @param listener notified once every task has been applied, may be {@code null}
+     */
+    public void schedule(PreferenceScreen screen, List<ControllerTask> tasks,
+            OnUpdateCompleteListener listener) {
+        final int generation = mGeneration.incrementAndGet();
+        final List<PrioritizedTask> prioritizedTasks = prioritize(screen, tasks);
+        final int count = prioritizedTasks.size();
+        if (count == 0) {
+            ThreadUtils.postOnMainThread(() -> {
+                if (generation == mGeneration.get() && listener != null) {
+                    listener.onUpdateComplete();
+                }
+            });
+            return;
+        }
+
+        final Preference[] results = new Preference[count];
+        final AtomicInteger remaining = new AtomicInteger(count);
+        for (int i = 0; i < count; i++) {
+            final int index = i;
+            final PrioritizedTask prioritizedTask = prioritizedTasks.get(i);
+            prioritizedTask.mRunnable = () -> {
+                if (generation == mGeneration.get()) {
+                    try {
+                        results[index] = prioritizedTask.mTask.prepareUpdate();
+                    } catch (RuntimeException e) {
+                        Log.w(TAG, prioritizedTask.mTask.getController().getPreferenceKey()
+                                + " " + e.getMessage());
+                    }
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    ThreadUtils.postOnMainThread(
+                            () -> apply(generation, prioritizedTasks, results, listener));
+                }
+            };
+            mExecutor.execute(prioritizedTask);
+        }
+    }
+
+    /**
+     * Drops the result of the update in flight, if any. Its listener won't be notified.
+     */
+    public void cancel() {
+        mGeneration.incrementAndGet();
+    }
+
+    private void apply(int generation, List<PrioritizedTask> tasks, Preference[] results,
+            OnUpdateCompleteListener listener) {
+        if (generation != mGeneration.get()) {
+            return;
+        }
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] != null) {
+                tasks.get(i).mTask.updateState(results[i]);
+            }
+        }
+        if (listener != null) {
+            listener.onUpdateComplete();
+        }
+    }
+
+    /**
+     * Returns the tasks sorted by the position of their preference in the screen.
+     */
+    @VisibleForTesting
+    static List<PrioritizedTask> prioritize(PreferenceScreen screen, List<ControllerTask> tasks) {
+        final Map<String, Integer> positions = new ArrayMap<>();
+        if (screen != null) {
+            collectPositions(screen, positions);
+        }
+        final List<PrioritizedTask> result = new ArrayList<>(tasks.size());
+        for (ControllerTask task : tasks) {
+            final Integer position = positions.get(task.getController().getPreferenceKey());
+            result.add(new PrioritizedTask(task,
+                    position == null ? PRIORITY_NOT_ON_SCREEN : position));
+        }
+        // Stable sort, so tasks with the same priority keep their registration order.
+        Collections.sort(result);
+        return result;
+    }
+
+    private static void collectPositions(PreferenceGroup group, Map<String, Integer> positions) {
+        final int count = group.getPreferenceCount();
+        for (int i = 0; i < count; i++) {
+            final Preference preference = group.getPreference(i);
+            final String key = preference.getKey();
+            if (key != null && !positions.containsKey(key)) {
+                positions.put(key, positions.size());
+            }
+            if (preference instanceof PreferenceGroup) {
+                collectPositions((PreferenceGroup) preference, positions);
+            }
+        }
+    }
+
+    private static Executor getDefaultExecutor() {
+        final SettingsExecutors executors = SettingsExecutors.getInstance();
+        return runnable -> executors.execute(SettingsExecutors.LANE_PREFETCH,
+                ((PrioritizedTask) runnable).mPriority, runnable);
+    }
+
+    @VisibleForTesting
+    static class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+        final ControllerTask mTask;
+        final int mPriority;
+        Runnable mRunnable;
+
+        PrioritizedTask(ControllerTask task, int priority) {
+            mTask = task;
+            mPriority = priority;
+        }
+
+        @Override
+        public void run() {
+            mRunnable.run();
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask other) {
+            return Integer.compare(mPriority, other.mPriority);
+        }
+    }
+}
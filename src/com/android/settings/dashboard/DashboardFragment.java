@@ -34,6 +34,7 @@ import androidx.preference.SwitchPreference;
 
 import com.android.settings.R;
 import com.android.settings.SettingsPreferenceFragment;
+import com.android.settings.core.BackgroundStateController;
 import com.android.settings.core.BasePreferenceController;
 import com.android.settings.core.CategoryMixin.CategoryHandler;
 import com.android.settings.core.CategoryMixin.CategoryListener;
@@ -47,7 +48,6 @@ import com.android.settingslib.drawer.DashboardCategory;
 import com.android.settingslib.drawer.ProviderTile;
 import com.android.settingslib.drawer.Tile;
 import com.android.settingslib.search.Indexable;
-import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -56,7 +56,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.ExecutionException;
 
 /**
  * Base fragment for dashboard style UI containing a list of static and dynamic setting items.
@@ -79,6 +78,8 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
     private DashboardTilePlaceholderPreferenceController mPlaceholderPreferenceController;
     private boolean mListeningToCategoryChange;
     private List<String> mSuppressInjectedTileKeys;
+    @VisibleForTesting
+    ControllerUpdateScheduler mUpdateScheduler;
 
     @Override
     public void onAttach(Context context) {
@@ -216,7 +217,11 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
     @Override
     public void onResume() {
         super.onResume();
-        updatePreferenceStates();
+        if (isParalleledControllers()) {
+            updatePreferenceStatesInParallel();
+        } else {
+            updatePreferenceStates();
+        }
         writeElapsedTimeMetric(SettingsEnums.ACTION_DASHBOARD_VISIBLE_TIME,
                 "isParalleledControllers:" + isParalleledControllers());
     }
@@ -240,6 +245,9 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
     @Override
     public void onStop() {
         super.onStop();
+        if (mUpdateScheduler != null) {
+            mUpdateScheduler.cancel();
+        }
         unregisterDynamicDataObservers(new ArrayList<>(mRegisteredObservers));
         if (mListeningToCategoryChange) {
             final Activity activity = getActivity();
@@ -355,14 +363,22 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
     }
 
     /**
-     * Update state of each preference managed by PreferenceController.
+     * Update state of each preference managed by PreferenceController. The state of
+     * {@link BackgroundStateController}s is loaded concurrently in the background and applied
+     * together once all of them are loaded.
      */
     protected void updatePreferenceStates() {
         final PreferenceScreen screen = getPreferenceScreen();
         Collection<List<AbstractPreferenceController>> controllerLists =
                 mPreferenceControllers.values();
+        final List<ControllerTask> backgroundTasks = new ArrayList<>();
         for (List<AbstractPreferenceController> controllerList : controllerLists) {
             for (AbstractPreferenceController controller : controllerList) {
+                if (controller instanceof BackgroundStateController) {
+                    backgroundTasks.add(new ControllerTask(controller, screen,
+                            mMetricsFeatureProvider, getMetricsCategory()));
+                    continue;
+                }
                 if (!controller.isAvailable()) {
                     continue;
                 }
@@ -383,36 +399,43 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
                 controller.updateState(preference);
             }
         }
+        if (!backgroundTasks.isEmpty()) {
+            getUpdateScheduler().schedule(screen, backgroundTasks,
+                    this::onPreferenceStatesUpdated);
+        }
     }
 
     /**
      * Use parallel method to update state of each preference managed by PreferenceController.
+     * Availability is checked in the background, visible preferences first, and all states are
+     * then applied together in a single main thread message to avoid UI flicker.
      */
     @VisibleForTesting
-    // To use this parallel approach will cause the side effect of the UI flicker. Such as
-    // the thumb sliding of the toggle button.
     void updatePreferenceStatesInParallel() {
         final PreferenceScreen screen = getPreferenceScreen();
-        final Collection<List<AbstractPreferenceController>> controllerLists =
-                mPreferenceControllers.values();
-        final List<ControllerFutureTask> taskList = new ArrayList<>();
-        for (List<AbstractPreferenceController> controllerList : controllerLists) {
+        final List<ControllerTask> tasks = new ArrayList<>();
+        for (List<AbstractPreferenceController> controllerList : mPreferenceControllers.values()) {
             for (AbstractPreferenceController controller : controllerList) {
-                final ControllerFutureTask task = new ControllerFutureTask(
-                        new ControllerTask(controller, screen, mMetricsFeatureProvider,
-                                getMetricsCategory()), null /* result */);
-                taskList.add(task);
-                ThreadUtils.postOnBackgroundThread(task);
+                tasks.add(new ControllerTask(controller, screen, mMetricsFeatureProvider,
+                        getMetricsCategory()));
             }
         }
+        getUpdateScheduler().schedule(screen, tasks, this::onPreferenceStatesUpdated);
+    }
 
-        for (ControllerFutureTask task : taskList) {
-            try {
-                task.get();
-            } catch (InterruptedException | ExecutionException e) {
-                Log.w(TAG, task.getController().getPreferenceKey() + " " + e.getMessage());
-            }
+    /**
+     * Called in the main thread once the states loaded in the background by
+     * {@link #updatePreferenceStates()} or {@link #updatePreferenceStatesInParallel()} have been
+     * applied.
+     */
+    protected void onPreferenceStatesUpdated() {
+    }
+
+    private ControllerUpdateScheduler getUpdateScheduler() {
+        if (mUpdateScheduler == null) {
+            mUpdateScheduler = new ControllerUpdateScheduler();
         }
+        return mUpdateScheduler;
     }
 
     /**
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import android.content.Context;
+import android.content.pm.ChangedPackages;
+import android.content.pm.PackageManager;
+import android.os.UserHandle;
+import android.os.UserManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tracks the packages changed in the profiles of the user, with
+ * {@link PackageManager#getChangedPackages(int)}, to know whether the injected tiles need to be
+ * queried again.
+ */
+class PackageChangeTracker {
+
+    private static final int UNKNOWN = -1;
+
+    private int mSequenceNumber = UNKNOWN;
+    private List<UserHandle> mProfiles = new ArrayList<>();
+
+    /**
+     * Adds the packages changed since the previous call to {@code changedPackages}.
+     *
+     * @return false if the changes since the previous call are unknown, e.g. on the first call
+     * or if a profile was added or removed
+     */
+    boolean collectChangedPackages(Context context, Set<String> changedPackages) {
+        final List<UserHandle> profiles =
+                context.getSystemService(UserManager.class).getUserProfiles();
+        final boolean known = mSequenceNumber != UNKNOWN && profiles.equals(mProfiles);
+        final int fromSequenceNumber = Math.max(mSequenceNumber, 0);
+        int sequenceNumber = fromSequenceNumber;
+        for (UserHandle profile : profiles) {
+            final PackageManager packageManager = context.getUser().equals(profile)
+                    ? context.getPackageManager()
+                    : context.createContextAsUser(profile, 0 /* flags */).getPackageManager();
+            final ChangedPackages changes = packageManager.getChangedPackages(fromSequenceNumber);
+            if (changes != null) {
+                changedPackages.addAll(changes.getPackageNames());
+                sequenceNumber = Math.max(sequenceNumber, changes.getSequenceNumber());
+            }
+        }
+        mSequenceNumber = sequenceNumber;
+        mProfiles = new ArrayList<>(profiles);
+        return known;
+    }
+
+    int getSequenceNumber() {
+        return mSequenceNumber;
+    }
+
+    List<UserHandle> getProfiles() {
+        return mProfiles;
+    }
+
+    /** Resumes tracking from a state saved with {@link #getSequenceNumber()}. */
+    void restore(int sequenceNumber, List<UserHandle> profiles) {
+        mSequenceNumber = sequenceNumber;
+        mProfiles = new ArrayList<>(profiles);
+    }
+}
@@ -20,19 +20,24 @@ import android.widget.ProgressBar;
 
 import androidx.preference.PreferenceViewHolder;
 
+import com.android.settings.utils.AppLabelIconLoader;
 import com.android.settingslib.AppItem;
 import com.android.settingslib.net.UidDetail;
 import com.android.settingslib.net.UidDetailProvider;
-import com.android.settingslib.utils.ThreadUtils;
 import com.android.settingslib.widget.AppPreference;
 
 import java.text.NumberFormat;
 
 public class AppDataUsagePreference extends AppPreference {
 
+    // Prefix of the keys of the app labels and icons in AppLabelIconLoader.
+    private static final String CACHE_KEY_PREFIX = "app_data_usage:";
+
     private final AppItem mItem;
     private final int mPercent;
+    private final AppLabelIconLoader.Callback mLoadCallback = (key, result) -> setAppInfo(result);
     private UidDetail mDetail;
+    private AppLabelIconLoader.Loader mLoader;
 
     public AppDataUsagePreference(Context context, AppItem item, int percent,
             UidDetailProvider provider) {
@@ -48,17 +53,45 @@ public class AppDataUsagePreference extends AppPreference {
         mDetail = provider.getUidDetail(item.key, false /* blocking */);
         if (mDetail != null) {
             setAppInfo();
-        } else {
-            ThreadUtils.postOnBackgroundThread(() -> {
-                mDetail = provider.getUidDetail(mItem.key, true /* blocking */);
-                ThreadUtils.postOnMainThread(() -> setAppInfo());
-            });
+            return;
+        }
+        final AppLabelIconLoader.LabelAndIcon cached =
+                AppLabelIconLoader.getInstance().getCached(getCacheKey());
+        if (cached != null) {
+            setAppInfo(cached);
+            return;
         }
+        mLoader = () -> {
+            final UidDetail detail = provider.getUidDetail(mItem.key, true /* blocking */);
+            if (detail == null) {
+                return null;
+            }
+            return new AppLabelIconLoader.LabelAndIcon(
+                    detail.label != null ? detail.label.toString() : null,
+                    null /* packageName */, detail.icon);
+        };
+        // Rows are bumped to the visible priority once bound, see onBindViewHolder().
+        AppLabelIconLoader.getInstance().load(getCacheKey(),
+                AppLabelIconLoader.PRIORITY_BACKGROUND, mLoader, mLoadCallback);
+    }
+
+    @Override
+    public void onDetached() {
+        AppLabelIconLoader.getInstance().cancel(mLoadCallback);
+        mLoader = null;
+        super.onDetached();
     }
 
     @Override
     public void onBindViewHolder(PreferenceViewHolder holder) {
         super.onBindViewHolder(holder);
+        if (mLoader != null) {
+            // The row is shown, so it is loaded before the rows not shown yet.
+            final AppLabelIconLoader loader = AppLabelIconLoader.getInstance();
+            loader.cancel(mLoadCallback);
+            loader.load(getCacheKey(), AppLabelIconLoader.PRIORITY_VISIBLE, mLoader,
+                    mLoadCallback);
+        }
         final ProgressBar progress = (ProgressBar) holder.findViewById(
                 android.R.id.progress);
 
@@ -72,6 +105,20 @@ public class AppDataUsagePreference extends AppPreference {
                 NumberFormat.getPercentInstance().format((double) mPercent / 100));
     }
 
+    private String getCacheKey() {
+        return CACHE_KEY_PREFIX + mItem.key;
+    }
+
+    private void setAppInfo(AppLabelIconLoader.LabelAndIcon labelAndIcon) {
+        mLoader = null;
+        if (labelAndIcon != null) {
+            mDetail = new UidDetail();
+            mDetail.label = labelAndIcon.label;
+            mDetail.icon = labelAndIcon.icon;
+        }
+        setAppInfo();
+    }
+
     private void setAppInfo() {
         if (mDetail != null) {
             setIcon(mDetail.icon);
@@ -479,7 +479,8 @@ public class DataUsageList extends DataUsageBaseFragment
      * @param bucket       the network stats bucket to extract data usage from.
      * @param itemCategory the item is categorized on the list view by this category. Must be
      */
-    private static long accumulate(int collapseKey, final SparseArray<AppItem> knownItems,
+    @VisibleForTesting
+    static long accumulate(int collapseKey, final SparseArray<AppItem> knownItems,
             Bucket bucket, int itemCategory, ArrayList<AppItem> items, long largest) {
         final int uid = bucket.getUid();
         AppItem item = knownItems.get(collapseKey);
@@ -51,7 +51,6 @@ public class MemoryUsagePreferenceController extends DeveloperOptionsPreferenceC
         super.displayPreference(screen);
 
         mProcStatsData = getProcStatsData();
-        setDuration();
     }
 
     @Override
@@ -59,6 +58,8 @@ public class MemoryUsagePreferenceController extends DeveloperOptionsPreferenceC
         // This is posted on the background thread to speed up fragment launch time for dev options
         // mProcStasData.refreshStats(true) takes ~20ms to run.
         ThreadUtils.postOnBackgroundThread(() -> {
+            // Setting the duration first loads the stats, which are then reused from the cache.
+            setDuration();
             mProcStatsData.refreshStats(true);
             final ProcStatsData.MemInfo memInfo = mProcStatsData.getMemInfo();
             final String usedResult = Formatter.formatShortFileSize(mContext,
@@ -41,6 +41,8 @@ import com.android.settings.deviceinfo.storage.SecondaryUserController;
 import com.android.settings.deviceinfo.storage.StorageAsyncLoader;
 import com.android.settings.deviceinfo.storage.StorageEntry;
 import com.android.settings.deviceinfo.storage.StorageItemPreferenceController;
+import com.android.settings.deviceinfo.storage.StorageResultCache;
+import com.android.settings.deviceinfo.storage.StorageSizes;
 import com.android.settings.deviceinfo.storage.UserIconLoader;
 import com.android.settings.deviceinfo.storage.VolumeSizesLoader;
 import com.android.settings.overlay.FeatureFactory;
@@ -83,8 +85,8 @@ public class StorageCategoryFragment extends DashboardFragment
     private StorageManager mStorageManager;
     private UserManager mUserManager;
     private StorageEntry mSelectedStorageEntry;
-    private PrivateStorageInfo mStorageInfo;
-    private SparseArray<StorageAsyncLoader.StorageResult> mAppsResult;
+    private final StorageSizes mSizes = new StorageSizes();
+    private StorageResultCache mResultCache;
 
     private StorageItemPreferenceController mPreferenceController;
     private List<AbstractPreferenceController> mSecondaryUsers;
@@ -113,8 +115,8 @@ public class StorageCategoryFragment extends DashboardFragment
             return;
         }
         if (mSelectedStorageEntry.isPrivate()) {
-            mStorageInfo = null;
-            mAppsResult = null;
+            // Sizes of the last scan of this volume, displayed until both loaders finish.
+            mSizes.startScan(mResultCache, mSelectedStorageEntry.getFsUuid());
             maybeSetLoading(isQuotaSupported());
 
             // To prevent flicker, sets null volume to hide category preferences.
@@ -126,6 +128,9 @@ public class StorageCategoryFragment extends DashboardFragment
             getLoaderManager()
                  .restartLoader(VOLUME_SIZE_JOB_ID, Bundle.EMPTY, new VolumeSizeCallbacks());
             getLoaderManager().restartLoader(ICON_JOB_ID, Bundle.EMPTY, new IconLoaderCallbacks());
+            if (getView() != null) {
+                onReceivedSizes();
+            }
         } else {
             mPreferenceController.setVolume(mSelectedStorageEntry.getVolumeInfo());
         }
@@ -154,6 +159,7 @@ public class StorageCategoryFragment extends DashboardFragment
         // These member variables are initialized befoer super.onAttach for
         // createPreferenceControllers to work correctly.
         mUserManager = context.getSystemService(UserManager.class);
+        mResultCache = new StorageResultCache(context);
         mIsWorkProfile = getArguments().getInt(ProfileSelectFragment.EXTRA_PROFILE)
                 == ProfileSelectFragment.ProfileType.WORK;
         mUserId = Utils.getCurrentUserId(mUserManager, mIsWorkProfile);
@@ -186,7 +192,9 @@ public class StorageCategoryFragment extends DashboardFragment
     }
 
     private void onReceivedSizes() {
-        if (mStorageInfo == null || mAppsResult == null) {
+        final PrivateStorageInfo storageInfo = mSizes.getStorageInfo();
+        final SparseArray<StorageAsyncLoader.StorageResult> appsResult = mSizes.getAppsResult();
+        if (storageInfo == null || appsResult == null) {
             return;
         }
 
@@ -194,20 +202,20 @@ public class StorageCategoryFragment extends DashboardFragment
             setLoading(false /* loading */, true /* animate */);
         }
 
-        final long privateUsedBytes = mStorageInfo.totalBytes - mStorageInfo.freeBytes;
+        final long privateUsedBytes = storageInfo.totalBytes - storageInfo.freeBytes;
         mPreferenceController.setVolume(mSelectedStorageEntry.getVolumeInfo());
         mPreferenceController.setUsedSize(privateUsedBytes);
-        mPreferenceController.setTotalSize(mStorageInfo.totalBytes);
+        mPreferenceController.setTotalSize(storageInfo.totalBytes);
         for (int i = 0, size = mSecondaryUsers.size(); i < size; i++) {
             final AbstractPreferenceController controller = mSecondaryUsers.get(i);
             if (controller instanceof SecondaryUserController) {
                 SecondaryUserController userController = (SecondaryUserController) controller;
-                userController.setTotalSize(mStorageInfo.totalBytes);
+                userController.setTotalSize(storageInfo.totalBytes);
             }
         }
 
-        mPreferenceController.onLoadFinished(mAppsResult, mUserId);
-        updateSecondaryUserControllers(mSecondaryUsers, mAppsResult);
+        mPreferenceController.onLoadFinished(appsResult, mUserId);
+        updateSecondaryUserControllers(mSecondaryUsers, appsResult);
         setSecondaryUsersVisible(true);
     }
 
@@ -269,8 +277,9 @@ public class StorageCategoryFragment extends DashboardFragment
     @Override
     public void onLoadFinished(Loader<SparseArray<StorageAsyncLoader.StorageResult>> loader,
             SparseArray<StorageAsyncLoader.StorageResult> data) {
-        mAppsResult = data;
-        onReceivedSizes();
+        if (mSizes.onAppsResultLoaded(data)) {
+            onReceivedSizes();
+        }
     }
 
     @Override
@@ -295,22 +304,22 @@ public class StorageCategoryFragment extends DashboardFragment
 
     @VisibleForTesting
     public PrivateStorageInfo getPrivateStorageInfo() {
-        return mStorageInfo;
+        return mSizes.getStorageInfo();
     }
 
     @VisibleForTesting
     public void setPrivateStorageInfo(PrivateStorageInfo info) {
-        mStorageInfo = info;
+        mSizes.setStorageInfo(info);
     }
 
     @VisibleForTesting
     public SparseArray<StorageAsyncLoader.StorageResult> getStorageResult() {
-        return mAppsResult;
+        return mSizes.getAppsResult();
     }
 
     @VisibleForTesting
     public void setStorageResult(SparseArray<StorageAsyncLoader.StorageResult> info) {
-        mAppsResult = info;
+        mSizes.setAppsResult(info);
     }
 
     /**
@@ -320,8 +329,9 @@ public class StorageCategoryFragment extends DashboardFragment
     public void maybeSetLoading(boolean isQuotaSupported) {
         // If we have fast stats, we load until both have loaded.
         // If we have slow stats, we load when we get the total volume sizes.
-        if ((isQuotaSupported && (mStorageInfo == null || mAppsResult == null))
-                || (!isQuotaSupported && mStorageInfo == null)) {
+        final PrivateStorageInfo storageInfo = mSizes.getStorageInfo();
+        if ((isQuotaSupported && (storageInfo == null || mSizes.getAppsResult() == null))
+                || (!isQuotaSupported && storageInfo == null)) {
             setLoading(true /* loading */, false /* animate */);
         }
     }
@@ -400,8 +410,9 @@ public class StorageCategoryFragment extends DashboardFragment
                 return;
             }
 
-            mStorageInfo = privateStorageInfo;
-            onReceivedSizes();
+            if (mSizes.onStorageInfoLoaded(privateStorageInfo)) {
+                onReceivedSizes();
+            }
         }
     }
 }
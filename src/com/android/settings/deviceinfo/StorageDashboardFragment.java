@@ -49,6 +49,8 @@ import com.android.settings.deviceinfo.storage.SecondaryUserController;
 import com.android.settings.deviceinfo.storage.StorageAsyncLoader;
 import com.android.settings.deviceinfo.storage.StorageEntry;
 import com.android.settings.deviceinfo.storage.StorageItemPreferenceController;
+import com.android.settings.deviceinfo.storage.StorageResultCache;
+import com.android.settings.deviceinfo.storage.StorageSizes;
 import com.android.settings.deviceinfo.storage.StorageSelectionPreferenceController;
 import com.android.settings.deviceinfo.storage.StorageUsageProgressBarPreferenceController;
 import com.android.settings.deviceinfo.storage.StorageUtils;
@@ -99,8 +101,8 @@ public class StorageDashboardFragment extends DashboardFragment
     private UserManager mUserManager;
     private final List<StorageEntry> mStorageEntries = new ArrayList<>();
     private StorageEntry mSelectedStorageEntry;
-    private PrivateStorageInfo mStorageInfo;
-    private SparseArray<StorageAsyncLoader.StorageResult> mAppsResult;
+    private final StorageSizes mSizes = new StorageSizes();
+    private StorageResultCache mResultCache;
 
     private StorageItemPreferenceController mPreferenceController;
     private VolumeOptionMenuController mOptionMenuController;
@@ -241,8 +243,8 @@ public class StorageDashboardFragment extends DashboardFragment
             return;
         }
         if (mSelectedStorageEntry.isPrivate()) {
-            mStorageInfo = null;
-            mAppsResult = null;
+            // Sizes of the last scan of this volume, displayed until both loaders finish.
+            mSizes.startScan(mResultCache, mSelectedStorageEntry.getFsUuid());
             maybeSetLoading(isQuotaSupported());
 
             // To prevent flicker, sets null volume to hide category preferences.
@@ -254,6 +256,9 @@ public class StorageDashboardFragment extends DashboardFragment
             getLoaderManager()
                  .restartLoader(VOLUME_SIZE_JOB_ID, Bundle.EMPTY, new VolumeSizeCallbacks());
             getLoaderManager().restartLoader(ICON_JOB_ID, Bundle.EMPTY, new IconLoaderCallbacks());
+            if (getView() != null) {
+                onReceivedSizes();
+            }
         } else {
             mPreferenceController.setVolume(mSelectedStorageEntry.getVolumeInfo());
         }
@@ -290,6 +295,7 @@ public class StorageDashboardFragment extends DashboardFragment
         // These member variables are initialized befoer super.onAttach for
         // createPreferenceControllers to work correctly.
         mUserManager = context.getSystemService(UserManager.class);
+        mResultCache = new StorageResultCache(context);
         mIsWorkProfile = false;
         mUserId = UserHandle.myUserId();
 
@@ -357,7 +363,9 @@ public class StorageDashboardFragment extends DashboardFragment
     }
 
     private void onReceivedSizes() {
-        if (mStorageInfo == null || mAppsResult == null) {
+        final PrivateStorageInfo storageInfo = mSizes.getStorageInfo();
+        final SparseArray<StorageAsyncLoader.StorageResult> appsResult = mSizes.getAppsResult();
+        if (storageInfo == null || appsResult == null) {
             return;
         }
 
@@ -365,20 +373,20 @@ public class StorageDashboardFragment extends DashboardFragment
             setLoading(false /* loading */, true /* animate */);
         }
 
-        final long privateUsedBytes = mStorageInfo.totalBytes - mStorageInfo.freeBytes;
+        final long privateUsedBytes = storageInfo.totalBytes - storageInfo.freeBytes;
         mPreferenceController.setVolume(mSelectedStorageEntry.getVolumeInfo());
         mPreferenceController.setUsedSize(privateUsedBytes);
-        mPreferenceController.setTotalSize(mStorageInfo.totalBytes);
+        mPreferenceController.setTotalSize(storageInfo.totalBytes);
         for (int i = 0, size = mSecondaryUsers.size(); i < size; i++) {
             final AbstractPreferenceController controller = mSecondaryUsers.get(i);
             if (controller instanceof SecondaryUserController) {
                 SecondaryUserController userController = (SecondaryUserController) controller;
-                userController.setTotalSize(mStorageInfo.totalBytes);
+                userController.setTotalSize(storageInfo.totalBytes);
             }
         }
 
-        mPreferenceController.onLoadFinished(mAppsResult, mUserId);
-        updateSecondaryUserControllers(mSecondaryUsers, mAppsResult);
+        mPreferenceController.onLoadFinished(appsResult, mUserId);
+        updateSecondaryUserControllers(mSecondaryUsers, appsResult);
         setSecondaryUsersVisible(true);
     }
 
@@ -469,8 +477,9 @@ public class StorageDashboardFragment extends DashboardFragment
     @Override
     public void onLoadFinished(Loader<SparseArray<StorageAsyncLoader.StorageResult>> loader,
             SparseArray<StorageAsyncLoader.StorageResult> data) {
-        mAppsResult = data;
-        onReceivedSizes();
+        if (mSizes.onAppsResultLoaded(data)) {
+            onReceivedSizes();
+        }
     }
 
     @Override
@@ -495,22 +504,22 @@ public class StorageDashboardFragment extends DashboardFragment
 
     @VisibleForTesting
     public PrivateStorageInfo getPrivateStorageInfo() {
-        return mStorageInfo;
+        return mSizes.getStorageInfo();
     }
 
     @VisibleForTesting
     public void setPrivateStorageInfo(PrivateStorageInfo info) {
-        mStorageInfo = info;
+        mSizes.setStorageInfo(info);
     }
 
     @VisibleForTesting
     public SparseArray<StorageAsyncLoader.StorageResult> getStorageResult() {
-        return mAppsResult;
+        return mSizes.getAppsResult();
     }
 
     @VisibleForTesting
     public void setStorageResult(SparseArray<StorageAsyncLoader.StorageResult> info) {
-        mAppsResult = info;
+        mSizes.setAppsResult(info);
     }
 
     /**
@@ -520,8 +529,9 @@ public class StorageDashboardFragment extends DashboardFragment
     public void maybeSetLoading(boolean isQuotaSupported) {
         // If we have fast stats, we load until both have loaded.
         // If we have slow stats, we load when we get the total volume sizes.
-        if ((isQuotaSupported && (mStorageInfo == null || mAppsResult == null))
-                || (!isQuotaSupported && mStorageInfo == null)) {
+        final PrivateStorageInfo storageInfo = mSizes.getStorageInfo();
+        if ((isQuotaSupported && (storageInfo == null || mSizes.getAppsResult() == null))
+                || (!isQuotaSupported && storageInfo == null)) {
             setLoading(true /* loading */, false /* animate */);
         }
     }
@@ -600,8 +610,9 @@ public class StorageDashboardFragment extends DashboardFragment
                 return;
             }
 
-            mStorageInfo = privateStorageInfo;
-            onReceivedSizes();
+            if (mSizes.onStorageInfoLoaded(privateStorageInfo)) {
+                onReceivedSizes();
+            }
         }
     }
 }
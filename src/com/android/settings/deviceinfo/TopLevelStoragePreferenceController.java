@@ -24,6 +24,7 @@ import androidx.annotation.VisibleForTesting;
 import androidx.preference.Preference;
 
 import com.android.settings.R;
+import com.android.settings.core.BackgroundStateController;
 import com.android.settings.core.BasePreferenceController;
 import com.android.settingslib.deviceinfo.PrivateStorageInfo;
 import com.android.settingslib.deviceinfo.StorageManagerVolumeProvider;
@@ -32,7 +33,8 @@ import com.android.settingslib.utils.ThreadUtils;
 import java.text.NumberFormat;
 import java.util.concurrent.Future;
 
-public class TopLevelStoragePreferenceController extends BasePreferenceController {
+public class TopLevelStoragePreferenceController extends BasePreferenceController implements
+        BackgroundStateController<CharSequence> {
 
     private final StorageManager mStorageManager;
     private final StorageManagerVolumeProvider mStorageManagerVolumeProvider;
@@ -57,19 +59,27 @@ public class TopLevelStoragePreferenceController extends BasePreferenceControlle
         refreshSummaryThread(preference);
     }
 
+    @Override
+    public CharSequence loadStateInBackground() {
+        final NumberFormat percentageFormat = NumberFormat.getPercentInstance();
+        final PrivateStorageInfo info = PrivateStorageInfo.getPrivateStorageInfo(
+                getStorageManagerVolumeProvider());
+        final double privateUsedBytes = info.totalBytes - info.freeBytes;
+        return mContext.getString(R.string.storage_summary,
+                percentageFormat.format(privateUsedBytes / info.totalBytes),
+                Formatter.formatFileSize(mContext, info.freeBytes));
+    }
+
+    @Override
+    public void applyState(Preference preference, CharSequence summary) {
+        preference.setSummary(summary);
+    }
+
     @VisibleForTesting
     protected Future refreshSummaryThread(Preference preference) {
         return ThreadUtils.postOnBackgroundThread(() -> {
-            final NumberFormat percentageFormat = NumberFormat.getPercentInstance();
-            final PrivateStorageInfo info = PrivateStorageInfo.getPrivateStorageInfo(
-                    getStorageManagerVolumeProvider());
-            final double privateUsedBytes = info.totalBytes - info.freeBytes;
-
-            ThreadUtils.postOnMainThread(() -> {
-                preference.setSummary(mContext.getString(R.string.storage_summary,
-                        percentageFormat.format(privateUsedBytes / info.totalBytes),
-                        Formatter.formatFileSize(mContext, info.freeBytes)));
-            });
+            final CharSequence summary = loadStateInBackground();
+            ThreadUtils.postOnMainThread(() -> applyState(preference, summary));
         });
     }
 
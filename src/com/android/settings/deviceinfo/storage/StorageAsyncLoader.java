@@ -39,12 +39,20 @@ import android.util.ArraySet;
 import android.util.Log;
 import android.util.SparseArray;
 
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settings.core.SettingsExecutors;
 import com.android.settingslib.applications.StorageStatsSource;
 import com.android.settingslib.utils.AsyncLoaderCompat;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 /**
  * StorageAsyncLoader is a Loader which loads categorized app information and external stats for all
@@ -54,11 +62,14 @@ public class StorageAsyncLoader
         extends AsyncLoaderCompat<SparseArray<StorageAsyncLoader.StorageResult>> {
     private UserManager mUserManager;
     private static final String TAG = "StorageAsyncLoader";
+    // Packages scanned per task, so that large profiles are spread across the threads.
+    @VisibleForTesting
+    static final int PACKAGE_BATCH_SIZE = 32;
 
     private String mUuid;
     private StorageStatsSource mStatsManager;
     private PackageManager mPackageManager;
-    private ArraySet<String> mSeenPackages;
+    private final Executor mExecutor;
 
     public StorageAsyncLoader(Context context, UserManager userManager,
             String uuid, StorageStatsSource source, PackageManager pm) {
@@ -67,6 +78,7 @@ public class StorageAsyncLoader
         mUuid = uuid;
         mStatsManager = source;
         mPackageManager = pm;
+        mExecutor = SettingsExecutors.getInstance().getExecutor(SettingsExecutors.LANE_PREFETCH);
     }
 
     @Override
@@ -75,44 +87,79 @@ public class StorageAsyncLoader
     }
 
     private SparseArray<StorageResult> getStorageResultsForUsers() {
-        mSeenPackages = new ArraySet<>();
-        final SparseArray<StorageResult> results = new SparseArray<>();
         final List<UserInfo> infos = mUserManager.getUsers();
 
         // Sort the users by user id ascending.
         Collections.sort(infos,
                 (userInfo, otherUser) -> Integer.compare(userInfo.id, otherUser.id));
 
+        // Scan all users at once: each user's files, then each batch of its packages, are
+        // scanned by separate tasks, and merged below in the order of the serial scan.
+        final List<FutureTask<StorageResult>> fileTasks = new ArrayList<>(infos.size());
+        final List<List<FutureTask<PackageBatch>>> packageTasks = new ArrayList<>(infos.size());
+        for (UserInfo info : infos) {
+            fileTasks.add(submit(() -> getFilesAndExternalSize(info.id)));
+        }
         for (UserInfo info : infos) {
-            final StorageResult result = getAppsAndGamesSize(info.id);
-
-            result.imagesSize = getFilesSize(info.id, MediaStore.Images.Media.EXTERNAL_CONTENT_URI,
-                    null /* queryArgs */);
-            result.videosSize = getFilesSize(info.id, MediaStore.Video.Media.EXTERNAL_CONTENT_URI,
-                    null /* queryArgs */);
-            result.audioSize = getFilesSize(info.id, MediaStore.Audio.Media.EXTERNAL_CONTENT_URI,
-                    null /* queryArgs */);
-
-            final Bundle documentsAndOtherQueryArgs = new Bundle();
-            documentsAndOtherQueryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION,
-                    FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_IMAGE
-                    + " AND " + FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_VIDEO
-                    + " AND " + FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_AUDIO
-                    + " AND " + FileColumns.MIME_TYPE + " IS NOT NULL");
-            result.documentsAndOtherSize = getFilesSize(info.id,
-                    MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL),
-                    documentsAndOtherQueryArgs);
-
-            final Bundle trashQueryArgs = new Bundle();
-            trashQueryArgs.putInt(MediaStore.QUERY_ARG_MATCH_TRASHED, MediaStore.MATCH_ONLY);
-            result.trashSize = getFilesSize(info.id,
-                    MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL), trashQueryArgs);
-
-            results.put(info.id, result);
+            packageTasks.add(submitPackageBatches(info.id));
         }
+
+        final ArraySet<String> seenPackages = new ArraySet<>();
+        final SparseArray<StorageResult> results = new SparseArray<>();
+        try {
+            for (int i = 0, size = infos.size(); i < size; i++) {
+                final StorageResult result = fileTasks.get(i).get();
+                for (FutureTask<PackageBatch> batchTask : packageTasks.get(i)) {
+                    batchTask.get().addTo(result, seenPackages);
+                }
+                results.put(infos.get(i).id, result);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelAll(fileTasks, packageTasks);
+            return results;
+        } catch (ExecutionException e) {
+            cancelAll(fileTasks, packageTasks);
+            throw new RuntimeException(e.getCause());
+        }
+        Log.d(TAG, "Obtaining result completed");
         return results;
     }
 
+    private StorageResult getFilesAndExternalSize(int userId) {
+        final StorageResult result = new StorageResult();
+        result.imagesSize = getFilesSize(userId, MediaStore.Images.Media.EXTERNAL_CONTENT_URI,
+                null /* queryArgs */);
+        result.videosSize = getFilesSize(userId, MediaStore.Video.Media.EXTERNAL_CONTENT_URI,
+                null /* queryArgs */);
+        result.audioSize = getFilesSize(userId, MediaStore.Audio.Media.EXTERNAL_CONTENT_URI,
+                null /* queryArgs */);
+
+        final Bundle documentsAndOtherQueryArgs = new Bundle();
+        documentsAndOtherQueryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION,
+                FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_IMAGE
+                + " AND " + FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_VIDEO
+                + " AND " + FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_AUDIO
+                + " AND " + FileColumns.MIME_TYPE + " IS NOT NULL");
+        result.documentsAndOtherSize = getFilesSize(userId,
+                MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL),
+                documentsAndOtherQueryArgs);
+
+        final Bundle trashQueryArgs = new Bundle();
+        trashQueryArgs.putInt(MediaStore.QUERY_ARG_MATCH_TRASHED, MediaStore.MATCH_ONLY);
+        result.trashSize = getFilesSize(userId,
+                MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL), trashQueryArgs);
+
+        Log.d(TAG, "Loading external stats");
+        try {
+            result.externalStats = mStatsManager.getExternalStorageStats(mUuid,
+                    UserHandle.of(userId));
+        } catch (IOException e) {
+            Log.w(TAG, e);
+        }
+        return result;
+    }
+
     private long getFilesSize(int userId, Uri uri, Bundle queryArgs) {
         final Context perUserContext;
         try {
@@ -137,11 +184,22 @@ public class StorageAsyncLoader
         }
     }
 
-    private StorageResult getAppsAndGamesSize(int userId) {
+    private List<FutureTask<PackageBatch>> submitPackageBatches(int userId) {
         Log.d(TAG, "Loading apps");
         final List<ApplicationInfo> applicationInfos =
                 mPackageManager.getInstalledApplicationsAsUser(0, userId);
-        final StorageResult result = new StorageResult();
+        final List<FutureTask<PackageBatch>> tasks = new ArrayList<>();
+        for (int start = 0, size = applicationInfos.size(); start < size;
+                start += PACKAGE_BATCH_SIZE) {
+            final List<ApplicationInfo> batch = applicationInfos.subList(start,
+                    Math.min(size, start + PACKAGE_BATCH_SIZE));
+            tasks.add(submit(() -> getAppsAndGamesSize(userId, batch)));
+        }
+        return tasks;
+    }
+
+    private PackageBatch getAppsAndGamesSize(int userId, List<ApplicationInfo> applicationInfos) {
+        final PackageBatch result = new PackageBatch(applicationInfos.size());
         final UserHandle myUser = UserHandle.of(userId);
         for (int i = 0, size = applicationInfos.size(); i < size; i++) {
             final ApplicationInfo app = applicationInfos.get(i);
@@ -167,43 +225,77 @@ public class StorageAsyncLoader
                 blamedSize = blamedSize - cacheBytes + cacheQuota;
             }
 
-            // Code bytes may share between different profiles. To know all the duplicate code size
-            // and we can get a reasonable system size in StorageItemPreferenceController.
-            if (mSeenPackages.contains(app.packageName)) {
-                result.duplicateCodeSize += stats.getCodeBytes();
-            } else {
-                mSeenPackages.add(app.packageName);
-            }
+            // Code bytes may share between different profiles. They are counted once the batches
+            // are merged, to get a reasonable system size in StorageItemPreferenceController.
+            result.addPackage(app.packageName, stats.getCodeBytes());
 
             switch (app.category) {
                 case CATEGORY_GAME:
-                    result.gamesSize += blamedSize;
+                    result.mGamesSize += blamedSize;
                     break;
                 case CATEGORY_AUDIO:
                 case CATEGORY_VIDEO:
                 case CATEGORY_IMAGE:
-                    result.allAppsExceptGamesSize += blamedSize;
+                    result.mAllAppsExceptGamesSize += blamedSize;
                     break;
                 default:
                     // The deprecated game flag does not set the category.
                     if ((app.flags & ApplicationInfo.FLAG_IS_GAME) != 0) {
-                        result.gamesSize += blamedSize;
+                        result.mGamesSize += blamedSize;
                         break;
                     }
-                    result.allAppsExceptGamesSize += blamedSize;
+                    result.mAllAppsExceptGamesSize += blamedSize;
                     break;
             }
         }
+        return result;
+    }
 
-        Log.d(TAG, "Loading external stats");
-        try {
-            result.externalStats = mStatsManager.getExternalStorageStats(mUuid,
-                    UserHandle.of(userId));
-        } catch (IOException e) {
-            Log.w(TAG, e);
+    private <T> FutureTask<T> submit(Callable<T> callable) {
+        final FutureTask<T> task = new FutureTask<>(callable);
+        mExecutor.execute(task);
+        return task;
+    }
+
+    private static void cancelAll(List<FutureTask<StorageResult>> fileTasks,
+            List<List<FutureTask<PackageBatch>>> packageTasks) {
+        for (FutureTask<StorageResult> task : fileTasks) {
+            task.cancel(false /* mayInterruptIfRunning */);
+        }
+        for (List<FutureTask<PackageBatch>> tasks : packageTasks) {
+            for (FutureTask<PackageBatch> task : tasks) {
+                task.cancel(false /* mayInterruptIfRunning */);
+            }
+        }
+    }
+
+    /** The app sizes of a batch of packages of a user. */
+    private static class PackageBatch {
+        long mGamesSize;
+        long mAllAppsExceptGamesSize;
+        final List<String> mPackageNames;
+        final long[] mCodeBytes;
+
+        PackageBatch(int capacity) {
+            mPackageNames = new ArrayList<>(capacity);
+            mCodeBytes = new long[capacity];
+        }
+
+        void addPackage(String packageName, long codeBytes) {
+            mCodeBytes[mPackageNames.size()] = codeBytes;
+            mPackageNames.add(packageName);
+        }
+
+        /** Adds the sizes of this batch to {@code result}, with the code of seen packages. */
+        void addTo(StorageResult result, ArraySet<String> seenPackages) {
+            result.gamesSize += mGamesSize;
+            result.allAppsExceptGamesSize += mAllAppsExceptGamesSize;
+            for (int i = 0, size = mPackageNames.size(); i < size; i++) {
+                if (!seenPackages.add(mPackageNames.get(i))) {
+                    result.duplicateCodeSize += mCodeBytes[i];
+                }
+            }
         }
-        Log.d(TAG, "Obtaining result completed");
-        return result;
     }
 
     @Override
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.deviceinfo.storage;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+import android.util.SparseArray;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.applications.StorageStatsSource;
+import com.android.settingslib.deviceinfo.PrivateStorageInfo;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Keeps the sizes of the last scan of each volume, so that the storage pages can display them
+ * while the volume is scanned again.
+ */
+public class StorageResultCache {
+
+    private static final String TAG = "StorageResultCache";
+    @VisibleForTesting
+    static final String SHARED_PREFS_NAME = "storage_result_cache";
+    // Key of the internal storage, whose fs UUID is null.
+    private static final String KEY_INTERNAL = "internal";
+    private static final String SUFFIX_STORAGE_INFO = ":info";
+    private static final String SUFFIX_RESULTS = ":results";
+
+    private static final String KEY_FREE = "free";
+    private static final String KEY_TOTAL = "total";
+    private static final String KEY_USER_ID = "user_id";
+    private static final String KEY_GAMES = "games";
+    private static final String KEY_APPS = "apps";
+    private static final String KEY_AUDIO = "audio";
+    private static final String KEY_IMAGES = "images";
+    private static final String KEY_VIDEOS = "videos";
+    private static final String KEY_DOCUMENTS_AND_OTHER = "documents_and_other";
+    private static final String KEY_TRASH = "trash";
+    private static final String KEY_CACHE = "cache";
+    private static final String KEY_DUPLICATE_CODE = "duplicate_code";
+    private static final String KEY_EXTERNAL = "external";
+    private static final String KEY_EXTERNAL_AUDIO = "audio";
+    private static final String KEY_EXTERNAL_VIDEO = "video";
+    private static final String KEY_EXTERNAL_IMAGE = "image";
+    private static final String KEY_EXTERNAL_APP = "app";
+
+    private final SharedPreferences mSharedPreferences;
+
+    public StorageResultCache(Context context) {
+        mSharedPreferences = context.getApplicationContext().getSharedPreferences(
+                SHARED_PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /** Returns the last saved sizes of the volume {@code fsUuid}, or null if unknown. */
+    public PrivateStorageInfo getStorageInfo(String fsUuid) {
+        final String json = mSharedPreferences.getString(getKey(fsUuid, SUFFIX_STORAGE_INFO),
+                null /* defValue */);
+        if (json == null) {
+            return null;
+        }
+        try {
+            final JSONObject object = new JSONObject(json);
+            return new PrivateStorageInfo(object.getLong(KEY_FREE), object.getLong(KEY_TOTAL));
+        } catch (JSONException e) {
+            Log.w(TAG, "Invalid storage info of " + fsUuid, e);
+            return null;
+        }
+    }
+
+    /** Saves the sizes of the volume {@code fsUuid}. */
+    public void putStorageInfo(String fsUuid, PrivateStorageInfo info) {
+        try {
+            final JSONObject object = new JSONObject()
+                    .put(KEY_FREE, info.freeBytes)
+                    .put(KEY_TOTAL, info.totalBytes);
+            mSharedPreferences.edit()
+                    .putString(getKey(fsUuid, SUFFIX_STORAGE_INFO), object.toString())
+                    .apply();
+        } catch (JSONException e) {
+            Log.w(TAG, "Can't save storage info of " + fsUuid, e);
+        }
+    }
+
+    /**
+     * Returns the last saved results of {@link StorageAsyncLoader} for the volume
+     * {@code fsUuid}, or null if unknown.
+     */
+    public SparseArray<StorageAsyncLoader.StorageResult> getResults(String fsUuid) {
+        final String json = mSharedPreferences.getString(getKey(fsUuid, SUFFIX_RESULTS),
+                null /* defValue */);
+        if (json == null) {
+            return null;
+        }
+        try {
+            final JSONArray array = new JSONArray(json);
+            final SparseArray<StorageAsyncLoader.StorageResult> results = new SparseArray<>();
+            for (int i = 0; i < array.length(); i++) {
+                final JSONObject object = array.getJSONObject(i);
+                results.put(object.getInt(KEY_USER_ID), toResult(object));
+            }
+            return results;
+        } catch (JSONException e) {
+            Log.w(TAG, "Invalid results of " + fsUuid, e);
+            return null;
+        }
+    }
+
+    /** Saves the results of {@link StorageAsyncLoader} for the volume {@code fsUuid}. */
+    public void putResults(String fsUuid, SparseArray<StorageAsyncLoader.StorageResult> results) {
+        try {
+            final JSONArray array = new JSONArray();
+            for (int i = 0; i < results.size(); i++) {
+                array.put(toJson(results.valueAt(i)).put(KEY_USER_ID, results.keyAt(i)));
+            }
+            mSharedPreferences.edit()
+                    .putString(getKey(fsUuid, SUFFIX_RESULTS), array.toString())
+                    .apply();
+        } catch (JSONException e) {
+            Log.w(TAG, "Can't save results of " + fsUuid, e);
+        }
+    }
+
+    private static JSONObject toJson(StorageAsyncLoader.StorageResult result)
+            throws JSONException {
+        final JSONObject object = new JSONObject()
+                .put(KEY_GAMES, result.gamesSize)
+                .put(KEY_APPS, result.allAppsExceptGamesSize)
+                .put(KEY_AUDIO, result.audioSize)
+                .put(KEY_IMAGES, result.imagesSize)
+                .put(KEY_VIDEOS, result.videosSize)
+                .put(KEY_DOCUMENTS_AND_OTHER, result.documentsAndOtherSize)
+                .put(KEY_TRASH, result.trashSize)
+                .put(KEY_CACHE, result.cacheSize)
+                .put(KEY_DUPLICATE_CODE, result.duplicateCodeSize);
+        final StorageStatsSource.ExternalStorageStats externalStats = result.externalStats;
+        if (externalStats != null) {
+            object.put(KEY_EXTERNAL, new JSONObject()
+                    .put(KEY_TOTAL, externalStats.totalBytes)
+                    .put(KEY_EXTERNAL_AUDIO, externalStats.audioBytes)
+                    .put(KEY_EXTERNAL_VIDEO, externalStats.videoBytes)
+                    .put(KEY_EXTERNAL_IMAGE, externalStats.imageBytes)
+                    .put(KEY_EXTERNAL_APP, externalStats.appBytes));
+        }
+        return object;
+    }
+
+    private static StorageAsyncLoader.StorageResult toResult(JSONObject object)
+            throws JSONException {
+        final StorageAsyncLoader.StorageResult result = new StorageAsyncLoader.StorageResult();
+        result.gamesSize = object.getLong(KEY_GAMES);
+        result.allAppsExceptGamesSize = object.getLong(KEY_APPS);
+        result.audioSize = object.getLong(KEY_AUDIO);
+        result.imagesSize = object.getLong(KEY_IMAGES);
+        result.videosSize = object.getLong(KEY_VIDEOS);
+        result.documentsAndOtherSize = object.getLong(KEY_DOCUMENTS_AND_OTHER);
+        result.trashSize = object.getLong(KEY_TRASH);
+        result.cacheSize = object.getLong(KEY_CACHE);
+        result.duplicateCodeSize = object.getLong(KEY_DUPLICATE_CODE);
+        final JSONObject external = object.optJSONObject(KEY_EXTERNAL);
+        if (external != null) {
+            result.externalStats = new StorageStatsSource.ExternalStorageStats(
+                    external.getLong(KEY_TOTAL),
+                    external.getLong(KEY_EXTERNAL_AUDIO),
+                    external.getLong(KEY_EXTERNAL_VIDEO),
+                    external.getLong(KEY_EXTERNAL_IMAGE),
+                    external.getLong(KEY_EXTERNAL_APP));
+        }
+        return result;
+    }
+
+    private static String getKey(String fsUuid, String suffix) {
+        return (fsUuid == null ? KEY_INTERNAL : fsUuid) + suffix;
+    }
+}
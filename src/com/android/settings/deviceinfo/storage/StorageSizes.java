@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.deviceinfo.storage;
+
+import android.util.SparseArray;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.deviceinfo.PrivateStorageInfo;
+
+/**
+ * The volume sizes and the app results displayed by a storage page.
+ *
+ * <p>The System size is derived from both, so they are only displayed as a pair: the sizes of
+ * the last scan, from {@link StorageResultCache}, are displayed until both loaders of the new
+ * scan have finished, then replaced together.
+ */
+public class StorageSizes {
+
+    private StorageResultCache mCache;
+    private String mFsUuid;
+
+    // Displayed sizes.
+    private PrivateStorageInfo mStorageInfo;
+    private SparseArray<StorageAsyncLoader.StorageResult> mAppsResult;
+
+    // Sizes of the running scan, until both are loaded.
+    private PrivateStorageInfo mLoadedStorageInfo;
+    private SparseArray<StorageAsyncLoader.StorageResult> mLoadedAppsResult;
+
+    /**
+     * Starts a new scan of the volume {@code fsUuid}, and displays the sizes of its last scan if
+     * both are cached.
+     */
+    public void startScan(StorageResultCache cache, String fsUuid) {
+        mCache = cache;
+        mFsUuid = fsUuid;
+        mLoadedStorageInfo = null;
+        mLoadedAppsResult = null;
+        mStorageInfo = cache.getStorageInfo(fsUuid);
+        mAppsResult = cache.getResults(fsUuid);
+        if (mStorageInfo == null || mAppsResult == null) {
+            mStorageInfo = null;
+            mAppsResult = null;
+        }
+    }
+
+    /**
+     * Called when the volume sizes of the scan are loaded.
+     *
+     * @return {@code true} if the displayed sizes were replaced
+     */
+    public boolean onStorageInfoLoaded(PrivateStorageInfo info) {
+        mLoadedStorageInfo = info;
+        return maybeReplaceSizes();
+    }
+
+    /**
+     * Called when the app results of the scan are loaded.
+     *
+     * @return {@code true} if the displayed sizes were replaced
+     */
+    public boolean onAppsResultLoaded(SparseArray<StorageAsyncLoader.StorageResult> results) {
+        mLoadedAppsResult = results;
+        return maybeReplaceSizes();
+    }
+
+    public PrivateStorageInfo getStorageInfo() {
+        return mStorageInfo;
+    }
+
+    public SparseArray<StorageAsyncLoader.StorageResult> getAppsResult() {
+        return mAppsResult;
+    }
+
+    @VisibleForTesting
+    public void setStorageInfo(PrivateStorageInfo info) {
+        mStorageInfo = info;
+    }
+
+    @VisibleForTesting
+    public void setAppsResult(SparseArray<StorageAsyncLoader.StorageResult> results) {
+        mAppsResult = results;
+    }
+
+    private boolean maybeReplaceSizes() {
+        if (mLoadedStorageInfo == null || mLoadedAppsResult == null) {
+            return false;
+        }
+        mStorageInfo = mLoadedStorageInfo;
+        mAppsResult = mLoadedAppsResult;
+        if (mCache != null) {
+            mCache.putStorageInfo(mFsUuid, mStorageInfo);
+            mCache.putResults(mFsUuid, mAppsResult);
+        }
+        return true;
+    }
+}
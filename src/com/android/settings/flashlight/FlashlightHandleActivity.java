@@ -74,5 +74,11 @@ public class FlashlightHandleActivity extends Activity implements Indexable {
 
                     return result;
                 }
+
+                @Override
+                public boolean isThreadSafe() {
+                    // Only reads resources.
+                    return true;
+                }
             };
 }
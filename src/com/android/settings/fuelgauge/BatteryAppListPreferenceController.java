@@ -209,6 +209,7 @@ public class BatteryAppListPreferenceController extends AbstractPreferenceContro
         mAppListGroup.setTitle(R.string.power_usage_list_summary);
 
         boolean addedSome = false;
+        final List<BatteryEntry> shownEntries = new ArrayList<>();
 
         cacheRemoveAllPrefs(mAppListGroup);
         mAppListGroup.setOrderingAsAdded(false);
@@ -249,6 +250,7 @@ public class BatteryAppListPreferenceController extends AbstractPreferenceContro
                 pref.shouldShowAnomalyIcon(false);
                 setUsageSummary(pref, entry);
                 addedSome = true;
+                shownEntries.add(entry);
                 mAppListGroup.addPreference(pref);
                 if (mAppListGroup.getPreferenceCount() - getCachedCount()
                         > (MAX_ITEMS_TO_LIST + 1)) {
@@ -261,7 +263,7 @@ public class BatteryAppListPreferenceController extends AbstractPreferenceContro
         }
         removeCachedPrefs(mAppListGroup);
 
-        BatteryEntry.startRequestQueue();
+        BatteryEntry.startRequestQueue(shownEntries);
     }
 
     /**
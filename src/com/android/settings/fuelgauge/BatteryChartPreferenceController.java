@@ -39,6 +39,7 @@ import com.android.settings.SettingsActivity;
 import com.android.settings.core.InstrumentedPreferenceFragment;
 import com.android.settings.core.PreferenceControllerMixin;
 import com.android.settings.overlay.FeatureFactory;
+import com.android.settings.utils.AppLabelIconLoader;
 import com.android.settingslib.core.AbstractPreferenceController;
 import com.android.settingslib.core.instrumentation.MetricsFeatureProvider;
 import com.android.settingslib.core.lifecycle.Lifecycle;
@@ -105,6 +106,18 @@ public class BatteryChartPreferenceController extends AbstractPreferenceControll
     private final CharSequence[] mNotAllowShowSummaryPackages;
     private final MetricsFeatureProvider mMetricsFeatureProvider;
     private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mLabelIconRefresher =
+        () -> refreshUi(mTrapezoidIndex, /*isForce=*/ true);
+    // Refreshes the shown items once their label and icon are loaded.
+    private final AppLabelIconLoader.Callback mVisibleLabelIconCallback = (key, result) -> {
+        if (result != null) {
+            // Coalesces the refreshes of the items loaded together.
+            mHandler.removeCallbacks(mLabelIconRefresher);
+            mHandler.post(mLabelIconRefresher);
+        }
+    };
+    // Only warms up the cache for the items of the other time slots.
+    private final AppLabelIconLoader.Callback mBackgroundLabelIconCallback = (key, result) -> {};
 
     // Preference cache to avoid create new instance each time.
     @VisibleForTesting
@@ -180,6 +193,8 @@ public class BatteryChartPreferenceController extends AbstractPreferenceControll
             BatteryDiffEntry.clearCache();
         }
         mHandler.removeCallbacksAndMessages(/*token=*/ null);
+        AppLabelIconLoader.getInstance().cancel(mVisibleLabelIconCallback);
+        AppLabelIconLoader.getInstance().cancel(mBackgroundLabelIconCallback);
         mPreferenceCache.clear();
         if (mAppListPrefGroup != null) {
             mAppListPrefGroup.removeAll();
@@ -404,6 +419,12 @@ public class BatteryChartPreferenceController extends AbstractPreferenceControll
         }
         int prefIndex = mAppListPrefGroup.getPreferenceCount();
         for (BatteryDiffEntry entry : entries) {
+            // Avoids loading the label and icon in the main thread.
+            if (!entry.isLabelAndIconCached()) {
+                entry.requestLabelAndIcon(
+                    AppLabelIconLoader.PRIORITY_VISIBLE, mVisibleLabelIconCallback);
+                continue;
+            }
             boolean isAdded = false;
             final String appLabel = entry.getAppLabel();
             final Drawable appIcon = entry.getAppIcon();
@@ -650,7 +671,21 @@ public class BatteryChartPreferenceController extends AbstractPreferenceControll
         return batteryHistoryKeys;
     }
 
-    // Loads all items icon and label in the background.
+    // Requests the label and icon of the items in the time slots not shown yet.
+    private void requestLabelAndIconForOtherSlots() {
+        if (mBatteryIndexedMap == null) {
+            return;
+        }
+        for (Map.Entry<Integer, List<BatteryDiffEntry>> slot : mBatteryIndexedMap.entrySet()) {
+            if (slot.getKey() == mTrapezoidIndex) {
+                continue;
+            }
+            slot.getValue().forEach(entry -> entry.requestLabelAndIcon(
+                AppLabelIconLoader.PRIORITY_BACKGROUND, mBackgroundLabelIconCallback));
+        }
+    }
+
+    // Loads all items usage data in the background.
     private final class LoadAllItemsInfoTask
             extends AsyncTask<Void, Void, Map<Integer, List<BatteryDiffEntry>>> {
 
@@ -674,10 +709,6 @@ public class BatteryChartPreferenceController extends AbstractPreferenceControll
                     mPrefContext, /*timeSlotSize=*/ CHART_LEVEL_ARRAY_SIZE - 1,
                     mBatteryHistoryKeysCache, mBatteryHistoryMap,
                     /*purgeLowPercentageAndFakeData=*/ true);
-            // Pre-loads each BatteryDiffEntry relative icon and label for all slots.
-            for (List<BatteryDiffEntry> entries : indexedUsageMap.values()) {
-                entries.forEach(entry -> entry.loadLabelAndIcon());
-            }
             Log.d(TAG, String.format("execute LoadAllItemsInfoTask in %d/ms",
                 (System.currentTimeMillis() - startTime)));
             return indexedUsageMap;
@@ -695,6 +726,8 @@ public class BatteryChartPreferenceController extends AbstractPreferenceControll
             mHandler.post(() -> {
                 mBatteryIndexedMap = indexedUsageMap;
                 forceRefreshUi();
+                // Posts after the refresh, which requests the shown items first.
+                mHandler.post(() -> requestLabelAndIconForOtherSlots());
             });
         }
     }
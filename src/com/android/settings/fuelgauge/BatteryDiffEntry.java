@@ -25,23 +25,23 @@ import android.util.Log;
 
 import androidx.annotation.VisibleForTesting;
 
+import com.android.settings.utils.AppLabelIconLoader;
+import com.android.settings.utils.AppLabelIconLoader.LabelAndIcon;
 import com.android.settingslib.utils.StringUtil;
 
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /** A container class to carry battery data in a specific time slot. */
 public class BatteryDiffEntry {
     private static final String TAG = "BatteryDiffEntry";
 
-    static Locale sCurrentLocale = null;
-    // Caches app label and icon to improve loading performance.
-    static final Map<String, BatteryEntry.NameAndIcon> sResourceCache = new HashMap<>();
+    // Prefix of the keys of app labels and icons cached in AppLabelIconLoader.
+    private static final String CACHE_KEY_PREFIX = "battery_diff:";
     // Whether a specific item is valid to launch restriction page?
     @VisibleForTesting(otherwise = VisibleForTesting.PACKAGE_PRIVATE)
-    public static final Map<String, Boolean> sValidForRestriction = new HashMap<>();
+    public static final Map<String, Boolean> sValidForRestriction = new ConcurrentHashMap<>();
 
     /** A comparator for {@link BatteryDiffEntry} based on consumed percentage. */
     public static final Comparator<BatteryDiffEntry> COMPARATOR =
@@ -157,23 +157,52 @@ public class BatteryDiffEntry {
         return false;
     }
 
+    /** Whether the app label, icon and restriction state are cached already. */
+    boolean isLabelAndIconCached() {
+        return AppLabelIconLoader.getInstance().getCached(getCacheKey()) != null
+            && sValidForRestriction.containsKey(getKey());
+    }
+
+    /**
+     * Loads the app label and icon in the background unless they are cached already, and
+     * notifies {@code callback} in the main thread once loaded.
+     */
+    void requestLabelAndIcon(int priority, AppLabelIconLoader.Callback callback) {
+        if (isLabelAndIconCached()) {
+            return;
+        }
+        // Loads with a copy to avoid touching this entry from the background thread.
+        final BatteryDiffEntry entry = clone();
+        AppLabelIconLoader.getInstance().load(getCacheKey(), priority, () -> {
+            entry.loadLabelAndIcon();
+            return entry.mAppLabel != null || entry.mAppIcon != null
+                ? new LabelAndIcon(
+                    entry.mAppLabel, entry.mDefaultPackageName, entry.mAppIcon, entry.mAppIconId)
+                : null;
+        }, callback);
+    }
+
     void loadLabelAndIcon() {
         if (mIsLoaded) {
             return;
         }
         // Checks whether we have cached data or not first before fetching.
-        final BatteryEntry.NameAndIcon nameAndIcon = getCache();
-        if (nameAndIcon != null) {
-            mAppLabel = nameAndIcon.name;
-            mAppIcon = nameAndIcon.icon;
-            mAppIconId = nameAndIcon.iconId;
+        final LabelAndIcon labelAndIcon =
+            AppLabelIconLoader.getInstance().getCached(getCacheKey());
+        if (labelAndIcon != null) {
+            mAppLabel = labelAndIcon.label;
+            mAppIcon = labelAndIcon.icon;
+            mAppIconId = labelAndIcon.iconId;
+            if (labelAndIcon.packageName != null) {
+                mDefaultPackageName = labelAndIcon.packageName;
+            }
         }
         final Boolean validForRestriction = sValidForRestriction.get(getKey());
         if (validForRestriction != null) {
             mValidForRestriction = validForRestriction;
         }
-        // Both nameAndIcon and restriction configuration have cached data.
-        if (nameAndIcon != null && validForRestriction != null) {
+        // Both labelAndIcon and restriction configuration have cached data.
+        if (labelAndIcon != null && validForRestriction != null) {
             return;
         }
         mIsLoaded = true;
@@ -191,9 +220,7 @@ public class BatteryDiffEntry {
                 if (nameAndIconForUser != null) {
                     mAppIcon = nameAndIconForUser.icon;
                     mAppLabel = nameAndIconForUser.name;
-                    sResourceCache.put(
-                        getKey(),
-                        new BatteryEntry.NameAndIcon(mAppLabel, mAppIcon, /*iconId=*/ 0));
+                    putCache();
                 }
                 break;
             case ConvertUtils.CONSUMER_TYPE_SYSTEM_BATTERY:
@@ -206,9 +233,7 @@ public class BatteryDiffEntry {
                         mAppIconId = nameAndIconForSystem.iconId;
                         mAppIcon = mContext.getDrawable(nameAndIconForSystem.iconId);
                     }
-                    sResourceCache.put(
-                        getKey(),
-                        new BatteryEntry.NameAndIcon(mAppLabel, mAppIcon, mAppIconId));
+                    putCache();
                 }
                 break;
             case ConvertUtils.CONSUMER_TYPE_UID_BATTERY:
@@ -220,9 +245,7 @@ public class BatteryDiffEntry {
                 // Adds badge icon into app icon for work profile.
                 mAppIcon = getBadgeIconForUser(mAppIcon);
                 if (mAppLabel != null || mAppIcon != null) {
-                    sResourceCache.put(
-                        getKey(),
-                        new BatteryEntry.NameAndIcon(mAppLabel, mAppIcon, /*iconId=*/ 0));
+                    putCache();
                 }
                 break;
         }
@@ -262,15 +285,14 @@ public class BatteryDiffEntry {
         }
     }
 
-    private BatteryEntry.NameAndIcon getCache() {
-        final Locale locale = Locale.getDefault();
-        if (sCurrentLocale != locale) {
-            Log.d(TAG, String.format("clearCache() locale is changed from %s to %s",
-                sCurrentLocale, locale));
-            sCurrentLocale = locale;
-            clearCache();
-        }
-        return sResourceCache.get(getKey());
+    private String getCacheKey() {
+        return getCacheKey(getKey());
+    }
+
+    private void putCache() {
+        AppLabelIconLoader.getInstance().put(
+            getCacheKey(),
+            new LabelAndIcon(mAppLabel, mDefaultPackageName, mAppIcon, mAppIconId));
     }
 
     private void loadNameAndIconForUid() {
@@ -309,8 +331,8 @@ public class BatteryDiffEntry {
             BatteryEntry.loadNameAndIcon(
                 mContext, uid, /*handler=*/ null, /*batteryEntry=*/ null,
                 packageName, mAppLabel, mAppIcon);
-        // Clears BatteryEntry internal cache since we will have another one.
-        BatteryEntry.clearUidCache();
+        // Clears BatteryEntry cached data of this uid since we will have another one.
+        BatteryEntry.clearUidCache(uid);
         if (nameAndIcon != null) {
             mAppLabel = nameAndIcon.name;
             mAppIcon = nameAndIcon.icon;
@@ -344,10 +366,15 @@ public class BatteryDiffEntry {
 
     /** Clears app icon and label cache data. */
     public static void clearCache() {
-        sResourceCache.clear();
+        AppLabelIconLoader.getInstance().invalidateByPrefix(CACHE_KEY_PREFIX);
         sValidForRestriction.clear();
     }
 
+    @VisibleForTesting
+    static String getCacheKey(String key) {
+        return CACHE_KEY_PREFIX + key;
+    }
+
     private Drawable getBadgeIconForUser(Drawable icon) {
         final int userId = UserHandle.getUserId((int) mBatteryHistEntry.mUid);
         return userId == UserHandle.USER_OWNER ? icon :
@@ -37,14 +37,17 @@ import android.util.DebugUtils;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.R;
+import com.android.settings.utils.AppLabelIconLoader;
 import com.android.settingslib.Utils;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.Locale;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Wraps the power usage data of a BatterySipper with information about package name
@@ -77,81 +80,98 @@ public class BatteryEntry {
     private static final String TAG = "BatteryEntry";
     private static final String PACKAGE_SYSTEM = "android";
 
-    static final HashMap<String, UidToDetail> sUidCache = new HashMap<>();
+    // Prefix of the keys of the app labels and icons in AppLabelIconLoader.
+    private static final String CACHE_KEY_PREFIX = "battery_entry:";
 
     static final ArrayList<BatteryEntry> sRequestQueue = new ArrayList<BatteryEntry>();
     static Handler sHandler;
 
-    static Locale sCurrentLocale = null;
+    // Callbacks of the pending requests sent to AppLabelIconLoader, guarded by sRequestQueue.
+    @VisibleForTesting
+    static final ArrayList<AppLabelIconLoader.Callback> sPendingCallbacks =
+            new ArrayList<>();
 
-    static private class NameAndIconLoader extends Thread {
-        private boolean mAbort = false;
-
-        public NameAndIconLoader() {
-            super("BatteryUsage Icon Loader");
-        }
-
-        public void abort() {
-            mAbort = true;
+    /**
+     * Loads the labels and icons of the queued entries, and notifies {@link #sHandler} as each
+     * of them is loaded, then once all of them are. The entries in {@code visibleEntries} are
+     * loaded first, the others are loaded in the background.
+     */
+    public static void startRequestQueue(Collection<BatteryEntry> visibleEntries) {
+        final List<BatteryEntry> entries;
+        synchronized (sRequestQueue) {
+            if (sHandler == null || sRequestQueue.isEmpty()) {
+                return;
+            }
+            entries = new ArrayList<>(sRequestQueue);
+            sRequestQueue.clear();
         }
 
-        @Override
-        public void run() {
-            while (true) {
-                BatteryEntry be;
-                synchronized (sRequestQueue) {
-                    if (sRequestQueue.isEmpty() || mAbort) {
-                        if (sHandler != null) {
-                            sHandler.sendEmptyMessage(MSG_REPORT_FULLY_DRAWN);
+        final AppLabelIconLoader loader = AppLabelIconLoader.getInstance();
+        final AtomicInteger remaining = new AtomicInteger(entries.size());
+        for (BatteryEntry be : entries) {
+            final AppLabelIconLoader.Callback callback = new AppLabelIconLoader.Callback() {
+                @Override
+                public void onLoaded(String key, AppLabelIconLoader.LabelAndIcon result) {
+                    final Handler handler;
+                    synchronized (sRequestQueue) {
+                        sPendingCallbacks.remove(this);
+                        handler = sHandler;
+                    }
+                    if (result != null) {
+                        be.icon = result.icon;
+                        be.name = result.label;
+                        be.mDefaultPackageName = result.packageName;
+                        if (handler != null) {
+                            handler.sendMessage(handler.obtainMessage(MSG_UPDATE_NAME_ICON, be));
                         }
-                        return;
                     }
-                    be = sRequestQueue.remove(0);
-                }
-                final NameAndIcon nameAndIcon =
-                    BatteryEntry.loadNameAndIcon(
-                        be.mContext, be.getUid(), sHandler, be,
-                        be.mDefaultPackageName, be.name, be.icon);
-                if (nameAndIcon != null) {
-                    be.icon = nameAndIcon.icon;
-                    be.name = nameAndIcon.name;
-                    be.mDefaultPackageName = nameAndIcon.packageName;
-                }
-            }
-        }
-    }
-
-    private static NameAndIconLoader mRequestThread;
-
-    public static void startRequestQueue() {
-        if (sHandler != null) {
-            synchronized (sRequestQueue) {
-                if (!sRequestQueue.isEmpty()) {
-                    if (mRequestThread != null) {
-                        mRequestThread.abort();
+                    if (remaining.decrementAndGet() == 0 && handler != null) {
+                        handler.sendEmptyMessage(MSG_REPORT_FULLY_DRAWN);
                     }
-                    mRequestThread = new NameAndIconLoader();
-                    mRequestThread.setPriority(Thread.MIN_PRIORITY);
-                    mRequestThread.start();
-                    sRequestQueue.notify();
                 }
+            };
+            synchronized (sRequestQueue) {
+                sPendingCallbacks.add(callback);
             }
+            final int priority = visibleEntries.contains(be)
+                    ? AppLabelIconLoader.PRIORITY_VISIBLE
+                    : AppLabelIconLoader.PRIORITY_BACKGROUND;
+            loader.load(getCacheKey(be.getUid()), priority,
+                    () -> {
+                        final NameAndIcon nameAndIcon = loadNameAndIcon(be.mContext,
+                                be.getUid(), /*handler=*/ null, /*batteryEntry=*/ null,
+                                be.mDefaultPackageName, be.name, be.icon);
+                        return nameAndIcon == null ? null : new AppLabelIconLoader.LabelAndIcon(
+                                nameAndIcon.name, nameAndIcon.packageName, nameAndIcon.icon);
+                    },
+                    callback);
         }
     }
 
     public static void stopRequestQueue() {
         synchronized (sRequestQueue) {
-            if (mRequestThread != null) {
-                mRequestThread.abort();
-                mRequestThread = null;
-                sRequestQueue.clear();
-                sHandler = null;
+            final AppLabelIconLoader loader = AppLabelIconLoader.getInstance();
+            for (AppLabelIconLoader.Callback callback : sPendingCallbacks) {
+                loader.cancel(callback);
             }
+            sPendingCallbacks.clear();
+            sRequestQueue.clear();
+            sHandler = null;
         }
     }
 
     public static void clearUidCache() {
-        sUidCache.clear();
+        AppLabelIconLoader.getInstance().invalidateByPrefix(CACHE_KEY_PREFIX);
+    }
+
+    /** Drops the cached label and icon of {@code uid}. */
+    public static void clearUidCache(int uid) {
+        AppLabelIconLoader.getInstance().invalidate(getCacheKey(uid));
+    }
+
+    @VisibleForTesting
+    static String getCacheKey(int uid) {
+        return CACHE_KEY_PREFIX + uid;
     }
 
     public static final Comparator<BatteryEntry> COMPARATOR =
@@ -176,12 +196,6 @@ public class BatteryEntry {
     private String mDefaultPackageName;
     private double mConsumedPower;
 
-    static class UidToDetail {
-        String name;
-        String packageName;
-        Drawable icon;
-    }
-
     public BatteryEntry(Context context, Handler handler, UserManager um,
             @NonNull BatteryConsumer batteryConsumer, boolean isHidden, int uid, String[] packages,
             String packageName) {
@@ -307,19 +321,12 @@ public class BatteryEntry {
 
     void getQuickNameIconForUid(
             final int uid, final String[] packages, final boolean loadDataInBackground) {
-        // Locale sync to system config in Settings
-        final Locale locale = Locale.getDefault();
-        if (sCurrentLocale != locale) {
-            clearUidCache();
-            sCurrentLocale = locale;
-        }
-
-        final String uidString = Integer.toString(uid);
-        if (sUidCache.containsKey(uidString)) {
-            UidToDetail utd = sUidCache.get(uidString);
-            mDefaultPackageName = utd.packageName;
-            name = utd.name;
-            icon = utd.icon;
+        final AppLabelIconLoader.LabelAndIcon cached =
+                AppLabelIconLoader.getInstance().getCached(getCacheKey(uid));
+        if (cached != null) {
+            mDefaultPackageName = cached.packageName;
+            name = cached.label;
+            icon = cached.icon;
             return;
         }
 
@@ -426,17 +433,12 @@ public class BatteryEntry {
             }
         }
 
-        final String uidString = Integer.toString(uid);
         if (icon == null) {
             icon = pm.getDefaultActivityIcon();
         }
 
-        UidToDetail utd = new UidToDetail();
-        utd.name = name;
-        utd.icon = icon;
-        utd.packageName = defaultPackageName;
-
-        sUidCache.put(uidString, utd);
+        AppLabelIconLoader.getInstance().put(getCacheKey(uid),
+                new AppLabelIconLoader.LabelAndIcon(name, defaultPackageName, icon));
         if (handler != null) {
             handler.sendMessage(handler.obtainMessage(MSG_UPDATE_NAME_ICON, batteryEntry));
         }
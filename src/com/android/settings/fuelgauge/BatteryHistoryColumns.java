@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.android.settings.fuelgauge;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A columnar copy of the battery history, so the usage diff of each time slot can be computed
+ * over primitive arrays instead of per timestamp {@link Map} lookups.
+ *
+ * <p>Every entry key is interned into {@link #mKeys}, and the metrics of the entry at timestamp
+ * {@code t} with key {@code k} are stored at {@link #getCell(int, int)} in the metric arrays.
+ * Missing entries have zero metrics and a {@code null} {@link BatteryHistEntry}.
+ */
+final class BatteryHistoryColumns {
+    // Entry keys, sorted so the order of the generated data is stable.
+    final String[] mKeys;
+    // Whether there is any entry for each timestamp.
+    final boolean[] mHasData;
+    final BatteryHistEntry[] mEntries;
+    final long[] mForegroundUsageTimeInMs;
+    final long[] mBackgroundUsageTimeInMs;
+    final double[] mConsumePower;
+
+    private BatteryHistoryColumns(String[] keys, int timestampCount) {
+        final int cellCount = keys.length * timestampCount;
+        mKeys = keys;
+        mHasData = new boolean[timestampCount];
+        mEntries = new BatteryHistEntry[cellCount];
+        mForegroundUsageTimeInMs = new long[cellCount];
+        mBackgroundUsageTimeInMs = new long[cellCount];
+        mConsumePower = new double[cellCount];
+    }
+
+    /**
+     * Creates the columns of the first {@code timestampCount} timestamps in {@code timestamps}.
+     */
+    @SuppressWarnings("unchecked")
+    static BatteryHistoryColumns create(
+            long[] timestamps,
+            int timestampCount,
+            Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap) {
+        final Map<String, BatteryHistEntry>[] entryMaps = new Map[timestampCount];
+        final Set<String> allKeys = new HashSet<>();
+        for (int index = 0; index < timestampCount; index++) {
+            entryMaps[index] = batteryHistoryMap.get(timestamps[index]);
+            if (entryMaps[index] != null) {
+                allKeys.addAll(entryMaps[index].keySet());
+            }
+        }
+        final String[] keys = allKeys.toArray(new String[allKeys.size()]);
+        Arrays.sort(keys, Comparator.nullsFirst(Comparator.naturalOrder()));
+        final Map<String, Integer> keyIndexes = new HashMap<>(keys.length * 2);
+        for (int index = 0; index < keys.length; index++) {
+            keyIndexes.put(keys[index], index);
+        }
+
+        final BatteryHistoryColumns columns = new BatteryHistoryColumns(keys, timestampCount);
+        for (int index = 0; index < timestampCount; index++) {
+            final Map<String, BatteryHistEntry> entryMap = entryMaps[index];
+            if (entryMap == null || entryMap.isEmpty()) {
+                continue;
+            }
+            columns.mHasData[index] = true;
+            for (Map.Entry<String, BatteryHistEntry> mapEntry : entryMap.entrySet()) {
+                final BatteryHistEntry entry = mapEntry.getValue();
+                if (entry == null) {
+                    continue;
+                }
+                final int cell = columns.getCell(index, keyIndexes.get(mapEntry.getKey()));
+                columns.mEntries[cell] = entry;
+                columns.mForegroundUsageTimeInMs[cell] = entry.mForegroundUsageTimeInMs;
+                columns.mBackgroundUsageTimeInMs[cell] = entry.mBackgroundUsageTimeInMs;
+                columns.mConsumePower[cell] = entry.mConsumePower;
+            }
+        }
+        return columns;
+    }
+
+    /** Gets the number of distinct entry keys. */
+    int getKeyCount() {
+        return mKeys.length;
+    }
+
+    /** Gets the index in the metric arrays of a timestamp and key index. */
+    int getCell(int timestampIndex, int keyIndex) {
+        return timestampIndex * mKeys.length + keyIndex;
+    }
+}
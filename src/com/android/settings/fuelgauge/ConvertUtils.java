@@ -32,7 +32,6 @@ import java.lang.annotation.RetentionPolicy;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
@@ -44,9 +43,6 @@ import java.util.TimeZone;
 public final class ConvertUtils {
     private static final boolean DEBUG = false;
     private static final String TAG = "ConvertUtils";
-    private static final Map<String, BatteryHistEntry> EMPTY_BATTERY_MAP = new HashMap<>();
-    private static final BatteryHistEntry EMPTY_BATTERY_HIST_ENTRY =
-        new BatteryHistEntry(new ContentValues());
     // Maximum total time value for each slot cumulative data at most 2 hours.
     private static final float TOTAL_TIME_THRESHOLD = DateUtils.HOUR_IN_MILLIS * 2;
 
@@ -157,65 +153,55 @@ public final class ConvertUtils {
         //     Math.abs(timestamp[i+1] data - timestamp[i] data);
         // since we want to aggregate every two hours data into a single time slot.
         final int timestampStride = 2;
+        final BatteryHistoryColumns columns = BatteryHistoryColumns.create(
+            batteryHistoryKeys, timeSlotSize * timestampStride + 1, batteryHistoryMap);
+        final int keyCount = columns.getKeyCount();
+        // Last 24 hours aggregated data for each key.
+        final long[] allForegroundUsageTimeInMs = new long[keyCount];
+        final long[] allBackgroundUsageTimeInMs = new long[keyCount];
+        final double[] allConsumePower = new double[keyCount];
+        final BatteryHistEntry[] allBatteryHistEntries = new BatteryHistEntry[keyCount];
+        double allTotalConsumePower = 0.0;
         for (int index = 0; index < timeSlotSize; index++) {
-            final Long currentTimestamp =
-                Long.valueOf(batteryHistoryKeys[index * timestampStride]);
-            final Long nextTimestamp =
-                Long.valueOf(batteryHistoryKeys[index * timestampStride + 1]);
-            final Long nextTwoTimestamp =
-                Long.valueOf(batteryHistoryKeys[index * timestampStride + 2]);
-            // Fetches BatteryHistEntry data from corresponding time slot.
-            final Map<String, BatteryHistEntry> currentBatteryHistMap =
-                batteryHistoryMap.getOrDefault(currentTimestamp, EMPTY_BATTERY_MAP);
-            final Map<String, BatteryHistEntry> nextBatteryHistMap =
-                batteryHistoryMap.getOrDefault(nextTimestamp, EMPTY_BATTERY_MAP);
-            final Map<String, BatteryHistEntry> nextTwoBatteryHistMap =
-                batteryHistoryMap.getOrDefault(nextTwoTimestamp, EMPTY_BATTERY_MAP);
+            final int currentIndex = index * timestampStride;
+            final int nextIndex = currentIndex + 1;
+            final int nextTwoIndex = currentIndex + 2;
             // We should not get the empty list since we have at least one fake data to record
             // the battery level and status in each time slot, the empty list is used to
             // represent there is no enough data to apply interpolation arithmetic.
-            if (currentBatteryHistMap.isEmpty()
-                    || nextBatteryHistMap.isEmpty()
-                    || nextTwoBatteryHistMap.isEmpty()) {
+            if (!columns.mHasData[currentIndex]
+                    || !columns.mHasData[nextIndex]
+                    || !columns.mHasData[nextTwoIndex]) {
                 resultMap.put(Integer.valueOf(index), new ArrayList<BatteryDiffEntry>());
                 continue;
             }
 
-            // Collects all keys in these three time slot records as all populations.
-            final Set<String> allBatteryHistEntryKeys = new HashSet<>();
-            allBatteryHistEntryKeys.addAll(currentBatteryHistMap.keySet());
-            allBatteryHistEntryKeys.addAll(nextBatteryHistMap.keySet());
-            allBatteryHistEntryKeys.addAll(nextTwoBatteryHistMap.keySet());
-
             double totalConsumePower = 0.0;
             final List<BatteryDiffEntry> batteryDiffEntryList = new ArrayList<>();
             // Adds a specific time slot BatteryDiffEntry list into result map.
             resultMap.put(Integer.valueOf(index), batteryDiffEntryList);
 
             // Calculates all packages diff usage data in a specific time slot.
-            for (String key : allBatteryHistEntryKeys) {
-                final BatteryHistEntry currentEntry =
-                    currentBatteryHistMap.getOrDefault(key, EMPTY_BATTERY_HIST_ENTRY);
-                final BatteryHistEntry nextEntry =
-                    nextBatteryHistMap.getOrDefault(key, EMPTY_BATTERY_HIST_ENTRY);
-                final BatteryHistEntry nextTwoEntry =
-                    nextTwoBatteryHistMap.getOrDefault(key, EMPTY_BATTERY_HIST_ENTRY);
+            for (int key = 0; key < keyCount; key++) {
+                final int current = columns.getCell(currentIndex, key);
+                final int next = columns.getCell(nextIndex, key);
+                final int nextTwo = columns.getCell(nextTwoIndex, key);
                 // Cumulative values is a specific time slot for a specific app.
                 long foregroundUsageTimeInMs =
                     getDiffValue(
-                        currentEntry.mForegroundUsageTimeInMs,
-                        nextEntry.mForegroundUsageTimeInMs,
-                        nextTwoEntry.mForegroundUsageTimeInMs);
+                        columns.mForegroundUsageTimeInMs[current],
+                        columns.mForegroundUsageTimeInMs[next],
+                        columns.mForegroundUsageTimeInMs[nextTwo]);
                 long backgroundUsageTimeInMs =
                     getDiffValue(
-                        currentEntry.mBackgroundUsageTimeInMs,
-                        nextEntry.mBackgroundUsageTimeInMs,
-                        nextTwoEntry.mBackgroundUsageTimeInMs);
+                        columns.mBackgroundUsageTimeInMs[current],
+                        columns.mBackgroundUsageTimeInMs[next],
+                        columns.mBackgroundUsageTimeInMs[nextTwo]);
                 double consumePower =
                     getDiffValue(
-                        currentEntry.mConsumePower,
-                        nextEntry.mConsumePower,
-                        nextTwoEntry.mConsumePower);
+                        columns.mConsumePower[current],
+                        columns.mConsumePower[next],
+                        columns.mConsumePower[nextTwo]);
                 // Excludes entry since we don't have enough data to calculate.
                 if (foregroundUsageTimeInMs == 0
                         && backgroundUsageTimeInMs == 0
@@ -223,7 +209,10 @@ public final class ConvertUtils {
                     continue;
                 }
                 final BatteryHistEntry selectedBatteryEntry =
-                    selectBatteryHistEntry(currentEntry, nextEntry, nextTwoEntry);
+                    selectBatteryHistEntry(
+                        columns.mEntries[current],
+                        columns.mEntries[next],
+                        columns.mEntries[nextTwo]);
                 if (selectedBatteryEntry == null) {
                     continue;
                 }
@@ -237,7 +226,7 @@ public final class ConvertUtils {
                         Log.w(TAG, String.format("abnormal usage time %d|%d for:\n%s",
                                 Duration.ofMillis(foregroundUsageTimeInMs).getSeconds(),
                                 Duration.ofMillis(backgroundUsageTimeInMs).getSeconds(),
-                                currentEntry));
+                                selectedBatteryEntry));
                     }
                     foregroundUsageTimeInMs =
                         Math.round(foregroundUsageTimeInMs * ratio);
@@ -253,51 +242,44 @@ public final class ConvertUtils {
                         backgroundUsageTimeInMs,
                         consumePower,
                         selectedBatteryEntry));
+                // Sums up the data into the last 24 hours aggregation.
+                allForegroundUsageTimeInMs[key] += foregroundUsageTimeInMs;
+                allBackgroundUsageTimeInMs[key] += backgroundUsageTimeInMs;
+                allConsumePower[key] += consumePower;
+                if (allBatteryHistEntries[key] == null) {
+                    allBatteryHistEntries[key] = selectedBatteryEntry;
+                }
             }
+            allTotalConsumePower += totalConsumePower;
             // Sets total consume power data into all BatteryDiffEntry in the same slot.
             for (BatteryDiffEntry diffEntry : batteryDiffEntryList) {
                 diffEntry.setTotalConsumePower(totalConsumePower);
             }
         }
-        insert24HoursData(BatteryChartView.SELECTED_INDEX_ALL, resultMap);
+        // Inserts the last 24 hours aggregated data.
+        final List<BatteryDiffEntry> allBatteryDiffEntryList = new ArrayList<>();
+        for (int key = 0; key < keyCount; key++) {
+            if (allBatteryHistEntries[key] == null) {
+                continue;
+            }
+            final BatteryDiffEntry diffEntry =
+                new BatteryDiffEntry(
+                    context,
+                    allForegroundUsageTimeInMs[key],
+                    allBackgroundUsageTimeInMs[key],
+                    allConsumePower[key],
+                    allBatteryHistEntries[key]);
+            diffEntry.setTotalConsumePower(allTotalConsumePower);
+            allBatteryDiffEntryList.add(diffEntry);
+        }
+        resultMap.put(
+            Integer.valueOf(BatteryChartView.SELECTED_INDEX_ALL), allBatteryDiffEntryList);
         if (purgeLowPercentageAndFakeData) {
             purgeLowPercentageAndFakeData(context, resultMap);
         }
         return resultMap;
     }
 
-    private static void insert24HoursData(
-            final int desiredIndex,
-            final Map<Integer, List<BatteryDiffEntry>> indexedUsageMap) {
-        final Map<String, BatteryDiffEntry> resultMap = new HashMap<>();
-        double totalConsumePower = 0.0;
-        // Loops for all BatteryDiffEntry and aggregate them together.
-        for (List<BatteryDiffEntry> entryList : indexedUsageMap.values()) {
-            for (BatteryDiffEntry entry : entryList) {
-                final String key = entry.mBatteryHistEntry.getKey();
-                final BatteryDiffEntry oldBatteryDiffEntry = resultMap.get(key);
-                // Creates new BatteryDiffEntry if we don't have it.
-                if (oldBatteryDiffEntry == null) {
-                    resultMap.put(key, entry.clone());
-                } else {
-                    // Sums up some fields data into the existing one.
-                    oldBatteryDiffEntry.mForegroundUsageTimeInMs +=
-                        entry.mForegroundUsageTimeInMs;
-                    oldBatteryDiffEntry.mBackgroundUsageTimeInMs +=
-                        entry.mBackgroundUsageTimeInMs;
-                    oldBatteryDiffEntry.mConsumePower += entry.mConsumePower;
-                }
-                totalConsumePower += entry.mConsumePower;
-            }
-        }
-        final List<BatteryDiffEntry> resultList = new ArrayList<>(resultMap.values());
-        // Sets total 24 hours consume power data into all BatteryDiffEntry.
-        for (BatteryDiffEntry entry : resultList) {
-            entry.setTotalConsumePower(totalConsumePower);
-        }
-        indexedUsageMap.put(Integer.valueOf(desiredIndex), resultList);
-    }
-
     // Removes low percentage data and fake usage data, which will be zero value.
     private static void purgeLowPercentageAndFakeData(
             final Context context,
@@ -336,13 +318,12 @@ public final class ConvertUtils {
             BatteryHistEntry entry1,
             BatteryHistEntry entry2,
             BatteryHistEntry entry3) {
-        if (entry1 != null && entry1 != EMPTY_BATTERY_HIST_ENTRY) {
+        if (entry1 != null) {
             return entry1;
-        } else if (entry2 != null && entry2 != EMPTY_BATTERY_HIST_ENTRY) {
+        } else if (entry2 != null) {
             return entry2;
         } else {
-            return entry3 != null && entry3 != EMPTY_BATTERY_HIST_ENTRY
-                ? entry3 : null;
+            return entry3;
         }
     }
 
@@ -0,0 +1,369 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage.contextualcards;
+
+import static com.android.settings.intelligence.ContextualCardProto.ContextualCard.Category.STICKY_VALUE;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.slice.Slice;
+
+import com.android.settings.core.SettingsExecutors;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Checks the eligibility of {@link ContextualCard}s on a shared, bounded thread pool.
+ *
+ * <p>The result of binding each card's slice is memoized per slice uri for
+ * {@link #CACHE_TTL_MS}, and dropped as soon as the slice notifies a change. The uri is only
+ * observed while its result is memoized.
+ */
+public class CardEligibilityEngine {
+
+    private static final String TAG = "CardEligibilityEngine";
+    private static final int MAX_POOL_SIZE = 6;
+    private static final long KEEP_ALIVE_SECONDS = 30L;
+    @VisibleForTesting
+    static final long CACHE_TTL_MS = 60 * 1000L;
+    // Passed to Evaluation#await to wait for all the candidates.
+    private static final int NO_CARD_LIMIT = -1;
+
+    private static CardEligibilityEngine sInstance;
+
+    private final Context mContext;
+    private final ExecutorService mExecutor;
+    private final Map<Uri, CacheEntry> mCache = new ConcurrentHashMap<>();
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    public static synchronized CardEligibilityEngine getInstance(Context context) {
+        if (sInstance == null) {
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_POOL_SIZE,
+                    MAX_POOL_SIZE, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>());
+            executor.allowCoreThreadTimeOut(true);
+            sInstance = new CardEligibilityEngine(context.getApplicationContext(), executor);
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    CardEligibilityEngine(Context context, ExecutorService executor) {
+        mContext = context;
+        mExecutor = executor;
+    }
+
+    /**
+     * Returns the eligible cards among {@code candidates}, in the same order.
+     *
+     * <p>Stops as soon as the cards to display are known: every sticky candidate is resolved,
+     * and enough leading non-sticky candidates are eligible to fill {@code maxCardCount}.
+     * Candidates not resolved within {@code timeoutMs} are reported and dropped.
+     */
+    public List<ContextualCard> filterEligibleCards(List<ContextualCard> candidates,
+            int maxCardCount, long timeoutMs) {
+        return filterEligibleCards(candidates, maxCardCount, timeoutMs, null /* callback */);
+    }
+
+    /**
+     * Same as {@link #filterEligibleCards(List, int, long)}, but the candidates still pending
+     * once the cards to display are known keep being checked in the background, until
+     * {@code timeoutMs}. {@code allCheckedCallback} then receives all the eligible cards, e.g.
+     * to log the hidden ones. It is called before returning if nothing is left to check.
+     */
+    public List<ContextualCard> filterEligibleCards(List<ContextualCard> candidates,
+            int maxCardCount, long timeoutMs,
+            @Nullable Consumer<List<ContextualCard>> allCheckedCallback) {
+        final Evaluation evaluation = new Evaluation(candidates, timeoutMs);
+        final boolean decided = evaluation.await(maxCardCount);
+        final List<ContextualCard> cards = evaluation.getEligibleCards();
+        if (!decided || evaluation.mPending == 0 || allCheckedCallback == null) {
+            evaluation.cancelPending();
+            if (allCheckedCallback != null) {
+                allCheckedCallback.accept(cards);
+            }
+            return cards;
+        }
+
+        // The cards to display are known, the others are only checked for logging.
+        SettingsExecutors.getInstance().execute(SettingsExecutors.LANE_IDLE,
+                SettingsExecutors.PRIORITY_DEFAULT, () -> {
+                    evaluation.await(NO_CARD_LIMIT);
+                    evaluation.cancelPending();
+                    allCheckedCallback.accept(evaluation.getEligibleCards());
+                });
+        return cards;
+    }
+
+    /**
+     * Drops the memoized result of the card with the given slice uri.
+     */
+    public void invalidate(Uri uri) {
+        final CacheEntry entry = mCache.remove(uri);
+        if (entry != null) {
+            entry.release();
+        }
+    }
+
+    private void removeCachedEntry(Uri uri, CacheEntry entry) {
+        if (mCache.remove(uri, entry)) {
+            entry.release();
+        }
+    }
+
+    @VisibleForTesting
+    Callable<ContextualCard> createChecker(ContextualCard card) {
+        return new EligibleCardChecker(mContext, card);
+    }
+
+    private ContextualCard checkAndCache(ContextualCard candidate) throws Exception {
+        final ContextualCard result = createChecker(candidate).call();
+        if (candidate.getRankingScore() >= 0
+                && ContentResolver.SCHEME_CONTENT.equals(candidate.getSliceUri().getScheme())) {
+            // Ranking scores change between loads, only the slice binding is worth keeping.
+            putCachedEntry(candidate.getSliceUri(), result);
+        }
+        return result;
+    }
+
+    private CacheEntry getCachedEntry(Uri uri) {
+        final CacheEntry entry = mCache.get(uri);
+        if (entry == null) {
+            return null;
+        }
+        if (SystemClock.elapsedRealtime() - entry.mTimestamp > CACHE_TTL_MS) {
+            removeCachedEntry(uri, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    private void putCachedEntry(Uri uri, ContextualCard result) {
+        final CacheEntry entry = new CacheEntry(uri, result);
+        final CacheEntry previous = mCache.put(uri, entry);
+        if (previous != null) {
+            previous.release();
+        }
+        try {
+            mContext.getContentResolver().registerContentObserver(uri,
+                    false /* notifyForDescendants */, entry.mObserver);
+        } catch (SecurityException e) {
+            Log.w(TAG, "Cannot observe " + uri + ", not caching it", e);
+            removeCachedEntry(uri, entry);
+            return;
+        }
+        // Stop observing the uri once expired, even if the card is never checked again.
+        mHandler.postDelayed(entry.mExpiry, CACHE_TTL_MS);
+    }
+
+    /**
+     * @return {@code true} if the cards to display can't change anymore.
+     */
+    private static boolean isDecided(List<ContextualCard> candidates, ContextualCard[] results,
+            boolean[] resolved, int maxCardCount) {
+        int stickyCount = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+            if (candidates.get(i).getCategory() != STICKY_VALUE) {
+                continue;
+            }
+            if (!resolved[i]) {
+                return false;
+            }
+            if (results[i] != null) {
+                stickyCount++;
+            }
+        }
+
+        final int nonStickyCardCount = maxCardCount - stickyCount;
+        int nonStickyCount = 0;
+        for (int i = 0; i < candidates.size() && nonStickyCount < nonStickyCardCount; i++) {
+            if (candidates.get(i).getCategory() == STICKY_VALUE) {
+                continue;
+            }
+            if (!resolved[i]) {
+                return false;
+            }
+            if (results[i] != null) {
+                nonStickyCount++;
+            }
+        }
+        return true;
+    }
+
+    /** The eligibility checks of one list of candidates. */
+    private class Evaluation {
+        final List<ContextualCard> mCandidates;
+        final ContextualCard[] mResults;
+        final boolean[] mResolved;
+        final List<Future<Integer>> mFutures;
+        final CompletionService<Integer> mCompletionService =
+                new ExecutorCompletionService<>(mExecutor);
+        final long mDeadline;
+        int mPending;
+        boolean mTimedOut;
+
+        Evaluation(List<ContextualCard> candidates, long timeoutMs) {
+            final int size = candidates.size();
+            mCandidates = candidates;
+            mResults = new ContextualCard[size];
+            mResolved = new boolean[size];
+            mFutures = new ArrayList<>(size);
+
+            for (int i = 0; i < size; i++) {
+                final ContextualCard candidate = candidates.get(i);
+                final CacheEntry entry = getCachedEntry(candidate.getSliceUri());
+                if (entry != null) {
+                    mResults[i] = entry.apply(candidate);
+                    mResolved[i] = true;
+                    mFutures.add(null);
+                    continue;
+                }
+                final int index = i;
+                mFutures.add(mCompletionService.submit(() -> {
+                    try {
+                        mResults[index] = checkAndCache(candidate);
+                    } catch (Exception e) {
+                        Log.w(TAG, "Failed to get eligible state for card", e);
+                    }
+                    return index;
+                }));
+                mPending++;
+            }
+            mDeadline = SystemClock.elapsedRealtime() + timeoutMs;
+        }
+
+        /**
+         * Waits until the cards to display among the first {@code maxCardCount} are known, or
+         * until every candidate is checked with {@link #NO_CARD_LIMIT}.
+         *
+         * @return {@code false} if interrupted or timed out before
+         */
+        boolean await(int maxCardCount) {
+            while (mPending > 0 && (maxCardCount == NO_CARD_LIMIT
+                    || !isDecided(mCandidates, mResults, mResolved, maxCardCount))) {
+                final long remaining = mDeadline - SystemClock.elapsedRealtime();
+                if (remaining <= 0) {
+                    mTimedOut = true;
+                    return false;
+                }
+                try {
+                    final Future<Integer> future =
+                            mCompletionService.poll(remaining, TimeUnit.MILLISECONDS);
+                    if (future == null) {
+                        mTimedOut = true;
+                        return false;
+                    }
+                    mPending--;
+                    mResolved[future.get()] = true;
+                } catch (InterruptedException e) {
+                    Log.w(TAG, "Interrupted while checking card eligibility", e);
+                    Thread.currentThread().interrupt();
+                    return false;
+                } catch (ExecutionException e) {
+                    Log.w(TAG, "Failed to get eligible state for card", e);
+                }
+            }
+            return true;
+        }
+
+        List<ContextualCard> getEligibleCards() {
+            final List<ContextualCard> cards = new ArrayList<>();
+            for (int i = 0; i < mResults.length; i++) {
+                if (mResolved[i] && mResults[i] != null) {
+                    cards.add(mResults[i]);
+                }
+            }
+            return cards;
+        }
+
+        /** Stops the checks still running. */
+        void cancelPending() {
+            for (int i = 0; i < mResults.length; i++) {
+                final Future<Integer> future = mFutures.get(i);
+                if (mResolved[i] || future == null || future.isDone()) {
+                    continue;
+                }
+                future.cancel(true /* mayInterruptIfRunning */);
+                if (mTimedOut) {
+                    Log.w(TAG, "Timeout getting eligible state for card: "
+                            + mCandidates.get(i).getSliceUri());
+                }
+            }
+        }
+    }
+
+    private class CacheEntry {
+        final long mTimestamp;
+        final boolean mEligible;
+        final Slice mSlice;
+        final boolean mHasInlineAction;
+        final ContentObserver mObserver;
+        final Runnable mExpiry;
+
+        CacheEntry(Uri uri, ContextualCard result) {
+            mTimestamp = SystemClock.elapsedRealtime();
+            mEligible = result != null;
+            mSlice = result != null ? result.getSlice() : null;
+            mHasInlineAction = result != null && result.hasInlineAction();
+            mObserver = new ContentObserver(null /* handler */) {
+                @Override
+                public void onChange(boolean selfChange) {
+                    removeCachedEntry(uri, CacheEntry.this);
+                }
+            };
+            mExpiry = () -> removeCachedEntry(uri, this);
+        }
+
+        /** Called once removed from the cache. */
+        void release() {
+            mHandler.removeCallbacks(mExpiry);
+            mContext.getContentResolver().unregisterContentObserver(mObserver);
+        }
+
+        ContextualCard apply(ContextualCard candidate) {
+            if (!mEligible || candidate.getRankingScore() < 0) {
+                return null;
+            }
+            return candidate.mutate()
+                    .setSlice(mSlice)
+                    .setHasInlineAction(mHasInlineAction)
+                    .build();
+        }
+    }
+}
@@ -31,6 +31,7 @@ import android.provider.Settings;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.R;
@@ -41,11 +42,6 @@ import com.android.settingslib.utils.AsyncLoaderCompat;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
 public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>> {
 
@@ -123,13 +119,20 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
         return getDisplayableCards(result);
     }
 
-    // Get final displayed cards and log what cards will be displayed/hidden
+    // Get final displayed cards, the hidden ones are logged once all the cards are checked
     @VisibleForTesting
     List<ContextualCard> getDisplayableCards(List<ContextualCard> candidates) {
-        final List<ContextualCard> eligibleCards = filterEligibleCards(candidates);
+        return selectCards(filterEligibleCards(candidates), null /* hiddenCards */);
+    }
+
+    /**
+     * Returns the cards to display among {@code eligibleCards}, and adds the others to
+     * {@code hiddenCards} if not null.
+     */
+    private List<ContextualCard> selectCards(List<ContextualCard> eligibleCards,
+            @Nullable List<ContextualCard> hiddenCards) {
         final List<ContextualCard> stickyCards = new ArrayList<>();
         final List<ContextualCard> visibleCards = new ArrayList<>();
-        final List<ContextualCard> hiddenCards = new ArrayList<>();
 
         final int maxCardCount = getCardCount();
         eligibleCards.forEach(card -> {
@@ -138,7 +141,7 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
             }
             if (stickyCards.size() < maxCardCount) {
                 stickyCards.add(card);
-            } else {
+            } else if (hiddenCards != null) {
                 hiddenCards.add(card);
             }
         });
@@ -150,21 +153,27 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
             }
             if (visibleCards.size() < nonStickyCardCount) {
                 visibleCards.add(card);
-            } else {
+            } else if (hiddenCards != null) {
                 hiddenCards.add(card);
             }
         });
         visibleCards.addAll(stickyCards);
+        return visibleCards;
+    }
 
-        if (!CardContentProvider.DELETE_CARD_URI.equals(mNotifyUri)) {
-            final MetricsFeatureProvider metricsFeatureProvider =
-                    FeatureFactory.getFactory(mContext).getMetricsFeatureProvider();
-
-            metricsFeatureProvider.action(mContext,
-                    SettingsEnums.ACTION_CONTEXTUAL_CARD_NOT_SHOW,
-                    ContextualCardLogUtils.buildCardListLog(hiddenCards));
+    // Called with all the eligible cards, which may be after the displayed cards are returned.
+    private void logHiddenCards(List<ContextualCard> eligibleCards) {
+        if (CardContentProvider.DELETE_CARD_URI.equals(mNotifyUri)) {
+            return;
         }
-        return visibleCards;
+        final List<ContextualCard> hiddenCards = new ArrayList<>();
+        selectCards(eligibleCards, hiddenCards);
+        final MetricsFeatureProvider metricsFeatureProvider =
+                FeatureFactory.getFactory(mContext).getMetricsFeatureProvider();
+
+        metricsFeatureProvider.action(mContext,
+                SettingsEnums.ACTION_CONTEXTUAL_CARD_NOT_SHOW,
+                ContextualCardLogUtils.buildCardListLog(hiddenCards));
     }
 
     @VisibleForTesting
@@ -187,41 +196,15 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
         if (candidates.isEmpty()) {
             return candidates;
         }
+        // The engine returns once the displayed cards are known, and keeps checking the others
+        // so that the hidden cards and the checker latencies are still logged.
+        return getEligibilityEngine().filterEligibleCards(candidates, getCardCount(),
+                ELIGIBILITY_CHECKER_TIMEOUT_MS, this::logHiddenCards);
+    }
 
-        final ExecutorService executor = Executors.newFixedThreadPool(candidates.size());
-        final List<ContextualCard> cards = new ArrayList<>();
-        List<Future<ContextualCard>> eligibleCards = new ArrayList<>();
-
-        final List<EligibleCardChecker> checkers = candidates.stream()
-                .map(card -> new EligibleCardChecker(mContext, card))
-                .collect(Collectors.toList());
-        try {
-            eligibleCards = executor.invokeAll(checkers, ELIGIBILITY_CHECKER_TIMEOUT_MS,
-                    TimeUnit.MILLISECONDS);
-        } catch (InterruptedException e) {
-            Log.w(TAG, "Failed to get eligible states for all cards", e);
-        }
-        executor.shutdown();
-
-        // Collect future and eligible cards
-        for (int i = 0; i < eligibleCards.size(); i++) {
-            final Future<ContextualCard> cardFuture = eligibleCards.get(i);
-            if (cardFuture.isCancelled()) {
-                Log.w(TAG, "Timeout getting eligible state for card: "
-                        + candidates.get(i).getSliceUri());
-                continue;
-            }
-
-            try {
-                final ContextualCard card = cardFuture.get();
-                if (card != null) {
-                    cards.add(card);
-                }
-            } catch (Exception e) {
-                Log.w(TAG, "Failed to get eligible state for card", e);
-            }
-        }
-        return cards;
+    @VisibleForTesting
+    CardEligibilityEngine getEligibilityEngine() {
+        return CardEligibilityEngine.getInstance(mContext);
     }
 
     private boolean isLargeCard(ContextualCard card) {
@@ -341,5 +341,11 @@ public class LocaleListEditor extends RestrictedSettingsFragment {
                     indexRaws.add(raw);
                     return indexRaws;
                 }
+
+                @Override
+                public boolean isThreadSafe() {
+                    // Only reads resources.
+                    return true;
+                }
             };
 }
@@ -100,6 +100,8 @@ public abstract class ActiveSubscriptionsListener
                 TelephonyIntents.ACTION_RADIO_TECHNOLOGY_CHANGED);
         mSubscriptionChangeIntentFilter.addAction(
                 TelephonyManager.ACTION_MULTI_SIM_CONFIG_CHANGED);
+        mSubscriptionChangeIntentFilter.addAction(
+                TelephonyManager.ACTION_SIM_SLOT_STATUS_CHANGED);
     }
 
     @VisibleForTesting
@@ -21,6 +21,7 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.telephony.CarrierConfigManager;
+import android.telephony.SubscriptionManager;
 import android.util.Log;
 
 import java.util.concurrent.CountDownLatch;
@@ -31,16 +32,36 @@ public class CarrierConfigChangedReceiver extends BroadcastReceiver {
     private static final String ACTION_CARRIER_CONFIG_CHANGED =
             CarrierConfigManager.ACTION_CARRIER_CONFIG_CHANGED;
 
+    /** Callback of the carrier config changes. */
+    public interface CarrierConfigChangedCallback {
+        /**
+         * Called when the carrier config of {@code subId} changed, or
+         * {@link SubscriptionManager#INVALID_SUBSCRIPTION_ID} if the subscription is unknown.
+         */
+        void onCarrierConfigChanged(int subId);
+    }
+
     private final CountDownLatch mLatch;
+    private final CarrierConfigChangedCallback mCallback;
 
     public CarrierConfigChangedReceiver(CountDownLatch latch) {
         mLatch = latch;
+        mCallback = null;
+    }
+
+    public CarrierConfigChangedReceiver(CarrierConfigChangedCallback callback) {
+        mLatch = null;
+        mCallback = callback;
     }
 
     public void registerOn(Context context) {
         context.registerReceiver(this, new IntentFilter(ACTION_CARRIER_CONFIG_CHANGED));
     }
 
+    public void unregisterFrom(Context context) {
+        context.unregisterReceiver(this);
+    }
+
     @Override
     public void onReceive(Context context, Intent intent) {
         if (isInitialStickyBroadcast()) {
@@ -56,7 +77,14 @@ public class CarrierConfigChangedReceiver extends BroadcastReceiver {
         if (intent.hasExtra(CarrierConfigManager.EXTRA_SUBSCRIPTION_INDEX)) {
             int subId = intent.getIntExtra(CarrierConfigManager.EXTRA_SUBSCRIPTION_INDEX, -1);
             Log.i(TAG, "subId from config changed: " + subId);
-            mLatch.countDown();
+            if (mLatch != null) {
+                mLatch.countDown();
+            }
+            if (mCallback != null) {
+                mCallback.onCarrierConfigChanged(subId);
+            }
+        } else if (mCallback != null) {
+            mCallback.onCarrierConfigChanged(SubscriptionManager.INVALID_SUBSCRIPTION_ID);
         }
     }
 }
@@ -21,6 +21,7 @@ import static androidx.lifecycle.Lifecycle.Event.ON_START;
 import static androidx.lifecycle.Lifecycle.Event.ON_STOP;
 
 import android.content.Context;
+import android.os.LocaleList;
 import android.os.Looper;
 import android.provider.Settings;
 import android.telephony.SubscriptionInfo;
@@ -80,8 +81,22 @@ public class ProxySubscriptionManager implements LifecycleObserver {
         return sSingleton;
     }
 
+    /**
+     * Get proxy instance to subscription manager, if it has been created
+     *
+     * @return proxy to subscription manager, or null
+     */
+    static ProxySubscriptionManager peekInstance() {
+        return sSingleton;
+    }
+
     private static ProxySubscriptionManager sSingleton;
 
+    @VisibleForTesting
+    static void setInstanceForTesting(ProxySubscriptionManager proxy) {
+        sSingleton = proxy;
+    }
+
     private ProxySubscriptionManager(Context context) {
         final Looper looper = context.getMainLooper();
 
@@ -114,10 +129,13 @@ public class ProxySubscriptionManager implements LifecycleObserver {
 
         mSubscriptionMonitor = activeSubscriptionsListener;
         mAirplaneModeMonitor = airplaneModeOnSettingsChangeListener;
+        mContext = context;
 
         mSubscriptionMonitor.start();
+        setMonitoring(true);
     }
 
+    private Context mContext;
     private Lifecycle mLifecycle;
     private ActiveSubscriptionsListener mSubscriptionMonitor;
     private GlobalSettingsChangeListener mAirplaneModeMonitor;
@@ -125,9 +143,16 @@ public class ProxySubscriptionManager implements LifecycleObserver {
     private List<OnActiveSubscriptionChangedListener> mActiveSubscriptionsListeners;
     private List<OnActiveSubscriptionChangedListener> mPendingNotifyListeners;
 
+    // Topology is only kept while changes are monitored, and dropped on each change.
+    private boolean mIsMonitoring;
+    private int mTopologyGeneration;
+    private volatile SubscriptionTopology mTopology;
+
     @Keep
     @VisibleForTesting
     protected void notifySubscriptionInfoMightChanged() {
+        invalidateTopology();
+
         // create a merged list for processing all listeners
         List<OnActiveSubscriptionChangedListener> listeners =
                 new ArrayList<OnActiveSubscriptionChangedListener>(mPendingNotifyListeners);
@@ -160,6 +185,7 @@ public class ProxySubscriptionManager implements LifecycleObserver {
     @OnLifecycleEvent(ON_START)
     void onStart() {
         mSubscriptionMonitor.start();
+        setMonitoring(true);
 
         // callback notify those listener(s) which back to active state
         List<OnActiveSubscriptionChangedListener> listeners = mPendingNotifyListeners;
@@ -170,12 +196,14 @@ public class ProxySubscriptionManager implements LifecycleObserver {
     @OnLifecycleEvent(ON_STOP)
     void onStop() {
         mSubscriptionMonitor.stop();
+        setMonitoring(false);
     }
 
     @OnLifecycleEvent(ON_DESTROY)
     void onDestroy() {
         mSubscriptionMonitor.close();
         mAirplaneModeMonitor.close();
+        setMonitoring(false);
 
         if (mLifecycle != null) {
             mLifecycle.removeObserver(this);
@@ -241,11 +269,50 @@ public class ProxySubscriptionManager implements LifecycleObserver {
         return mSubscriptionMonitor.getAccessibleSubscriptionInfo(subId);
     }
 
+    /**
+     * Get the topology of subscriptions, which is only built once per change of the
+     * subscriptions, slots or carrier configs
+     *
+     * @return topology of subscriptions
+     */
+    public SubscriptionTopology getSubscriptionTopology() {
+        final LocaleList locales = mContext.getResources().getConfiguration().getLocales();
+        final SubscriptionTopology cachedTopology = mTopology;
+        if ((cachedTopology != null) && cachedTopology.isBuiltFor(locales)) {
+            return cachedTopology;
+        }
+
+        final int generation;
+        synchronized (this) {
+            generation = mTopologyGeneration;
+        }
+        final SubscriptionTopology topology = SubscriptionTopology.create(mContext,
+                getActiveSubscriptionsInfo());
+        synchronized (this) {
+            // keep it only when no change happened while building it
+            if (mIsMonitoring && (generation == mTopologyGeneration)) {
+                mTopology = topology;
+            }
+        }
+        return topology;
+    }
+
     /**
      * Clear data cached within proxy
      */
     public void clearCache() {
         mSubscriptionMonitor.clearCache();
+        invalidateTopology();
+    }
+
+    private synchronized void setMonitoring(boolean isMonitoring) {
+        mIsMonitoring = isMonitoring;
+        invalidateTopology();
+    }
+
+    private synchronized void invalidateTopology() {
+        mTopologyGeneration++;
+        mTopology = null;
     }
 
     /**
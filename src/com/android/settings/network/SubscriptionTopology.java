@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network;
+
+import android.annotation.Nullable;
+import android.content.Context;
+import android.os.LocaleList;
+import android.os.ParcelUuid;
+import android.telephony.SubscriptionInfo;
+import android.telephony.SubscriptionManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable snapshot of the subscriptions of the device, as displayed by Settings.
+ *
+ * <p>It is built by {@link ProxySubscriptionManager} once per change of the subscriptions, so
+ * that the controllers of a page don't rebuild the same lists for each of them.
+ */
+public class SubscriptionTopology {
+
+    private final List<SubscriptionInfo> mActiveSubscriptions;
+    private final List<SubscriptionInfo> mAvailableSubscriptions;
+    private final List<SubscriptionInfo> mSelectableSubscriptions;
+    private final Map<ParcelUuid, List<SubscriptionInfo>> mGroups;
+    private final Map<Integer, CharSequence> mUniqueDisplayNames;
+    private final LocaleList mLocales;
+
+    /**
+     * Build the topology of the subscriptions currently known by {@link SubscriptionManager}.
+     *
+     * @param context {@code Context}
+     * @param activeSubscriptions the active subscriptions, which may come from a cache
+     * @return the topology of the subscriptions
+     */
+    public static SubscriptionTopology create(Context context,
+            @Nullable List<SubscriptionInfo> activeSubscriptions) {
+        final SubscriptionManager subManager = context.getSystemService(SubscriptionManager.class);
+        final List<SubscriptionInfo> availableSubscriptions =
+                subManager.getAvailableSubscriptionInfoList();
+        final List<SubscriptionInfo> selectableSubscriptions =
+                SubscriptionUtil.getSelectableSubscriptionInfoList(context, subManager,
+                        availableSubscriptions);
+
+        final Map<ParcelUuid, List<SubscriptionInfo>> groups = new HashMap<>();
+        if (availableSubscriptions != null) {
+            for (SubscriptionInfo info : availableSubscriptions) {
+                final ParcelUuid groupUuid = (info == null) ? null : info.getGroupUuid();
+                if (groupUuid != null) {
+                    groups.computeIfAbsent(groupUuid, uuid -> new ArrayList<>()).add(info);
+                }
+            }
+        }
+
+        final Map<Integer, CharSequence> uniqueDisplayNames =
+                SubscriptionUtil.getUniqueSubscriptionDisplayNames(context,
+                        (selectableSubscriptions == null)
+                                ? Collections.emptyList() : selectableSubscriptions);
+
+        return new SubscriptionTopology(activeSubscriptions, availableSubscriptions,
+                selectableSubscriptions, groups, uniqueDisplayNames,
+                context.getResources().getConfiguration().getLocales());
+    }
+
+    private SubscriptionTopology(List<SubscriptionInfo> activeSubscriptions,
+            List<SubscriptionInfo> availableSubscriptions,
+            List<SubscriptionInfo> selectableSubscriptions,
+            Map<ParcelUuid, List<SubscriptionInfo>> groups,
+            Map<Integer, CharSequence> uniqueDisplayNames, LocaleList locales) {
+        mActiveSubscriptions = unmodifiableCopy(activeSubscriptions);
+        mAvailableSubscriptions = unmodifiableCopy(availableSubscriptions);
+        mSelectableSubscriptions = unmodifiableCopy(selectableSubscriptions);
+        final Map<ParcelUuid, List<SubscriptionInfo>> unmodifiableGroups = new HashMap<>();
+        for (Map.Entry<ParcelUuid, List<SubscriptionInfo>> entry : groups.entrySet()) {
+            unmodifiableGroups.put(entry.getKey(), unmodifiableCopy(entry.getValue()));
+        }
+        mGroups = Collections.unmodifiableMap(unmodifiableGroups);
+        mUniqueDisplayNames = Collections.unmodifiableMap(new HashMap<>(uniqueDisplayNames));
+        mLocales = locales;
+    }
+
+    /**
+     * Get the active subscriptions.
+     *
+     * @return list of {@code SubscriptionInfo}, null when unknown
+     */
+    @Nullable
+    public List<SubscriptionInfo> getActiveSubscriptions() {
+        return mActiveSubscriptions;
+    }
+
+    /**
+     * Get the subscriptions accessible by Settings, including the hidden ones.
+     *
+     * @return list of {@code SubscriptionInfo}, null when unknown
+     */
+    @Nullable
+    public List<SubscriptionInfo> getAvailableSubscriptions() {
+        return mAvailableSubscriptions;
+    }
+
+    /**
+     * Get the subscriptions selectable by the user, see
+     * {@link SubscriptionUtil#getSelectableSubscriptionInfoList(Context)}.
+     *
+     * @return list of {@code SubscriptionInfo}, null when unknown
+     */
+    @Nullable
+    public List<SubscriptionInfo> getSelectableSubscriptions() {
+        return mSelectableSubscriptions;
+    }
+
+    /**
+     * Get the available subscriptions within a group.
+     *
+     * @param groupUuid UUID of the group
+     * @return list of {@code SubscriptionInfo}, empty if no subscription is in the group
+     */
+    public List<SubscriptionInfo> getSubscriptionsInGroup(ParcelUuid groupUuid) {
+        final List<SubscriptionInfo> group = mGroups.get(groupUuid);
+        return (group == null) ? Collections.emptyList() : group;
+    }
+
+    /**
+     * Get the unique display names of the selectable subscriptions, see
+     * {@link SubscriptionUtil#getUniqueSubscriptionDisplayNames(Context)}.
+     *
+     * @return map of subscription ids to display names
+     */
+    public Map<Integer, CharSequence> getUniqueDisplayNames() {
+        return mUniqueDisplayNames;
+    }
+
+    /**
+     * Whether the display names of this topology have been resolved in the given locales.
+     */
+    boolean isBuiltFor(LocaleList locales) {
+        return mLocales == null ? locales == null : mLocales.equals(locales);
+    }
+
+    private static List<SubscriptionInfo> unmodifiableCopy(List<SubscriptionInfo> list) {
+        return (list == null) ? null : Collections.unmodifiableList(new ArrayList<>(list));
+    }
+}
@@ -101,9 +101,34 @@ public class SubscriptionUtil {
         if (sAvailableResultsForTesting != null) {
             return sAvailableResultsForTesting;
         }
+        final SubscriptionTopology topology = getCachedTopology(context);
+        if (topology != null) {
+            return new ArrayList<>(emptyIfNull(topology.getSelectableSubscriptions()));
+        }
         return new ArrayList<>(emptyIfNull(getSelectableSubscriptionInfoList(context)));
     }
 
+    /**
+     * Get the subscription topology cached by {@link ProxySubscriptionManager}, if it has been
+     * created for the same {@link SubscriptionManager} as the application context of
+     * {@code context}. The proxy is created with the application context, and each context has
+     * its own {@link SubscriptionManager}.
+     */
+    @Nullable
+    private static SubscriptionTopology getCachedTopology(Context context) {
+        final ProxySubscriptionManager proxy = ProxySubscriptionManager.peekInstance();
+        if (proxy == null) {
+            return null;
+        }
+        final Context appContext = context.getApplicationContext();
+        final SubscriptionManager subManager = (appContext == null)
+                ? null : appContext.getSystemService(SubscriptionManager.class);
+        if ((subManager == null) || (proxy.get() != subManager)) {
+            return null;
+        }
+        return proxy.getSubscriptionTopology();
+    }
+
     /**
      * Get subscription which is available to be displayed to the user
      * per subscription id.
@@ -241,6 +266,21 @@ public class SubscriptionUtil {
      */
     @VisibleForTesting
     public static Map<Integer, CharSequence> getUniqueSubscriptionDisplayNames(Context context) {
+        if (sAvailableResultsForTesting == null) {
+            final SubscriptionTopology topology = getCachedTopology(context);
+            if (topology != null) {
+                return new HashMap<>(topology.getUniqueDisplayNames());
+            }
+        }
+        return getUniqueSubscriptionDisplayNames(context, getAvailableSubscriptions(context));
+    }
+
+    /**
+     * Same as {@link #getUniqueSubscriptionDisplayNames(Context)}, for the given available
+     * subscriptions.
+     */
+    static Map<Integer, CharSequence> getUniqueSubscriptionDisplayNames(Context context,
+            List<SubscriptionInfo> availableSubscriptions) {
         class DisplayInfo {
             public SubscriptionInfo subscriptionInfo;
             public CharSequence originalName;
@@ -249,7 +289,7 @@ public class SubscriptionUtil {
 
         // Map of SubscriptionId to DisplayName
         final Supplier<Stream<DisplayInfo>> originalInfos =
-                () -> getAvailableSubscriptions(context)
+                () -> availableSubscriptions
                 .stream()
                 .filter(i -> {
                     // Filter out null values.
@@ -393,7 +433,16 @@ public class SubscriptionUtil {
      */
     public static List<SubscriptionInfo> getSelectableSubscriptionInfoList(Context context) {
         SubscriptionManager subManager = context.getSystemService(SubscriptionManager.class);
-        List<SubscriptionInfo> availableList = subManager.getAvailableSubscriptionInfoList();
+        return getSelectableSubscriptionInfoList(context, subManager,
+                subManager.getAvailableSubscriptionInfoList());
+    }
+
+    /**
+     * Same as {@link #getSelectableSubscriptionInfoList(Context)}, out of the given available
+     * subscriptions.
+     */
+    static List<SubscriptionInfo> getSelectableSubscriptionInfoList(Context context,
+            SubscriptionManager subManager, List<SubscriptionInfo> availableList) {
         if (availableList == null) {
             return null;
         } else {
@@ -19,11 +19,15 @@ package com.android.settings.network;
 import android.content.Context;
 import android.text.BidiFormatter;
 
+import androidx.preference.Preference;
+
 import com.android.settings.R;
 import com.android.settings.Utils;
+import com.android.settings.core.BackgroundStateController;
 import com.android.settings.core.BasePreferenceController;
 
-public class TopLevelNetworkEntryPreferenceController extends BasePreferenceController {
+public class TopLevelNetworkEntryPreferenceController extends BasePreferenceController implements
+        BackgroundStateController<CharSequence> {
 
     private final MobileNetworkPreferenceController mMobileNetworkPreferenceController;
 
@@ -47,4 +51,14 @@ public class TopLevelNetworkEntryPreferenceController extends BasePreferenceCont
                     .unicodeWrap(mContext.getString(R.string.network_dashboard_summary_no_mobile));
         }
     }
+
+    @Override
+    public CharSequence loadStateInBackground() {
+        return getSummary();
+    }
+
+    @Override
+    public void applyState(Preference preference, CharSequence summary) {
+        preference.setSummary(summary);
+    }
 }
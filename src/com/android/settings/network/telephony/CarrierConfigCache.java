@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network.telephony;
+
+import android.content.Context;
+import android.os.PersistableBundle;
+import android.telephony.CarrierConfigManager;
+import android.telephony.SubscriptionManager;
+import android.util.Log;
+import android.util.SparseArray;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settings.core.SettingsExecutors;
+import com.android.settings.network.CarrierConfigChangedReceiver;
+
+/**
+ * Caches the carrier config of each subscription while a screen showing them is alive, to avoid
+ * a Binder call returning the whole config for each controller reading it.
+ *
+ * <p>Configs are only cached between {@link #acquire(Context)} and {@link #release(Context)},
+ * since {@link CarrierConfigManager#ACTION_CARRIER_CONFIG_CHANGED} is only listened to in the
+ * meantime. Otherwise the methods of this class go straight to {@link CarrierConfigManager}.
+ */
+public class CarrierConfigCache {
+
+    private static final String TAG = "CarrierConfigCache";
+
+    private static final Object sLock = new Object();
+    private static final SparseArray<PersistableBundle> sConfigs = new SparseArray<>();
+    private static int sHolderCount;
+    // Bumped on each invalidation, so configs fetched before aren't cached.
+    private static int sGeneration;
+    private static CarrierConfigChangedReceiver sReceiver;
+    private static Context sReceiverContext;
+
+    private CarrierConfigCache() {
+    }
+
+    /**
+     * Starts caching the carrier configs, until {@link #release(Context)}. Calls are counted, so
+     * every call must be paired with a call to {@link #release(Context)}.
+     */
+    public static void acquire(Context context) {
+        synchronized (sLock) {
+            if (sHolderCount++ > 0) {
+                return;
+            }
+            sReceiverContext = getApplicationContext(context);
+            sReceiver = new CarrierConfigChangedReceiver(CarrierConfigCache::invalidate);
+            sReceiver.registerOn(sReceiverContext);
+        }
+    }
+
+    /**
+     * Stops caching the carrier configs once every {@link #acquire(Context)} is released.
+     */
+    public static void release(Context context) {
+        synchronized (sLock) {
+            if (sHolderCount == 0 || --sHolderCount > 0) {
+                return;
+            }
+            sReceiver.unregisterFrom(sReceiverContext);
+            sReceiver = null;
+            sReceiverContext = null;
+            clearLocked();
+        }
+    }
+
+    /**
+     * Loads the carrier configs of all active subscriptions in the background, if they are
+     * cached.
+     */
+    public static void prefetchActiveSubscriptions(Context context) {
+        if (!isCaching()) {
+            return;
+        }
+        final Context appContext = getApplicationContext(context);
+        SettingsExecutors.getInstance().execute(SettingsExecutors.LANE_PREFETCH,
+                SettingsExecutors.PRIORITY_DEFAULT, () -> {
+                    final SubscriptionManager subscriptionManager =
+                            appContext.getSystemService(SubscriptionManager.class);
+                    if (subscriptionManager == null) {
+                        return;
+                    }
+                    for (int subId : subscriptionManager.getActiveSubscriptionIdList()) {
+                        getConfigForSubId(appContext, subId);
+                    }
+                });
+    }
+
+    /**
+     * Same as {@link CarrierConfigManager#getConfigForSubId(int)}.
+     */
+    public static PersistableBundle getConfigForSubId(Context context, int subId) {
+        return getConfigForSubId(context.getSystemService(CarrierConfigManager.class), subId);
+    }
+
+    /**
+     * Same as {@link CarrierConfigManager#getConfigForSubId(int)}, for callers holding a
+     * {@link CarrierConfigManager} already.
+     */
+    public static PersistableBundle getConfigForSubId(CarrierConfigManager manager, int subId) {
+        final int generation;
+        synchronized (sLock) {
+            if (sHolderCount > 0) {
+                final PersistableBundle config = sConfigs.get(subId);
+                if (config != null) {
+                    return config;
+                }
+            }
+            generation = sGeneration;
+        }
+        if (manager == null) {
+            return null;
+        }
+        final PersistableBundle config = manager.getConfigForSubId(subId);
+        synchronized (sLock) {
+            // Don't cache a config which may have changed while it was fetched.
+            if (config != null && sHolderCount > 0 && generation == sGeneration) {
+                sConfigs.put(subId, config);
+            }
+        }
+        return config;
+    }
+
+    /**
+     * @return the boolean value of {@code key} in the config of {@code subId}, or
+     * {@code defaultValue} if the config isn't available.
+     */
+    public static boolean getBoolean(Context context, int subId, String key,
+            boolean defaultValue) {
+        final PersistableBundle config = getConfigForSubId(context, subId);
+        return config != null ? config.getBoolean(key, defaultValue) : defaultValue;
+    }
+
+    /**
+     * @return the int value of {@code key} in the config of {@code subId}, or
+     * {@code defaultValue} if the config isn't available.
+     */
+    public static int getInt(Context context, int subId, String key, int defaultValue) {
+        final PersistableBundle config = getConfigForSubId(context, subId);
+        return config != null ? config.getInt(key, defaultValue) : defaultValue;
+    }
+
+    /**
+     * @return the string value of {@code key} in the config of {@code subId}, or {@code null}
+     * if the config isn't available.
+     */
+    public static String getString(Context context, int subId, String key) {
+        final PersistableBundle config = getConfigForSubId(context, subId);
+        return config != null ? config.getString(key) : null;
+    }
+
+    /**
+     * Drops the cached config of {@code subId}, or all of them if it is invalid.
+     */
+    @VisibleForTesting
+    static void invalidate(int subId) {
+        synchronized (sLock) {
+            sGeneration++;
+            if (SubscriptionManager.isValidSubscriptionId(subId)) {
+                sConfigs.remove(subId);
+                // The config of invalid subscriptions is the default one, which may depend on it.
+                sConfigs.remove(SubscriptionManager.INVALID_SUBSCRIPTION_ID);
+            } else {
+                sConfigs.clear();
+            }
+            Log.d(TAG, "invalidate subId: " + subId);
+        }
+    }
+
+    @VisibleForTesting
+    static boolean isCaching() {
+        synchronized (sLock) {
+            return sHolderCount > 0;
+        }
+    }
+
+    private static void clearLocked() {
+        sGeneration++;
+        sConfigs.clear();
+    }
+
+    private static Context getApplicationContext(Context context) {
+        final Context appContext = context.getApplicationContext();
+        return appContext != null ? appContext : context;
+    }
+}
@@ -41,7 +41,8 @@ public class CarrierSettingsVersionPreferenceController extends BasePreferenceCo
 
     @Override
     public CharSequence getSummary() {
-        final PersistableBundle config = mManager.getConfigForSubId(mSubscriptionId);
+        final PersistableBundle config =
+                CarrierConfigCache.getConfigForSubId(mManager, mSubscriptionId);
         if (config == null) {
             return null;
         }
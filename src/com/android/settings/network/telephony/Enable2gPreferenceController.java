@@ -70,7 +70,8 @@ public class Enable2gPreferenceController extends TelephonyTogglePreferenceContr
 
     @Override
     public int getAvailabilityStatus(int subId) {
-        final PersistableBundle carrierConfig = mCarrierConfigManager.getConfigForSubId(subId);
+        final PersistableBundle carrierConfig =
+                CarrierConfigCache.getConfigForSubId(mCarrierConfigManager, subId);
         if (mTelephonyManager == null) {
             Log.w(LOG_TAG, "Telephony manager not yet initialized");
             mTelephonyManager = mContext.getSystemService(TelephonyManager.class);
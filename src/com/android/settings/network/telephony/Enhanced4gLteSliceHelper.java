@@ -257,7 +257,7 @@ public class Enhanced4gLteSliceHelper {
         final CarrierConfigManager configManager = getCarrierConfigManager();
         PersistableBundle bundle = null;
         if (configManager != null) {
-            bundle = configManager.getConfigForSubId(subId);
+            bundle = CarrierConfigCache.getConfigForSubId(configManager, subId);
         }
         return bundle;
     }
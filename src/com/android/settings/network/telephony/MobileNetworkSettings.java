@@ -130,6 +130,9 @@ public class MobileNetworkSettings extends AbstractMobileNetworkSettings {
 
     @Override
     public void onAttach(Context context) {
+        // Controllers read the carrier config over and over while the page is shown.
+        CarrierConfigCache.acquire(context);
+        CarrierConfigCache.prefetchActiveSubscriptions(context);
         super.onAttach(context);
 
         final DataUsageSummaryPreferenceController dataUsageSummaryPreferenceController =
@@ -257,6 +260,12 @@ public class MobileNetworkSettings extends AbstractMobileNetworkSettings {
         super.onDestroy();
     }
 
+    @Override
+    public void onDetach() {
+        CarrierConfigCache.release(getContext());
+        super.onDetach();
+    }
+
     @VisibleForTesting
     void onRestoreInstance(Bundle icicle) {
         if (icicle != null) {
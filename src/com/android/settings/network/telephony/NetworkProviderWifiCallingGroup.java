@@ -274,7 +274,7 @@ public class NetworkProviderWifiCallingGroup extends
         boolean isWifiCallingAvailableForCarrier = false;
         if (mCarrierConfigManager != null) {
             final PersistableBundle carrierConfig =
-                    mCarrierConfigManager.getConfigForSubId(subId);
+                    CarrierConfigCache.getConfigForSubId(mCarrierConfigManager, subId);
             if (carrierConfig != null) {
                 isWifiCallingAvailableForCarrier = carrierConfig.getBoolean(
                         CarrierConfigManager.KEY_CARRIER_WFC_IMS_AVAILABLE_BOOL);
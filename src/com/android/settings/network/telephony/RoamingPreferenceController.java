@@ -135,8 +135,8 @@ public class RoamingPreferenceController extends TelephonyTogglePreferenceContro
     @VisibleForTesting
     boolean isDialogNeeded() {
         final boolean isRoamingEnabled = mTelephonyManager.isDataRoamingEnabled();
-        final PersistableBundle carrierConfig = mCarrierConfigManager.getConfigForSubId(
-                mSubId);
+        final PersistableBundle carrierConfig =
+                CarrierConfigCache.getConfigForSubId(mCarrierConfigManager, mSubId);
 
         // Need dialog if we need to turn on roaming and the roaming charge indication is allowed
         if (!isRoamingEnabled && (carrierConfig == null || !carrierConfig.getBoolean(
@@ -73,7 +73,7 @@ public abstract class TelephonyBasePreferenceController extends BasePreferenceCo
         }
         final CarrierConfigManager carrierConfigMgr =
                 mContext.getSystemService(CarrierConfigManager.class);
-        return carrierConfigMgr.getConfigForSubId(subId);
+        return CarrierConfigCache.getConfigForSubId(carrierConfigMgr, subId);
     }
 
     /**
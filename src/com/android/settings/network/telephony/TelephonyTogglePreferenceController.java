@@ -84,7 +84,7 @@ public abstract class TelephonyTogglePreferenceController extends TogglePreferen
         }
         final CarrierConfigManager carrierConfigMgr =
                 mContext.getSystemService(CarrierConfigManager.class);
-        return carrierConfigMgr.getConfigForSubId(subId);
+        return CarrierConfigCache.getConfigForSubId(carrierConfigMgr, subId);
     }
 
     /**
@@ -152,7 +152,8 @@ public class VideoCallingPreferenceController extends TelephonyTogglePreferenceC
             }
         }
 
-        final PersistableBundle carrierConfig = mCarrierConfigManager.getConfigForSubId(subId);
+        final PersistableBundle carrierConfig =
+                CarrierConfigCache.getConfigForSubId(mCarrierConfigManager, subId);
         if (carrierConfig == null) {
             return false;
         }
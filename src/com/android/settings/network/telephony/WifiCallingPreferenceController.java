@@ -132,7 +132,7 @@ public class WifiCallingPreferenceController extends TelephonyBasePreferenceCont
             boolean useWfcHomeModeForRoaming = false;
             if (mCarrierConfigManager != null) {
                 final PersistableBundle carrierConfig =
-                        mCarrierConfigManager.getConfigForSubId(subId);
+                        CarrierConfigCache.getConfigForSubId(mCarrierConfigManager, subId);
                 if (carrierConfig != null) {
                     useWfcHomeModeForRoaming = carrierConfig.getBoolean(
                             CarrierConfigManager
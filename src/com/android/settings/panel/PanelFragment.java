@@ -104,6 +104,7 @@ public class PanelFragment extends Fragment {
     private ProgressBar mProgressBar;
 
     private final Map<Uri, LiveData<Slice>> mSliceLiveData = new LinkedHashMap<>();
+    private PanelSliceCache.PanelState mPanelState;
 
     @VisibleForTesting
     PanelSlicesLoaderCountdownLatch mPanelSlicesLoaderCountdownLatch;
@@ -161,6 +162,7 @@ public class PanelFragment extends Fragment {
      */
     void updatePanelWithAnimation() {
         mPanelCreating = true;
+        savePanelState();
         final View panelContent = mLayoutView.findViewById(R.id.panel_container);
         final AnimatorSet animatorSet = buildAnimatorSet(mLayoutView,
                 0.0f /* startY */, panelContent.getHeight() /* endY */,
@@ -226,6 +228,9 @@ public class PanelFragment extends Fragment {
             activity.finish();
             return;
         }
+        mPanelState = SettingsPanelActivity.getSliceCache().getPanelState(
+                arguments.getString(SettingsPanelActivity.KEY_PANEL_TYPE_ARGUMENT),
+                activity.getResources().getConfiguration());
 
         mPanel.registerCallback(new LocalPanelCallback());
         if (mPanel instanceof LifecycleObserver) {
@@ -325,6 +330,7 @@ public class PanelFragment extends Fragment {
 
     private void loadAllSlices() {
         mSliceLiveData.clear();
+        mAdapter = null;
         final List<Uri> sliceUris = mPanel.getSlices();
         mPanelSlicesLoaderCountdownLatch = new PanelSlicesLoaderCountdownLatch(sliceUris.size());
 
@@ -332,7 +338,7 @@ public class PanelFragment extends Fragment {
             final LiveData<Slice> sliceLiveData = SliceLiveData.fromUri(getActivity(), uri,
                     (int type, Throwable source)-> {
                             removeSliceLiveData(uri);
-                            mPanelSlicesLoaderCountdownLatch.markSliceLoaded(uri);
+                            onSliceLoaded(uri);
                     });
 
             // Add slice first to make it in order.  Will remove it later if there's an error.
@@ -351,31 +357,49 @@ public class PanelFragment extends Fragment {
                  *     uri is not in the allowlist, remove the Slice data from the list, otherwise
                  *     keep the Slice data.
                  * <p>
-                 *     If the Slice has come back fully loaded, then mark the Slice as loaded.  No
-                 *     other actions required since we already have the Slice data in the list.
+                 *     If the Slice has come back with any content, even partially loaded, then
+                 *     mark the Slice as loaded so that it is shown right away.  No other actions
+                 *     required since we already have the Slice data in the list.
                  * <p>
-                 *     If the Slice does not match the above condition, we will still want to mark
-                 *     it as loaded after 250ms timeout to avoid delay showing up the panel for
-                 *     too long.  Since we are still having the Slice data in the list, the Slice
-                 *     will show up later once it is loaded.
+                 *     If the Slice is still empty, we will still want to mark it as loaded after
+                 *     250ms timeout to avoid delay showing up the panel for too long.  Since we
+                 *     are still having the Slice data in the list, the Slice will show up later
+                 *     once it is loaded.
                  */
                 final SliceMetadata metadata = SliceMetadata.from(getActivity(), slice);
                 if (slice == null || metadata.isErrorSlice()) {
                     removeSliceLiveData(uri);
-                    mPanelSlicesLoaderCountdownLatch.markSliceLoaded(uri);
-                } else if (metadata.getLoadingState() == SliceMetadata.LOADED_ALL) {
-                    mPanelSlicesLoaderCountdownLatch.markSliceLoaded(uri);
+                    mPanelState.putSlice(uri, null);
+                    onSliceLoaded(uri);
+                } else if (metadata.getLoadingState() != SliceMetadata.LOADED_NONE) {
+                    onSliceLoaded(uri);
                 } else {
                     Handler handler = new Handler();
                     handler.postDelayed(() -> {
-                        mPanelSlicesLoaderCountdownLatch.markSliceLoaded(uri);
-                        loadPanelWhenReady();
+                        if (!mPanelSlicesLoaderCountdownLatch.isSliceLoaded(uri)) {
+                            onSliceLoaded(uri);
+                        }
                     }, DURATION_SLICE_BINDING_TIMEOUT_MS);
                 }
-
-                loadPanelWhenReady();
             });
         }
+
+        // The panel may be shown right away with the slices cached from the last time.
+        loadPanelWhenReady();
+    }
+
+    private void onSliceLoaded(Uri uri) {
+        final boolean isFirstLoad = !mPanelSlicesLoaderCountdownLatch.isSliceLoaded(uri);
+        mPanelSlicesLoaderCountdownLatch.markSliceLoaded(uri);
+        if (mAdapter == null) {
+            loadPanelWhenReady();
+        } else if (!mSliceLiveData.containsKey(uri)) {
+            mAdapter.removeSlice(uri);
+        } else if (isFirstLoad) {
+            // The panel is already shown with the cached Slice, the row observes the later
+            // updates itself.
+            mAdapter.notifySliceLoaded(uri);
+        }
     }
 
     private void removeSliceLiveData(Uri uri) {
@@ -388,14 +412,14 @@ public class PanelFragment extends Fragment {
     }
 
     /**
-     * When all of the Slices have loaded for the first time, then we can setup the
-     * {@link RecyclerView}.
+     * When each of the Slices has either loaded for the first time or been cached from the last
+     * time the panel was shown, then we can setup the {@link RecyclerView}.
      * <p>
      * When the Recyclerview has been laid out, we can begin the animation with the
      * {@link mOnGlobalLayoutListener}, which calls {@link #animateIn()}.
      */
     private void loadPanelWhenReady() {
-        if (mPanelSlicesLoaderCountdownLatch.isPanelReadyToLoad()) {
+        if (mAdapter == null && isPanelReadyToLoad()) {
             mAdapter = new PanelSlicesAdapter(
                     this, mSliceLiveData, mPanel.getMetricsCategory());
             mPanelSlices.setAdapter(mAdapter);
@@ -416,6 +440,46 @@ public class PanelFragment extends Fragment {
         }
     }
 
+    private boolean isPanelReadyToLoad() {
+        if (mPanelSlicesLoaderCountdownLatch.isPanelReadyToLoad()) {
+            return true;
+        }
+        for (Uri uri : mSliceLiveData.keySet()) {
+            if (!mPanelSlicesLoaderCountdownLatch.isSliceLoaded(uri)
+                    && mPanelState.getSlice(uri) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Saves the Slices shown and the height of their rows, to show them right away the next
+     * time this panel is shown.
+     */
+    private void savePanelState() {
+        if (mPanelState == null || mAdapter == null || mPanelSlices == null) {
+            return;
+        }
+        for (Map.Entry<Uri, LiveData<Slice>> entry : mSliceLiveData.entrySet()) {
+            final Slice slice = entry.getValue().getValue();
+            if (slice != null) {
+                mPanelState.putSlice(entry.getKey(), slice);
+            }
+        }
+        for (int i = 0; i < mPanelSlices.getChildCount(); i++) {
+            final View child = mPanelSlices.getChildAt(i);
+            final int position = mPanelSlices.getChildAdapterPosition(child);
+            if (position != RecyclerView.NO_POSITION && child.getHeight() > 0) {
+                mPanelState.putHeight(mAdapter.getSliceUri(position), child.getHeight());
+            }
+        }
+    }
+
+    PanelSliceCache.PanelState getPanelState() {
+        return mPanelState;
+    }
+
     /**
      * Animate a Panel onto the screen.
      * <p>
@@ -458,6 +522,7 @@ public class PanelFragment extends Fragment {
 
     @Override
     public void onDestroyView() {
+        savePanelState();
         super.onDestroyView();
 
         if (TextUtils.isEmpty(mPanelClosedKey)) {
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.panel;
+
+import android.content.res.Configuration;
+import android.net.Uri;
+import android.util.ArrayMap;
+import android.util.LruCache;
+
+import androidx.slice.Slice;
+
+import java.util.Map;
+
+/**
+ * Keeps the last {@link Slice}s and row heights of the recently shown panels, so that a panel
+ * shown again can be displayed right away while its slices are loaded.
+ *
+ * <p>The state is kept per configuration, since the text and the height of the rows depend on
+ * e.g. the locale, the font size and the screen width.
+ */
+class PanelSliceCache {
+
+    /** Number of panel states kept, e.g. Internet, Volume, NFC and Wi-Fi in two orientations. */
+    private static final int MAX_PANELS = 8;
+
+    private final LruCache<String, PanelState> mPanels = new LruCache<>(MAX_PANELS);
+
+    /** The cached state of one panel type. */
+    static class PanelState {
+        private final Map<Uri, Slice> mSlices = new ArrayMap<>();
+        private final Map<Uri, Integer> mHeights = new ArrayMap<>();
+
+        /** Returns the last slice shown for {@code uri}, or null if unknown. */
+        synchronized Slice getSlice(Uri uri) {
+            return mSlices.get(uri);
+        }
+
+        /** Saves the slice shown for {@code uri}, or forgets it if {@code slice} is null. */
+        synchronized void putSlice(Uri uri, Slice slice) {
+            if (slice == null) {
+                mSlices.remove(uri);
+            } else {
+                mSlices.put(uri, slice);
+            }
+        }
+
+        /** Returns the last height of the row of {@code uri} in pixels, or 0 if unknown. */
+        synchronized int getHeight(Uri uri) {
+            final Integer height = mHeights.get(uri);
+            return height == null ? 0 : height;
+        }
+
+        synchronized void putHeight(Uri uri, int height) {
+            mHeights.put(uri, height);
+        }
+    }
+
+    /**
+     * Returns the state of the panel {@code panelType} shown with {@code config}, created empty
+     * if not cached.
+     */
+    synchronized PanelState getPanelState(String panelType, Configuration config) {
+        final String key = (panelType == null ? "" : panelType) + "|" + getConfigKey(config);
+        PanelState state = mPanels.get(key);
+        if (state == null) {
+            state = new PanelState();
+            mPanels.put(key, state);
+        }
+        return state;
+    }
+
+    private static String getConfigKey(Configuration config) {
+        return config.getLocales().toLanguageTags()
+                + "|" + config.fontScale
+                + "|" + config.densityDpi
+                + "|" + config.screenWidthDp
+                + "|" + (config.uiMode & Configuration.UI_MODE_NIGHT_MASK);
+    }
+}
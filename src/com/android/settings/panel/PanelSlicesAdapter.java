@@ -23,6 +23,7 @@ import android.app.settings.SettingsEnums;
 import android.content.Context;
 import android.net.Uri;
 import android.view.LayoutInflater;
+import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.LinearLayout;
@@ -56,15 +57,67 @@ public class PanelSlicesAdapter
     @VisibleForTesting
     static final int MAX_NUM_OF_SLICES = 6;
 
-    private final List<LiveData<Slice>> mSliceLiveData;
+    private final List<Uri> mSliceUris = new ArrayList<>();
+    private final List<LiveData<Slice>> mSliceLiveData = new ArrayList<>();
     private final int mMetricsCategory;
     private final PanelFragment mPanelFragment;
 
+    /**
+     * Drops the touches on the Slices of the last time, which are only shown until the Slices
+     * are loaded, since their actions may be outdated.
+     */
+    @VisibleForTesting
+    final RecyclerView.OnItemTouchListener mCachedSliceTouchListener =
+            new RecyclerView.SimpleOnItemTouchListener() {
+                @Override
+                public boolean onInterceptTouchEvent(@NonNull RecyclerView recyclerView,
+                        @NonNull MotionEvent event) {
+                    final View child = recyclerView.findChildViewUnder(event.getX(), event.getY());
+                    if (child == null) {
+                        return false;
+                    }
+                    final RecyclerView.ViewHolder holder = recyclerView.getChildViewHolder(child);
+                    return holder instanceof SliceRowViewHolder
+                            && !((SliceRowViewHolder) holder).isSliceLoaded();
+                }
+            };
+
     public PanelSlicesAdapter(
             PanelFragment fragment, Map<Uri, LiveData<Slice>> sliceLiveData, int metricsCategory) {
         mPanelFragment = fragment;
-        mSliceLiveData = new ArrayList<>(sliceLiveData.values());
         mMetricsCategory = metricsCategory;
+        mSliceUris.addAll(sliceLiveData.keySet());
+        mSliceLiveData.addAll(sliceLiveData.values());
+    }
+
+    /**
+     * Updates the row of {@code uri} once its Slice is loaded for the first time.
+     */
+    void notifySliceLoaded(Uri uri) {
+        final int position = mSliceUris.indexOf(uri);
+        if (position >= 0 && position < getItemCount()) {
+            notifyItemChanged(position);
+        }
+    }
+
+    /**
+     * Removes the row of {@code uri}, e.g. because its Slice failed to load.
+     */
+    void removeSlice(Uri uri) {
+        final int position = mSliceUris.indexOf(uri);
+        if (position < 0) {
+            return;
+        }
+        final int oldCount = getItemCount();
+        mSliceUris.remove(position);
+        mSliceLiveData.remove(position);
+        if (position < oldCount) {
+            notifyItemRemoved(position);
+            if (getItemCount() == oldCount) {
+                // A Slice over the limit takes the last row.
+                notifyItemInserted(oldCount - 1);
+            }
+        }
     }
 
     @NonNull
@@ -84,7 +137,8 @@ public class PanelSlicesAdapter
 
     @Override
     public void onBindViewHolder(@NonNull SliceRowViewHolder sliceRowViewHolder, int position) {
-        sliceRowViewHolder.onBind(mSliceLiveData.get(position), position);
+        sliceRowViewHolder.onBind(mSliceUris.get(position), mSliceLiveData.get(position),
+                position);
     }
 
     /**
@@ -100,6 +154,16 @@ public class PanelSlicesAdapter
         return mPanelFragment.getPanelViewType();
     }
 
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        recyclerView.addOnItemTouchListener(mCachedSliceTouchListener);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        recyclerView.removeOnItemTouchListener(mCachedSliceTouchListener);
+    }
+
     /**
      * Return the available data from the adapter. If the number of Slices over the max number
      * allowed, the list will only have the first MAX_NUM_OF_SLICES of slices.
@@ -109,6 +173,10 @@ public class PanelSlicesAdapter
         return mSliceLiveData.subList(0, getItemCount());
     }
 
+    Uri getSliceUri(int position) {
+        return mSliceUris.get(position);
+    }
+
     /**
      * ViewHolder for binding Slices to SliceViews.
      */
@@ -120,6 +188,8 @@ public class PanelSlicesAdapter
         @VisibleForTesting
         final LinearLayout mSliceSliderLayout;
 
+        private LiveData<Slice> mSliceLiveData;
+
         public SliceRowViewHolder(View view) {
             super(view);
             sliceView = view.findViewById(R.id.slice_view);
@@ -132,16 +202,29 @@ public class PanelSlicesAdapter
         /**
          * Called when the view is displayed.
          */
-        public void onBind(LiveData<Slice> sliceLiveData, int position) {
+        public void onBind(Uri uri, LiveData<Slice> sliceLiveData, int position) {
+            mSliceLiveData = sliceLiveData;
             sliceLiveData.observe(mPanelFragment.getViewLifecycleOwner(), sliceView);
 
-            // Do not show the divider above media devices switcher slice per request
-            final Slice slice = sliceLiveData.getValue();
+            Slice slice = sliceLiveData.getValue();
+            final boolean loaded = slice != null;
+            final PanelSliceCache.PanelState panelState = mPanelFragment.getPanelState();
+            if (!loaded && panelState != null) {
+                // Show the Slice of the last time until it is loaded, without handling its
+                // touches, see mCachedSliceTouchListener.
+                slice = panelState.getSlice(uri);
+                if (slice != null) {
+                    sliceView.setSlice(slice);
+                }
+            }
 
             // Hides slice which reports with error hint or not contain any slice sub-item.
-            if (slice == null || !isValidSlice(slice)) {
-                sliceView.setVisibility(View.GONE);
-            }
+            sliceView.setVisibility(
+                    slice == null || !isValidSlice(slice) ? View.GONE : View.VISIBLE);
+            // Keep the height of the row from the last time until the Slice is loaded, so that
+            // the panel doesn't resize while it animates in.
+            itemView.setMinimumHeight(
+                    !loaded && panelState != null ? panelState.getHeight(uri) : 0);
 
             // Log Panel interaction
             sliceView.setOnSliceActionListener(
@@ -151,13 +234,25 @@ public class PanelSlicesAdapter
                                 .action(0 /* attribution */,
                                         SettingsEnums.ACTION_PANEL_INTERACTION,
                                         mMetricsCategory,
-                                        sliceLiveData.getValue().getUri().getLastPathSegment()
+                                        getLogKey(uri, sliceLiveData.getValue())
                                         /* log key */,
                                         eventInfo.actionType /* value */);
                     })
             );
         }
 
+        /**
+         * Returns whether the Slice is loaded, otherwise the Slice of the last time may be shown
+         * instead.
+         */
+        boolean isSliceLoaded() {
+            return mSliceLiveData != null && mSliceLiveData.getValue() != null;
+        }
+
+        private String getLogKey(Uri uri, Slice slice) {
+            return (slice != null ? slice.getUri() : uri).getLastPathSegment();
+        }
+
         private boolean isValidSlice(Slice slice) {
             if (slice.getHints().contains(HINT_ERROR)) {
                 return false;
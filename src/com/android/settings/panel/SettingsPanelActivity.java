@@ -44,6 +44,12 @@ public class SettingsPanelActivity extends FragmentActivity {
 
     private static final String TAG = "SettingsPanelActivity";
 
+    /**
+     * Slices of the recently shown panels, kept for the process so that re-opening a panel is
+     * instant.
+     */
+    private static final PanelSliceCache sSliceCache = new PanelSliceCache();
+
     @VisibleForTesting
     final Bundle mBundle = new Bundle();
     @VisibleForTesting
@@ -101,6 +107,10 @@ public class SettingsPanelActivity extends FragmentActivity {
         mForceCreation = true;
     }
 
+    static PanelSliceCache getSliceCache() {
+        return sSliceCache;
+    }
+
     private void createOrUpdatePanel(boolean shouldForceCreation) {
         final Intent callingIntent = getIntent();
         if (callingIntent == null) {
@@ -167,6 +167,15 @@ public class BaseSearchIndexProvider implements Indexable.SearchIndexProvider {
         return null;
     }
 
+    /**
+     * Returns true if the search data of this provider can be queried on a background thread,
+     * concurrently with the other providers. Only override this once the controllers and
+     * singletons used to build the data were checked to be safe to use from any thread.
+     */
+    public boolean isThreadSafe() {
+        return false;
+    }
+
     /**
      * Returns true if the page should be considered in search query. If return false, entire page
      * will be suppressed during search query.
@@ -45,17 +45,21 @@ import static android.provider.SearchIndexablesContract.SLICE_URI_PAIRS_COLUMNS;
 
 import static com.android.settings.dashboard.DashboardFragmentRegistry.CATEGORY_KEY_TO_PARENT_MAP;
 
+import android.content.BroadcastReceiver;
 import android.content.ContentResolver;
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.res.Configuration;
 import android.database.Cursor;
 import android.database.MatrixCursor;
 import android.net.Uri;
+import android.os.SystemClock;
 import android.provider.SearchIndexableResource;
 import android.provider.SearchIndexablesContract;
 import android.provider.SearchIndexablesProvider;
 import android.provider.SettingsSlicesContract;
 import android.text.TextUtils;
-import android.util.ArrayMap;
 import android.util.ArraySet;
 import android.util.Log;
 
@@ -65,6 +69,7 @@ import androidx.slice.SliceViewManager;
 
 import com.android.settings.R;
 import com.android.settings.SettingsActivity;
+import com.android.settings.core.SettingsExecutors;
 import com.android.settings.dashboard.CategoryManager;
 import com.android.settings.dashboard.DashboardFeatureProvider;
 import com.android.settings.dashboard.DashboardFragmentRegistry;
@@ -79,8 +84,13 @@ import com.android.settingslib.search.SearchIndexableRaw;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
 
@@ -97,9 +107,31 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
 
     private static final Collection<String> INVALID_KEYS;
 
+    /**
+     * How long the non-indexable keys of a provider are reused. Keys mostly depend on the device
+     * configuration and installed packages, which invalidate the cache right away, but some
+     * depend on settings values, so they are refreshed periodically as well.
+     */
+    @VisibleForTesting
+    static final long NON_INDEXABLE_KEYS_CACHE_TTL_MS = 30 * 1000L;
+
     // Search enabled states for injection (key: category key, value: search enabled)
     private Map<String, Boolean> mSearchEnabledByCategoryKeyMap;
 
+    // Non-indexable keys per provider target class
+    private final Map<Class<?>, NonIndexableKeys> mNonIndexableKeysCache =
+            new ConcurrentHashMap<>();
+
+    @VisibleForTesting
+    Executor mExecutor;
+
+    private final BroadcastReceiver mPackageReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            clearNonIndexableKeysCache();
+        }
+    };
+
     static {
         INVALID_KEYS = new ArraySet<>();
         INVALID_KEYS.add(null);
@@ -108,10 +140,24 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
 
     @Override
     public boolean onCreate() {
-        mSearchEnabledByCategoryKeyMap = new ArrayMap<>();
+        // Written by the thread-safe providers queried in parallel.
+        mSearchEnabledByCategoryKeyMap = new ConcurrentHashMap<>();
+        mExecutor = SettingsExecutors.getInstance().getExecutor(SettingsExecutors.LANE_NORMAL);
+        final IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addDataScheme("package");
+        getContext().registerReceiver(mPackageReceiver, filter);
         return true;
     }
 
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        clearNonIndexableKeysCache();
+    }
+
     @Override
     public Cursor queryXmlResources(String[] projection) {
         final MatrixCursor cursor = new MatrixCursor(INDEXABLES_XML_RES_COLUMNS);
@@ -137,8 +183,8 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
      */
     @Override
     public Cursor queryRawData(String[] projection) {
-        final MatrixCursor cursor = new MatrixCursor(INDEXABLES_RAW_COLUMNS);
         final List<SearchIndexableRaw> raws = getSearchIndexableRawFromProvider(getContext());
+        final MatrixCursor cursor = new MatrixCursor(INDEXABLES_RAW_COLUMNS, raws.size());
         for (SearchIndexableRaw val : raws) {
             cursor.addRow(createIndexableRawColumnObjects(val));
         }
@@ -153,8 +199,9 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
      */
     @Override
     public Cursor queryNonIndexableKeys(String[] projection) {
-        final MatrixCursor cursor = new MatrixCursor(NON_INDEXABLES_KEYS_COLUMNS);
         final List<String> nonIndexableKeys = getNonIndexableKeysFromProvider(getContext());
+        final MatrixCursor cursor = new MatrixCursor(NON_INDEXABLES_KEYS_COLUMNS,
+                nonIndexableKeys.size());
         for (String nik : nonIndexableKeys) {
             final Object[] ref = new Object[NON_INDEXABLES_KEYS_COLUMNS.length];
             ref[COLUMN_INDEX_NON_INDEXABLE_KEYS_KEY_VALUE] = nik;
@@ -172,22 +219,20 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
     @Override
     public Cursor queryDynamicRawData(String[] projection) {
         final Context context = getContext();
-        final List<SearchIndexableRaw> rawList = new ArrayList<>();
         final Collection<SearchIndexableData> bundles = FeatureFactory.getFactory(context)
                 .getSearchFeatureProvider().getSearchIndexableResources().getProviderValues();
 
-        for (SearchIndexableData bundle : bundles) {
-            rawList.addAll(getDynamicSearchIndexableRawData(context, bundle));
-
+        final List<SearchIndexableRaw> rawList = queryProviders(bundles, bundle -> {
             // Refresh the search enabled state for indexing injection raw data
             final Indexable.SearchIndexProvider provider = bundle.getSearchIndexProvider();
             if (provider instanceof BaseSearchIndexProvider) {
                 refreshSearchEnabledState(context, (BaseSearchIndexProvider) provider);
             }
-        }
+            return getDynamicSearchIndexableRawData(context, bundle);
+        });
         rawList.addAll(getInjectionIndexableRawData(context));
 
-        final MatrixCursor cursor = new MatrixCursor(INDEXABLES_RAW_COLUMNS);
+        final MatrixCursor cursor = new MatrixCursor(INDEXABLES_RAW_COLUMNS, rawList.size());
         for (SearchIndexableRaw raw : rawList) {
             cursor.addRow(createIndexableRawColumnObjects(raw));
         }
@@ -274,51 +319,63 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
         final Collection<SearchIndexableData> bundles = FeatureFactory.getFactory(context)
                 .getSearchFeatureProvider().getSearchIndexableResources().getProviderValues();
 
-        final List<String> nonIndexableKeys = new ArrayList<>();
-
-        for (SearchIndexableData bundle : bundles) {
-            final long startTime = System.currentTimeMillis();
-            Indexable.SearchIndexProvider provider = bundle.getSearchIndexProvider();
-            List<String> providerNonIndexableKeys;
-            try {
-                providerNonIndexableKeys = provider.getNonIndexableKeys(context);
-            } catch (Exception e) {
-                // Catch a generic crash. In the absence of the catch, the background thread will
-                // silently fail anyway, so we aren't losing information by catching the exception.
-                // We crash when the system property exists so that we can test if crashes need to
-                // be fixed.
-                // The gain is that if there is a crash in a specific controller, we don't lose all
-                // non-indexable keys, but we can still find specific crashes in development.
-                if (System.getProperty(SYSPROP_CRASH_ON_ERROR) != null) {
-                    throw new RuntimeException(e);
-                }
-                Log.e(TAG, "Error trying to get non-indexable keys from: "
-                        + bundle.getTargetClass().getName(), e);
-                continue;
+        return queryProviders(bundles, bundle -> {
+            final NonIndexableKeys cached = mNonIndexableKeysCache.get(bundle.getTargetClass());
+            if (cached != null && cached.isValid()) {
+                return cached.mKeys;
             }
-
-            if (providerNonIndexableKeys == null || providerNonIndexableKeys.isEmpty()) {
-                if (DEBUG) {
-                    final long totalTime = System.currentTimeMillis() - startTime;
-                    Log.d(TAG, "No indexable, total time " + totalTime);
-                }
-                continue;
+            final List<String> keys = getNonIndexableKeysFromProvider(context, bundle);
+            if (keys != null) {
+                mNonIndexableKeysCache.put(bundle.getTargetClass(), new NonIndexableKeys(keys));
             }
+            return keys;
+        });
+    }
 
-            if (providerNonIndexableKeys.removeAll(INVALID_KEYS)) {
-                Log.v(TAG, provider + " tried to add an empty non-indexable key");
+    /**
+     * @return the non-indexable keys of one provider, or {@code null} if it failed.
+     */
+    private List<String> getNonIndexableKeysFromProvider(Context context,
+            SearchIndexableData bundle) {
+        final long startTime = System.currentTimeMillis();
+        Indexable.SearchIndexProvider provider = bundle.getSearchIndexProvider();
+        List<String> providerNonIndexableKeys;
+        try {
+            providerNonIndexableKeys = provider.getNonIndexableKeys(context);
+        } catch (Exception e) {
+            // Catch a generic crash. In the absence of the catch, the background thread will
+            // silently fail anyway, so we aren't losing information by catching the exception.
+            // We crash when the system property exists so that we can test if crashes need to
+            // be fixed.
+            // The gain is that if there is a crash in a specific controller, we don't lose all
+            // non-indexable keys, but we can still find specific crashes in development.
+            if (System.getProperty(SYSPROP_CRASH_ON_ERROR) != null) {
+                throw new RuntimeException(e);
             }
+            Log.e(TAG, "Error trying to get non-indexable keys from: "
+                    + bundle.getTargetClass().getName(), e);
+            return null;
+        }
 
+        if (providerNonIndexableKeys == null || providerNonIndexableKeys.isEmpty()) {
             if (DEBUG) {
                 final long totalTime = System.currentTimeMillis() - startTime;
-                Log.d(TAG, "Non-indexables " + providerNonIndexableKeys.size() + ", total time "
-                        + totalTime);
+                Log.d(TAG, "No indexable, total time " + totalTime);
             }
+            return Collections.emptyList();
+        }
 
-            nonIndexableKeys.addAll(providerNonIndexableKeys);
+        if (providerNonIndexableKeys.removeAll(INVALID_KEYS)) {
+            Log.v(TAG, provider + " tried to add an empty non-indexable key");
         }
 
-        return nonIndexableKeys;
+        if (DEBUG) {
+            final long totalTime = System.currentTimeMillis() - startTime;
+            Log.d(TAG, "Non-indexables " + providerNonIndexableKeys.size() + ", total time "
+                    + totalTime);
+        }
+
+        return providerNonIndexableKeys;
     }
 
     private List<SearchIndexableResource> getSearchIndexableResourcesFromProvider(Context context) {
@@ -350,15 +407,14 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
     private List<SearchIndexableRaw> getSearchIndexableRawFromProvider(Context context) {
         final Collection<SearchIndexableData> bundles = FeatureFactory.getFactory(context)
                 .getSearchFeatureProvider().getSearchIndexableResources().getProviderValues();
-        final List<SearchIndexableRaw> rawList = new ArrayList<>();
 
-        for (SearchIndexableData bundle : bundles) {
+        return queryProviders(bundles, bundle -> {
             Indexable.SearchIndexProvider provider = bundle.getSearchIndexProvider();
             final List<SearchIndexableRaw> providerRaws = provider.getRawDataToIndex(context,
                     true /* enabled */);
 
             if (providerRaws == null) {
-                continue;
+                return null;
             }
 
             for (SearchIndexableRaw raw : providerRaws) {
@@ -366,10 +422,64 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
                 // This will be more clear when provider conversion is done at PreIndex time.
                 raw.className = bundle.getTargetClass().getName();
             }
-            rawList.addAll(providerRaws);
+            return providerRaws;
+        });
+    }
+
+    /**
+     * Runs {@code query} for every provider, and concatenates the results in the order of
+     * {@code bundles}. A provider crash is rethrown in the calling thread.
+     *
+     * <p>Only the providers declared {@link BaseSearchIndexProvider#isThreadSafe() thread-safe}
+     * are queried concurrently on {@link #mExecutor}, the others are queried in turn on the
+     * calling thread. The calling thread also runs the queries the executor hasn't started yet,
+     * so that it never waits for work queued behind other tasks of the lane.
+     */
+    private <T> List<T> queryProviders(Collection<SearchIndexableData> bundles,
+            ProviderQuery<T> query) {
+        final List<FutureTask<List<T>>> tasks = new ArrayList<>(bundles.size());
+        for (SearchIndexableData bundle : bundles) {
+            final FutureTask<List<T>> task = new FutureTask<>(() -> query.query(bundle));
+            tasks.add(task);
+            if (isThreadSafe(bundle)) {
+                mExecutor.execute(task);
+            }
         }
 
-        return rawList;
+        final List<T> result = new ArrayList<>();
+        for (FutureTask<List<T>> task : tasks) {
+            final List<T> values;
+            // No-op if the executor already ran or is running the task.
+            task.run();
+            try {
+                values = task.get();
+            } catch (InterruptedException e) {
+                Log.w(TAG, "Interrupted while querying search index providers", e);
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new RuntimeException(cause);
+            }
+            if (values != null) {
+                result.addAll(values);
+            }
+        }
+        return result;
+    }
+
+    private static boolean isThreadSafe(SearchIndexableData bundle) {
+        final Indexable.SearchIndexProvider provider = bundle.getSearchIndexProvider();
+        return provider instanceof BaseSearchIndexProvider
+                && ((BaseSearchIndexProvider) provider).isThreadSafe();
+    }
+
+    @VisibleForTesting
+    void clearNonIndexableKeysCache() {
+        mNonIndexableKeysCache.clear();
     }
 
     private List<SearchIndexableRaw> getDynamicSearchIndexableRawData(Context context,
@@ -474,4 +584,22 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
         ref[COLUMN_INDEX_RAW_USER_ID] = raw.userId;
         return ref;
     }
+
+    private interface ProviderQuery<T> {
+        List<T> query(SearchIndexableData bundle);
+    }
+
+    private static class NonIndexableKeys {
+        final List<String> mKeys;
+        final long mTimestamp;
+
+        NonIndexableKeys(List<String> keys) {
+            mKeys = Collections.unmodifiableList(new ArrayList<>(keys));
+            mTimestamp = SystemClock.elapsedRealtime();
+        }
+
+        boolean isValid() {
+            return SystemClock.elapsedRealtime() - mTimestamp < NON_INDEXABLE_KEYS_CACHE_TTL_MS;
+        }
+    }
 }
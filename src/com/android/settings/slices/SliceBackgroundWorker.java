@@ -21,14 +21,14 @@ import android.annotation.Nullable;
 import android.content.Context;
 import android.net.Uri;
 import android.os.Handler;
-import android.os.HandlerThread;
 import android.os.Looper;
 import android.os.Message;
-import android.os.Process;
 import android.os.SystemClock;
 import android.util.ArrayMap;
 import android.util.Log;
 
+import com.android.settings.core.SettingsExecutors;
+
 import java.io.Closeable;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
@@ -196,10 +196,8 @@ public abstract class SliceBackgroundWorker<E> implements Closeable {
 
         private static NotifySliceChangeHandler getInstance() {
             if (sHandler == null) {
-                final HandlerThread workerThread = new HandlerThread("NotifySliceChangeHandler",
-                        Process.THREAD_PRIORITY_BACKGROUND);
-                workerThread.start();
-                sHandler = new NotifySliceChangeHandler(workerThread.getLooper());
+                sHandler = new NotifySliceChangeHandler(
+                        SettingsExecutors.getInstance().getBackgroundLooper());
             }
             return sHandler;
         }
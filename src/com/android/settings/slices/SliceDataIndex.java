@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.slices;
+
+import static com.android.settings.slices.SlicesDatabaseHelper.Tables.TABLE_SLICES_INDEX;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.net.Uri;
+import android.text.TextUtils;
+import android.util.ArrayMap;
+import android.util.ArraySet;
+
+import com.android.settings.slices.SlicesDatabaseHelper.IndexColumns;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable in-memory copy of the slices index, so binding a slice does not need to query
+ * {@link SlicesDatabaseHelper}. Owned by {@link SlicesDatabaseHelper}, which drops it whenever
+ * the database is rebuilt.
+ */
+class SliceDataIndex {
+
+    private static final String[] SELECT_COLUMNS = {
+            IndexColumns.KEY,
+            IndexColumns.SLICE_URI,
+            IndexColumns.TITLE,
+            IndexColumns.SUMMARY,
+            IndexColumns.SCREENTITLE,
+            IndexColumns.KEYWORDS,
+            IndexColumns.ICON_RESOURCE,
+            IndexColumns.FRAGMENT,
+            IndexColumns.CONTROLLER,
+            IndexColumns.SLICE_TYPE,
+            IndexColumns.UNAVAILABLE_SLICE_SUBTITLE,
+            IndexColumns.PUBLIC_SLICE,
+            IndexColumns.HIGHLIGHT_MENU_RESOURCE,
+    };
+
+    private final String mLocale;
+    private final Map<String, SliceData> mDataByKey;
+    private final Map<Uri, SliceData> mDataByUri;
+    private final Map<String, String> mInvalidKeys;
+    private final Set<String> mDuplicateKeys;
+    private final List<Uri> mPublicUris;
+    private final List<Uri> mPrivateUris;
+
+    private SliceDataIndex(String locale, Map<String, SliceData> dataByKey,
+            Map<Uri, SliceData> dataByUri, Map<String, String> invalidKeys,
+            Set<String> duplicateKeys, List<Uri> publicUris, List<Uri> privateUris) {
+        mLocale = locale;
+        mDataByKey = dataByKey;
+        mDataByUri = dataByUri;
+        mInvalidKeys = invalidKeys;
+        mDuplicateKeys = duplicateKeys;
+        mPublicUris = Collections.unmodifiableList(publicUris);
+        mPrivateUris = Collections.unmodifiableList(privateUris);
+    }
+
+    /**
+     * Reads the whole slices index from {@code database}.
+     */
+    static SliceDataIndex load(SQLiteDatabase database) {
+        final Map<String, SliceData> dataByKey = new ArrayMap<>();
+        final Map<Uri, SliceData> dataByUri = new ArrayMap<>();
+        final Map<String, String> invalidKeys = new ArrayMap<>();
+        final Set<String> duplicateKeys = new ArraySet<>();
+        final List<Uri> publicUris = new ArrayList<>();
+        final List<Uri> privateUris = new ArrayList<>();
+
+        try (Cursor cursor = database.query(TABLE_SLICES_INDEX, SELECT_COLUMNS,
+                null /* where */, null /* selection */, null /* groupBy */, null /* having */,
+                null /* orderBy */)) {
+            final int keyIndex = cursor.getColumnIndex(IndexColumns.KEY);
+            final int uriIndex = cursor.getColumnIndex(IndexColumns.SLICE_URI);
+            final int titleIndex = cursor.getColumnIndex(IndexColumns.TITLE);
+            final int summaryIndex = cursor.getColumnIndex(IndexColumns.SUMMARY);
+            final int screenTitleIndex = cursor.getColumnIndex(IndexColumns.SCREENTITLE);
+            final int keywordsIndex = cursor.getColumnIndex(IndexColumns.KEYWORDS);
+            final int iconIndex = cursor.getColumnIndex(IndexColumns.ICON_RESOURCE);
+            final int fragmentIndex = cursor.getColumnIndex(IndexColumns.FRAGMENT);
+            final int controllerIndex = cursor.getColumnIndex(IndexColumns.CONTROLLER);
+            final int sliceTypeIndex = cursor.getColumnIndex(IndexColumns.SLICE_TYPE);
+            final int unavailableSubtitleIndex =
+                    cursor.getColumnIndex(IndexColumns.UNAVAILABLE_SLICE_SUBTITLE);
+            final int publicSliceIndex = cursor.getColumnIndex(IndexColumns.PUBLIC_SLICE);
+            final int highlightMenuIndex =
+                    cursor.getColumnIndex(IndexColumns.HIGHLIGHT_MENU_RESOURCE);
+
+            while (cursor.moveToNext()) {
+                final String key = cursor.getString(keyIndex);
+                final String uriString = cursor.getString(uriIndex);
+                final Uri uri = TextUtils.isEmpty(uriString) ? null : Uri.parse(uriString);
+                final boolean isPublicSlice = cursor.getInt(publicSliceIndex) == 1;
+                if (uri != null) {
+                    (isPublicSlice ? publicUris : privateUris).add(uri);
+                }
+                if (dataByKey.containsKey(key) || invalidKeys.containsKey(key)) {
+                    duplicateKeys.add(key);
+                    continue;
+                }
+
+                final SliceData data;
+                try {
+                    data = new SliceData.Builder()
+                            .setKey(key)
+                            .setTitle(cursor.getString(titleIndex))
+                            .setSummary(cursor.getString(summaryIndex))
+                            .setScreenTitle(cursor.getString(screenTitleIndex))
+                            .setKeywords(cursor.getString(keywordsIndex))
+                            .setIcon(cursor.getInt(iconIndex))
+                            .setFragmentName(cursor.getString(fragmentIndex))
+                            .setPreferenceControllerClassName(cursor.getString(controllerIndex))
+                            .setSliceType(cursor.getInt(sliceTypeIndex))
+                            .setUnavailableSliceSubtitle(
+                                    cursor.getString(unavailableSubtitleIndex))
+                            .setIsPublicSlice(isPublicSlice)
+                            .setHighlightMenuRes(cursor.getInt(highlightMenuIndex))
+                            .build();
+                } catch (SliceData.InvalidSliceDataException e) {
+                    invalidKeys.put(key, e.getMessage());
+                    continue;
+                }
+                dataByKey.put(key, data);
+                if (uri != null) {
+                    dataByUri.put(uri, withUri(data, uri, data.getSliceType()));
+                }
+            }
+        }
+        return new SliceDataIndex(Locale.getDefault().toString(), dataByKey, dataByUri,
+                invalidKeys, duplicateKeys, publicUris, privateUris);
+    }
+
+    /**
+     * @return {@code true} if the index was loaded for the current locale.
+     */
+    boolean isCurrentLocale() {
+        return TextUtils.equals(mLocale, Locale.getDefault().toString());
+    }
+
+    /**
+     * @return the {@link SliceData} for {@code key}, bound to {@code uri}.
+     * @throws IllegalStateException if the key doesn't match exactly one slice.
+     */
+    SliceData getSliceData(String key, Uri uri, boolean isIntentOnly) {
+        if (uri != null && !isIntentOnly) {
+            final SliceData data = mDataByUri.get(uri);
+            if (data != null && TextUtils.equals(key, data.getKey())
+                    && !mDuplicateKeys.contains(key)) {
+                return data;
+            }
+        }
+        if (mDuplicateKeys.contains(key)) {
+            throw new IllegalStateException(
+                    "Should not match more than 1 slice with path: " + key);
+        }
+        final String invalidReason = mInvalidKeys.get(key);
+        if (invalidReason != null) {
+            throw new SliceData.InvalidSliceDataException(invalidReason);
+        }
+        final SliceData data = mDataByKey.get(key);
+        if (data == null) {
+            throw new IllegalStateException("Invalid Slices key from path: " + key);
+        }
+        if (uri == null && !isIntentOnly) {
+            return data;
+        }
+        return withUri(data, uri, isIntentOnly ? SliceData.SliceType.INTENT : data.getSliceType());
+    }
+
+    /**
+     * @return the public or private slice uris.
+     */
+    List<Uri> getSliceUris(boolean isPublicSlice) {
+        return isPublicSlice ? mPublicUris : mPrivateUris;
+    }
+
+    private static SliceData withUri(SliceData data, Uri uri, int sliceType) {
+        return new SliceData.Builder()
+                .setKey(data.getKey())
+                .setTitle(data.getTitle())
+                .setSummary(data.getSummary())
+                .setScreenTitle(data.getScreenTitle())
+                .setKeywords(data.getKeywords())
+                .setIcon(data.getIconResource())
+                .setFragmentName(data.getFragmentClassName())
+                .setPreferenceControllerClassName(data.getPreferenceController())
+                .setUri(uri)
+                .setSliceType(sliceType)
+                .setUnavailableSliceSubtitle(data.getUnavailableSliceSubtitle())
+                .setIsPublicSlice(data.isPublicSlice())
+                .setHighlightMenuRes(data.getHighlightMenuRes())
+                .build();
+    }
+}
@@ -16,11 +16,7 @@
 
 package com.android.settings.slices;
 
-import static com.android.settings.slices.SlicesDatabaseHelper.Tables.TABLE_SLICES_INDEX;
-
 import android.content.Context;
-import android.database.Cursor;
-import android.database.sqlite.SQLiteDatabase;
 import android.net.Uri;
 import android.os.Binder;
 import android.text.TextUtils;
@@ -62,7 +58,7 @@ public class SlicesDatabaseAccessor {
     }
 
     /**
-     * Query the slices database and return a {@link SliceData} object corresponding to the row
+     * Look up the slices index and return a {@link SliceData} object corresponding to the row
      * matching the key provided by the {@param uri}. Additionally adds the {@param uri} to the
      * {@link SliceData} object so the {@link Slice} can bind to the {@link Uri}.
      * Used when building a {@link Slice}.
@@ -72,20 +68,17 @@ public class SlicesDatabaseAccessor {
         if (pathData == null) {
             throw new IllegalStateException("Invalid Slices uri: " + uri);
         }
-        try (Cursor cursor = getIndexedSliceData(pathData.second /* key */)) {
-            return buildSliceData(cursor, uri, pathData.first /* isIntentOnly */);
-        }
+        return getSliceDataIndex().getSliceData(pathData.second /* key */, uri,
+                pathData.first /* isIntentOnly */);
     }
 
     /**
-     * Query the slices database and return a {@link SliceData} object corresponding to the row
+     * Look up the slices index and return a {@link SliceData} object corresponding to the row
      * matching the {@param key}.
      * Used when handling the action of the {@link Slice}.
      */
     public SliceData getSliceDataFromKey(String key) {
-        try (Cursor cursor = getIndexedSliceData(key)) {
-            return buildSliceData(cursor, null /* uri */, false /* isIntentOnly */);
-        }
+        return getSliceDataIndex().getSliceData(key, null /* uri */, false /* isIntentOnly */);
     }
 
     /**
@@ -93,98 +86,23 @@ public class SlicesDatabaseAccessor {
      * {@param authority}.
      */
     public List<Uri> getSliceUris(String authority, boolean isPublicSlice) {
-        verifyIndexing();
         final List<Uri> uris = new ArrayList<>();
-        final String whereClause = IndexColumns.PUBLIC_SLICE + (isPublicSlice ? "=1" : "=0");
-        final SQLiteDatabase database = mHelper.getReadableDatabase();
-        final String[] columns = new String[]{IndexColumns.SLICE_URI};
-        try (Cursor resultCursor = database.query(TABLE_SLICES_INDEX, columns,
-                whereClause /* where */, null /* selection */, null /* groupBy */,
-                null /* having */, null /* orderBy */)) {
-            if (!resultCursor.moveToFirst()) {
-                return uris;
+        for (Uri uri : getSliceDataIndex().getSliceUris(isPublicSlice)) {
+            if (TextUtils.isEmpty(authority)
+                    || TextUtils.equals(authority, uri.getAuthority())) {
+                uris.add(uri);
             }
-
-            do {
-                final Uri uri = Uri.parse(resultCursor.getString(0 /* SLICE_URI */));
-                if (TextUtils.isEmpty(authority)
-                        || TextUtils.equals(authority, uri.getAuthority())) {
-                    uris.add(uri);
-                }
-            } while (resultCursor.moveToNext());
         }
         return uris;
     }
 
-    private Cursor getIndexedSliceData(String path) {
+    /**
+     * The index is loaded from the database once per build and locale, and shared by every
+     * accessor in the process.
+     */
+    private SliceDataIndex getSliceDataIndex() {
         verifyIndexing();
-
-        final String whereClause = buildKeyMatchWhereClause();
-        final SQLiteDatabase database = mHelper.getReadableDatabase();
-        final String[] selection = new String[]{path};
-        final Cursor resultCursor = database.query(TABLE_SLICES_INDEX, SELECT_COLUMNS_ALL,
-                whereClause, selection, null /* groupBy */, null /* having */, null /* orderBy */);
-
-        int numResults = resultCursor.getCount();
-
-        if (numResults == 0) {
-            resultCursor.close();
-            throw new IllegalStateException("Invalid Slices key from path: " + path);
-        }
-
-        if (numResults > 1) {
-            resultCursor.close();
-            throw new IllegalStateException(
-                    "Should not match more than 1 slice with path: " + path);
-        }
-
-        resultCursor.moveToFirst();
-        return resultCursor;
-    }
-
-    private String buildKeyMatchWhereClause() {
-        return new StringBuilder(IndexColumns.KEY)
-                .append(" = ?")
-                .toString();
-    }
-
-    private static SliceData buildSliceData(Cursor cursor, Uri uri, boolean isIntentOnly) {
-        final String key = cursor.getString(cursor.getColumnIndex(IndexColumns.KEY));
-        final String title = cursor.getString(cursor.getColumnIndex(IndexColumns.TITLE));
-        final String summary = cursor.getString(cursor.getColumnIndex(IndexColumns.SUMMARY));
-        final String screenTitle = cursor.getString(
-                cursor.getColumnIndex(IndexColumns.SCREENTITLE));
-        final String keywords = cursor.getString(cursor.getColumnIndex(IndexColumns.KEYWORDS));
-        final int iconResource = cursor.getInt(cursor.getColumnIndex(IndexColumns.ICON_RESOURCE));
-        final String fragmentClassName = cursor.getString(
-                cursor.getColumnIndex(IndexColumns.FRAGMENT));
-        final String controllerClassName = cursor.getString(
-                cursor.getColumnIndex(IndexColumns.CONTROLLER));
-        int sliceType = cursor.getInt(
-                cursor.getColumnIndex(IndexColumns.SLICE_TYPE));
-        final String unavailableSliceSubtitle = cursor.getString(
-                cursor.getColumnIndex(IndexColumns.UNAVAILABLE_SLICE_SUBTITLE));
-        final int highlightMenuRes = cursor.getInt(
-                cursor.getColumnIndex(IndexColumns.HIGHLIGHT_MENU_RESOURCE));
-
-        if (isIntentOnly) {
-            sliceType = SliceData.SliceType.INTENT;
-        }
-
-        return new SliceData.Builder()
-                .setKey(key)
-                .setTitle(title)
-                .setSummary(summary)
-                .setScreenTitle(screenTitle)
-                .setKeywords(keywords)
-                .setIcon(iconResource)
-                .setFragmentName(fragmentClassName)
-                .setPreferenceControllerClassName(controllerClassName)
-                .setUri(uri)
-                .setSliceType(sliceType)
-                .setUnavailableSliceSubtitle(unavailableSliceSubtitle)
-                .setHighlightMenuRes(highlightMenuRes)
-                .build();
+        return mHelper.getSliceDataIndex();
     }
 
     private void verifyIndexing() {
@@ -142,6 +142,7 @@ public class SlicesDatabaseHelper extends SQLiteOpenHelper {
                     + ");";
 
     private final Context mContext;
+    private SliceDataIndex mSliceDataIndex;
 
     private static SlicesDatabaseHelper sSingleton;
 
@@ -176,23 +177,53 @@ public class SlicesDatabaseHelper extends SQLiteOpenHelper {
      * {@link#isNewIndexingState(Context)} will return {@code true}.
      */
     void reconstruct(SQLiteDatabase db) {
-        mContext.getSharedPreferences(SHARED_PREFS_TAG, Context.MODE_PRIVATE)
-                .edit()
-                .clear()
-                .apply();
+        clearIndexedState();
         dropTables(db);
         createDatabases(db);
+        invalidateSliceDataIndex();
     }
 
     /**
      * Marks the current state of the device for the validity of the data. Should be called after
-     * a full index of the TABLE_SLICES_INDEX.
+     * a full index of the TABLE_SLICES_INDEX, followed by {@link #invalidateSliceDataIndex()}
+     * once the index is committed.
      */
     public void setIndexedState() {
         setBuildIndexed();
         setLocaleIndexed();
     }
 
+    /**
+     * Returns the in-memory copy of the slices index, reading it from the database if it was
+     * dropped or loaded for another locale.
+     */
+    synchronized SliceDataIndex getSliceDataIndex() {
+        if (mSliceDataIndex == null || !mSliceDataIndex.isCurrentLocale()) {
+            mSliceDataIndex = SliceDataIndex.load(getReadableDatabase());
+        }
+        return mSliceDataIndex;
+    }
+
+    /**
+     * Drops the in-memory copy of the slices index. Must be called whenever the database changes.
+     */
+    @VisibleForTesting
+    synchronized void invalidateSliceDataIndex() {
+        mSliceDataIndex = null;
+    }
+
+    /**
+     * Un-marks the state of the data such that any subsequent call to
+     * {@link #isSliceDataIndexed()} will return {@code false}. Should be called before the
+     * TABLE_SLICES_INDEX is updated.
+     */
+    void clearIndexedState() {
+        mContext.getSharedPreferences(SHARED_PREFS_TAG, Context.MODE_PRIVATE)
+                .edit()
+                .clear()
+                .apply();
+    }
+
     /**
      * Indicates if the indexed slice data reflects the current state of the phone.
      *
@@ -16,9 +16,13 @@
 
 package com.android.settings.slices;
 
-import android.content.ContentValues;
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.text.TextUtils;
+import android.util.ArrayMap;
+import android.util.ArraySet;
 import android.util.Log;
 
 import androidx.annotation.VisibleForTesting;
@@ -29,23 +33,71 @@ import com.android.settings.overlay.FeatureFactory;
 import com.android.settings.slices.SlicesDatabaseHelper.IndexColumns;
 import com.android.settings.slices.SlicesDatabaseHelper.Tables;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Manages the conversion of {@link DashboardFragment} and {@link BasePreferenceController} to
  * indexable data {@link SliceData} to be stored for Slices.
+ *
+ * <p>The index is updated incrementally: the new {@link SliceData} are diffed against the rows
+ * already stored, and only the rows of keys whose content changed are rewritten.
  */
 class SlicesIndexer implements Runnable {
 
     private static final String TAG = "SlicesIndexer";
 
+    private static final String[] COLUMNS = {
+            IndexColumns.KEY,
+            IndexColumns.SLICE_URI,
+            IndexColumns.TITLE,
+            IndexColumns.SUMMARY,
+            IndexColumns.SCREENTITLE,
+            IndexColumns.KEYWORDS,
+            IndexColumns.ICON_RESOURCE,
+            IndexColumns.FRAGMENT,
+            IndexColumns.CONTROLLER,
+            IndexColumns.SLICE_TYPE,
+            IndexColumns.UNAVAILABLE_SLICE_SUBTITLE,
+            IndexColumns.PUBLIC_SLICE,
+            IndexColumns.HIGHLIGHT_MENU_RESOURCE,
+    };
+
+    private static final String[] QUERY_COLUMNS = appendRowId(COLUMNS);
+
+    /**
+     * Columns of {@link #COLUMNS} holding integers.
+     */
+    private static final Set<String> INTEGER_COLUMNS = new ArraySet<>(Arrays.asList(
+            IndexColumns.ICON_RESOURCE,
+            IndexColumns.SLICE_TYPE,
+            IndexColumns.PUBLIC_SLICE,
+            IndexColumns.HIGHLIGHT_MENU_RESOURCE));
+
+    private static final String INSERT_SQL = "INSERT INTO " + Tables.TABLE_SLICES_INDEX
+            + " (" + TextUtils.join(", ", COLUMNS) + ") VALUES ("
+            + TextUtils.join(", ", Collections.nCopies(COLUMNS.length, "?")) + ")";
+
+    private static final String DELETE_SQL = "DELETE FROM " + Tables.TABLE_SLICES_INDEX
+            + " WHERE rowid = ?";
+
     private Context mContext;
 
     private SlicesDatabaseHelper mHelper;
 
     public SlicesIndexer(Context context) {
+        this(context, SlicesDatabaseHelper.getInstance(context));
+    }
+
+    @VisibleForTesting
+    SlicesIndexer(Context context, SlicesDatabaseHelper helper) {
         mContext = context;
-        mHelper = SlicesDatabaseHelper.getInstance(mContext);
+        mHelper = helper;
     }
 
     /**
@@ -69,21 +121,23 @@ class SlicesIndexer implements Runnable {
         final SQLiteDatabase database = mHelper.getWritableDatabase();
 
         long startTime = System.currentTimeMillis();
+        final int rowsTouched;
         database.beginTransaction();
         try {
-            mHelper.reconstruct(database);
+            mHelper.clearIndexedState();
             List<SliceData> indexData = getSliceData();
-            insertSliceData(database, indexData);
+            rowsTouched = updateSliceData(database, indexData);
 
             mHelper.setIndexedState();
-
-            // TODO (b/71503044) Log indexing time.
-            Log.d(TAG,
-                    "Indexing slices database took: " + (System.currentTimeMillis() - startTime));
             database.setTransactionSuccessful();
         } finally {
             database.endTransaction();
+            // Only once committed, since a reader may load the index from the previous rows
+            // until then.
+            mHelper.invalidateSliceDataIndex();
         }
+        Log.d(TAG, "Indexing slices database took: " + (System.currentTimeMillis() - startTime)
+                + " ms, rows touched: " + rowsTouched);
     }
 
     @VisibleForTesting
@@ -94,32 +148,115 @@ class SlicesIndexer implements Runnable {
                 .getSliceData();
     }
 
+    /**
+     * Replaces the rows of every key whose data changed, and deletes the rows of keys that are
+     * gone. Must be called within a transaction.
+     *
+     * @return the number of rows inserted or deleted
+     */
     @VisibleForTesting
-    void insertSliceData(SQLiteDatabase database, List<SliceData> indexData) {
-        ContentValues values;
-
+    int updateSliceData(SQLiteDatabase database, List<SliceData> indexData) {
+        final Map<String, List<String[]>> newRows = new LinkedHashMap<>();
         for (SliceData dataRow : indexData) {
-            values = new ContentValues();
-            values.put(IndexColumns.KEY, dataRow.getKey());
-            values.put(IndexColumns.SLICE_URI, dataRow.getUri().toSafeString());
-            values.put(IndexColumns.TITLE, dataRow.getTitle());
-            values.put(IndexColumns.SUMMARY, dataRow.getSummary());
-            final CharSequence screenTitle = dataRow.getScreenTitle();
-            if (screenTitle != null) {
-                values.put(IndexColumns.SCREENTITLE, screenTitle.toString());
+            newRows.computeIfAbsent(dataRow.getKey(), key -> new ArrayList<>())
+                    .add(toRow(dataRow));
+        }
+
+        final Map<String, List<String[]>> oldRows = new ArrayMap<>();
+        final Map<String, List<Long>> oldRowIds = new ArrayMap<>();
+        try (Cursor cursor = database.query(Tables.TABLE_SLICES_INDEX, QUERY_COLUMNS,
+                null /* where */, null /* selection */, null /* groupBy */, null /* having */,
+                "rowid" /* orderBy */)) {
+            while (cursor.moveToNext()) {
+                final String[] row = new String[COLUMNS.length];
+                for (int i = 0; i < COLUMNS.length; i++) {
+                    row[i] = cursor.getString(i);
+                }
+                final String key = row[0];
+                oldRows.computeIfAbsent(key, k -> new ArrayList<>()).add(row);
+                oldRowIds.computeIfAbsent(key, k -> new ArrayList<>())
+                        .add(cursor.getLong(COLUMNS.length));
+            }
+        }
+
+        final List<Long> rowIdsToDelete = new ArrayList<>();
+        final List<String[]> rowsToInsert = new ArrayList<>();
+        for (Map.Entry<String, List<String[]>> entry : newRows.entrySet()) {
+            final List<String[]> oldKeyRows = oldRows.remove(entry.getKey());
+            if (oldKeyRows != null && isSameRows(oldKeyRows, entry.getValue())) {
+                continue;
+            }
+            if (oldKeyRows != null) {
+                rowIdsToDelete.addAll(oldRowIds.get(entry.getKey()));
+            }
+            rowsToInsert.addAll(entry.getValue());
+        }
+        for (String removedKey : oldRows.keySet()) {
+            rowIdsToDelete.addAll(oldRowIds.get(removedKey));
+        }
+
+        try (SQLiteStatement delete = database.compileStatement(DELETE_SQL)) {
+            for (long rowId : rowIdsToDelete) {
+                delete.bindLong(1, rowId);
+                delete.executeUpdateDelete();
+            }
+        }
+        try (SQLiteStatement insert = database.compileStatement(INSERT_SQL)) {
+            for (String[] row : rowsToInsert) {
+                insert.clearBindings();
+                for (int i = 0; i < row.length; i++) {
+                    if (row[i] == null) {
+                        continue;
+                    }
+                    if (INTEGER_COLUMNS.contains(COLUMNS[i])) {
+                        insert.bindLong(i + 1, Long.parseLong(row[i]));
+                    } else {
+                        insert.bindString(i + 1, row[i]);
+                    }
+                }
+                insert.executeInsert();
+            }
+        }
+        return rowIdsToDelete.size() + rowsToInsert.size();
+    }
+
+    /**
+     * @return the values of {@link #COLUMNS} for {@code dataRow}, formatted as SQLite returns them.
+     */
+    private static String[] toRow(SliceData dataRow) {
+        final CharSequence screenTitle = dataRow.getScreenTitle();
+        return new String[]{
+                dataRow.getKey(),
+                dataRow.getUri().toSafeString(),
+                dataRow.getTitle(),
+                dataRow.getSummary(),
+                screenTitle != null ? screenTitle.toString() : null,
+                dataRow.getKeywords(),
+                String.valueOf(dataRow.getIconResource()),
+                dataRow.getFragmentClassName(),
+                dataRow.getPreferenceController(),
+                String.valueOf(dataRow.getSliceType()),
+                dataRow.getUnavailableSliceSubtitle(),
+                dataRow.isPublicSlice() ? "1" : "0",
+                String.valueOf(dataRow.getHighlightMenuRes()),
+        };
+    }
+
+    private static String[] appendRowId(String[] columns) {
+        final String[] result = Arrays.copyOf(columns, columns.length + 1);
+        result[columns.length] = "rowid";
+        return result;
+    }
+
+    private static boolean isSameRows(List<String[]> oldRows, List<String[]> newRows) {
+        if (oldRows.size() != newRows.size()) {
+            return false;
+        }
+        for (int i = 0; i < oldRows.size(); i++) {
+            if (!Arrays.equals(oldRows.get(i), newRows.get(i))) {
+                return false;
             }
-            values.put(IndexColumns.KEYWORDS, dataRow.getKeywords());
-            values.put(IndexColumns.ICON_RESOURCE, dataRow.getIconResource());
-            values.put(IndexColumns.FRAGMENT, dataRow.getFragmentClassName());
-            values.put(IndexColumns.CONTROLLER, dataRow.getPreferenceController());
-            values.put(IndexColumns.SLICE_TYPE, dataRow.getSliceType());
-            values.put(IndexColumns.UNAVAILABLE_SLICE_SUBTITLE,
-                    dataRow.getUnavailableSliceSubtitle());
-            values.put(IndexColumns.PUBLIC_SLICE, dataRow.isPublicSlice());
-            values.put(IndexColumns.HIGHLIGHT_MENU_RESOURCE, dataRow.getHighlightMenuRes());
-
-            database.replaceOrThrow(Tables.TABLE_SLICES_INDEX, null /* nullColumnHack */,
-                    values);
         }
+        return true;
     }
-}
\ No newline at end of file
+}
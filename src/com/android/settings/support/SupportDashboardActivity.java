@@ -85,5 +85,11 @@ public class SupportDashboardActivity extends Activity implements Indexable {
                     }
                     return keys;
                 }
+
+                @Override
+                public boolean isThreadSafe() {
+                    // Only reads resources.
+                    return true;
+                }
             };
 }
@@ -0,0 +1,296 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.utils;
+
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.util.ArrayMap;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+
+/**
+ * Loads app labels and icons in the background, and keeps them in a process wide cache.
+ *
+ * <p>The cache is an LRU bounded by the estimated size of the icons, and is dropped whenever the
+ * default locale changes. Concurrent requests for the same key share a single load, and pending
+ * loads are run by priority, then in request order.
+ *
+ * <p>Keys are chosen by the callers; each caller should use its own prefix, since the same uid
+ * may be labeled differently by different screens.
+ */
+public class AppLabelIconLoader {
+
+    private static final String TAG = "AppLabelIconLoader";
+    private static final int MAX_CACHE_SIZE_BYTES = 4 * 1024 * 1024;
+    private static final int MAX_CONCURRENT_LOADS = 2;
+    // Estimated overhead of a cache entry, so entries without icon are accounted for too.
+    private static final int ENTRY_OVERHEAD_BYTES = 64;
+
+    /** Priority of requests for rows currently shown on screen. */
+    public static final int PRIORITY_VISIBLE = 0;
+    /** Priority of requests for rows which are not shown yet. */
+    public static final int PRIORITY_BACKGROUND = 1;
+
+    private static AppLabelIconLoader sInstance;
+
+    private final Executor mExecutor;
+    private final LruCache<String, LabelAndIcon> mCache;
+    // Requests not completed yet, guarded by this.
+    private final Map<String, Request> mRequests = new ArrayMap<>();
+    private final PriorityQueue<Request> mPendingRequests = new PriorityQueue<>();
+    private Locale mLocale;
+    private long mSequence;
+    private int mActiveWorkers;
+
+    /** Label, icon and package of an app. */
+    public static class LabelAndIcon {
+        public final String label;
+        public final String packageName;
+        public final Drawable icon;
+        // Resource id of the icon, or 0 if it is not loaded from the Settings resources.
+        public final int iconId;
+
+        public LabelAndIcon(String label, String packageName, Drawable icon) {
+            this(label, packageName, icon, /* iconId= */ 0);
+        }
+
+        public LabelAndIcon(String label, String packageName, Drawable icon, int iconId) {
+            this.label = label;
+            this.packageName = packageName;
+            this.icon = icon;
+            this.iconId = iconId;
+        }
+
+        int getSizeInBytes() {
+            int size = ENTRY_OVERHEAD_BYTES;
+            if (label != null) {
+                size += label.length() * 2;
+            }
+            if (icon instanceof BitmapDrawable) {
+                final Bitmap bitmap = ((BitmapDrawable) icon).getBitmap();
+                if (bitmap != null) {
+                    return size + bitmap.getAllocationByteCount();
+                }
+            }
+            if (icon != null && icon.getIntrinsicWidth() > 0 && icon.getIntrinsicHeight() > 0) {
+                size += icon.getIntrinsicWidth() * icon.getIntrinsicHeight() * 4;
+            }
+            return size;
+        }
+    }
+
+    /** Loads the label and icon of a key, called in a background thread. */
+    public interface Loader {
+        /**
+         * @return the loaded data, or {@code null} if there is nothing to show for the key.
+         */
+        LabelAndIcon load();
+    }
+
+    /** Callback for a load request. */
+    public interface Callback {
+        /**
+         * Called in the main thread when the data of {@code key} is loaded.
+         *
+         * @param result the loaded data, may be {@code null}
+         */
+        void onLoaded(String key, LabelAndIcon result);
+    }
+
+    public static synchronized AppLabelIconLoader getInstance() {
+        if (sInstance == null) {
+            sInstance = new AppLabelIconLoader(ThreadUtils::postOnBackgroundThread);
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    AppLabelIconLoader(Executor executor) {
+        mExecutor = executor;
+        mCache = new LruCache<String, LabelAndIcon>(MAX_CACHE_SIZE_BYTES) {
+            @Override
+            protected int sizeOf(String key, LabelAndIcon value) {
+                return value.getSizeInBytes();
+            }
+        };
+    }
+
+    /**
+     * @return the cached data of {@code key}, or {@code null} if it is not loaded yet.
+     */
+    public synchronized LabelAndIcon getCached(String key) {
+        checkLocaleLocked();
+        return mCache.get(key);
+    }
+
+    /**
+     * Caches data loaded by the caller itself.
+     */
+    public synchronized void put(String key, LabelAndIcon value) {
+        checkLocaleLocked();
+        mCache.put(key, value);
+    }
+
+    /**
+     * Loads the data of {@code key} with {@code loader} in the background, unless a load of the
+     * same key is already pending, and notifies {@code callback} once done. Cached data is not
+     * looked up, see {@link #getCached(String)}.
+     */
+    public void load(String key, int priority, Loader loader, Callback callback) {
+        synchronized (this) {
+            checkLocaleLocked();
+            Request request = mRequests.get(key);
+            if (request == null) {
+                request = new Request(key, priority, mSequence++, loader, mLocale);
+                mRequests.put(key, request);
+                mPendingRequests.add(request);
+            } else if (priority < request.mPriority && mPendingRequests.remove(request)) {
+                request.mPriority = priority;
+                mPendingRequests.add(request);
+            }
+            request.mCallbacks.add(callback);
+            if (mActiveWorkers >= MAX_CONCURRENT_LOADS) {
+                return;
+            }
+            mActiveWorkers++;
+        }
+        mExecutor.execute(this::processRequests);
+    }
+
+    /**
+     * Stops notifying {@code callback}. Pending loads without callback are skipped.
+     */
+    public synchronized void cancel(Callback callback) {
+        for (Request request : mRequests.values()) {
+            request.mCallbacks.remove(callback);
+        }
+    }
+
+    /**
+     * Drops the cached data of all keys starting with {@code prefix}.
+     */
+    public synchronized void invalidateByPrefix(String prefix) {
+        for (String key : mCache.snapshot().keySet()) {
+            if (key.startsWith(prefix)) {
+                mCache.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Drops all cached data.
+     */
+    public synchronized void invalidateAll() {
+        mCache.evictAll();
+    }
+
+    /**
+     * Drops the cached data of {@code key}.
+     */
+    public synchronized void invalidate(String key) {
+        mCache.remove(key);
+    }
+
+    private void processRequests() {
+        while (true) {
+            final Request request;
+            synchronized (this) {
+                request = mPendingRequests.poll();
+                if (request == null) {
+                    mActiveWorkers--;
+                    return;
+                }
+                if (request.mCallbacks.isEmpty()) {
+                    mRequests.remove(request.mKey);
+                    continue;
+                }
+            }
+
+            LabelAndIcon result = null;
+            try {
+                result = request.mLoader.load();
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Failed to load label and icon for " + request.mKey, e);
+            }
+
+            final List<Callback> callbacks;
+            synchronized (this) {
+                mRequests.remove(request.mKey);
+                checkLocaleLocked();
+                // Don't cache data loaded for a previous locale.
+                if (result != null && request.mLocale.equals(mLocale)) {
+                    mCache.put(request.mKey, result);
+                }
+                callbacks = new ArrayList<>(request.mCallbacks);
+            }
+            final LabelAndIcon loaded = result;
+            ThreadUtils.postOnMainThread(() -> {
+                for (Callback callback : callbacks) {
+                    callback.onLoaded(request.mKey, loaded);
+                }
+            });
+        }
+    }
+
+    private void checkLocaleLocked() {
+        final Locale locale = Locale.getDefault();
+        if (!locale.equals(mLocale)) {
+            if (mLocale != null) {
+                Log.d(TAG, "Locale changed from " + mLocale + " to " + locale);
+            }
+            mCache.evictAll();
+            mLocale = locale;
+        }
+    }
+
+    private static class Request implements Comparable<Request> {
+        final String mKey;
+        final long mSequence;
+        final Loader mLoader;
+        final Locale mLocale;
+        final List<Callback> mCallbacks = new ArrayList<>();
+        int mPriority;
+
+        Request(String key, int priority, long sequence, Loader loader, Locale locale) {
+            mKey = key;
+            mPriority = priority;
+            mSequence = sequence;
+            mLoader = loader;
+            mLocale = locale;
+        }
+
+        @Override
+        public int compareTo(Request other) {
+            if (mPriority != other.mPriority) {
+                return Integer.compare(mPriority, other.mPriority);
+            }
+            return Long.compare(mSequence, other.mSequence);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.wifi;
+
+import android.util.ArrayMap;
+
+import androidx.annotation.VisibleForTesting;
+import androidx.preference.Preference;
+import androidx.preference.PreferenceGroup;
+
+import com.android.settingslib.wifi.LongPressWifiEntryPreference;
+import com.android.wifitrackerlib.WifiEntry;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Updates the {@link LongPressWifiEntryPreference}s of a {@link PreferenceGroup} to match a list of
+ * {@link WifiEntry}s, keyed by {@link WifiEntry#getKey()}.
+ *
+ * <p>Only the preferences which changed are touched: preferences of entries which disappeared are
+ * removed, new entries get a new preference, and preferences keep their order unless the entry
+ * moved. Orders are spaced by {@link #ORDER_STEP} so that inserted or moved entries usually fit
+ * between their neighbours without renumbering the others.
+ */
+public final class WifiEntryPreferenceReconciler {
+
+    /** Creates the preference of a {@link WifiEntry} which isn't displayed yet. */
+    public interface PreferenceFactory {
+        /** Returns a new preference for {@code wifiEntry}, its key and order are set after. */
+        LongPressWifiEntryPreference createPreference(WifiEntry wifiEntry);
+    }
+
+    @VisibleForTesting
+    static final int ORDER_STEP = 1 << 10;
+    // Leaves room for the preferences ordered after the entries.
+    private static final int MAX_ORDER = Integer.MAX_VALUE / 2;
+
+    private WifiEntryPreferenceReconciler() {
+    }
+
+    /**
+     * Updates the {@link LongPressWifiEntryPreference}s of {@code group} to display
+     * {@code wifiEntries}, in this order. Other preferences of the group are left as is.
+     *
+     * @return an order greater than the order of every displayed entry, for the preferences
+     * following them
+     */
+    public static int reconcile(PreferenceGroup group, List<WifiEntry> wifiEntries,
+            PreferenceFactory factory) {
+        final Map<String, LongPressWifiEntryPreference> currentPrefs = new ArrayMap<>();
+        for (int i = 0; i < group.getPreferenceCount(); i++) {
+            final Preference pref = group.getPreference(i);
+            if (pref instanceof LongPressWifiEntryPreference && pref.getKey() != null) {
+                currentPrefs.put(pref.getKey(), (LongPressWifiEntryPreference) pref);
+            }
+        }
+
+        // Pick the preferences which can be kept, in the order of the new list.
+        final int size = wifiEntries.size();
+        final LongPressWifiEntryPreference[] prefs = new LongPressWifiEntryPreference[size];
+        for (int i = 0; i < size; i++) {
+            final WifiEntry wifiEntry = wifiEntries.get(i);
+            final LongPressWifiEntryPreference pref = currentPrefs.get(wifiEntry.getKey());
+            // A new preference is needed if the underlying WifiEntry object has changed.
+            if (pref != null && pref.getWifiEntry() == wifiEntry) {
+                prefs[i] = pref;
+                currentPrefs.remove(wifiEntry.getKey());
+            }
+        }
+        for (LongPressWifiEntryPreference pref : currentPrefs.values()) {
+            group.removePreference(pref);
+        }
+
+        final int[] orders = computeOrders(prefs);
+        for (int i = 0; i < size; i++) {
+            LongPressWifiEntryPreference pref = prefs[i];
+            if (pref == null) {
+                final WifiEntry wifiEntry = wifiEntries.get(i);
+                pref = factory.createPreference(wifiEntry);
+                pref.setKey(wifiEntry.getKey());
+                pref.setOrder(orders[i]);
+                group.addPreference(pref);
+            } else if (pref.getOrder() != orders[i]) {
+                pref.setOrder(orders[i]);
+            }
+        }
+        return (size == 0 ? 0 : orders[size - 1]) + ORDER_STEP;
+    }
+
+    /**
+     * Computes the orders of the given preferences, null for the ones to create. The longest
+     * sequence of existing preferences already in order keeps its orders, the others are spread
+     * in the gaps between them.
+     */
+    @VisibleForTesting
+    static int[] computeOrders(Preference[] prefs) {
+        final int size = prefs.length;
+        final boolean[] kept = findLongestOrderedSequence(prefs);
+        final int[] orders = new int[size];
+        int previousOrder = 0;
+        int runStart = 0;
+        for (int i = 0; i <= size; i++) {
+            if (i < size && !kept[i]) {
+                continue;
+            }
+            final int runLength = i - runStart;
+            if (i < size) {
+                final int nextOrder = prefs[i].getOrder();
+                if ((long) nextOrder - previousOrder - 1 < runLength) {
+                    return renumber(size);
+                }
+                for (int j = 0; j < runLength; j++) {
+                    orders[runStart + j] = (int) (previousOrder
+                            + ((long) nextOrder - previousOrder) * (j + 1) / (runLength + 1));
+                }
+                orders[i] = nextOrder;
+                previousOrder = nextOrder;
+            } else {
+                if ((long) previousOrder + (long) runLength * ORDER_STEP > MAX_ORDER) {
+                    return renumber(size);
+                }
+                for (int j = 0; j < runLength; j++) {
+                    orders[runStart + j] = previousOrder + (j + 1) * ORDER_STEP;
+                }
+            }
+            runStart = i + 1;
+        }
+        return orders;
+    }
+
+    /**
+     * Finds the longest sequence of non null preferences with strictly increasing orders, in
+     * O(n log n).
+     *
+     * @return whether each preference belongs to the sequence
+     */
+    private static boolean[] findLongestOrderedSequence(Preference[] prefs) {
+        final int size = prefs.length;
+        // Index of the last element of the best sequence of each length, by increasing order.
+        final int[] tails = new int[size];
+        final int[] previous = new int[size];
+        int length = 0;
+        for (int i = 0; i < size; i++) {
+            if (prefs[i] == null) {
+                continue;
+            }
+            final int order = prefs[i].getOrder();
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (prefs[tails[mid]].getOrder() < order) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            previous[i] = (low > 0) ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+
+        final boolean[] kept = new boolean[size];
+        for (int i = (length > 0) ? tails[length - 1] : -1; i >= 0; i = previous[i]) {
+            kept[i] = true;
+        }
+        return kept;
+    }
+
+    private static int[] renumber(int size) {
+        final int[] orders = new int[size];
+        for (int i = 0; i < size; i++) {
+            orders[i] = (i + 1) * ORDER_STEP;
+        }
+        return orders;
+    }
+}
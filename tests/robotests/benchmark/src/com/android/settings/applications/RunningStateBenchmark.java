@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import android.content.Context;
+import android.os.Process;
+import android.os.UserHandle;
+
+import com.android.settings.benchmark.BenchmarkRule;
+import com.android.settings.benchmark.BenchmarkState;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.ParameterizedRobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Measures merging the running processes and services into the items shown by
+ * {@link RunningProcessesView}: updating each merged item, its size, the aggregated user item,
+ * and sorting the processes.
+ */
+@RunWith(ParameterizedRobolectricTestRunner.class)
+public class RunningStateBenchmark {
+
+    private static final int SERVICES_PER_PROCESS = 3;
+
+    @ParameterizedRobolectricTestRunner.Parameters(name = "processes={0}")
+    public static List params() {
+        return Arrays.asList(new Object[][] {{20}, {100}, {400}});
+    }
+
+    @Rule
+    public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final int mProcessCount;
+    private final List<RunningState.ProcessItem> mProcessItems = new ArrayList<>();
+    private final List<RunningState.MergedItem> mMergedItems = new ArrayList<>();
+    private Context mContext;
+    private RunningState mState;
+    private RunningState.MergedItem mUserItem;
+
+    public RunningStateBenchmark(int processCount) {
+        mProcessCount = processCount;
+    }
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mState = RunningState.getInstance(mContext);
+        final int userId = UserHandle.myUserId();
+        mUserItem = new RunningState.MergedItem(userId);
+        mUserItem.mUser = new RunningState.UserState();
+        mUserItem.mUser.mLabel = "user";
+        for (int i = 0; i < mProcessCount; i++) {
+            final RunningState.ProcessItem process = new RunningState.ProcessItem(mContext,
+                    Process.FIRST_APPLICATION_UID + i, "process" + i);
+            process.mPid = 1000 + i;
+            process.mSize = 1024L * 1024L * (i % 50 + 1);
+            process.mIsStarted = i % 4 != 0;
+            process.mIsSystem = i % 5 == 0;
+            process.mActiveSince = i * 1000L;
+            mProcessItems.add(process);
+
+            final RunningState.MergedItem mergedItem = new RunningState.MergedItem(userId);
+            mergedItem.mProcess = process;
+            for (int s = 0; s < SERVICES_PER_PROCESS; s++) {
+                final RunningState.ServiceItem service = new RunningState.ServiceItem(userId);
+                service.mActiveSince = i * 1000L + s;
+                service.mMergedItem = mergedItem;
+                mergedItem.mServices.add(service);
+            }
+            mMergedItems.add(mergedItem);
+            mUserItem.mChildren.add(mergedItem);
+        }
+    }
+
+    @Test
+    public void mergeItems() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        final RunningState.ServiceProcessComparator comparator =
+                mState.new ServiceProcessComparator();
+        while (state.keepRunning()) {
+            final List<RunningState.ProcessItem> sortedProcesses = new ArrayList<>(mProcessItems);
+            Collections.sort(sortedProcesses, comparator);
+            for (RunningState.MergedItem mergedItem : mMergedItems) {
+                mergedItem.update(mContext, false /* background */);
+            }
+            mUserItem.update(mContext, false /* background */);
+            mUserItem.updateSize(mContext);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.benchmark;
+
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+/**
+ * Provides a fresh {@link BenchmarkState} to each benchmark method, and prints its results once
+ * the method completes.
+ */
+public class BenchmarkRule implements TestRule {
+
+    private static final String TAG = "SettingsBenchmark";
+
+    private BenchmarkState mState;
+
+    /**
+     * @return the state of the running benchmark method.
+     */
+    public BenchmarkState getState() {
+        if (mState == null) {
+            throw new IllegalStateException("getState() must be called from a benchmark method");
+        }
+        return mState;
+    }
+
+    @Override
+    public Statement apply(Statement base, Description description) {
+        return new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                mState = new BenchmarkState();
+                try {
+                    base.evaluate();
+                    if (!mState.isFinished()) {
+                        throw new IllegalStateException(description.getDisplayName()
+                                + " did not run keepRunning() until it returned false");
+                    }
+                    final String className = description.getClassName();
+                    System.out.println(TAG + " " + mState.getSummary(
+                            className.substring(className.lastIndexOf('.') + 1) + "#"
+                                    + description.getMethodName()));
+                } finally {
+                    mState = null;
+                }
+            }
+        };
+    }
+}
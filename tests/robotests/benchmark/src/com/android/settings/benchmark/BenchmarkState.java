@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives the measurement loop of a benchmark:
+ *
+ * <pre>
+ * final BenchmarkState state = mBenchmarkRule.getState();
+ * while (state.keepRunning()) {
+ *     // Code to measure.
+ * }
+ * </pre>
+ *
+ * <p>The loop first runs for {@link #WARMUP_DURATION_NS} so the JIT settles, then measures
+ * {@link #REPEAT_COUNT} batches of iterations. Time and allocations spent between
+ * {@link #pauseTiming()} and {@link #resumeTiming()} are not accounted.
+ */
+public class BenchmarkState {
+
+    private static final long WARMUP_DURATION_NS = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final int MIN_WARMUP_ITERATIONS = 8;
+    private static final long TARGET_REPEAT_DURATION_NS = TimeUnit.MILLISECONDS.toNanos(20);
+    private static final int MAX_ITERATIONS_PER_REPEAT = 100000;
+    private static final int REPEAT_COUNT = 16;
+
+    private static final int STATE_NOT_STARTED = 0;
+    private static final int STATE_WARMUP = 1;
+    private static final int STATE_RUNNING = 2;
+    private static final int STATE_FINISHED = 3;
+
+    private final ThreadMXBean mThreadMXBean = ManagementFactory.getThreadMXBean();
+    private final long[] mResultsNs = new long[REPEAT_COUNT];
+
+    private int mState = STATE_NOT_STARTED;
+    private int mIteration;
+    private int mIterationsPerRepeat;
+    private int mRepeat;
+    private long mStartNs;
+    private long mStartAllocatedBytes;
+    private boolean mPaused;
+    private long mPauseStartNs;
+    private long mPauseStartAllocatedBytes;
+    private long mPausedNs;
+    private long mPausedAllocatedBytes;
+    private long mAllocatedBytes;
+    private long mMeasuredIterations;
+
+    /**
+     * @return {@code true} if the code to measure should run once more.
+     */
+    public boolean keepRunning() {
+        if (mPaused) {
+            throw new IllegalStateException("keepRunning() called while timing is paused");
+        }
+        switch (mState) {
+            case STATE_NOT_STARTED:
+                mState = STATE_WARMUP;
+                mIteration = 0;
+                startTiming();
+                return true;
+            case STATE_WARMUP:
+                mIteration++;
+                final long warmupNs = System.nanoTime() - mStartNs - mPausedNs;
+                if (mIteration >= MIN_WARMUP_ITERATIONS && warmupNs >= WARMUP_DURATION_NS) {
+                    final long iterations = TARGET_REPEAT_DURATION_NS * mIteration / warmupNs;
+                    mIterationsPerRepeat =
+                            (int) Math.max(1, Math.min(MAX_ITERATIONS_PER_REPEAT, iterations));
+                    mState = STATE_RUNNING;
+                    mIteration = 0;
+                    startTiming();
+                }
+                return true;
+            case STATE_RUNNING:
+                mIteration++;
+                if (mIteration < mIterationsPerRepeat) {
+                    return true;
+                }
+                endRepeat();
+                if (mRepeat < REPEAT_COUNT) {
+                    mIteration = 0;
+                    startTiming();
+                    return true;
+                }
+                mState = STATE_FINISHED;
+                return false;
+            default:
+                throw new IllegalStateException("keepRunning() called after the benchmark ended");
+        }
+    }
+
+    /**
+     * Stops accounting time and allocations, e.g. to reset the input of the next iteration.
+     */
+    public void pauseTiming() {
+        if (mPaused) {
+            throw new IllegalStateException("Timing is already paused");
+        }
+        mPaused = true;
+        mPauseStartNs = System.nanoTime();
+        mPauseStartAllocatedBytes = getAllocatedBytes();
+    }
+
+    /**
+     * Resumes accounting time and allocations, see {@link #pauseTiming()}.
+     */
+    public void resumeTiming() {
+        if (!mPaused) {
+            throw new IllegalStateException("Timing is not paused");
+        }
+        mPausedAllocatedBytes += getAllocatedBytes() - mPauseStartAllocatedBytes;
+        mPausedNs += System.nanoTime() - mPauseStartNs;
+        mPaused = false;
+    }
+
+    boolean isFinished() {
+        return mState == STATE_FINISHED;
+    }
+
+    /**
+     * @return a one line summary of the measurements, prefixed by {@code name}.
+     */
+    String getSummary(String name) {
+        final long[] sorted = Arrays.copyOf(mResultsNs, REPEAT_COUNT);
+        Arrays.sort(sorted);
+        final StringBuilder builder = new StringBuilder(name)
+                .append(": median=").append(sorted[REPEAT_COUNT / 2]).append("ns")
+                .append(" min=").append(sorted[0]).append("ns")
+                .append(" max=").append(sorted[REPEAT_COUNT - 1]).append("ns")
+                .append(" iterations=").append(mMeasuredIterations);
+        if (isAllocationTrackingSupported()) {
+            builder.append(" allocated=").append(mAllocatedBytes / mMeasuredIterations)
+                    .append("B/op");
+        }
+        return builder.toString();
+    }
+
+    private void startTiming() {
+        mPausedNs = 0;
+        mPausedAllocatedBytes = 0;
+        mStartAllocatedBytes = getAllocatedBytes();
+        mStartNs = System.nanoTime();
+    }
+
+    private void endRepeat() {
+        final long elapsedNs = System.nanoTime() - mStartNs - mPausedNs;
+        mAllocatedBytes += getAllocatedBytes() - mStartAllocatedBytes - mPausedAllocatedBytes;
+        mResultsNs[mRepeat++] = elapsedNs / mIterationsPerRepeat;
+        mMeasuredIterations += mIterationsPerRepeat;
+    }
+
+    private boolean isAllocationTrackingSupported() {
+        return mThreadMXBean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) mThreadMXBean)
+                        .isThreadAllocatedMemoryEnabled();
+    }
+
+    private long getAllocatedBytes() {
+        if (!isAllocationTrackingSupported()) {
+            return 0;
+        }
+        return ((com.sun.management.ThreadMXBean) mThreadMXBean)
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
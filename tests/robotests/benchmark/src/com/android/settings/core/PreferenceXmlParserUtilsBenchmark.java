@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import static com.android.settings.core.PreferenceXmlParserUtils.MetadataFlag.FLAG_INCLUDE_PREF_SCREEN;
+import static com.android.settings.core.PreferenceXmlParserUtils.MetadataFlag.FLAG_NEED_KEY;
+import static com.android.settings.core.PreferenceXmlParserUtils.MetadataFlag.FLAG_NEED_PREF_CONTROLLER;
+import static com.android.settings.core.PreferenceXmlParserUtils.MetadataFlag.FLAG_NEED_PREF_SUMMARY;
+import static com.android.settings.core.PreferenceXmlParserUtils.MetadataFlag.FLAG_NEED_PREF_TITLE;
+import static com.android.settings.core.PreferenceXmlParserUtils.MetadataFlag.FLAG_NEED_PREF_TYPE;
+
+import android.content.Context;
+
+import com.android.settings.R;
+import com.android.settings.benchmark.BenchmarkRule;
+import com.android.settings.benchmark.BenchmarkState;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.ParameterizedRobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(ParameterizedRobolectricTestRunner.class)
+public class PreferenceXmlParserUtilsBenchmark {
+
+    // Same flags as the search indexing of a page.
+    private static final int FLAGS = FLAG_INCLUDE_PREF_SCREEN | FLAG_NEED_KEY
+            | FLAG_NEED_PREF_TYPE | FLAG_NEED_PREF_CONTROLLER | FLAG_NEED_PREF_TITLE
+            | FLAG_NEED_PREF_SUMMARY;
+
+    @ParameterizedRobolectricTestRunner.Parameters(name = "pages={0}")
+    public static List params() {
+        return Arrays.asList(new Object[][] {{1}, {3}, {5}});
+    }
+
+    @Rule
+    public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final int[] mXmlResIds;
+    private Context mContext;
+
+    public PreferenceXmlParserUtilsBenchmark(int pageCount) {
+        final int[] pages = {
+                R.xml.top_level_settings,
+                R.xml.display_settings,
+                R.xml.sound_settings,
+                R.xml.network_provider_internet,
+                R.xml.accessibility_settings,
+        };
+        mXmlResIds = Arrays.copyOf(pages, pageCount);
+    }
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        PreferenceXmlParserUtils.clearMetadataCache();
+    }
+
+    @Test
+    public void extractMetadata_uncached() throws Exception {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            PreferenceXmlParserUtils.clearMetadataCache();
+            state.resumeTiming();
+            for (int xmlResId : mXmlResIds) {
+                PreferenceXmlParserUtils.extractMetadata(mContext, xmlResId, FLAGS);
+            }
+        }
+    }
+
+    @Test
+    public void extractMetadata_cached() throws Exception {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            for (int xmlResId : mXmlResIds) {
+                PreferenceXmlParserUtils.extractMetadata(mContext, xmlResId, FLAGS);
+            }
+        }
+    }
+}
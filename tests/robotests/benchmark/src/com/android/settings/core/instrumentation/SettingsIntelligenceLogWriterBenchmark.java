@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core.instrumentation;
+
+import android.app.settings.SettingsEnums;
+
+import com.android.settings.benchmark.BenchmarkRule;
+import com.android.settings.benchmark.BenchmarkState;
+import com.android.settings.intelligence.LogProto.SettingsLog;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.ParameterizedRobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(ParameterizedRobolectricTestRunner.class)
+public class SettingsIntelligenceLogWriterBenchmark {
+
+    @ParameterizedRobolectricTestRunner.Parameters(name = "logs={0}")
+    public static List params() {
+        return Arrays.asList(new Object[][] {{10}, {100}, {1000}});
+    }
+
+    @Rule
+    public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final int mLogCount;
+    private final List<SettingsLog> mSettingsLogs = new ArrayList<>();
+
+    public SettingsIntelligenceLogWriterBenchmark(int logCount) {
+        mLogCount = logCount;
+    }
+
+    @Before
+    public void setUp() {
+        for (int i = 0; i < mLogCount; i++) {
+            mSettingsLogs.add(SettingsLog.newBuilder()
+                    .setAttribution(SettingsEnums.DASHBOARD_SUMMARY)
+                    .setAction(SettingsEnums.ACTION_SETTINGS_PREFERENCE_CHANGE)
+                    .setPageId(SettingsEnums.SETTINGS_HOMEPAGE)
+                    .setChangedPreferenceKey("preference_key_" + i)
+                    .setChangedPreferenceIntValue(i)
+                    .build());
+        }
+    }
+
+    @Test
+    public void serialize() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            SettingsIntelligenceLogWriter.serialize(mSettingsLogs);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import static com.android.settingslib.drawer.TileUtils.META_DATA_KEY_ORDER;
+import static com.android.settingslib.drawer.TileUtils.META_DATA_PREFERENCE_KEYHINT;
+
+import android.content.Context;
+import android.content.pm.ActivityInfo;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.ProviderInfo;
+import android.os.Bundle;
+
+import com.android.settings.benchmark.BenchmarkRule;
+import com.android.settings.benchmark.BenchmarkState;
+import com.android.settingslib.drawer.ActivityTile;
+import com.android.settingslib.drawer.CategoryKey;
+import com.android.settingslib.drawer.DashboardCategory;
+import com.android.settingslib.drawer.ProviderTile;
+import com.android.settingslib.drawer.Tile;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.ParameterizedRobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RunWith(ParameterizedRobolectricTestRunner.class)
+public class CategoryManagerBenchmark {
+
+    private static final String[] CATEGORIES = {
+            CategoryKey.CATEGORY_HOMEPAGE,
+            CategoryKey.CATEGORY_ACCOUNT,
+            CategoryKey.CATEGORY_SYSTEM,
+            CategoryKey.CATEGORY_DISPLAY,
+    };
+    // One tile out of DUPLICATE_RATIO is a duplicate of the previous one.
+    private static final int DUPLICATE_RATIO = 5;
+
+    @ParameterizedRobolectricTestRunner.Parameters(name = "tilesPerCategory={0}")
+    public static List params() {
+        return Arrays.asList(new Object[][] {{10}, {50}, {200}});
+    }
+
+    @Rule
+    public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final int mTileCount;
+    private final List<Tile> mTiles = new ArrayList<>();
+    private Context mContext;
+    private CategoryManager mCategoryManager;
+
+    public CategoryManagerBenchmark(int tileCount) {
+        mTileCount = tileCount;
+    }
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mCategoryManager = CategoryManager.get(mContext);
+        for (String category : CATEGORIES) {
+            for (int i = 0; i < mTileCount; i++) {
+                final int id = i % DUPLICATE_RATIO == 1 ? i - 1 : i;
+                // Mix packages so sorting has to compare priorities and package names.
+                final String packageName = i % 2 == 0 ? mContext.getPackageName() : "pkg" + id;
+                mTiles.add(i % 3 == 0
+                        ? createProviderTile(category, packageName, "class" + id, id % 10)
+                        : createActivityTile(category, packageName, "class" + id, id % 10));
+            }
+        }
+    }
+
+    @Test
+    public void sortCategories() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            final Map<String, DashboardCategory> categoryByKeyMap = createCategories();
+            state.resumeTiming();
+            mCategoryManager.sortCategories(mContext, categoryByKeyMap);
+        }
+    }
+
+    @Test
+    public void filterDuplicateTiles() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            final Map<String, DashboardCategory> categoryByKeyMap = createCategories();
+            state.resumeTiming();
+            mCategoryManager.filterDuplicateTiles(categoryByKeyMap);
+        }
+    }
+
+    private Map<String, DashboardCategory> createCategories() {
+        final Map<String, DashboardCategory> categoryByKeyMap = new HashMap<>();
+        for (Tile tile : mTiles) {
+            DashboardCategory category = categoryByKeyMap.get(tile.getCategory());
+            if (category == null) {
+                category = new DashboardCategory(tile.getCategory());
+                categoryByKeyMap.put(tile.getCategory(), category);
+            }
+            category.addTile(tile);
+        }
+        return categoryByKeyMap;
+    }
+
+    private static Tile createActivityTile(String categoryKey, String packageName,
+            String className, int order) {
+        final ActivityInfo activityInfo = new ActivityInfo();
+        activityInfo.packageName = packageName;
+        activityInfo.name = className;
+        activityInfo.applicationInfo = new ApplicationInfo();
+        activityInfo.metaData = new Bundle();
+        activityInfo.metaData.putInt(META_DATA_KEY_ORDER, order);
+        return new ActivityTile(activityInfo, categoryKey);
+    }
+
+    private static Tile createProviderTile(String categoryKey, String packageName,
+            String className, int order) {
+        final ProviderInfo providerInfo = new ProviderInfo();
+        final Bundle metaData = new Bundle();
+        providerInfo.packageName = packageName;
+        providerInfo.name = className;
+        providerInfo.authority = packageName + ".authority";
+        providerInfo.applicationInfo = new ApplicationInfo();
+        metaData.putString(META_DATA_PREFERENCE_KEYHINT, className);
+        metaData.putInt(META_DATA_KEY_ORDER, order);
+        return new ProviderTile(providerInfo, categoryKey, metaData);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage;
+
+import android.app.usage.NetworkStats.Bucket;
+import android.os.Process;
+import android.util.SparseArray;
+
+import com.android.settings.benchmark.BenchmarkRule;
+import com.android.settings.benchmark.BenchmarkState;
+import com.android.settingslib.AppItem;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.ParameterizedRobolectricTestRunner;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@RunWith(ParameterizedRobolectricTestRunner.class)
+public class DataUsageListBenchmark {
+
+    // Network stats usually report several buckets per uid, one per state and tag.
+    private static final int BUCKETS_PER_UID = 4;
+
+    @ParameterizedRobolectricTestRunner.Parameters(name = "uids={0}")
+    public static List params() {
+        return Arrays.asList(new Object[][] {{50}, {500}, {2000}});
+    }
+
+    @Rule
+    public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final int mUidCount;
+    private Bucket[] mBuckets;
+
+    public DataUsageListBenchmark(int uidCount) {
+        mUidCount = uidCount;
+    }
+
+    @Before
+    public void setUp() {
+        mBuckets = new Bucket[mUidCount * BUCKETS_PER_UID];
+        for (int i = 0; i < mBuckets.length; i++) {
+            final Bucket bucket = new Bucket();
+            ReflectionHelpers.setField(bucket, "mUid",
+                    Process.FIRST_APPLICATION_UID + i % mUidCount);
+            ReflectionHelpers.setField(bucket, "mRxBytes", 1024L * (i + 1));
+            ReflectionHelpers.setField(bucket, "mTxBytes", 512L * (i + 1));
+            mBuckets[i] = bucket;
+        }
+    }
+
+    @Test
+    public void accumulateAndSort() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            final ArrayList<AppItem> items = new ArrayList<>();
+            final SparseArray<AppItem> knownItems = new SparseArray<>();
+            long largest = 0;
+            for (Bucket bucket : mBuckets) {
+                largest = DataUsageList.accumulate(bucket.getUid(), knownItems, bucket,
+                        AppItem.CATEGORY_APP, items, largest);
+            }
+            Collections.sort(items);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge;
+
+import android.content.ContentValues;
+import android.content.Context;
+
+import com.android.settings.benchmark.BenchmarkRule;
+import com.android.settings.benchmark.BenchmarkState;
+import com.android.settings.testutils.FakeFeatureFactory;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.ParameterizedRobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RunWith(ParameterizedRobolectricTestRunner.class)
+public class ConvertUtilsBenchmark {
+
+    // 24 hours of data, aggregated in 2 hours time slots.
+    private static final int TIME_SLOT_SIZE = 12;
+    private static final long HOUR_IN_MS = 60 * 60 * 1000L;
+
+    @ParameterizedRobolectricTestRunner.Parameters(name = "apps={0}")
+    public static List params() {
+        return Arrays.asList(new Object[][] {{10}, {100}, {500}});
+    }
+
+    @Rule
+    public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final int mAppCount;
+    private Context mContext;
+    private long[] mBatteryHistoryKeys;
+    private Map<Long, Map<String, BatteryHistEntry>> mBatteryHistoryMap;
+
+    public ConvertUtilsBenchmark(int appCount) {
+        mAppCount = appCount;
+    }
+
+    @Before
+    public void setUp() {
+        FakeFeatureFactory.setupForTest();
+        mContext = RuntimeEnvironment.application;
+        final int timestampCount = TIME_SLOT_SIZE * 2 + 1;
+        mBatteryHistoryKeys = new long[timestampCount];
+        mBatteryHistoryMap = new HashMap<>();
+        for (int i = 0; i < timestampCount; i++) {
+            mBatteryHistoryKeys[i] = i * HOUR_IN_MS;
+            final Map<String, BatteryHistEntry> entryMap = new HashMap<>();
+            for (int app = 0; app < mAppCount; app++) {
+                final BatteryHistEntry entry = createBatteryHistEntry(
+                        "package" + app, 1000L + app, i * (app % 7 + 1), i * 1000L, i * 500L);
+                entryMap.put(entry.getKey(), entry);
+            }
+            mBatteryHistoryMap.put(mBatteryHistoryKeys[i], entryMap);
+        }
+    }
+
+    @Test
+    public void getIndexedUsageMap() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            ConvertUtils.getIndexedUsageMap(mContext, TIME_SLOT_SIZE, mBatteryHistoryKeys,
+                    mBatteryHistoryMap, /*purgeLowPercentageAndFakeData=*/ false);
+        }
+    }
+
+    private static BatteryHistEntry createBatteryHistEntry(String packageName, long uid,
+            double consumePower, long foregroundUsageTimeInMs, long backgroundUsageTimeInMs) {
+        final ContentValues values = new ContentValues();
+        values.put(BatteryHistEntry.KEY_PACKAGE_NAME, packageName);
+        values.put(BatteryHistEntry.KEY_APP_LABEL, packageName);
+        values.put(BatteryHistEntry.KEY_UID, Long.valueOf(uid));
+        values.put(BatteryHistEntry.KEY_CONSUMER_TYPE,
+                Integer.valueOf(ConvertUtils.CONSUMER_TYPE_UID_BATTERY));
+        values.put(BatteryHistEntry.KEY_CONSUME_POWER, consumePower);
+        values.put(BatteryHistEntry.KEY_FOREGROUND_USAGE_TIME,
+                Long.valueOf(foregroundUsageTimeInMs));
+        values.put(BatteryHistEntry.KEY_BACKGROUND_USAGE_TIME,
+                Long.valueOf(backgroundUsageTimeInMs));
+        return new BatteryHistEntry(values);
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static android.text.format.DateUtils.DAY_IN_MILLIS;
+import static android.text.format.DateUtils.HOUR_IN_MILLIS;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.app.usage.UsageEvents;
+import android.app.usage.UsageEvents.Event;
+import android.os.Parcel;
+
+import com.android.settings.applications.AppStateNotificationBridge.NotificationsSentState;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@RunWith(RobolectricTestRunner.class)
+public class NotificationUsageStoreTest {
+
+    private static final String PKG1 = "pkg1";
+    private static final String PKG2 = "pkg2";
+    private static final int USER_ID = 0;
+    private static final long NOW = 30 * DAY_IN_MILLIS;
+    private static final long WINDOW_START = NOW - 7 * DAY_IN_MILLIS;
+
+    private File mDir;
+    private NotificationUsageStore mStore;
+
+    @Before
+    public void setUp() {
+        mDir = new File(RuntimeEnvironment.application.getFilesDir(), "notification_usage");
+        mStore = new NotificationUsageStore(mDir);
+    }
+
+    @Test
+    public void getQueryStartTime_noRollup_shouldQueryWholeWindow() {
+        assertThat(mStore.hasRollup(USER_ID)).isFalse();
+        assertThat(mStore.getQueryStartTime(USER_ID, WINDOW_START, NOW)).isEqualTo(WINDOW_START);
+    }
+
+    @Test
+    public void getQueryStartTime_afterMerge_shouldQuerySinceCheckpoint() {
+        mStore.merge(USER_ID, getUsageEvents(createEvent(PKG1, NOW - 1)), WINDOW_START, NOW,
+                WINDOW_START);
+
+        final long later = NOW + 1000;
+        assertThat(mStore.getQueryStartTime(USER_ID, later - 7 * DAY_IN_MILLIS, later))
+                .isEqualTo(NOW);
+    }
+
+    @Test
+    public void getQueryStartTime_clockWentBackwards_shouldQueryWholeWindow() {
+        mStore.merge(USER_ID, getUsageEvents(createEvent(PKG1, NOW - 1)), WINDOW_START, NOW,
+                WINDOW_START);
+
+        final long earlier = NOW - 1000;
+        final long earlierWindowStart = earlier - 7 * DAY_IN_MILLIS;
+        assertThat(mStore.getQueryStartTime(USER_ID, earlierWindowStart, earlier))
+                .isEqualTo(earlierWindowStart);
+    }
+
+    @Test
+    public void merge_incrementally_shouldAggregateAllEvents() {
+        mStore.merge(USER_ID, getUsageEvents(
+                createEvent(PKG1, WINDOW_START + 1), createEvent(PKG2, NOW - 10)),
+                WINDOW_START, NOW, WINDOW_START);
+        final long later = NOW + 1000;
+        mStore.merge(USER_ID, getUsageEvents(createEvent(PKG1, NOW + 5)),
+                NOW, later, later - 7 * DAY_IN_MILLIS);
+
+        final Map<String, NotificationsSentState> stats = mStore.getPackageStats(USER_ID);
+        assertThat(stats.get(PKG1).sentCount).isEqualTo(2);
+        assertThat(stats.get(PKG1).lastSent).isEqualTo(NOW + 5);
+        assertThat(stats.get(PKG2).sentCount).isEqualTo(1);
+    }
+
+    @Test
+    public void merge_windowSlidPastDay_shouldEvictDay() {
+        mStore.merge(USER_ID, getUsageEvents(
+                createEvent(PKG1, WINDOW_START + 1), createEvent(PKG2, NOW - 10)),
+                WINDOW_START, NOW, WINDOW_START);
+        final long later = NOW + 2 * DAY_IN_MILLIS;
+        mStore.merge(USER_ID, getUsageEvents(), NOW, later, later - 7 * DAY_IN_MILLIS);
+
+        final Map<String, NotificationsSentState> stats = mStore.getPackageStats(USER_ID);
+        assertThat(stats).doesNotContainKey(PKG1);
+        assertThat(stats.get(PKG2).sentCount).isEqualTo(1);
+    }
+
+    @Test
+    public void merge_windowStartMidDay_shouldOnlyCountEventsInWindow() {
+        mStore.merge(USER_ID, getUsageEvents(
+                createEvent(PKG1, WINDOW_START + HOUR_IN_MILLIS),
+                createEvent(PKG2, WINDOW_START + 20 * HOUR_IN_MILLIS)),
+                WINDOW_START, NOW, WINDOW_START);
+        final long later = NOW + DAY_IN_MILLIS / 2;
+        mStore.merge(USER_ID, getUsageEvents(), NOW, later, later - 7 * DAY_IN_MILLIS);
+
+        final Map<String, NotificationsSentState> stats = mStore.getPackageStats(USER_ID);
+        assertThat(stats).doesNotContainKey(PKG1);
+        assertThat(stats.get(PKG2).sentCount).isEqualTo(1);
+    }
+
+    @Test
+    public void merge_notificationEventsOnly() {
+        final Event other = createEvent(PKG2, NOW - 10);
+        other.mEventType = Event.CHOOSER_ACTION;
+        mStore.merge(USER_ID, getUsageEvents(createEvent(PKG1, NOW - 10), other),
+                WINDOW_START, NOW, WINDOW_START);
+
+        assertThat(mStore.getPackageStats(USER_ID).keySet()).containsExactly(PKG1);
+    }
+
+    @Test
+    public void merge_shouldPersistRollups() {
+        mStore.merge(USER_ID, getUsageEvents(createEvent(PKG1, NOW - 10)),
+                WINDOW_START, NOW, WINDOW_START);
+
+        final NotificationUsageStore store = new NotificationUsageStore(mDir);
+
+        assertThat(store.hasRollup(USER_ID)).isTrue();
+        assertThat(store.getQueryStartTime(USER_ID, WINDOW_START, NOW)).isEqualTo(NOW);
+        assertThat(store.getPackageStats(USER_ID).get(PKG1).lastSent).isEqualTo(NOW - 10);
+    }
+
+    private static Event createEvent(String pkg, long timeStamp) {
+        final Event event = new Event();
+        event.mEventType = Event.NOTIFICATION_INTERRUPTION;
+        event.mPackage = pkg;
+        event.mTimeStamp = timeStamp;
+        return event;
+    }
+
+    private static UsageEvents getUsageEvents(Event... events) {
+        final List<Event> eventList = new ArrayList<>();
+        for (Event event : events) {
+            eventList.add(event);
+        }
+        final UsageEvents usageEvents = new UsageEvents(eventList, new String[] {PKG1, PKG2});
+        final Parcel parcel = Parcel.obtain();
+        parcel.setDataPosition(0);
+        usageEvents.writeToParcel(parcel, 0);
+        parcel.setDataPosition(0);
+        return UsageEvents.CREATOR.createFromParcel(parcel);
+    }
+}
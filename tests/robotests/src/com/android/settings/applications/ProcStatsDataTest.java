@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.android.internal.app.procstats.ProcessStats;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class ProcStatsDataTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+    private static final long NOW = 10 * HOUR;
+
+    @After
+    public void tearDown() {
+        ProcStatsData.clearCache();
+    }
+
+    @Test
+    public void getCachedStats_sameDuration_shouldReturnStats() {
+        final ProcessStats stats = createStats(3 * HOUR);
+        ProcStatsData.putCachedStats(3 * HOUR, stats, NOW);
+
+        assertThat(ProcStatsData.getCachedStats(3 * HOUR, NOW + 1000)).isSameInstanceAs(stats);
+    }
+
+    @Test
+    public void getCachedStats_expired_shouldReturnNull() {
+        ProcStatsData.putCachedStats(3 * HOUR, createStats(3 * HOUR), NOW);
+
+        assertThat(ProcStatsData.getCachedStats(3 * HOUR,
+                NOW + ProcStatsData.STATS_CACHE_TTL_MS)).isNull();
+    }
+
+    @Test
+    public void getCachedStats_shorterDurationCoveringAllHistory_shouldReturnIt() {
+        final ProcessStats stats = createStats(2 * HOUR);
+        ProcStatsData.putCachedStats(3 * HOUR, stats, NOW);
+
+        assertThat(ProcStatsData.getCachedStats(24 * HOUR, NOW)).isSameInstanceAs(stats);
+    }
+
+    @Test
+    public void getCachedStats_shorterDurationWithOlderHistory_shouldReturnNull() {
+        ProcStatsData.putCachedStats(3 * HOUR, createStats(3 * HOUR), NOW);
+
+        assertThat(ProcStatsData.getCachedStats(6 * HOUR, NOW)).isNull();
+    }
+
+    @Test
+    public void getCachedStats_longerDuration_shouldReturnNull() {
+        ProcStatsData.putCachedStats(24 * HOUR, createStats(2 * HOUR), NOW);
+
+        assertThat(ProcStatsData.getCachedStats(3 * HOUR, NOW)).isNull();
+    }
+
+    private static ProcessStats createStats(long elapsedTime) {
+        final ProcessStats stats = new ProcessStats(false);
+        stats.mTimePeriodStartRealtime = NOW - elapsedTime;
+        stats.mTimePeriodEndRealtime = NOW;
+        return stats;
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+import android.content.Context;
+import android.os.RemoteException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class RunningStateTest {
+
+    private static final long NOW = 100 * RunningState.PSS_UPDATE_DELAY;
+
+    private Context mContext;
+    private RunningState mState;
+    private List<int[]> mRetrievedPids;
+    private long mPssOffset;
+
+    @Before
+    public void setUp() throws RemoteException {
+        mContext = RuntimeEnvironment.application;
+        mState = spy(RunningState.getInstance(mContext));
+        mRetrievedPids = new ArrayList<>();
+        doAnswer(invocation -> {
+            final int[] pids = invocation.getArgument(0);
+            mRetrievedPids.add(pids);
+            final long[] pss = new long[pids.length];
+            for (int i = 0; i < pids.length; i++) {
+                pss[i] = pids[i] * 10 + mPssOffset;
+            }
+            return pss;
+        }).when(mState).retrieveProcessPss(any(int[].class));
+    }
+
+    @After
+    public void tearDown() {
+        RunningState.sInstance = null;
+    }
+
+    @Test
+    public void getProcessPss_beforeUpdateDelay_shouldReuseSizes() throws RemoteException {
+        addProcess(1);
+        addProcess(2);
+        updateSizes(false /* changed */, NOW);
+        mPssOffset = 5;
+
+        final long[] pss =
+                updateSizes(false /* changed */, NOW + RunningState.PSS_UPDATE_DELAY - 1);
+
+        assertThat(pss).asList().containsExactly(10L, 20L).inOrder();
+        assertThat(mRetrievedPids).hasSize(1);
+    }
+
+    @Test
+    public void getProcessPss_afterUpdateDelay_shouldRetrieveAllSizes() throws RemoteException {
+        addProcess(1);
+        addProcess(2);
+        updateSizes(false /* changed */, NOW);
+        mPssOffset = 5;
+
+        final long[] pss = updateSizes(false /* changed */, NOW + RunningState.PSS_UPDATE_DELAY);
+
+        assertThat(pss).asList().containsExactly(15L, 25L).inOrder();
+        assertThat(mRetrievedPids.get(1)).asList().containsExactly(1, 2).inOrder();
+    }
+
+    @Test
+    public void getProcessPss_structureChanged_shouldRetrieveAllSizes() throws RemoteException {
+        addProcess(1);
+        addProcess(2);
+        updateSizes(false /* changed */, NOW);
+        mPssOffset = 5;
+
+        final long[] pss = updateSizes(true /* changed */, NOW + 1);
+
+        assertThat(pss).asList().containsExactly(15L, 25L).inOrder();
+        assertThat(mRetrievedPids.get(1)).asList().containsExactly(1, 2).inOrder();
+    }
+
+    @Test
+    public void getProcessPss_newProcess_shouldRetrieveItsSizeRightAway() throws RemoteException {
+        addProcess(1);
+        addProcess(2);
+        updateSizes(false /* changed */, NOW);
+        mPssOffset = 5;
+        addProcess(3);
+
+        final long[] pss = updateSizes(false /* changed */, NOW + 1);
+
+        assertThat(pss).asList().containsExactly(10L, 20L, 35L).inOrder();
+        assertThat(mRetrievedPids.get(1)).asList().containsExactly(3);
+    }
+
+    @Test
+    public void setMergedItemsLocked_sameItems_shouldKeepCurrentList() {
+        final RunningState.MergedItem item1 = new RunningState.MergedItem(0 /* userId */);
+        final RunningState.MergedItem item2 = new RunningState.MergedItem(0 /* userId */);
+        final ArrayList<RunningState.MergedItem> items = new ArrayList<>(
+                Arrays.asList(item1, item2));
+        mState.mMergedItems = items;
+
+        mState.setMergedItemsLocked(new ArrayList<>(Arrays.asList(item1, item2)));
+
+        assertThat(mState.mMergedItems).isSameInstanceAs(items);
+    }
+
+    @Test
+    public void setMergedItemsLocked_differentItems_shouldReplaceList() {
+        final RunningState.MergedItem item1 = new RunningState.MergedItem(0 /* userId */);
+        final RunningState.MergedItem item2 = new RunningState.MergedItem(0 /* userId */);
+        mState.mMergedItems = new ArrayList<>(Arrays.asList(item1, item2));
+        final ArrayList<RunningState.MergedItem> newItems = new ArrayList<>(
+                Arrays.asList(item2, item1));
+
+        mState.setMergedItemsLocked(newItems);
+
+        assertThat(mState.mMergedItems).isSameInstanceAs(newItems);
+    }
+
+    private void addProcess(int pid) {
+        final RunningState.ProcessItem proc =
+                new RunningState.ProcessItem(mContext, 10000 + pid, "process" + pid);
+        proc.mPid = pid;
+        mState.mAllProcessItems.add(proc);
+    }
+
+    /** Retrieves the sizes and applies them to the processes, as done by the updates. */
+    private long[] updateSizes(boolean changed, long now) throws RemoteException {
+        final long[] pss = mState.getProcessPss(changed, now);
+        for (int i = 0; i < pss.length; i++) {
+            mState.mAllProcessItems.get(i).updateSize(mContext, pss[i], mState.mSequence);
+        }
+        return pss;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications.manageapplications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+import android.content.pm.ApplicationInfo;
+
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import com.android.settingslib.applications.ApplicationsState.AppEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class AppEntryListDifferTest {
+
+    @Mock
+    private ListUpdateCallback mUpdateCallback;
+
+    private List<Runnable> mBackgroundTasks;
+    private ArrayList<AppEntry> mAppliedEntries;
+    private AppEntryListDiffer mDiffer;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mBackgroundTasks = new ArrayList<>();
+        mDiffer = new AppEntryListDiffer(mUpdateCallback, mBackgroundTasks::add, Runnable::run);
+    }
+
+    @Test
+    public void submitList_firstList_shouldInsertAll() {
+        final ArrayList<AppEntry> entries = createEntries("a", "b", "c");
+
+        submitList(entries, null /* commitCallback */);
+
+        assertThat(mAppliedEntries).isSameInstanceAs(entries);
+        verify(mUpdateCallback).onInserted(0, 3);
+        assertThat(mBackgroundTasks).isEmpty();
+    }
+
+    @Test
+    public void submitList_sameContent_shouldNotNotify() {
+        final ArrayList<AppEntry> entries = createEntries("a", "b", "c");
+        submitList(entries, null /* commitCallback */);
+
+        submitList(new ArrayList<>(entries), null /* commitCallback */);
+        runBackgroundTasks();
+
+        verify(mUpdateCallback).onInserted(0, 3);
+        verifyNoMoreInteractions(mUpdateCallback);
+    }
+
+    @Test
+    public void submitList_sizeChanged_shouldNotifySizePayload() {
+        final ArrayList<AppEntry> entries = createEntries("a", "b", "c");
+        submitList(entries, null /* commitCallback */);
+
+        entries.get(1).sizeStr = "2 MB";
+        submitList(new ArrayList<>(entries), null /* commitCallback */);
+        runBackgroundTasks();
+
+        verify(mUpdateCallback).onChanged(1, 1, AppEntryListDiffer.CHANGE_SIZE);
+    }
+
+    @Test
+    public void submitList_labelChanged_shouldRebindWholeItem() {
+        final ArrayList<AppEntry> entries = createEntries("a", "b", "c");
+        submitList(entries, null /* commitCallback */);
+
+        entries.get(2).label = "renamed";
+        submitList(new ArrayList<>(entries), null /* commitCallback */);
+        runBackgroundTasks();
+
+        verify(mUpdateCallback).onChanged(2, 1, null);
+    }
+
+    @Test
+    public void submitList_entryRemoved_shouldNotifyRemoval() {
+        final ArrayList<AppEntry> entries = createEntries("a", "b", "c");
+        submitList(entries, null /* commitCallback */);
+
+        submitList(new ArrayList<>(Arrays.asList(entries.get(0), entries.get(2))),
+                null /* commitCallback */);
+        runBackgroundTasks();
+
+        verify(mUpdateCallback).onRemoved(1, 1);
+        assertThat(mAppliedEntries).hasSize(2);
+    }
+
+    @Test
+    public void submitList_newerListSubmitted_shouldOnlyApplyNewerList() {
+        final ArrayList<AppEntry> entries = createEntries("a", "b", "c");
+        submitList(entries, null /* commitCallback */);
+        final Runnable commitCallback = mock(Runnable.class);
+
+        final ArrayList<AppEntry> olderEntries = new ArrayList<>(entries.subList(0, 2));
+        submitList(olderEntries, commitCallback);
+        final ArrayList<AppEntry> newerEntries = new ArrayList<>(entries.subList(0, 1));
+        submitList(newerEntries, null /* commitCallback */);
+        runBackgroundTasks();
+
+        assertThat(mAppliedEntries).isSameInstanceAs(newerEntries);
+        verify(mUpdateCallback).onRemoved(1, 2);
+        verify(mUpdateCallback, never()).onRemoved(2, 1);
+        // The callback of the dropped list still runs once the newer list is applied.
+        verify(commitCallback).run();
+    }
+
+    private void submitList(ArrayList<AppEntry> entries, Runnable commitCallback) {
+        mDiffer.submitList(entries, 0 /* summaryMode */, list -> mAppliedEntries = list,
+                commitCallback);
+    }
+
+    private void runBackgroundTasks() {
+        while (!mBackgroundTasks.isEmpty()) {
+            mBackgroundTasks.remove(0).run();
+        }
+    }
+
+    private static ArrayList<AppEntry> createEntries(String... packageNames) {
+        final ArrayList<AppEntry> entries = new ArrayList<>();
+        for (int i = 0; i < packageNames.length; i++) {
+            final AppEntry entry = mock(AppEntry.class);
+            entry.info = new ApplicationInfo();
+            entry.info.packageName = packageNames[i];
+            entry.info.uid = 10000 + i;
+            entry.info.enabled = true;
+            entry.label = packageNames[i];
+            entry.sizeStr = "1 MB";
+            entries.add(entry);
+        }
+        return entries;
+    }
+}
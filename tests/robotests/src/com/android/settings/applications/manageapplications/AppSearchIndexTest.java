@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications.manageapplications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.mock;
+
+import android.content.pm.ApplicationInfo;
+
+import com.android.settingslib.applications.ApplicationsState.AppEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class AppSearchIndexTest {
+
+    private ArrayList<AppEntry> mEntries;
+    private AppSearchIndex mIndex;
+
+    @Before
+    public void setUp() {
+        mEntries = new ArrayList<>();
+        mEntries.add(createEntry("Café Finder", "com.example.cafe"));
+        mEntries.add(createEntry("Google Maps", "com.google.android.apps.maps"));
+        mEntries.add(createEntry("Mapquest", "com.mapquest.android"));
+        mEntries.add(createEntry(null /* label */, "com.example.nolabel"));
+        mIndex = new AppSearchIndex(mEntries);
+    }
+
+    @Test
+    public void search_emptyQuery_shouldReturnAllEntries() {
+        assertThat(mIndex.search("")).isSameInstanceAs(mEntries);
+    }
+
+    @Test
+    public void search_differentCaseAndAccents_shouldMatch() {
+        assertThat(getLabels(mIndex.search("CAFE"))).containsExactly("Café Finder");
+    }
+
+    @Test
+    public void normalize_greekAndCyrillicAccents_shouldBeStripped() {
+        assertThat(AppSearchIndex.normalize("Άλμπουμ")).isEqualTo("αλμπουμ");
+        assertThat(AppSearchIndex.normalize("Йога")).isEqualTo("иога");
+    }
+
+    @Test
+    public void normalize_devanagariAndThaiMarks_shouldBeKept() {
+        assertThat(AppSearchIndex.normalize("हिन्दी")).isEqualTo("हिन्दी");
+        assertThat(AppSearchIndex.normalize("ที่")).isEqualTo("ที่");
+    }
+
+    @Test
+    public void search_nonLatinScript_shouldMatchVowelsAndTones() {
+        final ArrayList<AppEntry> entries = new ArrayList<>();
+        entries.add(createEntry("हिन्दी", "com.example.hindi"));
+        entries.add(createEntry("हद", "com.example.had"));
+        entries.add(createEntry("ที่", "com.example.thai"));
+        entries.add(createEntry("ท", "com.example.tho"));
+        final AppSearchIndex index = new AppSearchIndex(entries);
+
+        assertThat(getLabels(index.search("हि"))).containsExactly("हिन्दी");
+        assertThat(getLabels(index.search("ที่"))).containsExactly("ที่");
+    }
+
+    @Test
+    public void search_packageName_shouldMatch() {
+        assertThat(getPackageNames(mIndex.search("nolabel")))
+                .containsExactly("com.example.nolabel");
+    }
+
+    @Test
+    public void search_severalTokens_shouldMatchAllOfThem() {
+        assertThat(getLabels(mIndex.search("maps google"))).containsExactly("Google Maps");
+    }
+
+    @Test
+    public void search_narrowingQueries_shouldKeepOrder() {
+        assertThat(getLabels(mIndex.search("ma"))).containsExactly("Google Maps", "Mapquest")
+                .inOrder();
+        assertThat(getLabels(mIndex.search("map"))).containsExactly("Google Maps", "Mapquest")
+                .inOrder();
+        assertThat(getLabels(mIndex.search("mapq"))).containsExactly("Mapquest");
+    }
+
+    @Test
+    public void search_widerQueryAfterNarrowing_shouldSearchAllEntries() {
+        mIndex.search("mapq");
+
+        assertThat(getLabels(mIndex.search("ma"))).containsExactly("Google Maps", "Mapquest");
+    }
+
+    @Test
+    public void isIndexOf_shouldMatchIndexedListOnly() {
+        assertThat(mIndex.isIndexOf(mEntries)).isTrue();
+        assertThat(mIndex.isIndexOf(new ArrayList<>(mEntries))).isFalse();
+    }
+
+    private static AppEntry createEntry(String label, String packageName) {
+        final AppEntry entry = mock(AppEntry.class);
+        entry.label = label;
+        entry.info = new ApplicationInfo();
+        entry.info.packageName = packageName;
+        return entry;
+    }
+
+    private static List<String> getLabels(List<AppEntry> entries) {
+        final List<String> labels = new ArrayList<>();
+        for (AppEntry entry : entries) {
+            labels.add(entry.label);
+        }
+        return labels;
+    }
+
+    private static List<String> getPackageNames(List<AppEntry> entries) {
+        final List<String> packageNames = new ArrayList<>();
+        for (AppEntry entry : entries) {
+            packageNames.add(entry.info.packageName);
+        }
+        return packageNames;
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications.manageapplications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+public class RebuildSchedulerTest {
+
+    private List<Runnable> mBackgroundTasks;
+    private int mPreparedCount;
+    private int mRebuiltCount;
+    private boolean mHasDataToRebuild;
+    private RebuildScheduler mScheduler;
+
+    @Before
+    public void setUp() {
+        ShadowLooper.pauseMainLooper();
+        mBackgroundTasks = new ArrayList<>();
+        mHasDataToRebuild = true;
+        mScheduler = new RebuildScheduler(this::prepareRebuild,
+                new Handler(Looper.getMainLooper()), mBackgroundTasks::add);
+    }
+
+    @Test
+    public void requestRebuild_burstOfRequests_shouldRebuildOnce() {
+        mScheduler.requestRebuild();
+        mScheduler.requestRebuild();
+        mScheduler.requestRebuild();
+        idleMainLooper(0);
+        runBackgroundTasks();
+
+        assertThat(mPreparedCount).isEqualTo(1);
+        assertThat(mRebuiltCount).isEqualTo(1);
+        assertThat(mScheduler.getRequestedCount()).isEqualTo(3);
+        assertThat(mScheduler.getExecutedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void requestRebuild_withinWindowOfLastRebuild_shouldWaitForWindow() {
+        mScheduler.requestRebuild();
+        idleMainLooper(0);
+        runBackgroundTasks();
+
+        mScheduler.requestRebuild();
+        mScheduler.requestRebuild();
+        idleMainLooper(RebuildScheduler.COALESCE_WINDOW_MS / 2);
+        assertThat(mPreparedCount).isEqualTo(1);
+
+        idleMainLooper(RebuildScheduler.COALESCE_WINDOW_MS);
+        runBackgroundTasks();
+        assertThat(mPreparedCount).isEqualTo(2);
+        assertThat(mRebuiltCount).isEqualTo(2);
+    }
+
+    @Test
+    public void requestRebuild_beforeBackgroundRebuildStarts_shouldSkipStaleRebuild() {
+        mScheduler.requestRebuild();
+        idleMainLooper(0);
+
+        mScheduler.requestRebuild();
+        idleMainLooper(RebuildScheduler.COALESCE_WINDOW_MS);
+        runBackgroundTasks();
+
+        assertThat(mPreparedCount).isEqualTo(2);
+        assertThat(mRebuiltCount).isEqualTo(1);
+        assertThat(mScheduler.getExecutedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldDeliverResult_newerRequestPending_shouldDropResult() {
+        mScheduler.requestRebuild();
+        idleMainLooper(0);
+        runBackgroundTasks();
+
+        mScheduler.requestRebuild();
+
+        assertThat(mScheduler.shouldDeliverResult()).isFalse();
+        assertThat(mScheduler.getDroppedResultCount()).isEqualTo(1);
+
+        idleMainLooper(RebuildScheduler.COALESCE_WINDOW_MS);
+        runBackgroundTasks();
+
+        assertThat(mScheduler.shouldDeliverResult()).isTrue();
+        assertThat(mScheduler.getDroppedResultCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldDeliverResult_sustainedBurst_shouldDeliverSomeResults() {
+        final int rounds = (RebuildScheduler.MAX_CONSECUTIVE_DROPS + 1) * 3;
+        int deliveredCount = 0;
+        for (int i = 0; i < rounds; i++) {
+            mScheduler.requestRebuild();
+            idleMainLooper(RebuildScheduler.COALESCE_WINDOW_MS);
+            runBackgroundTasks();
+            // Another change comes before each result is received.
+            mScheduler.requestRebuild();
+            if (mScheduler.shouldDeliverResult()) {
+                deliveredCount++;
+            }
+        }
+
+        assertThat(deliveredCount).isEqualTo(3);
+        assertThat(mScheduler.getDroppedResultCount())
+                .isEqualTo(RebuildScheduler.MAX_CONSECUTIVE_DROPS * 3);
+    }
+
+    @Test
+    public void requestRebuild_sustainedBurstBeforeBackgroundRebuildStarts_shouldRebuildSome() {
+        final int rounds = (RebuildScheduler.MAX_CONSECUTIVE_DROPS + 1) * 3;
+        for (int i = 0; i < rounds; i++) {
+            mScheduler.requestRebuild();
+            idleMainLooper(RebuildScheduler.COALESCE_WINDOW_MS);
+            // Another change comes before each rebuild starts.
+            mScheduler.requestRebuild();
+            runBackgroundTasks();
+        }
+
+        assertThat(mRebuiltCount).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldDeliverResult_nothingToRebuild_shouldDeliverResult() {
+        mHasDataToRebuild = false;
+        mScheduler.requestRebuild();
+        idleMainLooper(0);
+
+        assertThat(mScheduler.shouldDeliverResult()).isTrue();
+        assertThat(mBackgroundTasks).isEmpty();
+    }
+
+    @Test
+    public void cancel_shouldDropPendingRebuildAndResults() {
+        mScheduler.requestRebuild();
+        idleMainLooper(0);
+        mScheduler.requestRebuild();
+
+        mScheduler.cancel();
+        idleMainLooper(RebuildScheduler.COALESCE_WINDOW_MS);
+        runBackgroundTasks();
+
+        assertThat(mPreparedCount).isEqualTo(1);
+        assertThat(mRebuiltCount).isEqualTo(0);
+        assertThat(mScheduler.shouldDeliverResult()).isFalse();
+    }
+
+    private Runnable prepareRebuild() {
+        mPreparedCount++;
+        return mHasDataToRebuild ? () -> mRebuiltCount++ : null;
+    }
+
+    private void idleMainLooper(long millis) {
+        ShadowLooper.getShadowMainLooper().idleFor(millis, TimeUnit.MILLISECONDS);
+    }
+
+    private void runBackgroundTasks() {
+        while (!mBackgroundTasks.isEmpty()) {
+            mBackgroundTasks.remove(0).run();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2021 The MoKee Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.bluetooth;
+
+import static com.android.settings.bluetooth.AirPodsScanPolicy.MODE_ACTIVE;
+import static com.android.settings.bluetooth.AirPodsScanPolicy.MODE_SCREEN_OFF;
+import static com.android.settings.bluetooth.AirPodsScanPolicy.MODE_STABLE;
+import static com.android.settings.bluetooth.AirPodsScanPolicy.SCREEN_OFF_SCAN_INTERVAL_MS;
+import static com.android.settings.bluetooth.AirPodsScanPolicy.SCREEN_OFF_SCAN_WINDOW_MS;
+import static com.android.settings.bluetooth.AirPodsScanPolicy.STABLE_TIMEOUT_MS;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.le.ScanSettings;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class AirPodsScanPolicyTest {
+
+    private static final String ADDRESS_NEAR = "11:22:33:44:55:66";
+    private static final String ADDRESS_FAR = "66:55:44:33:22:11";
+
+    /**
+     * A trace of AirPods advertisements, as "<time ms> <address> <rssi>
+     * <manufacturer data>". Byte 5 holds the flags, byte 6 the battery of both pods and byte 7
+     * the charging state and battery of the case.
+     */
+    private static final String[] TRACE = {
+            // Both pods at 80%, case at 80%: reported.
+            "0 " + ADDRESS_NEAR + " -60 0719010e202b880800000000000000000000000000000000000000",
+            // Only the case changed: not reported.
+            "500 " + ADDRESS_NEAR + " -60 0719010e202b880700000000000000000000000000000000000000",
+            // Right pod at 70%: reported.
+            "1000 " + ADDRESS_NEAR + " -60 0719010e202b870700000000000000000000000000000000000000",
+            // Another pair, farther: ignored.
+            "1200 " + ADDRESS_FAR + " -80 0719010e202b880800000000000000000000000000000000000000",
+            // Same values again: not reported.
+            "1500 " + ADDRESS_NEAR + " -60 0719010e202b870700000000000000000000000000000000000000",
+            // The near pair is gone, the far one reports no pod level: reported.
+            "8000 " + ADDRESS_FAR + " -80 0719010e202bff0f00000000000000000000000000000000000000",
+    };
+
+    private AirPodsScanPolicy mPolicy;
+
+    @Before
+    public void setUp() {
+        mPolicy = new AirPodsScanPolicy();
+        mPolicy.reset(0 /* now */);
+    }
+
+    @Test
+    public void buildScanSettings_batchingSupported_shouldDelayReports() {
+        assertThat(AirPodsScanPolicy.buildScanSettings(MODE_ACTIVE, true /* batching */)
+                .getReportDelayMillis()).isGreaterThan(0L);
+        assertThat(AirPodsScanPolicy.buildScanSettings(MODE_STABLE, true /* batching */)
+                .getReportDelayMillis()).isGreaterThan(0L);
+    }
+
+    @Test
+    public void buildScanSettings_batchingUnsupported_shouldReportRightAway() {
+        final ScanSettings active =
+                AirPodsScanPolicy.buildScanSettings(MODE_ACTIVE, false /* batching */);
+        final ScanSettings stable =
+                AirPodsScanPolicy.buildScanSettings(MODE_STABLE, false /* batching */);
+
+        assertThat(active.getReportDelayMillis()).isEqualTo(0L);
+        assertThat(active.getScanMode()).isEqualTo(ScanSettings.SCAN_MODE_LOW_LATENCY);
+        assertThat(stable.getReportDelayMillis()).isEqualTo(0L);
+        assertThat(stable.getScanMode()).isEqualTo(ScanSettings.SCAN_MODE_LOW_POWER);
+    }
+
+    @Test
+    public void replayTrace_shouldOnlyReportChangedLevels() {
+        assertThat(replay(mPolicy, TRACE))
+                .containsExactly(7, 6, BluetoothDevice.BATTERY_LEVEL_UNKNOWN).inOrder();
+    }
+
+    @Test
+    public void replayTrace_afterReset_shouldReportLevelAgain() {
+        replay(mPolicy, TRACE);
+
+        mPolicy.reset(10000 /* now */);
+
+        assertThat(replay(mPolicy, new String[] {TRACE[5]}))
+                .containsExactly(BluetoothDevice.BATTERY_LEVEL_UNKNOWN);
+    }
+
+    @Test
+    public void parseDisplayLevel_reversed_shouldSwapPods() {
+        final byte[] data = toBytes("0719010e20ab780700000000000000000000000000000000000000");
+
+        assertThat(AirPodsScanPolicy.parseDisplayLevel(data)).isEqualTo(6);
+    }
+
+    @Test
+    public void getMode_valuesNotChanging_shouldBecomeStable() {
+        replay(mPolicy, new String[] {TRACE[0]});
+
+        assertThat(mPolicy.getMode(STABLE_TIMEOUT_MS - 1)).isEqualTo(MODE_ACTIVE);
+        assertThat(mPolicy.getNextUpdateDelayMillis(STABLE_TIMEOUT_MS - 1)).isEqualTo(1);
+        assertThat(mPolicy.getMode(STABLE_TIMEOUT_MS)).isEqualTo(MODE_STABLE);
+        assertThat(mPolicy.getNextUpdateDelayMillis(STABLE_TIMEOUT_MS)).isEqualTo(-1);
+    }
+
+    @Test
+    public void getMode_valuesChanged_shouldBeActive() {
+        final long now = STABLE_TIMEOUT_MS * 2;
+        mPolicy.onScanResult(ADDRESS_NEAR, -60,
+                toBytes("0719010e202b880800000000000000000000000000000000000000"), now);
+
+        assertThat(mPolicy.getMode(now)).isEqualTo(MODE_ACTIVE);
+    }
+
+    @Test
+    public void shouldScan_screenOff_shouldOnlyScanInWindows() {
+        final long screenOffTime = 1000;
+        mPolicy.setScreenOn(false, screenOffTime);
+
+        assertThat(mPolicy.getMode(screenOffTime)).isEqualTo(MODE_SCREEN_OFF);
+        assertThat(mPolicy.shouldScan(screenOffTime)).isTrue();
+        assertThat(mPolicy.getNextUpdateDelayMillis(screenOffTime))
+                .isEqualTo(SCREEN_OFF_SCAN_WINDOW_MS);
+        assertThat(mPolicy.shouldScan(screenOffTime + SCREEN_OFF_SCAN_WINDOW_MS)).isFalse();
+        assertThat(mPolicy.getNextUpdateDelayMillis(screenOffTime + SCREEN_OFF_SCAN_WINDOW_MS))
+                .isEqualTo(SCREEN_OFF_SCAN_INTERVAL_MS - SCREEN_OFF_SCAN_WINDOW_MS);
+        assertThat(mPolicy.shouldScan(screenOffTime + SCREEN_OFF_SCAN_INTERVAL_MS)).isTrue();
+    }
+
+    @Test
+    public void setScreenOn_afterStable_shouldBeActive() {
+        final long now = STABLE_TIMEOUT_MS * 2;
+        mPolicy.setScreenOn(false, now);
+        mPolicy.setScreenOn(true, now + 1);
+
+        assertThat(mPolicy.getMode(now + 1)).isEqualTo(MODE_ACTIVE);
+        assertThat(mPolicy.shouldScan(now + 1)).isTrue();
+    }
+
+    /**
+     * Feeds the advertisements of {@code trace} to {@code policy}, and returns the battery
+     * levels it reported.
+     */
+    private static List<Integer> replay(AirPodsScanPolicy policy, String[] trace) {
+        final List<Integer> levels = new ArrayList<>();
+        for (String line : trace) {
+            final String[] fields = line.split(" ");
+            policy.onScanResult(fields[1], Integer.parseInt(fields[2]), toBytes(fields[3]),
+                    Long.parseLong(fields[0]));
+            final int level = policy.takeLevelToReport();
+            if (level != AirPodsScanPolicy.NO_LEVEL) {
+                levels.add(level);
+            }
+        }
+        return levels;
+    }
+
+    private static byte[] toBytes(String hex) {
+        final byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+}
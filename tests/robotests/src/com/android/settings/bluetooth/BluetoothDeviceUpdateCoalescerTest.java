@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.bluetooth;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.android.settingslib.bluetooth.CachedBluetoothDevice;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class BluetoothDeviceUpdateCoalescerTest {
+
+    @Mock
+    private BluetoothDeviceUpdater mUpdater;
+    @Mock
+    private BluetoothDeviceUpdater mOtherUpdater;
+    @Mock
+    private CachedBluetoothDevice mCachedDevice;
+    @Mock
+    private CachedBluetoothDevice mOtherCachedDevice;
+
+    private BluetoothDeviceUpdateCoalescer mCoalescer;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mCoalescer = new BluetoothDeviceUpdateCoalescer();
+    }
+
+    @Test
+    public void onDeviceChanged_firstChange_shouldUpdateRightAway() {
+        mCoalescer.onDeviceChanged(mUpdater, mCachedDevice);
+        mCoalescer.onDeviceChanged(mOtherUpdater, mCachedDevice);
+        mCoalescer.onDeviceChanged(mUpdater, mOtherCachedDevice);
+
+        verify(mUpdater).update(mCachedDevice);
+        verify(mOtherUpdater).update(mCachedDevice);
+        verify(mUpdater).update(mOtherCachedDevice);
+        assertThat(mCoalescer.hasPendingChanges()).isFalse();
+    }
+
+    @Test
+    public void onDeviceChanged_burst_shouldUpdateOnceMoreOnNextFrame() {
+        for (int i = 0; i < 5; i++) {
+            mCoalescer.onDeviceChanged(mUpdater, mCachedDevice);
+            mCoalescer.onDeviceChanged(mOtherUpdater, mCachedDevice);
+        }
+        verify(mUpdater, times(1)).update(mCachedDevice);
+        verify(mOtherUpdater, times(1)).update(mCachedDevice);
+        assertThat(mCoalescer.hasPendingChanges()).isTrue();
+
+        mCoalescer.onFrame();
+
+        verify(mUpdater, times(2)).update(mCachedDevice);
+        verify(mOtherUpdater, times(2)).update(mCachedDevice);
+        assertThat(mCoalescer.hasPendingChanges()).isFalse();
+    }
+
+    @Test
+    public void onFrame_noChangeSinceUpdate_shouldNotUpdateAgain() {
+        mCoalescer.onDeviceChanged(mUpdater, mCachedDevice);
+
+        mCoalescer.onFrame();
+        mCoalescer.onFrame();
+
+        verify(mUpdater, times(1)).update(mCachedDevice);
+    }
+
+    @Test
+    public void cancel_shouldDropPendingChanges() {
+        mCoalescer.onDeviceChanged(mUpdater, mCachedDevice);
+        mCoalescer.onDeviceChanged(mUpdater, mCachedDevice);
+
+        mCoalescer.cancel(mUpdater);
+        mCoalescer.onFrame();
+
+        verify(mUpdater, times(1)).update(mCachedDevice);
+        assertThat(mCoalescer.hasPendingChanges()).isFalse();
+    }
+}
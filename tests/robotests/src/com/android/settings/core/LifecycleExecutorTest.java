@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import static androidx.lifecycle.Lifecycle.Event.ON_CREATE;
+import static androidx.lifecycle.Lifecycle.Event.ON_DESTROY;
+
+import static com.android.settings.core.SettingsExecutors.LANE_NORMAL;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.android.settingslib.core.lifecycle.Lifecycle;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+public class LifecycleExecutorTest {
+
+    private static final long TIMEOUT_SECONDS = 5L;
+
+    private SettingsExecutors mExecutors;
+    private Lifecycle mLifecycle;
+    private LifecycleExecutor mExecutor;
+    private CountDownLatch mBlocker;
+
+    @Before
+    public void setUp() throws Exception {
+        mExecutors = new SettingsExecutors(1 /* prefetchThreads */, 1 /* normalThreads */);
+        mLifecycle = new Lifecycle(() -> mLifecycle);
+        mExecutor = new LifecycleExecutor(mLifecycle, mExecutors, LANE_NORMAL);
+        mLifecycle.handleLifecycleEvent(ON_CREATE);
+        mBlocker = new CountDownLatch(1);
+
+        // Keep the only thread of the lane busy, so the tasks stay queued.
+        final CountDownLatch blocking = new CountDownLatch(1);
+        mExecutors.execute(LANE_NORMAL, SettingsExecutors.PRIORITY_DEFAULT, () -> {
+            blocking.countDown();
+            try {
+                mBlocker.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertThat(blocking.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @After
+    public void tearDown() {
+        mBlocker.countDown();
+    }
+
+    @Test
+    public void execute_notDestroyed_shouldRunTask() throws Exception {
+        final CountDownLatch ran = new CountDownLatch(1);
+
+        mExecutor.execute(ran::countDown);
+        mBlocker.countDown();
+
+        assertThat(ran.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void onDestroy_shouldCancelPendingTasks() throws Exception {
+        final CountDownLatch ran = new CountDownLatch(1);
+        mExecutor.execute(ran::countDown);
+
+        mLifecycle.handleLifecycleEvent(ON_DESTROY);
+        mBlocker.countDown();
+
+        assertThat(mExecutor.isDestroyed()).isTrue();
+        assertThat(mExecutors.getStats(LANE_NORMAL).queued).isEqualTo(0);
+        assertThat(ran.await(200, TimeUnit.MILLISECONDS)).isFalse();
+    }
+
+    @Test
+    public void submit_cancelled_shouldNotRunTask() throws Exception {
+        final CountDownLatch ran = new CountDownLatch(1);
+
+        mExecutor.submit(ran::countDown).cancel(false /* mayInterruptIfRunning */);
+        mBlocker.countDown();
+
+        assertThat(ran.await(200, TimeUnit.MILLISECONDS)).isFalse();
+    }
+
+    @Test
+    public void submit_afterDestroy_shouldReturnNull() {
+        mLifecycle.handleLifecycleEvent(ON_DESTROY);
+
+        assertThat(mExecutor.submit(() -> { })).isNull();
+    }
+
+    @Test
+    public void execute_afterDestroy_shouldIgnoreTask() {
+        mLifecycle.handleLifecycleEvent(ON_DESTROY);
+
+        mExecutor.execute(() -> { });
+
+        // Only the task blocking the lane was submitted.
+        assertThat(mExecutors.getStats(LANE_NORMAL).submitted).isEqualTo(1);
+    }
+}
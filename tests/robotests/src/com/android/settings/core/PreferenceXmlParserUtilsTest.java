@@ -63,6 +63,7 @@ public class PreferenceXmlParserUtilsTest {
     @Before
     public void setUp() {
         mContext = getApplicationContext();
+        PreferenceXmlParserUtils.clearMetadataCache();
     }
 
     @Test
@@ -378,6 +379,50 @@ public class PreferenceXmlParserUtilsTest {
         assertThat(bundleWithKey2Found).isTrue();
     }
 
+    @Test
+    public void extractMetadata_calledTwice_shouldReturnSameMetadata() throws Exception {
+        final int flags = MetadataFlag.FLAG_NEED_KEY | MetadataFlag.FLAG_NEED_PREF_TITLE;
+        final List<Bundle> first = PreferenceXmlParserUtils.extractMetadata(mContext,
+                R.xml.location_settings, flags);
+        final List<Bundle> second = PreferenceXmlParserUtils.extractMetadata(mContext,
+                R.xml.location_settings, flags);
+
+        assertThat(second).hasSize(first.size());
+        for (int i = 0; i < first.size(); i++) {
+            assertThat(second.get(i).getString(METADATA_KEY))
+                    .isEqualTo(first.get(i).getString(METADATA_KEY));
+            assertThat(second.get(i).getString(PreferenceXmlParserUtils.METADATA_TITLE))
+                    .isEqualTo(first.get(i).getString(PreferenceXmlParserUtils.METADATA_TITLE));
+        }
+    }
+
+    @Test
+    public void extractMetadata_modifyResult_shouldNotAffectNextCall() throws Exception {
+        final List<Bundle> first = PreferenceXmlParserUtils.extractMetadata(mContext,
+                R.xml.location_settings, MetadataFlag.FLAG_NEED_KEY);
+        final String key = first.get(0).getString(METADATA_KEY);
+        first.get(0).putString(METADATA_KEY, "modified");
+        first.clear();
+
+        final List<Bundle> second = PreferenceXmlParserUtils.extractMetadata(mContext,
+                R.xml.location_settings, MetadataFlag.FLAG_NEED_KEY);
+
+        assertThat(second).isNotEmpty();
+        assertThat(second.get(0).getString(METADATA_KEY)).isEqualTo(key);
+    }
+
+    @Test
+    public void extractMetadata_differentFlags_shouldNotShareMetadata() throws Exception {
+        PreferenceXmlParserUtils.extractMetadata(mContext, R.xml.location_settings,
+                MetadataFlag.FLAG_NEED_KEY);
+
+        final List<Bundle> metadata = PreferenceXmlParserUtils.extractMetadata(mContext,
+                R.xml.location_settings, MetadataFlag.FLAG_NEED_PREF_CONTROLLER);
+
+        assertThat(metadata).isNotEmpty();
+        assertThat(metadata.get(0).containsKey(METADATA_KEY)).isFalse();
+    }
+
     /**
      * @param resId the ID for the XML preference
      * @return an XML resource parser that points to the start tag
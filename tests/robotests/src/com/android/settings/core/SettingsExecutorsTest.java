@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import static com.android.settings.core.SettingsExecutors.LANE_IDLE;
+import static com.android.settings.core.SettingsExecutors.LANE_NORMAL;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+public class SettingsExecutorsTest {
+
+    private static final long TIMEOUT_SECONDS = 5L;
+
+    private SettingsExecutors mExecutors;
+    private CountDownLatch mBlocker;
+    private CountDownLatch mBlocking;
+
+    @Before
+    public void setUp() {
+        mExecutors = new SettingsExecutors(1 /* prefetchThreads */, 1 /* normalThreads */);
+        mBlocker = new CountDownLatch(1);
+        mBlocking = new CountDownLatch(1);
+    }
+
+    @After
+    public void tearDown() {
+        mBlocker.countDown();
+    }
+
+    @Test
+    public void execute_shouldRunByPriorityThenSubmissionOrder() throws Exception {
+        blockLane(LANE_NORMAL);
+        final List<String> order = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch done = new CountDownLatch(4);
+
+        mExecutors.execute(LANE_NORMAL, 5, () -> record(order, "late1", done));
+        mExecutors.execute(LANE_NORMAL, 0, () -> record(order, "early1", done));
+        mExecutors.execute(LANE_NORMAL, 5, () -> record(order, "late2", done));
+        mExecutors.execute(LANE_NORMAL, 0, () -> record(order, "early2", done));
+        mBlocker.countDown();
+
+        assertThat(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+        assertThat(order).containsExactly("early1", "early2", "late1", "late2").inOrder();
+    }
+
+    @Test
+    public void submit_cancelled_shouldNotRunAndLeaveQueue() throws Exception {
+        blockLane(LANE_NORMAL);
+        final CountDownLatch ran = new CountDownLatch(1);
+
+        final Future<?> future = mExecutors.submit(LANE_NORMAL,
+                SettingsExecutors.PRIORITY_DEFAULT, ran::countDown);
+        assertThat(mExecutors.getStats(LANE_NORMAL).queued).isEqualTo(1);
+        future.cancel(false /* mayInterruptIfRunning */);
+
+        assertThat(mExecutors.getStats(LANE_NORMAL).queued).isEqualTo(0);
+        mBlocker.countDown();
+        assertThat(ran.await(200, TimeUnit.MILLISECONDS)).isFalse();
+    }
+
+    @Test
+    public void getStats_shouldCountTasksPerLane() throws Exception {
+        final CountDownLatch done = new CountDownLatch(2);
+        mExecutors.execute(LANE_IDLE, SettingsExecutors.PRIORITY_DEFAULT, done::countDown);
+        mExecutors.getExecutor(LANE_IDLE).execute(done::countDown);
+        assertThat(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+
+        final SettingsExecutors.LaneStats stats = waitForCompletedTasks(LANE_IDLE, 2);
+
+        assertThat(stats.submitted).isEqualTo(2);
+        assertThat(stats.completed).isEqualTo(2);
+        assertThat(mExecutors.getStats(LANE_NORMAL).submitted).isEqualTo(0);
+    }
+
+    @Test
+    public void dump_shouldContainAllLanes() throws Exception {
+        final JSONObject dump = mExecutors.dump();
+
+        assertThat(dump.has("prefetch")).isTrue();
+        assertThat(dump.has("normal")).isTrue();
+        assertThat(dump.getJSONObject("idle").getLong("queued")).isEqualTo(0);
+    }
+
+    private void blockLane(int lane) throws InterruptedException {
+        mExecutors.execute(lane, SettingsExecutors.PRIORITY_DEFAULT, () -> {
+            mBlocking.countDown();
+            try {
+                mBlocker.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertThat(mBlocking.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private SettingsExecutors.LaneStats waitForCompletedTasks(int lane, int count)
+            throws InterruptedException {
+        // Stats are updated right after the task returns.
+        final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(
+                TIMEOUT_SECONDS);
+        SettingsExecutors.LaneStats stats = mExecutors.getStats(lane);
+        while (stats.completed < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            stats = mExecutors.getStats(lane);
+        }
+        return stats;
+    }
+
+    private static void record(List<String> order, String name, CountDownLatch done) {
+        order.add(name);
+        done.countDown();
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import static com.android.settingslib.drawer.CategoryKey.CATEGORY_HOMEPAGE;
+import static com.android.settingslib.drawer.TileUtils.META_DATA_PREFERENCE_KEYHINT;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.content.pm.ChangedPackages;
+import android.content.pm.PackageManager;
+import android.content.pm.ProviderInfo;
+import android.os.Bundle;
+import android.os.UserManager;
+import android.provider.Settings;
+import android.util.ArraySet;
+
+import com.android.settingslib.drawer.DashboardCategory;
+import com.android.settingslib.drawer.ProviderTile;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class CategoryManagerReloadTest {
+
+    private static final int SEQUENCE_NUMBER = 5;
+
+    @Mock
+    private PackageManager mPackageManager;
+    @Mock
+    private CategoryDiskCache mDiskCache;
+
+    private Context mContext;
+    private CategoryManager mCategoryManager;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mContext = spy(RuntimeEnvironment.application);
+        doReturn(mPackageManager).when(mContext).getPackageManager();
+        setDeviceProvisioned(true);
+        mCategoryManager = new CategoryManager(mContext, mDiskCache);
+    }
+
+    @Test
+    public void reloadChangedCategories_nothingChanged_shouldKeepCategories() {
+        final List<DashboardCategory> categories = mCategoryManager.getCategories(mContext);
+
+        mCategoryManager.reloadChangedCategories(mContext, new ArraySet<>());
+
+        assertThat(mCategoryManager.getCategories(mContext)).isSameInstanceAs(categories);
+    }
+
+    @Test
+    public void reloadChangedCategories_packageChanged_shouldReload() {
+        final List<DashboardCategory> categories = mCategoryManager.getCategories(mContext);
+
+        mCategoryManager.reloadChangedCategories(mContext, new ArraySet<>(Arrays.asList("pkg")));
+
+        assertThat(mCategoryManager.getCategories(mContext)).isNotSameInstanceAs(categories);
+    }
+
+    @Test
+    public void reloadChangedCategories_loadedDuringSetup_shouldReloadOnceProvisioned() {
+        setDeviceProvisioned(false);
+        final List<DashboardCategory> categories = mCategoryManager.getCategories(mContext);
+        setDeviceProvisioned(true);
+
+        mCategoryManager.reloadChangedCategories(mContext, new ArraySet<>());
+
+        assertThat(mCategoryManager.getCategories(mContext)).isNotSameInstanceAs(categories);
+    }
+
+    @Test
+    public void getCategories_validDiskCache_shouldLoadFromDisk() {
+        final List<DashboardCategory> categories = createCategories(false /* providerTile */);
+        when(mDiskCache.read(mContext)).thenReturn(createSnapshot(categories));
+
+        assertThat(mCategoryManager.getCategories(mContext)).isSameInstanceAs(categories);
+        assertThat(mCategoryManager.getTilesByCategory(mContext, CATEGORY_HOMEPAGE))
+                .isSameInstanceAs(categories.get(0));
+        verify(mDiskCache, never()).write(any(), any());
+    }
+
+    @Test
+    public void getCategories_packageChangedSinceDiskCache_shouldReload() {
+        final List<DashboardCategory> categories = createCategories(false /* providerTile */);
+        when(mDiskCache.read(mContext)).thenReturn(createSnapshot(categories));
+        when(mPackageManager.getChangedPackages(SEQUENCE_NUMBER)).thenReturn(
+                new ChangedPackages(SEQUENCE_NUMBER + 1, Arrays.asList("pkg")));
+
+        assertThat(mCategoryManager.getCategories(mContext)).isNotSameInstanceAs(categories);
+        verify(mDiskCache).write(any(), any());
+    }
+
+    @Test
+    public void reloadChangedCategories_loadedFromDisk_shouldKeepCategories() {
+        final List<DashboardCategory> categories = createCategories(false /* providerTile */);
+        when(mDiskCache.read(mContext)).thenReturn(createSnapshot(categories));
+        mCategoryManager.getCategories(mContext);
+
+        mCategoryManager.reloadChangedCategories(mContext, new ArraySet<>());
+
+        assertThat(mCategoryManager.getCategories(mContext)).isSameInstanceAs(categories);
+    }
+
+    @Test
+    public void reloadChangedCategories_providerTiles_shouldReload() {
+        final List<DashboardCategory> categories = createCategories(true /* providerTile */);
+        when(mDiskCache.read(mContext)).thenReturn(createSnapshot(categories));
+        mCategoryManager.getCategories(mContext);
+
+        mCategoryManager.reloadChangedCategories(mContext, new ArraySet<>());
+
+        assertThat(mCategoryManager.getCategories(mContext)).isNotSameInstanceAs(categories);
+    }
+
+    @Test
+    public void getLoadState_provisionedChanged_shouldChange() {
+        setDeviceProvisioned(false);
+        final String state = CategoryManager.getLoadState(mContext);
+        setDeviceProvisioned(true);
+
+        assertThat(CategoryManager.getLoadState(mContext)).isNotEqualTo(state);
+    }
+
+    private void setDeviceProvisioned(boolean provisioned) {
+        Settings.Global.putInt(mContext.getContentResolver(), Settings.Global.DEVICE_PROVISIONED,
+                provisioned ? 1 : 0);
+    }
+
+    private CategoryDiskCache.Snapshot createSnapshot(List<DashboardCategory> categories) {
+        return new CategoryDiskCache.Snapshot(SEQUENCE_NUMBER,
+                mContext.getSystemService(UserManager.class).getUserProfiles(), categories,
+                new ArrayList<>());
+    }
+
+    private static List<DashboardCategory> createCategories(boolean providerTile) {
+        final DashboardCategory category = new DashboardCategory(CATEGORY_HOMEPAGE);
+        if (providerTile) {
+            final ProviderInfo providerInfo = new ProviderInfo();
+            providerInfo.packageName = "pkg";
+            providerInfo.name = "class";
+            providerInfo.authority = "authority";
+            final Bundle metaData = new Bundle();
+            metaData.putString(META_DATA_PREFERENCE_KEYHINT, "key");
+            category.addTile(new ProviderTile(providerInfo, CATEGORY_HOMEPAGE, metaData));
+        }
+        return new ArrayList<>(Arrays.asList(category));
+    }
+}
@@ -28,6 +28,7 @@ import androidx.preference.Preference;
 import androidx.preference.PreferenceManager;
 import androidx.preference.PreferenceScreen;
 
+import com.android.settings.core.BackgroundStateController;
 import com.android.settingslib.core.AbstractPreferenceController;
 
 import org.junit.Before;
@@ -94,6 +95,42 @@ public class ControllerTaskTest {
         verify(mTestController).updateState(any(Preference.class));
     }
 
+    @Test
+    public void doRun_backgroundStateController_applyLoadedState() {
+        final TestBackgroundStateController controller =
+                spy(new TestBackgroundStateController(mContext));
+        controller.setKey(KEY);
+        final Preference preference = new Preference(mContext);
+        preference.setKey(KEY);
+        mScreen.addPreference(preference);
+        final ControllerTask task = new ControllerTask(controller, mScreen,
+                null /* metricsFeature */, METRICS_CATEGORY_UNKNOWN);
+
+        task.run();
+
+        verify(controller).applyState(preference, TestBackgroundStateController.STATE);
+        verify(controller, never()).updateState(any(Preference.class));
+    }
+
+    static class TestBackgroundStateController extends TestPreferenceController implements
+            BackgroundStateController<String> {
+        static final String STATE = "state";
+
+        TestBackgroundStateController(Context context) {
+            super(context);
+        }
+
+        @Override
+        public String loadStateInBackground() {
+            return STATE;
+        }
+
+        @Override
+        public void applyState(Preference preference, String snapshot) {
+            preference.setSummary(snapshot);
+        }
+    }
+
     static class TestPreferenceController extends AbstractPreferenceController {
         private boolean mAvailable;
         private String mKey;
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.settings.dashboard;
+
+import static com.android.settingslib.core.instrumentation.Instrumentable.METRICS_CATEGORY_UNKNOWN;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+import android.content.Context;
+
+import androidx.preference.Preference;
+import androidx.preference.PreferenceManager;
+import androidx.preference.PreferenceScreen;
+
+import com.android.settingslib.core.AbstractPreferenceController;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+@RunWith(RobolectricTestRunner.class)
+public class ControllerUpdateSchedulerTest {
+
+    private Context mContext;
+    private PreferenceScreen mScreen;
+    private ControllerUpdateScheduler mScheduler;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        final PreferenceManager preferenceManager = new PreferenceManager(mContext);
+        mScreen = preferenceManager.createPreferenceScreen(mContext);
+        mScheduler = new ControllerUpdateScheduler(Runnable::run);
+    }
+
+    @Test
+    public void prioritize_sortByPreferenceOrderOnScreen() {
+        addPreference("first");
+        addPreference("second");
+        final ControllerTask notOnScreen = createTask("missing");
+        final ControllerTask second = createTask("second");
+        final ControllerTask first = createTask("first");
+
+        final List<ControllerUpdateScheduler.PrioritizedTask> result =
+                ControllerUpdateScheduler.prioritize(mScreen,
+                        Arrays.asList(notOnScreen, second, first));
+
+        assertThat(result.get(0).mTask).isEqualTo(first);
+        assertThat(result.get(1).mTask).isEqualTo(second);
+        assertThat(result.get(2).mTask).isEqualTo(notOnScreen);
+    }
+
+    @Test
+    public void schedule_applyStatesInScreenOrderAndNotifyListener() {
+        addPreference("first");
+        addPreference("second");
+        final TestPreferenceController secondController = spy(new TestPreferenceController(
+                mContext, "second"));
+        final TestPreferenceController firstController = spy(new TestPreferenceController(
+                mContext, "first"));
+        final ControllerUpdateScheduler.OnUpdateCompleteListener listener =
+                mock(ControllerUpdateScheduler.OnUpdateCompleteListener.class);
+
+        mScheduler.schedule(mScreen,
+                Arrays.asList(createTask(secondController), createTask(firstController)),
+                listener);
+
+        final InOrder inOrder = inOrder(firstController, secondController, listener);
+        inOrder.verify(firstController).updateState(any(Preference.class));
+        inOrder.verify(secondController).updateState(any(Preference.class));
+        inOrder.verify(listener).onUpdateComplete();
+    }
+
+    @Test
+    public void schedule_controllerNotAvailable_noRunUpdateState() {
+        addPreference("key");
+        final TestPreferenceController controller = spy(new TestPreferenceController(
+                mContext, "key"));
+        controller.setAvailable(false);
+
+        mScheduler.schedule(mScreen, Arrays.asList(createTask(controller)), null);
+
+        verify(controller, never()).updateState(any(Preference.class));
+    }
+
+    @Test
+    public void schedule_noTask_notifyListener() {
+        final ControllerUpdateScheduler.OnUpdateCompleteListener listener =
+                mock(ControllerUpdateScheduler.OnUpdateCompleteListener.class);
+
+        mScheduler.schedule(mScreen, new ArrayList<>(), listener);
+
+        verify(listener).onUpdateComplete();
+    }
+
+    @Test
+    public void cancel_pendingUpdate_noRunUpdateState() {
+        addPreference("key");
+        final List<Runnable> pending = new ArrayList<>();
+        final Executor executor = pending::add;
+        final ControllerUpdateScheduler scheduler = new ControllerUpdateScheduler(executor);
+        final TestPreferenceController controller = spy(new TestPreferenceController(
+                mContext, "key"));
+        final ControllerUpdateScheduler.OnUpdateCompleteListener listener =
+                mock(ControllerUpdateScheduler.OnUpdateCompleteListener.class);
+
+        scheduler.schedule(mScreen, Arrays.asList(createTask(controller)), listener);
+        scheduler.cancel();
+        pending.forEach(Runnable::run);
+
+        verify(controller, never()).updateState(any(Preference.class));
+        verify(listener, never()).onUpdateComplete();
+    }
+
+    private void addPreference(String key) {
+        final Preference preference = new Preference(mContext);
+        preference.setKey(key);
+        mScreen.addPreference(preference);
+    }
+
+    private ControllerTask createTask(String key) {
+        return createTask(new TestPreferenceController(mContext, key));
+    }
+
+    private ControllerTask createTask(AbstractPreferenceController controller) {
+        return new ControllerTask(controller, mScreen, null /* metricsFeature */,
+                METRICS_CATEGORY_UNKNOWN);
+    }
+
+    static class TestPreferenceController extends AbstractPreferenceController {
+        private final String mKey;
+        private boolean mAvailable;
+
+        TestPreferenceController(Context context, String key) {
+            super(context);
+            mKey = key;
+            mAvailable = true;
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return mAvailable;
+        }
+
+        @Override
+        public String getPreferenceKey() {
+            return mKey;
+        }
+
+        void setAvailable(boolean available) {
+            mAvailable = available;
+        }
+    }
+}
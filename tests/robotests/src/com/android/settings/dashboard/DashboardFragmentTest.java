@@ -236,12 +236,30 @@ public class DashboardFragmentTest {
         when(mockController1.isAvailable()).thenReturn(false);
         when(mockController2.isAvailable()).thenReturn(true);
         mTestFragment.onAttach(RuntimeEnvironment.application);
+        mTestFragment.setUsingControllerEnhancement(false);
         mTestFragment.onResume();
 
         verify(mockController1).getPreferenceKey();
         verify(mockController2, times(2)).getPreferenceKey();
     }
 
+    @Test
+    public void onResume_paralleledControllers_updateStateInParallel() {
+        final AbstractPreferenceController mockController =
+                mock(AbstractPreferenceController.class);
+        final Preference preference = new Preference(mContext);
+        when(mockController.getPreferenceKey()).thenReturn("key");
+        when(mockController.isAvailable()).thenReturn(true);
+        when(mTestFragment.mScreen.findPreference("key")).thenReturn(preference);
+        mTestFragment.addPreferenceController(mockController);
+        mTestFragment.mUpdateScheduler = new ControllerUpdateScheduler(Runnable::run);
+        mTestFragment.setUsingControllerEnhancement(true);
+
+        mTestFragment.onResume();
+
+        verify(mockController).updateState(preference);
+    }
+
     @Test
     public void updateState_doesNotSkipControllersOfSameClass() {
         final AbstractPreferenceController mockController1 =
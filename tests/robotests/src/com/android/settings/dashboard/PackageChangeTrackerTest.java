@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.content.pm.ChangedPackages;
+import android.content.pm.PackageManager;
+import android.os.UserHandle;
+import android.os.UserManager;
+import android.util.ArraySet;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+@RunWith(RobolectricTestRunner.class)
+public class PackageChangeTrackerTest {
+
+    private static final UserHandle USER = UserHandle.of(0);
+
+    @Mock
+    private Context mContext;
+    @Mock
+    private PackageManager mPackageManager;
+    @Mock
+    private UserManager mUserManager;
+
+    private List<UserHandle> mProfiles;
+    private PackageChangeTracker mTracker;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mProfiles = new ArrayList<>(Arrays.asList(USER));
+        when(mContext.getSystemService(UserManager.class)).thenReturn(mUserManager);
+        when(mContext.getPackageManager()).thenReturn(mPackageManager);
+        when(mContext.getUser()).thenReturn(USER);
+        when(mUserManager.getUserProfiles()).thenAnswer(invocation -> new ArrayList<>(mProfiles));
+        mTracker = new PackageChangeTracker();
+    }
+
+    @Test
+    public void collectChangedPackages_firstCall_shouldBeUnknown() {
+        assertThat(mTracker.collectChangedPackages(mContext, new ArraySet<>())).isFalse();
+    }
+
+    @Test
+    public void collectChangedPackages_noChange_shouldBeKnownAndEmpty() {
+        when(mPackageManager.getChangedPackages(0)).thenReturn(
+                new ChangedPackages(5, Arrays.asList("pkg")));
+        mTracker.collectChangedPackages(mContext, new ArraySet<>());
+        final Set<String> changedPackages = new ArraySet<>();
+
+        assertThat(mTracker.collectChangedPackages(mContext, changedPackages)).isTrue();
+        assertThat(changedPackages).isEmpty();
+        assertThat(mTracker.getSequenceNumber()).isEqualTo(5);
+    }
+
+    @Test
+    public void collectChangedPackages_packageChanged_shouldReturnIt() {
+        mTracker.restore(5, mProfiles);
+        when(mPackageManager.getChangedPackages(5)).thenReturn(
+                new ChangedPackages(7, Arrays.asList("pkg1", "pkg2")));
+        final Set<String> changedPackages = new ArraySet<>();
+
+        assertThat(mTracker.collectChangedPackages(mContext, changedPackages)).isTrue();
+        assertThat(changedPackages).containsExactly("pkg1", "pkg2");
+        assertThat(mTracker.getSequenceNumber()).isEqualTo(7);
+    }
+
+    @Test
+    public void collectChangedPackages_profileRemoved_shouldBeUnknown() {
+        mTracker.restore(5, Arrays.asList(USER, UserHandle.of(10)));
+
+        assertThat(mTracker.collectChangedPackages(mContext, new ArraySet<>())).isFalse();
+    }
+}
@@ -28,6 +28,7 @@ import android.widget.ProgressBar;
 
 import androidx.preference.PreferenceViewHolder;
 
+import com.android.settings.utils.AppLabelIconLoader;
 import com.android.settingslib.AppItem;
 import com.android.settingslib.net.UidDetail;
 import com.android.settingslib.net.UidDetailProvider;
@@ -58,6 +59,7 @@ public class AppDataUsagePreferenceTest {
         mUidDetail = new UidDetail();
         mUidDetail.icon = new ColorDrawable(Color.BLUE);
         mUidDetail.label = "title";
+        AppLabelIconLoader.getInstance().invalidateAll();
     }
 
     @Test
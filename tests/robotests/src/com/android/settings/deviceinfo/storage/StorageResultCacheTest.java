@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.deviceinfo.storage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.util.SparseArray;
+
+import com.android.settingslib.applications.StorageStatsSource;
+import com.android.settingslib.deviceinfo.PrivateStorageInfo;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(RobolectricTestRunner.class)
+public class StorageResultCacheTest {
+
+    private static final String FS_UUID = "1234-5678";
+
+    private Context mContext;
+    private StorageResultCache mCache;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mCache = new StorageResultCache(mContext);
+    }
+
+    @Test
+    public void getStorageInfo_notSaved_shouldReturnNull() {
+        assertThat(mCache.getStorageInfo(FS_UUID)).isNull();
+        assertThat(mCache.getResults(FS_UUID)).isNull();
+    }
+
+    @Test
+    public void getStorageInfo_saved_shouldReturnSavedSizes() {
+        mCache.putStorageInfo(null /* fsUuid */, new PrivateStorageInfo(10L, 100L));
+
+        final PrivateStorageInfo info = new StorageResultCache(mContext).getStorageInfo(null);
+
+        assertThat(info.freeBytes).isEqualTo(10L);
+        assertThat(info.totalBytes).isEqualTo(100L);
+        assertThat(mCache.getStorageInfo(FS_UUID)).isNull();
+    }
+
+    @Test
+    public void getResults_saved_shouldReturnSavedResults() {
+        final StorageAsyncLoader.StorageResult primary = new StorageAsyncLoader.StorageResult();
+        primary.gamesSize = 1L;
+        primary.allAppsExceptGamesSize = 2L;
+        primary.imagesSize = 3L;
+        primary.trashSize = 4L;
+        primary.externalStats = new StorageStatsSource.ExternalStorageStats(30L, 10L, 10L, 10L,
+                0L);
+        final StorageAsyncLoader.StorageResult secondary = new StorageAsyncLoader.StorageResult();
+        secondary.duplicateCodeSize = 5L;
+        final SparseArray<StorageAsyncLoader.StorageResult> results = new SparseArray<>();
+        results.put(0, primary);
+        results.put(10, secondary);
+
+        mCache.putResults(FS_UUID, results);
+        final SparseArray<StorageAsyncLoader.StorageResult> saved =
+                new StorageResultCache(mContext).getResults(FS_UUID);
+
+        assertThat(saved.size()).isEqualTo(2);
+        assertThat(saved.get(0).gamesSize).isEqualTo(1L);
+        assertThat(saved.get(0).allAppsExceptGamesSize).isEqualTo(2L);
+        assertThat(saved.get(0).imagesSize).isEqualTo(3L);
+        assertThat(saved.get(0).trashSize).isEqualTo(4L);
+        assertThat(saved.get(0).externalStats.totalBytes).isEqualTo(30L);
+        assertThat(saved.get(10).duplicateCodeSize).isEqualTo(5L);
+        assertThat(saved.get(10).externalStats).isNull();
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.deviceinfo.storage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.util.SparseArray;
+
+import com.android.settingslib.deviceinfo.PrivateStorageInfo;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(RobolectricTestRunner.class)
+public class StorageSizesTest {
+
+    private static final String FS_UUID = "1234-5678";
+
+    private StorageResultCache mCache;
+    private StorageSizes mSizes;
+
+    @Before
+    public void setUp() {
+        mCache = new StorageResultCache(RuntimeEnvironment.application);
+        mSizes = new StorageSizes();
+    }
+
+    @Test
+    public void startScan_bothCached_shouldDisplayCachedSizes() {
+        mCache.putStorageInfo(FS_UUID, new PrivateStorageInfo(10L, 100L));
+        mCache.putResults(FS_UUID, createResults(50L));
+
+        mSizes.startScan(mCache, FS_UUID);
+
+        assertThat(mSizes.getStorageInfo().freeBytes).isEqualTo(10L);
+        assertThat(mSizes.getAppsResult().get(0).gamesSize).isEqualTo(50L);
+    }
+
+    @Test
+    public void startScan_onlyStorageInfoCached_shouldDisplayNothing() {
+        mCache.putStorageInfo(FS_UUID, new PrivateStorageInfo(10L, 100L));
+
+        mSizes.startScan(mCache, FS_UUID);
+
+        assertThat(mSizes.getStorageInfo()).isNull();
+        assertThat(mSizes.getAppsResult()).isNull();
+    }
+
+    @Test
+    public void onStorageInfoLoaded_appsNotLoaded_shouldKeepCachedPair() {
+        mCache.putStorageInfo(FS_UUID, new PrivateStorageInfo(10L, 100L));
+        mCache.putResults(FS_UUID, createResults(50L));
+        mSizes.startScan(mCache, FS_UUID);
+
+        assertThat(mSizes.onStorageInfoLoaded(new PrivateStorageInfo(5L, 100L))).isFalse();
+
+        assertThat(mSizes.getStorageInfo().freeBytes).isEqualTo(10L);
+        assertThat(mSizes.getAppsResult().get(0).gamesSize).isEqualTo(50L);
+        assertThat(mCache.getStorageInfo(FS_UUID).freeBytes).isEqualTo(10L);
+    }
+
+    @Test
+    public void onAppsResultLoaded_bothLoaded_shouldReplaceAndCachePair() {
+        mCache.putStorageInfo(FS_UUID, new PrivateStorageInfo(10L, 100L));
+        mCache.putResults(FS_UUID, createResults(50L));
+        mSizes.startScan(mCache, FS_UUID);
+        final PrivateStorageInfo loadedInfo = new PrivateStorageInfo(5L, 100L);
+        final SparseArray<StorageAsyncLoader.StorageResult> loadedResults = createResults(55L);
+        mSizes.onStorageInfoLoaded(loadedInfo);
+
+        assertThat(mSizes.onAppsResultLoaded(loadedResults)).isTrue();
+
+        assertThat(mSizes.getStorageInfo()).isSameInstanceAs(loadedInfo);
+        assertThat(mSizes.getAppsResult()).isSameInstanceAs(loadedResults);
+        assertThat(mCache.getStorageInfo(FS_UUID).freeBytes).isEqualTo(5L);
+        assertThat(mCache.getResults(FS_UUID).get(0).gamesSize).isEqualTo(55L);
+    }
+
+    @Test
+    public void startScan_afterLoadedSizes_shouldWaitForBothLoadersAgain() {
+        mSizes.startScan(mCache, FS_UUID);
+        mSizes.onStorageInfoLoaded(new PrivateStorageInfo(5L, 100L));
+        mSizes.onAppsResultLoaded(createResults(55L));
+
+        mSizes.startScan(mCache, FS_UUID);
+
+        assertThat(mSizes.onStorageInfoLoaded(new PrivateStorageInfo(1L, 100L))).isFalse();
+        assertThat(mSizes.getStorageInfo().freeBytes).isEqualTo(5L);
+    }
+
+    private static SparseArray<StorageAsyncLoader.StorageResult> createResults(long gamesSize) {
+        final StorageAsyncLoader.StorageResult result = new StorageAsyncLoader.StorageResult();
+        result.gamesSize = gamesSize;
+        final SparseArray<StorageAsyncLoader.StorageResult> results = new SparseArray<>();
+        results.put(0, result);
+        return results;
+    }
+}
@@ -19,8 +19,10 @@ package com.android.settings.fuelgauge;
 import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
@@ -47,6 +49,7 @@ import com.android.settings.R;
 import com.android.settings.SettingsActivity;
 import com.android.settings.core.InstrumentedPreferenceFragment;
 import com.android.settings.testutils.FakeFeatureFactory;
+import com.android.settings.utils.AppLabelIconLoader;
 import com.android.settingslib.core.instrumentation.MetricsFeatureProvider;
 
 import org.junit.Before;
@@ -120,9 +123,10 @@ public final class BatteryChartPreferenceControllerTest {
             mBatteryHistEntry);
         mBatteryDiffEntry = spy(mBatteryDiffEntry);
         // Adds fake testing data.
-        BatteryDiffEntry.sResourceCache.put(
-            "fakeBatteryDiffEntryKey",
-            new BatteryEntry.NameAndIcon("fakeName", /*icon=*/ null, /*iconId=*/ 1));
+        AppLabelIconLoader.getInstance().put(
+            BatteryDiffEntry.getCacheKey("fakeBatteryDiffEntryKey"),
+            new AppLabelIconLoader.LabelAndIcon(
+                "fakeName", /*packageName=*/ null, /*icon=*/ null, /*iconId=*/ 1));
         mBatteryChartPreferenceController.setBatteryHistoryMap(
             createBatteryHistoryMap());
     }
@@ -131,20 +135,20 @@ public final class BatteryChartPreferenceControllerTest {
     public void testOnDestroy_activityIsChanging_clearBatteryEntryCache() {
         doReturn(true).when(mSettingsActivity).isChangingConfigurations();
         // Ensures the testing environment is correct.
-        assertThat(BatteryDiffEntry.sResourceCache).hasSize(1);
+        assertThat(getFakeCachedLabelAndIcon()).isNotNull();
 
         mBatteryChartPreferenceController.onDestroy();
-        assertThat(BatteryDiffEntry.sResourceCache).isEmpty();
+        assertThat(getFakeCachedLabelAndIcon()).isNull();
     }
 
     @Test
     public void testOnDestroy_activityIsNotChanging_notClearBatteryEntryCache() {
         doReturn(false).when(mSettingsActivity).isChangingConfigurations();
         // Ensures the testing environment is correct.
-        assertThat(BatteryDiffEntry.sResourceCache).hasSize(1);
+        assertThat(getFakeCachedLabelAndIcon()).isNotNull();
 
         mBatteryChartPreferenceController.onDestroy();
-        assertThat(BatteryDiffEntry.sResourceCache).isNotEmpty();
+        assertThat(getFakeCachedLabelAndIcon()).isNotNull();
     }
 
     @Test
@@ -284,6 +288,7 @@ public final class BatteryChartPreferenceControllerTest {
     public void testAddPreferenceToScreen_addPreferenceIntoScreen() {
         final String appLabel = "fake app label";
         doReturn(1).when(mAppListGroup).getPreferenceCount();
+        doReturn(true).when(mBatteryDiffEntry).isLabelAndIconCached();
         doReturn(mDrawable).when(mBatteryDiffEntry).getAppIcon();
         doReturn(appLabel).when(mBatteryDiffEntry).getAppLabel();
         doReturn(PREF_KEY).when(mBatteryHistEntry).getKey();
@@ -309,10 +314,25 @@ public final class BatteryChartPreferenceControllerTest {
         assertThat(pref.isEnabled()).isFalse();
     }
 
+    @Test
+    public void testAddPreferenceToScreen_labelAndIconNotCached_requestAndIgnoreAddPreference() {
+        doReturn(false).when(mBatteryDiffEntry).isLabelAndIconCached();
+        doNothing().when(mBatteryDiffEntry).requestLabelAndIcon(anyInt(), any());
+
+        mBatteryChartPreferenceController.addPreferenceToScreen(
+            Arrays.asList(mBatteryDiffEntry));
+
+        verify(mBatteryDiffEntry)
+            .requestLabelAndIcon(eq(AppLabelIconLoader.PRIORITY_VISIBLE), any());
+        verify(mBatteryDiffEntry, never()).getAppLabel();
+        verify(mAppListGroup, never()).addPreference(any());
+    }
+
     @Test
     public void testAddPreferenceToScreen_alreadyInScreen_notAddPreferenceAgain() {
         final String appLabel = "fake app label";
         doReturn(1).when(mAppListGroup).getPreferenceCount();
+        doReturn(true).when(mBatteryDiffEntry).isLabelAndIconCached();
         doReturn(mDrawable).when(mBatteryDiffEntry).getAppIcon();
         doReturn(appLabel).when(mBatteryDiffEntry).getAppLabel();
         doReturn(PREF_KEY).when(mBatteryHistEntry).getKey();
@@ -475,6 +495,7 @@ public final class BatteryChartPreferenceControllerTest {
     public void testOnExpand_expandedIsTrue_addSystemEntriesToPreferenceGroup() {
         doReturn(1).when(mAppListGroup).getPreferenceCount();
         mBatteryChartPreferenceController.mSystemEntries.add(mBatteryDiffEntry);
+        doReturn(true).when(mBatteryDiffEntry).isLabelAndIconCached();
         doReturn("label").when(mBatteryDiffEntry).getAppLabel();
         doReturn(mDrawable).when(mBatteryDiffEntry).getAppIcon();
         doReturn(PREF_KEY).when(mBatteryHistEntry).getKey();
@@ -664,6 +685,11 @@ public final class BatteryChartPreferenceControllerTest {
             .isFalse();
     }
 
+    private static AppLabelIconLoader.LabelAndIcon getFakeCachedLabelAndIcon() {
+        return AppLabelIconLoader.getInstance().getCached(
+            BatteryDiffEntry.getCacheKey("fakeBatteryDiffEntryKey"));
+    }
+
     private static Map<Long, Map<String, BatteryHistEntry>> createBatteryHistoryMap() {
         final Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap = new HashMap<>();
         for (int index = 0; index < DESIRED_HISTORY_SIZE; index++) {
@@ -35,6 +35,8 @@ import android.os.UserHandle;
 import android.os.UserManager;
 
 import com.android.settings.R;
+import com.android.settings.utils.AppLabelIconLoader;
+import com.android.settings.utils.AppLabelIconLoader.LabelAndIcon;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -136,12 +138,10 @@ public final class BatteryDiffEntryTest {
 
         assertThat(entry.getAppLabel()).isEqualTo(expectedName);
         assertThat(entry.getAppIconId()).isEqualTo(R.drawable.ic_settings_aod);
-        assertThat(BatteryDiffEntry.sResourceCache).hasSize(1);
         // Verifies the app label in the cache.
-        final BatteryEntry.NameAndIcon nameAndIcon =
-            BatteryDiffEntry.sResourceCache.get(entry.getKey());
-        assertThat(nameAndIcon.name).isEqualTo(expectedName);
-        assertThat(nameAndIcon.iconId).isEqualTo(R.drawable.ic_settings_aod);
+        final LabelAndIcon labelAndIcon = getCachedLabelAndIcon(entry);
+        assertThat(labelAndIcon.label).isEqualTo(expectedName);
+        assertThat(labelAndIcon.iconId).isEqualTo(R.drawable.ic_settings_aod);
         // Verifies the restrictable flag in the cache.
         assertThat(entry.mValidForRestriction).isTrue();
         assertThat(BatteryDiffEntry.sValidForRestriction.get(entry.getKey())).isTrue();
@@ -162,12 +162,10 @@ public final class BatteryDiffEntryTest {
         assertThat(entry.getAppLabel()).isEqualTo(expectedName);
         assertThat(entry.getAppIcon()).isNull();
         assertThat(entry.getAppIconId()).isEqualTo(0);
-        assertThat(BatteryDiffEntry.sResourceCache).hasSize(1);
         // Verifies the app label in the cache.
-        final BatteryEntry.NameAndIcon nameAndIcon =
-            BatteryDiffEntry.sResourceCache.get(entry.getKey());
-        assertThat(nameAndIcon.name).isEqualTo(expectedName);
-        assertThat(nameAndIcon.iconId).isEqualTo(0);
+        final LabelAndIcon labelAndIcon = getCachedLabelAndIcon(entry);
+        assertThat(labelAndIcon.label).isEqualTo(expectedName);
+        assertThat(labelAndIcon.iconId).isEqualTo(0);
         // Verifies the restrictable flag in the cache.
         assertThat(entry.mValidForRestriction).isTrue();
         assertThat(BatteryDiffEntry.sValidForRestriction.get(entry.getKey())).isTrue();
@@ -191,11 +189,9 @@ public final class BatteryDiffEntryTest {
 
         assertThat(entry.getAppLabel()).isEqualTo(expectedAppLabel);
         assertThat(entry.getAppIconId()).isEqualTo(0);
-        assertThat(BatteryDiffEntry.sResourceCache).hasSize(1);
         // Verifies the app label in the cache.
-        final BatteryEntry.NameAndIcon nameAndIcon =
-            BatteryDiffEntry.sResourceCache.get(entry.getKey());
-        assertThat(nameAndIcon.name).isEqualTo(expectedAppLabel);
+        final LabelAndIcon labelAndIcon = getCachedLabelAndIcon(entry);
+        assertThat(labelAndIcon.label).isEqualTo(expectedAppLabel);
         // Verifies the restrictable flag in the cache.
         assertThat(entry.mValidForRestriction).isFalse();
         assertThat(BatteryDiffEntry.sValidForRestriction.get(entry.getKey())).isFalse();
@@ -211,11 +207,9 @@ public final class BatteryDiffEntryTest {
         final BatteryDiffEntry entry = createBatteryDiffEntry(10, batteryHistEntry);
 
         assertThat(entry.getAppLabel()).isEqualTo(expectedAppLabel);
-        assertThat(BatteryDiffEntry.sResourceCache).hasSize(1);
         // Verifies the app label in the cache.
-        final BatteryEntry.NameAndIcon nameAndIcon =
-            BatteryDiffEntry.sResourceCache.get(entry.getKey());
-        assertThat(nameAndIcon.name).isEqualTo(expectedAppLabel);
+        final LabelAndIcon labelAndIcon = getCachedLabelAndIcon(entry);
+        assertThat(labelAndIcon.label).isEqualTo(expectedAppLabel);
     }
 
     @Test
@@ -230,7 +224,7 @@ public final class BatteryDiffEntryTest {
 
         entry.mIsLoaded = true;
         assertThat(entry.getAppLabel()).isEqualTo(expectedAppLabel);
-        assertThat(BatteryDiffEntry.sResourceCache).isEmpty();
+        assertThat(getCachedLabelAndIcon(entry)).isNull();
     }
 
     @Test
@@ -245,7 +239,7 @@ public final class BatteryDiffEntryTest {
         entry.mIsLoaded = true;
         entry.mAppIcon = mockDrawable;
         assertThat(entry.getAppIcon()).isEqualTo(mockDrawable);
-        assertThat(BatteryDiffEntry.sResourceCache).isEmpty();
+        assertThat(getCachedLabelAndIcon(entry)).isNull();
     }
 
     @Test
@@ -270,25 +264,43 @@ public final class BatteryDiffEntryTest {
 
         entry.mAppIcon = null;
         assertThat(entry.getAppIcon()).isEqualTo(mockDrawable);
-        assertThat(BatteryDiffEntry.sResourceCache).hasSize(1);
         // Verifies the app label in the cache.
-        final BatteryEntry.NameAndIcon nameAndIcon =
-            BatteryDiffEntry.sResourceCache.get(entry.getKey());
-        assertThat(nameAndIcon.icon).isEqualTo(mockDrawable);
+        final LabelAndIcon labelAndIcon = getCachedLabelAndIcon(entry);
+        assertThat(labelAndIcon.icon).isEqualTo(mockDrawable);
     }
 
     @Test
     public void testClearCache_clearDataForResourcesAndFlags() {
-        BatteryDiffEntry.sResourceCache.put(
-            "fake application key",
-            new BatteryEntry.NameAndIcon("app label", null, /*iconId=*/ 0));
+        final AppLabelIconLoader loader = AppLabelIconLoader.getInstance();
+        final String cacheKey = BatteryDiffEntry.getCacheKey("fake application key");
+        final String otherCacheKey = "other_screen:fake application key";
+        loader.put(cacheKey, new LabelAndIcon("app label", null, null));
+        loader.put(otherCacheKey, new LabelAndIcon("app label", null, null));
         BatteryDiffEntry.sValidForRestriction.put(
             "fake application key", Boolean.valueOf(false));
 
         BatteryDiffEntry.clearCache();
 
-        assertThat(BatteryDiffEntry.sResourceCache).isEmpty();
+        assertThat(loader.getCached(cacheKey)).isNull();
         assertThat(BatteryDiffEntry.sValidForRestriction).isEmpty();
+        // Keeps the data cached by the other screens.
+        assertThat(loader.getCached(otherCacheKey)).isNotNull();
+        loader.invalidate(otherCacheKey);
+    }
+
+    @Test
+    public void testIsLabelAndIconCached_afterLoaded_returnTrue() {
+        final ContentValues values = getContentValuesWithType(
+            ConvertUtils.CONSUMER_TYPE_SYSTEM_BATTERY);
+        values.put("drainType",
+            Integer.valueOf(BatteryConsumer.POWER_COMPONENT_AMBIENT_DISPLAY));
+        final BatteryDiffEntry entry =
+            createBatteryDiffEntry(10, new BatteryHistEntry(values));
+        assertThat(entry.isLabelAndIconCached()).isFalse();
+
+        entry.getAppLabel();
+
+        assertThat(entry.isLabelAndIconCached()).isTrue();
     }
 
     @Test
@@ -307,9 +319,8 @@ public final class BatteryDiffEntryTest {
         mockConstantState(mockDrawable2);
         assertThat(entry2.getAppIcon()).isEqualTo(mockDrawable2);
         // Verifies the cache is updated into the new drawable.
-        final BatteryEntry.NameAndIcon nameAndIcon =
-            BatteryDiffEntry.sResourceCache.get(entry2.getKey());
-        assertThat(nameAndIcon.icon).isEqualTo(mockDrawable2);
+        final LabelAndIcon labelAndIcon = getCachedLabelAndIcon(entry2);
+        assertThat(labelAndIcon.icon).isEqualTo(mockDrawable2);
     }
 
     @Test
@@ -448,6 +459,11 @@ public final class BatteryDiffEntryTest {
         return values;
     }
 
+    private static LabelAndIcon getCachedLabelAndIcon(BatteryDiffEntry entry) {
+        return AppLabelIconLoader.getInstance().getCached(
+            BatteryDiffEntry.getCacheKey(entry.getKey()));
+    }
+
     private BatteryDiffEntry createBatteryDiffEntry(Drawable drawable) throws Exception {
         final ContentValues values = getContentValuesWithType(
             ConvertUtils.CONSUMER_TYPE_UID_BATTERY);
@@ -23,6 +23,7 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.content.Context;
@@ -38,6 +39,8 @@ import android.os.UserManager;
 
 import com.android.settings.R;
 import com.android.settings.fuelgauge.BatteryEntry.NameAndIcon;
+import com.android.settings.testutils.shadow.ShadowThreadUtils;
+import com.android.settings.utils.AppLabelIconLoader;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -49,7 +52,9 @@ import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
 
+import java.util.Collections;
 import java.util.Locale;
 
 @RunWith(RobolectricTestRunner.class)
@@ -213,13 +218,31 @@ public class BatteryEntryTest {
     public void testUidCache_switchLocale_shouldCleanCache() {
         BatteryEntry.stopRequestQueue();
 
+        final AppLabelIconLoader loader = AppLabelIconLoader.getInstance();
+        final String key = BatteryEntry.getCacheKey(APP_UID);
         Locale.setDefault(new Locale("en_US"));
-        BatteryEntry.sUidCache.put(Integer.toString(APP_UID), null);
-        assertThat(BatteryEntry.sUidCache).isNotEmpty();
+        loader.put(key, new AppLabelIconLoader.LabelAndIcon("label", null, null));
+        assertThat(loader.getCached(key)).isNotNull();
 
         Locale.setDefault(new Locale("zh_TW"));
         createBatteryEntryForApp(null, null, HIGH_DRAIN_PACKAGE);
-        assertThat(BatteryEntry.sUidCache).isEmpty(); // check if cache is clear
+        assertThat(loader.getCached(key)).isNull(); // check if cache is clear
+    }
+
+    @Test
+    @Config(shadows = ShadowThreadUtils.class)
+    public void startRequestQueue_allLoaded_shouldForgetCallbacks() {
+        BatteryEntry.stopRequestQueue();
+        BatteryEntry.sHandler = mockHandler;
+        final BatteryEntry entry =
+                createBatteryEntryForApp(null, APP_DEFAULT_PACKAGE_NAME, HIGH_DRAIN_PACKAGE);
+        BatteryEntry.sRequestQueue.add(entry);
+
+        BatteryEntry.startRequestQueue(Collections.singletonList(entry));
+
+        assertThat(BatteryEntry.sPendingCallbacks).isEmpty();
+        verify(mockHandler).sendEmptyMessage(BatteryEntry.MSG_REPORT_FULLY_DRAWN);
+        BatteryEntry.stopRequestQueue();
     }
 
     @Test
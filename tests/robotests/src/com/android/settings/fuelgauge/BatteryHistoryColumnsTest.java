@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.settings.fuelgauge;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.ContentValues;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RunWith(RobolectricTestRunner.class)
+public final class BatteryHistoryColumnsTest {
+
+    @Test
+    public void create_returnsSortedKeysAndMetrics() {
+        final long[] timestamps = new long[] {101L, 102L, 103L};
+        final Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap = new HashMap<>();
+        final BatteryHistEntry entry1 = createBatteryHistEntry(2L, 1.5, 10L, 20L);
+        final BatteryHistEntry entry2 = createBatteryHistEntry(1L, 3.0, 30L, 40L);
+        Map<String, BatteryHistEntry> entryMap = new HashMap<>();
+        entryMap.put(entry1.getKey(), entry1);
+        batteryHistoryMap.put(timestamps[0], entryMap);
+        batteryHistoryMap.put(timestamps[1], new HashMap<>());
+        entryMap = new HashMap<>();
+        entryMap.put(entry1.getKey(), entry1);
+        entryMap.put(entry2.getKey(), entry2);
+        batteryHistoryMap.put(timestamps[2], entryMap);
+
+        final BatteryHistoryColumns columns = BatteryHistoryColumns.create(
+            timestamps, timestamps.length, batteryHistoryMap);
+
+        assertThat(columns.mKeys).asList().containsExactly("1", "2").inOrder();
+        assertThat(columns.mHasData).asList().containsExactly(true, false, true).inOrder();
+        // Missing entries have zero metrics.
+        final int missingCell = columns.getCell(0, 0);
+        assertThat(columns.mEntries[missingCell]).isNull();
+        assertThat(columns.mConsumePower[missingCell]).isEqualTo(0.0);
+        final int cell = columns.getCell(2, 0);
+        assertThat(columns.mEntries[cell]).isSameInstanceAs(entry2);
+        assertThat(columns.mConsumePower[cell]).isEqualTo(3.0);
+        assertThat(columns.mForegroundUsageTimeInMs[cell]).isEqualTo(30L);
+        assertThat(columns.mBackgroundUsageTimeInMs[cell]).isEqualTo(40L);
+    }
+
+    @Test
+    public void create_missingTimestamp_hasNoData() {
+        final long[] timestamps = new long[] {101L, 102L};
+
+        final BatteryHistoryColumns columns = BatteryHistoryColumns.create(
+            timestamps, timestamps.length, new HashMap<>());
+
+        assertThat(columns.getKeyCount()).isEqualTo(0);
+        assertThat(columns.mHasData).asList().containsExactly(false, false);
+    }
+
+    private static BatteryHistEntry createBatteryHistEntry(
+            long uid, double consumePower,
+            long foregroundUsageTimeInMs, long backgroundUsageTimeInMs) {
+        final ContentValues values = new ContentValues();
+        values.put(BatteryHistEntry.KEY_UID, Long.valueOf(uid));
+        values.put(BatteryHistEntry.KEY_CONSUMER_TYPE,
+            Integer.valueOf(ConvertUtils.CONSUMER_TYPE_UID_BATTERY));
+        values.put(BatteryHistEntry.KEY_CONSUME_POWER, consumePower);
+        values.put(BatteryHistEntry.KEY_FOREGROUND_USAGE_TIME,
+            Long.valueOf(foregroundUsageTimeInMs));
+        values.put(BatteryHistEntry.KEY_BACKGROUND_USAGE_TIME,
+            Long.valueOf(backgroundUsageTimeInMs));
+        return new BatteryHistEntry(values);
+    }
+}
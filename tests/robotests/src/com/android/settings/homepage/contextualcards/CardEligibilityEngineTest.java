@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage.contextualcards;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.net.Uri;
+
+import com.android.settings.testutils.FakeFeatureFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowContentResolver;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+public class CardEligibilityEngineTest {
+
+    private static final long TIMEOUT_MS = 200;
+    private static final Uri ELIGIBLE_URI = Uri.parse("content://test/eligible");
+    private static final Uri INELIGIBLE_URI = Uri.parse("content://test/ineligible");
+    private static final Uri BLOCKED_URI = Uri.parse("content://test/blocked");
+
+    private Context mContext;
+    private ExecutorService mExecutor;
+    private CardEligibilityEngine mEngine;
+    private CountDownLatch mBlockedLatch;
+    private Set<Uri> mEligibleUris;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        FakeFeatureFactory.setupForTest();
+        mExecutor = Executors.newFixedThreadPool(2);
+        mBlockedLatch = new CountDownLatch(1);
+        mEligibleUris = new HashSet<>(Arrays.asList(ELIGIBLE_URI, BLOCKED_URI));
+        mEngine = spy(new CardEligibilityEngine(mContext, mExecutor));
+        doAnswer(invocation -> {
+            final ContextualCard card = invocation.getArgument(0);
+            return (Callable<ContextualCard>) () -> {
+                if (BLOCKED_URI.equals(card.getSliceUri())) {
+                    mBlockedLatch.await();
+                }
+                return mEligibleUris.contains(card.getSliceUri()) ? card : null;
+            };
+        }).when(mEngine).createChecker(any(ContextualCard.class));
+    }
+
+    @After
+    public void tearDown() {
+        mBlockedLatch.countDown();
+        mExecutor.shutdownNow();
+    }
+
+    @Test
+    public void filterEligibleCards_shouldKeepEligibleCardsOnly() {
+        final List<ContextualCard> result = mEngine.filterEligibleCards(
+                Arrays.asList(getCard(INELIGIBLE_URI), getCard(ELIGIBLE_URI)), 3, TIMEOUT_MS);
+
+        assertThat(result).hasSize(1);
+        assertThat(result.get(0).getSliceUri()).isEqualTo(ELIGIBLE_URI);
+    }
+
+    @Test
+    public void filterEligibleCards_twice_shouldCheckOnce() {
+        final List<ContextualCard> candidates = Arrays.asList(getCard(ELIGIBLE_URI));
+
+        mEngine.filterEligibleCards(candidates, 3, TIMEOUT_MS);
+        final List<ContextualCard> result = mEngine.filterEligibleCards(candidates, 3, TIMEOUT_MS);
+
+        assertThat(result).hasSize(1);
+        verify(mEngine, times(1)).createChecker(any(ContextualCard.class));
+    }
+
+    @Test
+    public void filterEligibleCards_afterInvalidate_shouldCheckAgain() {
+        final List<ContextualCard> candidates = Arrays.asList(getCard(ELIGIBLE_URI));
+
+        mEngine.filterEligibleCards(candidates, 3, TIMEOUT_MS);
+        mEngine.invalidate(ELIGIBLE_URI);
+        mEngine.filterEligibleCards(candidates, 3, TIMEOUT_MS);
+
+        verify(mEngine, times(2)).createChecker(any(ContextualCard.class));
+    }
+
+    @Test
+    public void filterEligibleCards_enoughEligibleCards_shouldNotWaitForOthers() {
+        final List<ContextualCard> result = mEngine.filterEligibleCards(
+                Arrays.asList(getCard(ELIGIBLE_URI), getCard(BLOCKED_URI)), 1,
+                60 * 1000L /* timeoutMs */);
+
+        assertThat(result).hasSize(1);
+        assertThat(result.get(0).getSliceUri()).isEqualTo(ELIGIBLE_URI);
+    }
+
+    @Test
+    public void filterEligibleCards_enoughEligibleCards_shouldReportAllEligibleCardsLater()
+            throws InterruptedException {
+        final CountDownLatch callbackLatch = new CountDownLatch(1);
+        final List<ContextualCard> allEligibleCards = new ArrayList<>();
+
+        final List<ContextualCard> result = mEngine.filterEligibleCards(
+                Arrays.asList(getCard(ELIGIBLE_URI), getCard(BLOCKED_URI)), 1,
+                60 * 1000L /* timeoutMs */, cards -> {
+                    allEligibleCards.addAll(cards);
+                    callbackLatch.countDown();
+                });
+        assertThat(result).hasSize(1);
+        assertThat(callbackLatch.getCount()).isEqualTo(1);
+
+        mBlockedLatch.countDown();
+
+        assertThat(callbackLatch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(allEligibleCards).hasSize(2);
+        assertThat(allEligibleCards.get(1).getSliceUri()).isEqualTo(BLOCKED_URI);
+    }
+
+    @Test
+    public void filterEligibleCards_allResolved_shouldReportEligibleCardsBeforeReturning() {
+        final List<ContextualCard> allEligibleCards = new ArrayList<>();
+
+        mEngine.filterEligibleCards(
+                Arrays.asList(getCard(INELIGIBLE_URI), getCard(ELIGIBLE_URI)), 3, TIMEOUT_MS,
+                allEligibleCards::addAll);
+
+        assertThat(allEligibleCards).hasSize(1);
+        assertThat(allEligibleCards.get(0).getSliceUri()).isEqualTo(ELIGIBLE_URI);
+    }
+
+    @Test
+    public void filterEligibleCards_timeout_shouldDropUnresolvedCards() {
+        final List<ContextualCard> result = mEngine.filterEligibleCards(
+                Arrays.asList(getCard(BLOCKED_URI), getCard(ELIGIBLE_URI)), 3, TIMEOUT_MS);
+
+        assertThat(result).hasSize(1);
+        assertThat(result.get(0).getSliceUri()).isEqualTo(ELIGIBLE_URI);
+    }
+
+    @Test
+    public void filterEligibleCards_cacheExpired_shouldStopObservingUri() {
+        final ShadowContentResolver shadowContentResolver =
+                shadowOf(mContext.getContentResolver());
+        mEngine.filterEligibleCards(Arrays.asList(getCard(ELIGIBLE_URI)), 3, TIMEOUT_MS);
+        assertThat(shadowContentResolver.getContentObservers(ELIGIBLE_URI)).hasSize(1);
+
+        ShadowLooper.getShadowMainLooper().idleFor(CardEligibilityEngine.CACHE_TTL_MS,
+                TimeUnit.MILLISECONDS);
+
+        assertThat(shadowContentResolver.getContentObservers(ELIGIBLE_URI)).isEmpty();
+    }
+
+    @Test
+    public void invalidate_shouldStopObservingUri() {
+        final ShadowContentResolver shadowContentResolver =
+                shadowOf(mContext.getContentResolver());
+        mEngine.filterEligibleCards(Arrays.asList(getCard(ELIGIBLE_URI)), 3, TIMEOUT_MS);
+
+        mEngine.invalidate(ELIGIBLE_URI);
+
+        assertThat(shadowContentResolver.getContentObservers(ELIGIBLE_URI)).isEmpty();
+    }
+
+    private ContextualCard getCard(Uri uri) {
+        return new ContextualCard.Builder()
+                .setName(uri.getLastPathSegment())
+                .setCardType(ContextualCard.CardType.SLICE)
+                .setSliceUri(uri)
+                .setRankingScore(0.5)
+                .build();
+    }
+}
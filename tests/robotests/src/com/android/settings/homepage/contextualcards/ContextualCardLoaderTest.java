@@ -22,9 +22,13 @@ import static com.android.settings.intelligence.ContextualCardProto.ContextualCa
 import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
@@ -46,6 +50,7 @@ import org.robolectric.RuntimeEnvironment;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @RunWith(RobolectricTestRunner.class)
@@ -120,18 +125,32 @@ public class ContextualCardLoaderTest {
     @Test
     public void getDisplayableCards_refreshCardUri_shouldLogContextualCard() {
         mContextualCardLoader.mNotifyUri = CardContentProvider.REFRESH_CARD_URI;
+        final List<ContextualCard> cards = getContextualCardList();
+        setEligibleCards(cards);
 
-        mContextualCardLoader.getDisplayableCards(new ArrayList<>());
+        mContextualCardLoader.getDisplayableCards(cards);
 
         verify(mFakeFeatureFactory.metricsFeatureProvider).action(any(),
                 eq(SettingsEnums.ACTION_CONTEXTUAL_CARD_NOT_SHOW), any(String.class));
     }
 
+    @Test
+    public void getDisplayableCards_noCandidate_shouldNotLogContextualCard() {
+        mContextualCardLoader.mNotifyUri = CardContentProvider.REFRESH_CARD_URI;
+
+        mContextualCardLoader.getDisplayableCards(new ArrayList<>());
+
+        verify(mFakeFeatureFactory.metricsFeatureProvider, never()).action(any(),
+                eq(SettingsEnums.ACTION_CONTEXTUAL_CARD_NOT_SHOW), any(String.class));
+    }
+
     @Test
     public void getDisplayableCards_deleteCardUri_shouldNotLogContextualCard() {
         mContextualCardLoader.mNotifyUri = CardContentProvider.DELETE_CARD_URI;
+        final List<ContextualCard> cards = getContextualCardList();
+        setEligibleCards(cards);
 
-        mContextualCardLoader.getDisplayableCards(new ArrayList<>());
+        mContextualCardLoader.getDisplayableCards(cards);
 
         verify(mFakeFeatureFactory.metricsFeatureProvider, never()).action(any(),
                 eq(SettingsEnums.ACTION_CONTEXTUAL_CARD_NOT_SHOW), any(String.class));
@@ -151,6 +170,17 @@ public class ContextualCardLoaderTest {
         assertThat(mContextualCardLoader.getCardCount()).isEqualTo(configCount);
     }
 
+    /** Makes the eligibility engine report {@code cards} as all the eligible cards. */
+    private void setEligibleCards(List<ContextualCard> cards) {
+        final CardEligibilityEngine engine = mock(CardEligibilityEngine.class);
+        doAnswer(invocation -> {
+            final Consumer<List<ContextualCard>> callback = invocation.getArgument(3);
+            callback.accept(cards);
+            return cards;
+        }).when(engine).filterEligibleCards(anyList(), anyInt(), anyLong(), any());
+        doReturn(engine).when(mContextualCardLoader).getEligibilityEngine();
+    }
+
     private List<ContextualCard> getContextualCardList() {
         final List<ContextualCard> cards = new ArrayList<>();
         cards.add(new ContextualCard.Builder()
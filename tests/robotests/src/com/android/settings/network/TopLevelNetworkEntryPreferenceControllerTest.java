@@ -26,6 +26,8 @@ import android.content.Context;
 import android.os.UserManager;
 import android.text.BidiFormatter;
 
+import androidx.preference.Preference;
+
 import com.android.settings.R;
 import com.android.settings.testutils.shadow.ShadowRestrictedLockUtilsInternal;
 import com.android.settings.testutils.shadow.ShadowUtils;
@@ -93,4 +95,15 @@ public class TopLevelNetworkEntryPreferenceControllerTest {
         assertThat(mController.getSummary()).isEqualTo(BidiFormatter.getInstance().unicodeWrap(
                 mContext.getString(R.string.network_dashboard_summary_no_mobile)));
     }
+
+    @Test
+    public void applyState_shouldSetLoadedSummary() {
+        when(mMobileNetworkPreferenceController.isAvailable()).thenReturn(false);
+        final Preference preference = new Preference(mContext);
+
+        mController.applyState(preference, mController.loadStateInBackground());
+
+        assertThat(preference.getSummary()).isEqualTo(BidiFormatter.getInstance().unicodeWrap(
+                mContext.getString(R.string.network_dashboard_summary_no_mobile)));
+    }
 }
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network.telephony;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.os.PersistableBundle;
+import android.telephony.CarrierConfigManager;
+import android.telephony.SubscriptionManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(RobolectricTestRunner.class)
+public class CarrierConfigCacheTest {
+
+    private static final int SUB_ID = 2;
+    private static final int OTHER_SUB_ID = 3;
+
+    @Mock
+    private CarrierConfigManager mCarrierConfigManager;
+
+    private Context mContext;
+    private PersistableBundle mConfig;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mContext = RuntimeEnvironment.application;
+        mConfig = new PersistableBundle();
+        mConfig.putBoolean(CarrierConfigManager.KEY_WORLD_MODE_ENABLED_BOOL, true);
+        when(mCarrierConfigManager.getConfigForSubId(SUB_ID)).thenReturn(mConfig);
+        when(mCarrierConfigManager.getConfigForSubId(OTHER_SUB_ID))
+                .thenReturn(new PersistableBundle());
+    }
+
+    @After
+    public void tearDown() {
+        while (CarrierConfigCache.isCaching()) {
+            CarrierConfigCache.release(mContext);
+        }
+    }
+
+    @Test
+    public void getConfigForSubId_notAcquired_shouldNotCache() {
+        CarrierConfigCache.getConfigForSubId(mCarrierConfigManager, SUB_ID);
+        CarrierConfigCache.getConfigForSubId(mCarrierConfigManager, SUB_ID);
+
+        verify(mCarrierConfigManager, times(2)).getConfigForSubId(SUB_ID);
+    }
+
+    @Test
+    public void getConfigForSubId_acquired_shouldFetchOnce() {
+        CarrierConfigCache.acquire(mContext);
+
+        assertThat(CarrierConfigCache.getConfigForSubId(mCarrierConfigManager, SUB_ID))
+                .isSameInstanceAs(mConfig);
+        assertThat(CarrierConfigCache.getConfigForSubId(mCarrierConfigManager, SUB_ID))
+                .isSameInstanceAs(mConfig);
+
+        verify(mCarrierConfigManager, times(1)).getConfigForSubId(SUB_ID);
+    }
+
+    @Test
+    public void getConfigForSubId_nullConfig_shouldNotCache() {
+        CarrierConfigCache.acquire(mContext);
+
+        assertThat(CarrierConfigCache.getConfigForSubId(mCarrierConfigManager, 5)).isNull();
+        CarrierConfigCache.getConfigForSubId(mCarrierConfigManager, 5);
+
+        verify(mCarrierConfigManager, times(2)).getConfigForSubId(5);
+    }
+
+    @Test
+    public void invalidate_subId_shouldOnlyRefetchThatSubscription() {
+        CarrierConfigCache.acquire(mContext);
+        CarrierConfigCache.getConfigForSubId(mCarrierConfigManager, SUB_ID);
+        CarrierConfigCache.getConfigForSubId(mCarrierConfigManager, OTHER_SUB_ID);
+
+        CarrierConfigCache.invalidate(SUB_ID);
+        CarrierConfigCache.getConfigForSubId(mCarrierConfigManager, SUB_ID);
+        CarrierConfigCache.getConfigForSubId(mCarrierConfigManager, OTHER_SUB_ID);
+
+        verify(mCarrierConfigManager, times(2)).getConfigForSubId(SUB_ID);
+        verify(mCarrierConfigManager, times(1)).getConfigForSubId(OTHER_SUB_ID);
+    }
+
+    @Test
+    public void invalidate_unknownSubscription_shouldRefetchAll() {
+        CarrierConfigCache.acquire(mContext);
+        CarrierConfigCache.getConfigForSubId(mCarrierConfigManager, SUB_ID);
+        CarrierConfigCache.getConfigForSubId(mCarrierConfigManager, OTHER_SUB_ID);
+
+        CarrierConfigCache.invalidate(SubscriptionManager.INVALID_SUBSCRIPTION_ID);
+        CarrierConfigCache.getConfigForSubId(mCarrierConfigManager, SUB_ID);
+        CarrierConfigCache.getConfigForSubId(mCarrierConfigManager, OTHER_SUB_ID);
+
+        verify(mCarrierConfigManager, times(2)).getConfigForSubId(SUB_ID);
+        verify(mCarrierConfigManager, times(2)).getConfigForSubId(OTHER_SUB_ID);
+    }
+
+    @Test
+    public void release_lastHolder_shouldStopCaching() {
+        CarrierConfigCache.acquire(mContext);
+        CarrierConfigCache.acquire(mContext);
+        CarrierConfigCache.getConfigForSubId(mCarrierConfigManager, SUB_ID);
+
+        CarrierConfigCache.release(mContext);
+        assertThat(CarrierConfigCache.isCaching()).isTrue();
+        CarrierConfigCache.release(mContext);
+        assertThat(CarrierConfigCache.isCaching()).isFalse();
+        CarrierConfigCache.getConfigForSubId(mCarrierConfigManager, SUB_ID);
+
+        verify(mCarrierConfigManager, times(2)).getConfigForSubId(SUB_ID);
+    }
+}
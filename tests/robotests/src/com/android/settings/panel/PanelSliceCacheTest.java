@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.panel;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.res.Configuration;
+import android.net.Uri;
+
+import androidx.slice.Slice;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class PanelSliceCacheTest {
+
+    private static final String PANEL_TYPE = "panel";
+    private static final Uri URI = Uri.parse("content://testUri");
+
+    private PanelSliceCache mCache;
+    private Configuration mConfig;
+
+    @Before
+    public void setUp() {
+        mCache = new PanelSliceCache();
+        mConfig = new Configuration();
+        mConfig.fontScale = 1.0f;
+    }
+
+    @Test
+    public void getPanelState_samePanelType_shouldReturnSameState() {
+        final PanelSliceCache.PanelState state = mCache.getPanelState(PANEL_TYPE, mConfig);
+        final Slice slice = new Slice();
+        state.putSlice(URI, slice);
+        state.putHeight(URI, 100);
+
+        assertThat(mCache.getPanelState(PANEL_TYPE, mConfig).getSlice(URI))
+                .isSameInstanceAs(slice);
+        assertThat(mCache.getPanelState(PANEL_TYPE, mConfig).getHeight(URI)).isEqualTo(100);
+        assertThat(mCache.getPanelState("other", mConfig).getSlice(URI)).isNull();
+    }
+
+    @Test
+    public void putSlice_null_shouldForgetSlice() {
+        final PanelSliceCache.PanelState state = mCache.getPanelState(PANEL_TYPE, mConfig);
+        state.putSlice(URI, new Slice());
+
+        state.putSlice(URI, null);
+
+        assertThat(state.getSlice(URI)).isNull();
+    }
+
+    @Test
+    public void getPanelState_fontScaleChanged_shouldNotReturnOldHeights() {
+        mCache.getPanelState(PANEL_TYPE, mConfig).putHeight(URI, 100);
+        final Configuration newConfig = new Configuration(mConfig);
+        newConfig.fontScale = 1.3f;
+
+        assertThat(mCache.getPanelState(PANEL_TYPE, newConfig).getHeight(URI)).isEqualTo(0);
+        assertThat(mCache.getPanelState(PANEL_TYPE, mConfig).getHeight(URI)).isEqualTo(100);
+    }
+}
@@ -23,20 +23,26 @@ import static com.android.settings.slices.CustomSliceRegistry.MEDIA_OUTPUT_INDIC
 import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyFloat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.content.Context;
 import android.net.Uri;
+import android.os.SystemClock;
 import android.view.LayoutInflater;
+import android.view.MotionEvent;
+import android.view.View;
 import android.view.ViewGroup;
 import android.widget.FrameLayout;
 
 import androidx.lifecycle.LiveData;
+import androidx.recyclerview.widget.RecyclerView;
 import androidx.slice.Slice;
 
 import com.android.settings.R;
@@ -99,6 +105,23 @@ public class PanelSlicesAdapterTest {
 
     }
 
+    /** Returns whether a touch on the row of {@code viewHolder} is intercepted by the adapter. */
+    private static boolean interceptTouch(PanelSlicesAdapter adapter,
+            SliceRowViewHolder viewHolder) {
+        final RecyclerView recyclerView = mock(RecyclerView.class);
+        when(recyclerView.findChildViewUnder(anyFloat(), anyFloat()))
+                .thenReturn(viewHolder.itemView);
+        when(recyclerView.getChildViewHolder(viewHolder.itemView)).thenReturn(viewHolder);
+        final long now = SystemClock.uptimeMillis();
+        final MotionEvent event = MotionEvent.obtain(now, now, MotionEvent.ACTION_DOWN,
+                0 /* x */, 0 /* y */, 0 /* metaState */);
+        try {
+            return adapter.mCachedSliceTouchListener.onInterceptTouchEvent(recyclerView, event);
+        } finally {
+            event.recycle();
+        }
+    }
+
     private void addTestLiveData(Uri uri) {
         // Create a slice to return for the LiveData
         final Slice slice = spy(new Slice());
@@ -138,6 +161,42 @@ public class PanelSlicesAdapterTest {
         assertThat(adapter.getData().size()).isEqualTo(MAX_NUM_OF_SLICES);
     }
 
+    @Test
+    public void removeSlice_overMaxNum_shouldRemoveRowAndShowNextSlice() {
+        for (int i = 0; i < MAX_NUM_OF_SLICES + 1; i++) {
+            addTestLiveData(Uri.parse("uri" + i));
+        }
+        final PanelSlicesAdapter adapter =
+                new PanelSlicesAdapter(mPanelFragment, mData, 0 /* metrics category */);
+        final RecyclerView.AdapterDataObserver observer =
+                mock(RecyclerView.AdapterDataObserver.class);
+        adapter.registerAdapterDataObserver(observer);
+
+        adapter.removeSlice(Uri.parse("uri0"));
+
+        assertThat(adapter.getItemCount()).isEqualTo(MAX_NUM_OF_SLICES);
+        assertThat(adapter.getSliceUri(0)).isEqualTo(Uri.parse("uri1"));
+        verify(observer).onItemRangeRemoved(0, 1);
+        verify(observer).onItemRangeInserted(MAX_NUM_OF_SLICES - 1, 1);
+        verify(observer, never()).onChanged();
+    }
+
+    @Test
+    public void notifySliceLoaded_shouldOnlyUpdateRowOfSlice() {
+        addTestLiveData(DATA_URI);
+        addTestLiveData(MEDIA_OUTPUT_INDICATOR_SLICE_URI);
+        final PanelSlicesAdapter adapter =
+                new PanelSlicesAdapter(mPanelFragment, mData, 0 /* metrics category */);
+        final RecyclerView.AdapterDataObserver observer =
+                mock(RecyclerView.AdapterDataObserver.class);
+        adapter.registerAdapterDataObserver(observer);
+
+        adapter.notifySliceLoaded(MEDIA_OUTPUT_INDICATOR_SLICE_URI);
+
+        verify(observer).onItemRangeChanged(1, 1, null);
+        verify(observer, never()).onChanged();
+    }
+
     @Test
     public void nonMediaOutputIndicatorSlice_shouldAllowDividerAboveAndBelow() {
         addTestLiveData(DATA_URI);
@@ -170,6 +229,70 @@ public class PanelSlicesAdapterTest {
         assertThat(viewHolder.mSliceSliderLayout).isNull();
     }
 
+    @Test
+    public void onBind_sliceNotLoaded_shouldKeepCachedHeight() {
+        final LiveData<Slice> liveData = mock(LiveData.class);
+        mData.put(DATA_URI, liveData);
+        final PanelSliceCache.PanelState panelState = new PanelSliceCache.PanelState();
+        panelState.putHeight(DATA_URI, 100);
+        doReturn(panelState).when(mPanelFragment).getPanelState();
+        final PanelSlicesAdapter adapter =
+                new PanelSlicesAdapter(mPanelFragment, mData, 0 /* metrics category */);
+        final SliceRowViewHolder viewHolder =
+                adapter.onCreateViewHolder(new FrameLayout(mContext), 0 /* view type*/);
+
+        adapter.onBindViewHolder(viewHolder, 0 /* position */);
+
+        assertThat(viewHolder.itemView.getMinimumHeight()).isEqualTo(100);
+        assertThat(viewHolder.sliceView.getVisibility()).isEqualTo(View.GONE);
+    }
+
+    @Test
+    public void onBind_sliceLoaded_shouldNotKeepCachedHeight() {
+        addTestLiveData(DATA_URI);
+        final PanelSliceCache.PanelState panelState = new PanelSliceCache.PanelState();
+        panelState.putHeight(DATA_URI, 100);
+        doReturn(panelState).when(mPanelFragment).getPanelState();
+        final PanelSlicesAdapter adapter =
+                new PanelSlicesAdapter(mPanelFragment, mData, 0 /* metrics category */);
+        final SliceRowViewHolder viewHolder =
+                adapter.onCreateViewHolder(new FrameLayout(mContext), 0 /* view type*/);
+
+        adapter.onBindViewHolder(viewHolder, 0 /* position */);
+
+        assertThat(viewHolder.itemView.getMinimumHeight()).isEqualTo(0);
+    }
+
+    @Test
+    public void onInterceptTouchEvent_cachedSlice_shouldDropTouch() {
+        final LiveData<Slice> liveData = mock(LiveData.class);
+        mData.put(DATA_URI, liveData);
+        final PanelSliceCache.PanelState panelState = new PanelSliceCache.PanelState();
+        panelState.putHeight(DATA_URI, 100);
+        doReturn(panelState).when(mPanelFragment).getPanelState();
+        final PanelSlicesAdapter adapter =
+                new PanelSlicesAdapter(mPanelFragment, mData, 0 /* metrics category */);
+        final SliceRowViewHolder viewHolder =
+                adapter.onCreateViewHolder(new FrameLayout(mContext), 0 /* view type*/);
+        adapter.onBindViewHolder(viewHolder, 0 /* position */);
+
+        assertThat(viewHolder.isSliceLoaded()).isFalse();
+        assertThat(interceptTouch(adapter, viewHolder)).isTrue();
+    }
+
+    @Test
+    public void onInterceptTouchEvent_sliceLoaded_shouldNotDropTouch() {
+        addTestLiveData(DATA_URI);
+        final PanelSlicesAdapter adapter =
+                new PanelSlicesAdapter(mPanelFragment, mData, 0 /* metrics category */);
+        final SliceRowViewHolder viewHolder =
+                adapter.onCreateViewHolder(new FrameLayout(mContext), 0 /* view type*/);
+        adapter.onBindViewHolder(viewHolder, 0 /* position */);
+
+        assertThat(viewHolder.isSliceLoaded()).isTrue();
+        assertThat(interceptTouch(adapter, viewHolder)).isFalse();
+    }
+
     @Test
     public void onCreateViewHolder_viewTypeSlider_verifyLayout() {
         final PanelSlicesAdapter adapter =
@@ -4,14 +4,18 @@ import static com.android.settingslib.drawer.TileUtils.META_DATA_PREFERENCE_TITL
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.Manifest;
 import android.content.Context;
 import android.content.pm.ActivityInfo;
 import android.content.pm.ProviderInfo;
+import android.content.res.Configuration;
 import android.database.Cursor;
 import android.net.Uri;
 import android.os.Bundle;
@@ -20,12 +24,15 @@ import android.provider.SearchIndexablesContract;
 import com.android.settings.R;
 import com.android.settings.accounts.ManagedProfileSettings;
 import com.android.settings.dashboard.CategoryManager;
+import com.android.settings.flashlight.FlashlightHandleActivity;
 import com.android.settings.homepage.TopLevelSettings;
 import com.android.settings.network.NetworkDashboardFragment;
+import com.android.settings.support.SupportDashboardActivity;
 import com.android.settings.testutils.FakeFeatureFactory;
 import com.android.settingslib.drawer.ActivityTile;
 import com.android.settingslib.drawer.CategoryKey;
 import com.android.settingslib.drawer.DashboardCategory;
+import com.android.settingslib.search.Indexable;
 import com.android.settingslib.search.SearchIndexableData;
 
 import org.junit.After;
@@ -41,7 +48,10 @@ import org.robolectric.annotation.Resetter;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @RunWith(RobolectricTestRunner.class)
 @Config(shadows = SettingsSearchIndexablesProviderTest.ShadowCategoryManager.class)
@@ -64,6 +74,7 @@ public class SettingsSearchIndexablesProviderTest {
         info.authority = PACKAGE_NAME;
         info.readPermission = Manifest.permission.READ_SEARCH_INDEXABLES;
         mProvider.attachInfo(RuntimeEnvironment.application, info);
+        mProvider.mExecutor = Runnable::run;
 
         final SearchFeatureProvider featureProvider = new SearchFeatureProviderImpl();
         featureProvider.getSearchIndexableResources().getProviderValues().clear();
@@ -149,6 +160,88 @@ public class SettingsSearchIndexablesProviderTest {
         assertThat(keys).containsAtLeast("pref_key_1", "pref_key_3", "pref_key_5");
     }
 
+    @Test
+    public void queryNonIndexableKeys_twice_shouldQueryProviderOnce() {
+        final Indexable.SearchIndexProvider provider = setUpNonIndexableKeysProvider();
+
+        assertThat(queryNonIndexableKeys()).containsExactly("key");
+        assertThat(queryNonIndexableKeys()).containsExactly("key");
+
+        verify(provider, times(1)).getNonIndexableKeys(any(Context.class));
+    }
+
+    @Test
+    public void queryNonIndexableKeys_afterConfigurationChanged_shouldQueryProviderAgain() {
+        final Indexable.SearchIndexProvider provider = setUpNonIndexableKeysProvider();
+
+        queryNonIndexableKeys();
+        mProvider.onConfigurationChanged(new Configuration());
+        queryNonIndexableKeys();
+
+        verify(provider, times(2)).getNonIndexableKeys(any(Context.class));
+    }
+
+    @Test
+    public void queryNonIndexableKeys_providerNotThreadSafe_shouldQueryOnCallingThread() {
+        final List<Runnable> executedTasks = new ArrayList<>();
+        mProvider.mExecutor = executedTasks::add;
+        setUpNonIndexableKeysProvider();
+
+        assertThat(queryNonIndexableKeys()).containsExactly("key");
+        assertThat(executedTasks).isEmpty();
+    }
+
+    @Test
+    public void queryNonIndexableKeys_threadSafeProviderNotStarted_shouldQueryOnCallingThread() {
+        final List<Runnable> executedTasks = new ArrayList<>();
+        mProvider.mExecutor = executedTasks::add;
+        final BaseSearchIndexProvider provider = mock(BaseSearchIndexProvider.class);
+        when(provider.isThreadSafe()).thenReturn(true);
+        when(provider.getNonIndexableKeys(any(Context.class)))
+                .thenAnswer(invocation -> new ArrayList<>(Arrays.asList("key")));
+        final Collection<SearchIndexableData> providerValues =
+                mFakeFeatureFactory.searchFeatureProvider.getSearchIndexableResources()
+                        .getProviderValues();
+        providerValues.clear();
+        providerValues.add(new SearchIndexableData(FakeSettingsFragment.class, provider));
+
+        assertThat(queryNonIndexableKeys()).containsExactly("key");
+        assertThat(executedTasks).hasSize(1);
+
+        // The task the executor runs late must not query the provider again.
+        executedTasks.get(0).run();
+        verify(provider, times(1)).getNonIndexableKeys(any(Context.class));
+    }
+
+    @Test
+    public void queryRawData_threadSafeProviders_shouldKeepProviderOrder() {
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        mProvider.mExecutor = executor;
+        final Collection<SearchIndexableData> providerValues =
+                mFakeFeatureFactory.searchFeatureProvider.getSearchIndexableResources()
+                        .getProviderValues();
+        providerValues.clear();
+        providerValues.add(new SearchIndexableData(FlashlightHandleActivity.class,
+                FlashlightHandleActivity.SEARCH_INDEX_DATA_PROVIDER));
+        providerValues.add(new SearchIndexableData(SupportDashboardActivity.class,
+                SupportDashboardActivity.SEARCH_INDEX_DATA_PROVIDER));
+        final Uri rawUri = Uri.parse(BASE_AUTHORITY + SearchIndexablesContract.INDEXABLES_RAW_PATH);
+
+        final List<String> keys = new ArrayList<>();
+        try (Cursor cursor = mProvider.query(rawUri,
+                SearchIndexablesContract.INDEXABLES_RAW_COLUMNS, null, null, null)) {
+            while (cursor.moveToNext()) {
+                keys.add(cursor.getString(12));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(FlashlightHandleActivity.SEARCH_INDEX_DATA_PROVIDER.isThreadSafe()).isTrue();
+        assertThat(SupportDashboardActivity.SEARCH_INDEX_DATA_PROVIDER.isThreadSafe()).isTrue();
+        assertThat(keys).containsAtLeast("flashlight", "support_dashboard_activity").inOrder();
+    }
+
     @Test
     public void refreshSearchEnabledState_classNotFoundInCategoryMap_hasInjectionRawData() {
         mProvider.refreshSearchEnabledState(mContext,
@@ -205,6 +298,31 @@ public class SettingsSearchIndexablesProviderTest {
         assertThat(mProvider.isEligibleForIndexing(PACKAGE_NAME, activityTile)).isTrue();
     }
 
+    private Indexable.SearchIndexProvider setUpNonIndexableKeysProvider() {
+        final Indexable.SearchIndexProvider provider = mock(Indexable.SearchIndexProvider.class);
+        when(provider.getNonIndexableKeys(any(Context.class)))
+                .thenAnswer(invocation -> new ArrayList<>(Arrays.asList("key", "")));
+        final Collection<SearchIndexableData> providerValues =
+                mFakeFeatureFactory.searchFeatureProvider.getSearchIndexableResources()
+                        .getProviderValues();
+        providerValues.clear();
+        providerValues.add(new SearchIndexableData(FakeSettingsFragment.class, provider));
+        return provider;
+    }
+
+    private List<String> queryNonIndexableKeys() {
+        final Uri rawUri = Uri.parse(
+                BASE_AUTHORITY + SearchIndexablesContract.NON_INDEXABLES_KEYS_PATH);
+        final List<String> keys = new ArrayList<>();
+        try (Cursor cursor = mProvider.query(rawUri,
+                SearchIndexablesContract.NON_INDEXABLES_KEYS_COLUMNS, null, null, null)) {
+            while (cursor.moveToNext()) {
+                keys.add(cursor.getString(0));
+            }
+        }
+        return keys;
+    }
+
     @Implements(CategoryManager.class)
     public static class ShadowCategoryManager {
 
@@ -21,6 +21,7 @@ import static android.content.ContentResolver.SCHEME_CONTENT;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.spy;
 
 import android.app.ApplicationPackageManager;
@@ -159,6 +160,36 @@ public class SlicesDatabaseAccessorTest {
         assertThat(data.getHighlightMenuRes()).isEqualTo(SliceTestUtils.FAKE_HIGHLIGHT_MENU_RES);
     }
 
+    @Test
+    public void getSliceDataFromUri_indexedUri_returnSameSliceData() {
+        final String key = "key";
+        SliceTestUtils.insertSliceToDb(mContext, key);
+        final Uri uri = new Uri.Builder()
+                .scheme(ContentResolver.SCHEME_CONTENT)
+                .authority(SettingsSlicesContract.AUTHORITY)
+                .appendPath(SettingsSlicesContract.PATH_SETTING_ACTION)
+                .appendPath(key)
+                .build();
+
+        final SliceData data = mAccessor.getSliceDataFromUri(uri);
+
+        assertThat(data.getUri()).isEqualTo(uri);
+        assertThat(mAccessor.getSliceDataFromUri(uri)).isSameInstanceAs(data);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void getSliceDataFromKey_afterIndexing_readNewData() {
+        SliceTestUtils.insertSliceToDb(mContext, "key");
+        mAccessor.getSliceDataFromKey("key");
+        SlicesDatabaseHelper.getInstance(mContext).clearIndexedState();
+        final SlicesIndexer indexer = spy(new SlicesIndexer(mContext));
+        doReturn(new ArrayList<SliceData>()).when(indexer).getSliceData();
+
+        indexer.run();
+
+        mAccessor.getSliceDataFromKey("key");
+    }
+
     @Test(expected = IllegalStateException.class)
     public void testGetSliceFromUri_invalidUri_errorThrown() {
         final Uri uri = new Uri.Builder()
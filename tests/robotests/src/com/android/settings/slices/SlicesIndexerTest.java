@@ -18,6 +18,7 @@ package com.android.settings.slices;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.spy;
 
@@ -39,6 +40,7 @@ import org.robolectric.RuntimeEnvironment;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 @RunWith(RobolectricTestRunner.class)
 public class SlicesIndexerTest {
@@ -105,6 +107,27 @@ public class SlicesIndexerTest {
         assertThat(helper.isSliceDataIndexed()).isTrue();
     }
 
+    @Test
+    public void testInsertSliceData_indexReadDuringIndexing_shouldNotStayCached() {
+        final SlicesDatabaseHelper helper = SlicesDatabaseHelper.getInstance(mContext);
+        helper.getWritableDatabase();
+        final SlicesDatabaseHelper spyHelper = spy(helper);
+        final AtomicReference<SliceDataIndex> indexDuringIndexing = new AtomicReference<>();
+        doAnswer(invocation -> {
+            invocation.callRealMethod();
+            // A reader loading the index before the rows are committed.
+            indexDuringIndexing.set(spyHelper.getSliceDataIndex());
+            return null;
+        }).when(spyHelper).setIndexedState();
+        mManager = spy(new SlicesIndexer(mContext, spyHelper));
+        doReturn(getMockIndexableData(false)).when(mManager).getSliceData();
+
+        mManager.run();
+
+        assertThat(indexDuringIndexing.get()).isNotNull();
+        assertThat(spyHelper.getSliceDataIndex()).isNotSameInstanceAs(indexDuringIndexing.get());
+    }
+
     @Test
     public void testInsertSliceData_nonPublicSlice_mockDataInserted() {
         final List<SliceData> sliceData = getMockIndexableData(false);
@@ -201,6 +224,46 @@ public class SlicesIndexerTest {
         }
     }
 
+    @Test
+    public void updateSliceData_sameData_noRowTouched() {
+        final List<SliceData> sliceData = getMockIndexableData(false);
+        final SQLiteDatabase db = SlicesDatabaseHelper.getInstance(mContext).getWritableDatabase();
+        mManager.updateSliceData(db, sliceData);
+
+        assertThat(mManager.updateSliceData(db, sliceData)).isEqualTo(0);
+    }
+
+    @Test
+    public void updateSliceData_oneRowChangedOneRemoved_onlyTouchThoseRows() {
+        final List<SliceData> sliceData = getMockIndexableData(false);
+        final SQLiteDatabase db = SlicesDatabaseHelper.getInstance(mContext).getWritableDatabase();
+        mManager.updateSliceData(db, sliceData);
+        final List<SliceData> newSliceData = new ArrayList<>();
+        newSliceData.add(sliceData.get(0));
+        newSliceData.add(new SliceData.Builder()
+                .setKey(KEYS[1])
+                .setTitle("new title")
+                .setFragmentName(FRAGMENT_NAME)
+                .setUri(URI)
+                .setPreferenceControllerClassName(PREF_CONTROLLER)
+                .build());
+
+        // Delete and insert key2, delete key3.
+        assertThat(mManager.updateSliceData(db, newSliceData)).isEqualTo(3);
+        try (Cursor cursor = db.rawQuery("SELECT key, title FROM slices_index ORDER BY rowid",
+                null)) {
+            assertThat(cursor.getCount()).isEqualTo(2);
+            cursor.moveToFirst();
+            assertThat(cursor.getString(0)).isEqualTo(KEYS[0]);
+            assertThat(cursor.getString(1)).isEqualTo(TITLES[0]);
+            cursor.moveToNext();
+            assertThat(cursor.getString(0)).isEqualTo(KEYS[1]);
+            assertThat(cursor.getString(1)).isEqualTo("new title");
+        } finally {
+            db.close();
+        }
+    }
+
     private void insertSpecialCase(String key, String title) {
         final ContentValues values = new ContentValues();
         values.put(IndexColumns.KEY, key);
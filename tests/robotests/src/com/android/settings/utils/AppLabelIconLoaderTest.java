@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.utils;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+@RunWith(RobolectricTestRunner.class)
+public class AppLabelIconLoaderTest {
+
+    private List<Runnable> mPendingWorkers;
+    private List<String> mLoadedKeys;
+    private AppLabelIconLoader mLoader;
+    private Locale mDefaultLocale;
+
+    @Before
+    public void setUp() {
+        mDefaultLocale = Locale.getDefault();
+        mPendingWorkers = new ArrayList<>();
+        mLoadedKeys = new ArrayList<>();
+        mLoader = new AppLabelIconLoader(mPendingWorkers::add);
+    }
+
+    @After
+    public void tearDown() {
+        Locale.setDefault(mDefaultLocale);
+    }
+
+    @Test
+    public void load_sameKeyTwice_shouldLoadOnceAndNotifyBoth() {
+        final AppLabelIconLoader.Callback callback1 = mock(AppLabelIconLoader.Callback.class);
+        final AppLabelIconLoader.Callback callback2 = mock(AppLabelIconLoader.Callback.class);
+
+        mLoader.load("key", AppLabelIconLoader.PRIORITY_VISIBLE, createLoader("key"), callback1);
+        mLoader.load("key", AppLabelIconLoader.PRIORITY_VISIBLE, createLoader("key"), callback2);
+        runWorkers();
+
+        assertThat(mLoadedKeys).containsExactly("key");
+        verify(callback1).onLoaded(eq("key"), any(AppLabelIconLoader.LabelAndIcon.class));
+        verify(callback2).onLoaded(eq("key"), any(AppLabelIconLoader.LabelAndIcon.class));
+        assertThat(mLoader.getCached("key").label).isEqualTo("key");
+    }
+
+    @Test
+    public void load_visibleRequest_shouldLoadBeforeBackgroundRequests() {
+        final AppLabelIconLoader.Callback callback = mock(AppLabelIconLoader.Callback.class);
+
+        mLoader.load("background1", AppLabelIconLoader.PRIORITY_BACKGROUND,
+                createLoader("background1"), callback);
+        mLoader.load("background2", AppLabelIconLoader.PRIORITY_BACKGROUND,
+                createLoader("background2"), callback);
+        mLoader.load("visible", AppLabelIconLoader.PRIORITY_VISIBLE,
+                createLoader("visible"), callback);
+        runWorkers();
+
+        assertThat(mLoadedKeys)
+                .containsExactly("visible", "background1", "background2").inOrder();
+    }
+
+    @Test
+    public void cancel_pendingRequest_shouldNotLoad() {
+        final AppLabelIconLoader.Callback callback = mock(AppLabelIconLoader.Callback.class);
+
+        mLoader.load("key", AppLabelIconLoader.PRIORITY_VISIBLE, createLoader("key"), callback);
+        mLoader.cancel(callback);
+        runWorkers();
+
+        assertThat(mLoadedKeys).isEmpty();
+        verify(callback, never()).onLoaded(any(), any());
+    }
+
+    @Test
+    public void getCached_localeChanged_shouldReturnNull() {
+        Locale.setDefault(Locale.US);
+        mLoader.put("key", new AppLabelIconLoader.LabelAndIcon("label", null, null));
+
+        Locale.setDefault(Locale.FRANCE);
+
+        assertThat(mLoader.getCached("key")).isNull();
+    }
+
+    @Test
+    public void invalidateByPrefix_shouldOnlyDropMatchingKeys() {
+        mLoader.put("a:1", new AppLabelIconLoader.LabelAndIcon("label", null, null));
+        mLoader.put("b:1", new AppLabelIconLoader.LabelAndIcon("label", null, null));
+
+        mLoader.invalidateByPrefix("a:");
+
+        assertThat(mLoader.getCached("a:1")).isNull();
+        assertThat(mLoader.getCached("b:1")).isNotNull();
+    }
+
+    private AppLabelIconLoader.Loader createLoader(String label) {
+        return () -> {
+            mLoadedKeys.add(label);
+            return new AppLabelIconLoader.LabelAndIcon(label, null, null);
+        };
+    }
+
+    private void runWorkers() {
+        while (!mPendingWorkers.isEmpty()) {
+            mPendingWorkers.remove(0).run();
+        }
+    }
+}
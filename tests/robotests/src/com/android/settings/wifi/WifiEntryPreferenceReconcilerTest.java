@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.wifi;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+
+import androidx.fragment.app.Fragment;
+import androidx.preference.Preference;
+import androidx.preference.PreferenceCategory;
+import androidx.preference.PreferenceManager;
+import androidx.preference.PreferenceScreen;
+
+import com.android.settingslib.wifi.LongPressWifiEntryPreference;
+import com.android.wifitrackerlib.WifiEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class WifiEntryPreferenceReconcilerTest {
+
+    private Context mContext;
+    private PreferenceCategory mCategory;
+    private Fragment mFragment;
+    private List<WifiEntry> mCreatedEntries;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        final PreferenceScreen screen =
+                new PreferenceManager(mContext).createPreferenceScreen(mContext);
+        mCategory = new PreferenceCategory(mContext);
+        screen.addPreference(mCategory);
+        mFragment = mock(Fragment.class);
+        mCreatedEntries = new ArrayList<>();
+    }
+
+    @Test
+    public void reconcile_newEntries_shouldAddPreferencesInOrder() {
+        final WifiEntry a = mockWifiEntry("a");
+        final WifiEntry b = mockWifiEntry("b");
+
+        final int nextOrder = reconcile(a, b);
+
+        assertThat(getKeysInOrder()).containsExactly("a", "b").inOrder();
+        assertThat(mCreatedEntries).containsExactly(a, b);
+        assertThat(nextOrder).isGreaterThan(getPreference("b").getOrder());
+    }
+
+    @Test
+    public void reconcile_sameEntries_shouldKeepPreferencesAndOrders() {
+        final WifiEntry a = mockWifiEntry("a");
+        final WifiEntry b = mockWifiEntry("b");
+        reconcile(a, b);
+        final Preference prefA = getPreference("a");
+        final int orderA = prefA.getOrder();
+        mCreatedEntries.clear();
+
+        reconcile(a, b);
+
+        assertThat(mCreatedEntries).isEmpty();
+        assertThat(getPreference("a")).isSameInstanceAs(prefA);
+        assertThat(prefA.getOrder()).isEqualTo(orderA);
+    }
+
+    @Test
+    public void reconcile_insertedEntry_shouldOnlyOrderNewPreference() {
+        final WifiEntry a = mockWifiEntry("a");
+        final WifiEntry b = mockWifiEntry("b");
+        final WifiEntry c = mockWifiEntry("c");
+        reconcile(a, c);
+        final int orderA = getPreference("a").getOrder();
+        final int orderC = getPreference("c").getOrder();
+        mCreatedEntries.clear();
+
+        reconcile(a, b, c);
+
+        assertThat(mCreatedEntries).containsExactly(b);
+        assertThat(getKeysInOrder()).containsExactly("a", "b", "c").inOrder();
+        assertThat(getPreference("a").getOrder()).isEqualTo(orderA);
+        assertThat(getPreference("c").getOrder()).isEqualTo(orderC);
+    }
+
+    @Test
+    public void reconcile_movedEntry_shouldKeepOtherOrders() {
+        final WifiEntry a = mockWifiEntry("a");
+        final WifiEntry b = mockWifiEntry("b");
+        final WifiEntry c = mockWifiEntry("c");
+        reconcile(a, b, c);
+        final Preference prefC = getPreference("c");
+        final int orderA = getPreference("a").getOrder();
+        final int orderB = getPreference("b").getOrder();
+        mCreatedEntries.clear();
+
+        reconcile(c, a, b);
+
+        assertThat(mCreatedEntries).isEmpty();
+        assertThat(getPreference("c")).isSameInstanceAs(prefC);
+        assertThat(getKeysInOrder()).containsExactly("c", "a", "b").inOrder();
+        assertThat(getPreference("a").getOrder()).isEqualTo(orderA);
+        assertThat(getPreference("b").getOrder()).isEqualTo(orderB);
+    }
+
+    @Test
+    public void reconcile_removedOrReplacedEntry_shouldUpdatePreferences() {
+        final WifiEntry a = mockWifiEntry("a");
+        final WifiEntry b = mockWifiEntry("b");
+        reconcile(a, b);
+        final Preference nonEntryPref = new Preference(mContext);
+        nonEntryPref.setKey("other");
+        mCategory.addPreference(nonEntryPref);
+        final WifiEntry newB = mockWifiEntry("b");
+        mCreatedEntries.clear();
+
+        reconcile(newB);
+
+        assertThat(mCreatedEntries).containsExactly(newB);
+        assertThat(mCategory.findPreference("a")).isNull();
+        assertThat(((LongPressWifiEntryPreference) getPreference("b")).getWifiEntry())
+                .isSameInstanceAs(newB);
+        assertThat(mCategory.findPreference("other")).isSameInstanceAs(nonEntryPref);
+    }
+
+    @Test
+    public void computeOrders_noGap_shouldRenumber() {
+        final Preference first = new Preference(mContext);
+        first.setOrder(1);
+        final Preference second = new Preference(mContext);
+        second.setOrder(2);
+
+        final int[] orders = WifiEntryPreferenceReconciler.computeOrders(
+                new Preference[] {first, null, second});
+
+        assertThat(orders).asList().containsExactly(WifiEntryPreferenceReconciler.ORDER_STEP,
+                2 * WifiEntryPreferenceReconciler.ORDER_STEP,
+                3 * WifiEntryPreferenceReconciler.ORDER_STEP).inOrder();
+    }
+
+    private int reconcile(WifiEntry... wifiEntries) {
+        return WifiEntryPreferenceReconciler.reconcile(mCategory, Arrays.asList(wifiEntries),
+                wifiEntry -> {
+                    mCreatedEntries.add(wifiEntry);
+                    return new LongPressWifiEntryPreference(mContext, wifiEntry, mFragment);
+                });
+    }
+
+    private Preference getPreference(String key) {
+        return mCategory.findPreference(key);
+    }
+
+    private List<String> getKeysInOrder() {
+        final List<Preference> prefs = new ArrayList<>();
+        for (int i = 0; i < mCategory.getPreferenceCount(); i++) {
+            prefs.add(mCategory.getPreference(i));
+        }
+        prefs.sort((p1, p2) -> Integer.compare(p1.getOrder(), p2.getOrder()));
+        final List<String> keys = new ArrayList<>();
+        for (Preference pref : prefs) {
+            keys.add(pref.getKey());
+        }
+        return keys;
+    }
+
+    private static WifiEntry mockWifiEntry(String key) {
+        final WifiEntry wifiEntry = mock(WifiEntry.class);
+        when(wifiEntry.getKey()).thenReturn(key);
+        when(wifiEntry.getTitle()).thenReturn(key);
+        return wifiEntry;
+    }
+}
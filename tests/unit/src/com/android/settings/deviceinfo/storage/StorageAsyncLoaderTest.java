@@ -208,6 +208,34 @@ public class StorageAsyncLoaderTest {
         assertThat(result.get(PRIMARY_USER_ID).allAppsExceptGamesSize).isEqualTo(33L);
     }
 
+    @Test
+    public void testPackagesOfSeveralBatchesAreCounted() throws Exception {
+        final int packageCount = StorageAsyncLoader.PACKAGE_BATCH_SIZE * 2 + 1;
+        for (int i = 0; i < packageCount; i++) {
+            addPackage(PACKAGE_NAME_1 + i, 0, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+        }
+
+        SparseArray<StorageAsyncLoader.StorageResult> result = mLoader.loadInBackground();
+
+        assertThat(result.size()).isEqualTo(1);
+        assertThat(result.get(PRIMARY_USER_ID).allAppsExceptGamesSize)
+                .isEqualTo(11L * packageCount);
+    }
+
+    @Test
+    public void testDuplicateCodeIsCountedForLaterUsers() throws Exception {
+        addPackage(PACKAGE_NAME_1, 0, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+        UserInfo info = new UserInfo();
+        info.id = SECONDARY_USER_ID;
+        mUsers.add(info);
+
+        SparseArray<StorageAsyncLoader.StorageResult> result = mLoader.loadInBackground();
+
+        assertThat(result.size()).isEqualTo(2);
+        assertThat(result.get(PRIMARY_USER_ID).duplicateCodeSize).isEqualTo(0L);
+        assertThat(result.get(SECONDARY_USER_ID).duplicateCodeSize).isEqualTo(1L);
+    }
+
     private ApplicationInfo addPackage(String packageName, long cacheSize, long codeSize,
             long dataSize, int category) throws Exception {
         StorageStatsSource.AppStorageStats storageStats =
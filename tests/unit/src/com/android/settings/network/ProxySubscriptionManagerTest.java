@@ -20,9 +20,13 @@ import static com.google.common.truth.Truth.assertThat;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.content.Context;
+import android.telephony.SubscriptionInfo;
+import android.telephony.SubscriptionManager;
 
 import androidx.lifecycle.Lifecycle;
 import androidx.test.annotation.UiThreadTest;
@@ -37,6 +41,8 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
+import java.util.Arrays;
+
 @RunWith(AndroidJUnit4.class)
 public class ProxySubscriptionManagerTest {
 
@@ -46,6 +52,9 @@ public class ProxySubscriptionManagerTest {
     @Mock
     private GlobalSettingsChangeListener mAirplaneModeOnSettingsChangeListener;
 
+    @Mock
+    private SubscriptionManager mSubscriptionManager;
+
     @Mock
     private Lifecycle mLifecycle_ON_PAUSE;
     @Mock
@@ -62,6 +71,8 @@ public class ProxySubscriptionManagerTest {
         MockitoAnnotations.initMocks(this);
 
         mContext = spy(ApplicationProvider.getApplicationContext());
+        when(mContext.getSystemService(SubscriptionManager.class))
+                .thenReturn(mSubscriptionManager);
 
         doReturn(Lifecycle.State.CREATED).when(mLifecycle_ON_PAUSE).getCurrentState();
         doReturn(Lifecycle.State.STARTED).when(mLifecycle_ON_RESUME).getCurrentState();
@@ -225,4 +236,46 @@ public class ProxySubscriptionManagerTest {
         proxy.notifySubscriptionInfoMightChanged();
         assertThat(mClient1.getCallbackCount()).isEqualTo(1);
     }
+
+    @Test
+    @UiThreadTest
+    public void getSubscriptionTopology_noChange_buildOnce() {
+        ProxySubscriptionManager proxy = getInstance(mContext);
+        final SubscriptionInfo info = mock(SubscriptionInfo.class);
+        when(info.getSubscriptionId()).thenReturn(1);
+        when(info.getDisplayName()).thenReturn("carrier1");
+        when(mSubscriptionManager.getAvailableSubscriptionInfoList())
+                .thenReturn(Arrays.asList(info));
+
+        SubscriptionTopology topology = proxy.getSubscriptionTopology();
+
+        assertThat(proxy.getSubscriptionTopology()).isSameInstanceAs(topology);
+        assertThat(topology.getSelectableSubscriptions()).containsExactly(info);
+        assertThat(topology.getUniqueDisplayNames().get(1).toString()).isEqualTo("carrier1");
+        verify(mSubscriptionManager, times(1)).getAvailableSubscriptionInfoList();
+    }
+
+    @Test
+    @UiThreadTest
+    public void getSubscriptionTopology_afterChange_rebuild() {
+        ProxySubscriptionManager proxy = getInstance(mContext);
+
+        SubscriptionTopology topology = proxy.getSubscriptionTopology();
+        proxy.notifySubscriptionInfoMightChanged();
+
+        assertThat(proxy.getSubscriptionTopology()).isNotSameInstanceAs(topology);
+        verify(mSubscriptionManager, times(2)).getAvailableSubscriptionInfoList();
+    }
+
+    @Test
+    @UiThreadTest
+    public void getSubscriptionTopology_notMonitoring_rebuildEachTime() {
+        ProxySubscriptionManager proxy = getInstance(mContext);
+        proxy.onStop();
+
+        proxy.getSubscriptionTopology();
+        proxy.getSubscriptionTopology();
+
+        verify(mSubscriptionManager, times(2)).getAvailableSubscriptionInfoList();
+    }
 }
@@ -21,7 +21,9 @@ import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.content.Context;
@@ -33,6 +35,7 @@ import android.text.TextUtils;
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -68,6 +71,32 @@ public class SubscriptionUtilTest {
         when(mTelMgr.getUiccSlotsInfo()).thenReturn(null);
     }
 
+    @After
+    public void tearDown() {
+        ProxySubscriptionManager.setInstanceForTesting(null);
+    }
+
+    @Test
+    public void getAvailableSubscriptions_otherContextOfSameApp_useCachedTopology() {
+        final Context activityContext = mock(Context.class);
+        when(activityContext.getApplicationContext()).thenReturn(mContext);
+        when(activityContext.getSystemService(SubscriptionManager.class))
+                .thenReturn(mock(SubscriptionManager.class));
+        final SubscriptionInfo info = mock(SubscriptionInfo.class);
+        final SubscriptionTopology topology = mock(SubscriptionTopology.class);
+        when(topology.getSelectableSubscriptions()).thenReturn(Arrays.asList(info));
+        final ProxySubscriptionManager proxy = mock(ProxySubscriptionManager.class);
+        when(proxy.get()).thenReturn(mSubMgr);
+        when(proxy.getSubscriptionTopology()).thenReturn(topology);
+        ProxySubscriptionManager.setInstanceForTesting(proxy);
+
+        final List<SubscriptionInfo> subs =
+                SubscriptionUtil.getAvailableSubscriptions(activityContext);
+
+        assertThat(subs).containsExactly(info);
+        verify(mSubMgr, never()).getAvailableSubscriptionInfoList();
+    }
+
     @Test
     public void getAvailableSubscriptions_nullInfoFromSubscriptionManager_nonNullResult() {
         when(mSubMgr.getAvailableSubscriptionInfoList()).thenReturn(null);